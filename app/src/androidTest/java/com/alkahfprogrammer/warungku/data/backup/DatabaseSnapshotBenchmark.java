@@ -0,0 +1,109 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waktu dan ukuran snapshot .wkb untuk database ~500 ribu baris di perangkat, sambil mengukur berapa
+ * lama commit kasir tertahan selama snapshot berjalan. Hasil dibaca dari logcat (tag SnapshotBenchmark).
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseSnapshotBenchmark {
+    private static final String TAG = "SnapshotBenchmark";
+    private static final String DB_NAME = "snapshot-benchmark.db";
+    private static final int PRODUCTS = 2000;
+    private static final int SALES = 125_000; // cash_flow + sale + rata-rata 2 sale_item -> ~500 ribu baris
+    private static final long START = 1_672_506_000_000L; // 1 Jan 2023
+
+    private Context context;
+    private AppDatabase database;
+    private File snapshot;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        database = Room.databaseBuilder(context, AppDatabase.class, DB_NAME).build();
+        long started = SystemClock.elapsedRealtime();
+        SalesFixture fixture = new SalesFixture(database, 21);
+        fixture.addProducts(PRODUCTS, "899");
+        fixture.addSales(SALES, START);
+        Log.i(TAG, "Fixture dibuat dalam " + (SystemClock.elapsedRealtime() - started) + " ms");
+        snapshot = new File(context.getCacheDir(), "benchmark" + DatabaseSnapshot.EXTENSION);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DB_NAME);
+        snapshot.delete();
+    }
+
+    @Test
+    public void benchmarkSnapshotOf500kRows() throws Exception {
+        // Kasir terus berjualan selama snapshot: catat commit terlama
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong maxCommitMs = new AtomicLong();
+        AtomicLong commits = new AtomicLong();
+        Thread cashier = new Thread(() -> {
+            SalesFixture sales = new SalesFixture(database, 7);
+            sales.addProducts(1, "777");
+            long time = START + SALES * 90_000L;
+            while (running.get()) {
+                long before = SystemClock.elapsedRealtime();
+                time = sales.addSales(1, time);
+                maxCommitMs.accumulateAndGet(SystemClock.elapsedRealtime() - before, Math::max);
+                commits.incrementAndGet();
+                SystemClock.sleep(5);
+            }
+        });
+        cashier.start();
+        DatabaseSnapshot.Result result;
+        try {
+            result = DatabaseSnapshot.create(context.getDatabasePath(DB_NAME), context.getCacheDir(), snapshot);
+        } finally {
+            running.set(false);
+            cashier.join();
+        }
+
+        File extracted = new File(context.getCacheDir(), "benchmark-extracted.db");
+        long extractStarted = SystemClock.elapsedRealtime();
+        try (InputStream in = new FileInputStream(snapshot)) {
+            DatabaseSnapshot.extract(in, extracted); // Verifikasi SHA-256
+        }
+        long extractMs = SystemClock.elapsedRealtime() - extractStarted;
+        extracted.delete();
+
+        Log.i(TAG, "Snapshot " + result.header.getTotalRows() + " baris " + result.header.rowCounts);
+        Log.i(TAG, "  durasi     : " + result.durationMs + " ms (ekstrak + verifikasi " + extractMs + " ms)");
+        Log.i(TAG, "  ukuran     : " + result.header.rawLength / 1024 + " KB SQLite -> "
+                + result.compressedLength / 1024 + " KB .wkb ("
+                + (100 * result.compressedLength / result.header.rawLength) + "%)");
+        Log.i(TAG, "  kasir      : " + commits.get() + " commit selama snapshot, terlama " + maxCommitMs.get() + " ms");
+
+        assertTrue(result.header.getTotalRows() >= 500_000);
+        assertEquals(AppDatabase.VERSION, result.header.schemaVersion);
+        assertTrue(commits.get() > 0); // Penulis tidak tertahan sampai snapshot selesai
+    }
+}
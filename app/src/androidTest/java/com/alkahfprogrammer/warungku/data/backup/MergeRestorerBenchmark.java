@@ -0,0 +1,109 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.DatabaseWriters;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+/**
+ * Waktu gabung backup ~200 ribu baris dari HP lain di perangkat: separuh riwayatnya sama dengan database
+ * di sini, separuh lagi baru. Hasil dibaca dari logcat (tag MergeBenchmark).
+ */
+@RunWith(AndroidJUnit4.class)
+public class MergeRestorerBenchmark {
+    private static final String TAG = "MergeBenchmark";
+    private static final String SOURCE_NAME = "merge-benchmark-source.db";
+    private static final String LIVE_NAME = "merge-benchmark-live.db";
+    private static final int PRODUCTS = 2000;
+    private static final int COMMON_SALES = 25_000;
+    private static final int SOURCE_SALES = 25_000; // cash_flow + sale + rata-rata 2 sale_item -> ~200 ribu baris
+    private static final int LIVE_SALES = 1000;
+    private static final long START = 1_672_506_000_000L; // 1 Jan 2023
+    private static final long TARGET_MS = 60_000;
+
+    private Context context;
+    private AppDatabase live;
+    private File backup;
+
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(SOURCE_NAME);
+        context.deleteDatabase(LIVE_NAME);
+        long started = SystemClock.elapsedRealtime();
+
+        // Seed sama: kedua HP punya katalog dan riwayat awal yang identik
+        AppDatabase source = Room.databaseBuilder(context, AppDatabase.class, SOURCE_NAME).build();
+        live = Room.databaseBuilder(context, AppDatabase.class, LIVE_NAME).build();
+        SalesFixture sourceSales = new SalesFixture(source, 25);
+        SalesFixture liveSales = new SalesFixture(live, 25);
+        sourceSales.addProducts(PRODUCTS, "899");
+        liveSales.addProducts(PRODUCTS, "899");
+        long split = sourceSales.addSales(COMMON_SALES, START);
+        liveSales.addSales(COMMON_SALES, START);
+
+        // Setelah berpisah: HP lain berjualan lama, HP ini sedikit (waktu digeser supaya transaksinya beda)
+        sourceSales.addSales(SOURCE_SALES, split);
+        liveSales.addSales(LIVE_SALES, split + 30_000);
+
+        backup = new File(context.getCacheDir(), "merge-benchmark" + DatabaseSnapshot.EXTENSION);
+        DatabaseSnapshot.create(context.getDatabasePath(SOURCE_NAME), context.getCacheDir(), backup);
+        source.close();
+        context.deleteDatabase(SOURCE_NAME);
+        Log.i(TAG, "Fixture dibuat dalam " + (SystemClock.elapsedRealtime() - started) + " ms");
+    }
+
+    @After
+    public void tearDown() {
+        live.close();
+        context.deleteDatabase(LIVE_NAME);
+        DatabaseRestorer.discard(context);
+        backup.delete();
+    }
+
+    @Test
+    public void benchmarkMergeOf200kRowBackup() throws Exception {
+        long started = SystemClock.elapsedRealtime();
+        DatabaseRestorer.Staged staged;
+        try (InputStream in = new FileInputStream(backup)) {
+            staged = DatabaseRestorer.prepare(context, in);
+        }
+        long prepareMs = SystemClock.elapsedRealtime() - started;
+        MergeRestorer.Plan plan = MergeRestorer.analyze(live, staged);
+        MergeRestorer.Report result = MergeRestorer.apply(context, live, DatabaseWriters.newWriter(live), plan);
+        long totalMs = SystemClock.elapsedRealtime() - started;
+
+        Log.i(TAG, "Gabung backup " + staged.getTotalRows() + " baris " + staged.rowCounts);
+        Log.i(TAG, "  validasi   : " + prepareMs + " ms");
+        Log.i(TAG, "  dry run    : " + plan.report.durationMs + " ms (" + plan.report.cashFlowsNew + " baru, "
+                + plan.report.cashFlowsDuplicate + " duplikat, " + plan.report.stockChanges.size() + " produk berubah)");
+        Log.i(TAG, "  tulis      : " + result.durationMs + " ms");
+        Log.i(TAG, "  total      : " + totalMs + " ms (target < " + TARGET_MS + " ms)");
+
+        assertTrue(staged.getTotalRows() >= 200_000);
+        assertEquals(SOURCE_SALES, result.cashFlowsNew);
+        assertEquals(SOURCE_SALES, result.salesNew);
+        assertEquals(COMMON_SALES, result.cashFlowsDuplicate);
+        assertEquals(0, result.productsNew);
+        assertTrue(plan.report.stockWarnings.isEmpty()); // Semua perubahan stok punya transaksi
+        assertTrue(totalMs + " ms", totalMs < TARGET_MS);
+    }
+}
@@ -0,0 +1,104 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.entity.Sale;
+import com.alkahfprogrammer.warungku.data.entity.SaleItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Isi database benchmark seperti warung sungguhan: katalog produk lalu riwayat penjualan
+ * (cash_flow + sale + sale_item + rekap harian + stok), ditulis per transaksi besar supaya cepat
+ */
+class SalesFixture {
+    private static final int SALES_PER_TRANSACTION = 2000;
+    private static final long SALE_INTERVAL_MS = 90_000; // Satu penjualan tiap 1,5 menit
+
+    private final AppDatabase db;
+    private final Random random;
+    private final List<Product> products = new ArrayList<>();
+
+    SalesFixture(AppDatabase db, long seed) {
+        this.db = db;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Tambah produk dengan barcode unik; prefix membedakan katalog antar perangkat
+     */
+    void addProducts(int count, String barcodePrefix) {
+        List<Product> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product("Produk " + barcodePrefix + i, 1000 + random.nextInt(50) * 500,
+                    800.0 + random.nextInt(40) * 400, 1_000_000, 10);
+            product.barcode = barcodePrefix + String.format(Locale.ROOT, "%08d", i);
+            batch.add(product);
+        }
+        long[] ids = db.productDao().insertAll(batch);
+        for (int i = 0; i < count; i++) {
+            batch.get(i).id = (int) ids[i];
+        }
+        products.addAll(batch);
+    }
+
+    /**
+     * Catat penjualan 1-3 produk berurutan mulai startTime, jalur tulis sama dengan DataRepository.checkout
+     * @return waktu setelah penjualan terakhir
+     */
+    long addSales(int count, long startTime) {
+        long time = startTime;
+        for (int done = 0; done < count; done += SALES_PER_TRANSACTION) {
+            int batch = Math.min(SALES_PER_TRANSACTION, count - done);
+            long batchStart = time;
+            db.runInTransaction(() -> {
+                long now = batchStart;
+                for (int i = 0; i < batch; i++) {
+                    now += SALE_INTERVAL_MS;
+                    recordSale(now);
+                }
+            });
+            time += batch * SALE_INTERVAL_MS;
+        }
+        return time;
+    }
+
+    private void recordSale(long time) {
+        List<Product> picked = new ArrayList<>(3);
+        int lines = 1 + random.nextInt(3);
+        while (picked.size() < lines) {
+            Product product = products.get(random.nextInt(products.size()));
+            if (!picked.contains(product)) {
+                picked.add(product);
+            }
+        }
+        Collections.sort(picked, (a, b) -> Integer.compare(a.id, b.id));
+
+        StringBuilder description = new StringBuilder("Jual: ");
+        List<SaleItem> items = new ArrayList<>(lines);
+        double total = 0;
+        double profit = 0;
+        int quantity = 0;
+        for (Product product : picked) {
+            int qty = 1 + random.nextInt(3);
+            db.productDao().applySale(product.id, qty, time);
+            SaleItem item = new SaleItem(product.id, product.name, qty, product.sellPrice, product.buyPrice, time);
+            items.add(item);
+            total += item.getRevenue();
+            profit += item.lineProfit;
+            quantity += qty;
+            if (description.length() > 6) {
+                description.append(", ");
+            }
+            description.append(product.name).append(" (").append(qty).append(")");
+        }
+        CashFlow flow = new CashFlow("IN", total, description.toString(), time, null, profit);
+        db.saleDao().insertSaleWithItems(flow, new Sale(time, total, profit, quantity), items);
+        db.dailySummaryDao().record(flow);
+    }
+}
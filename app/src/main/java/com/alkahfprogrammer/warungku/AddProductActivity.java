@@ -15,16 +15,15 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.alkahfprogrammer.warungku.data.entity.Product;
 import com.alkahfprogrammer.warungku.data.DataRepository;
+import com.alkahfprogrammer.warungku.data.DuplicateBarcodeException;
 import com.alkahfprogrammer.warungku.databinding.ActivityAddProductBinding;
 import com.alkahfprogrammer.warungku.utils.BarcodeScannerHelper;
-import com.alkahfprogrammer.warungku.utils.NetworkUtils;
 import com.alkahfprogrammer.warungku.viewmodel.AppViewModel;
 import com.alkahfprogrammer.warungku.api.ProductApiClient;
-import com.alkahfprogrammer.warungku.api.ProductApiService;
-import com.alkahfprogrammer.warungku.api.ProductApiResponse;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import com.alkahfprogrammer.warungku.api.OfflineException;
+import com.alkahfprogrammer.warungku.api.ProductLookupService;
+import com.alkahfprogrammer.warungku.data.entity.BarcodeLookup;
+import com.alkahfprogrammer.warungku.data.image.ProductImageStore;
 
 public class AddProductActivity extends AppCompatActivity {
 
@@ -37,6 +36,7 @@ public class AddProductActivity extends AppCompatActivity {
     private com.alkahfprogrammer.warungku.data.entity.Product productToEdit;
     private String currentImageUrl = null;
     private String apiImageUrl = null; // Store API image URL separately
+    private Uri pendingImagePick = null; // Gambar galeri yang sedang disalin
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -79,10 +79,7 @@ public class AddProductActivity extends AppCompatActivity {
             new ActivityResultContracts.GetContent(),
             uri -> {
                 if (uri != null) {
-                    currentImageUrl = uri.toString();
-                    loadImageIntoView(currentImageUrl);
-                    binding.btnRemoveImage.setVisibility(android.view.View.VISIBLE);
-                    binding.btnUseApiImage.setVisibility(android.view.View.GONE);
+                    importPickedImage(uri);
                 }
             }
         );
@@ -95,6 +92,8 @@ public class AddProductActivity extends AppCompatActivity {
         binding.btnUseApiImage.setOnClickListener(v -> {
             if (apiImageUrl != null && !apiImageUrl.isEmpty()) {
                 currentImageUrl = apiImageUrl;
+                pendingImagePick = null;
+                binding.btnSave.setEnabled(true);
                 loadImageIntoView(currentImageUrl);
                 binding.btnRemoveImage.setVisibility(android.view.View.VISIBLE);
                 binding.btnUseApiImage.setVisibility(android.view.View.GONE);
@@ -104,6 +103,8 @@ public class AddProductActivity extends AppCompatActivity {
 
         binding.btnRemoveImage.setOnClickListener(v -> {
             currentImageUrl = null;
+            pendingImagePick = null;
+            binding.btnSave.setEnabled(true);
             binding.ivProductImage.setImageResource(R.drawable.ic_image_placeholder);
             binding.btnRemoveImage.setVisibility(android.view.View.GONE);
             if (apiImageUrl != null && !apiImageUrl.isEmpty()) {
@@ -112,6 +113,32 @@ public class AddProductActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Salin gambar galeri ke app storage (sudah diperkecil); yang disimpan di produk adalah file lokal,
+     * bukan URI content:// yang izinnya bisa hilang setelah activity ditutup
+     */
+    private void importPickedImage(Uri uri) {
+        loadImageIntoView(uri.toString()); // Preview langsung selama penyalinan
+        binding.btnRemoveImage.setVisibility(android.view.View.VISIBLE);
+        binding.btnUseApiImage.setVisibility(android.view.View.GONE);
+        binding.btnSave.setEnabled(false);
+        pendingImagePick = uri;
+
+        ProductImageStore.getInstance(this).importPicked(uri).whenComplete((localUrl, error) -> runOnUiThread(() -> {
+            if (isFinishing() || isDestroyed() || pendingImagePick != uri) {
+                return; // Sudah dihapus / diganti gambar lain
+            }
+            pendingImagePick = null;
+            binding.btnSave.setEnabled(true);
+            if (error != null) {
+                Toast.makeText(this, "Gagal memuat gambar", Toast.LENGTH_SHORT).show();
+                binding.btnRemoveImage.performClick();
+                return;
+            }
+            currentImageUrl = localUrl;
+        }));
+    }
+
     private void loadImageIntoView(String imageUrl) {
         if (imageUrl != null && !imageUrl.isEmpty()) {
             Glide.with(this)
@@ -176,19 +203,42 @@ public class AddProductActivity extends AppCompatActivity {
             productToEdit.barcode = barcode.isEmpty() ? null : barcode;
             productToEdit.imageUrl = currentImageUrl; // Save image URL
             
-            viewModel.updateProduct(productToEdit);
-            Toast.makeText(this, "Produk berhasil diupdate", Toast.LENGTH_SHORT).show();
+            awaitSave(viewModel.updateProduct(productToEdit), "Produk berhasil diupdate");
         } else {
             // Create new product
             Product product = new Product(name, sellPrice, buyPrice, stock, minStock);
             product.barcode = barcode.isEmpty() ? null : barcode;
             product.imageUrl = currentImageUrl; // Save image URL
             
-            viewModel.addProduct(product);
-            Toast.makeText(this, "Produk berhasil ditambahkan", Toast.LENGTH_SHORT).show();
+            awaitSave(viewModel.addProduct(product), "Produk berhasil ditambahkan");
         }
+    }
 
-        finish();
+    /**
+     * Tutup form hanya setelah tersimpan; barcode yang sudah dipakai produk lain ditampilkan di field-nya
+     */
+    private void awaitSave(java.util.concurrent.CompletableFuture<Void> save, String successMessage) {
+        binding.btnSave.setEnabled(false);
+        save.whenComplete((ignored, error) -> runOnUiThread(() -> {
+            if (isFinishing() || isDestroyed()) {
+                return;
+            }
+            binding.btnSave.setEnabled(true);
+            Throwable cause = error instanceof java.util.concurrent.CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (cause instanceof DuplicateBarcodeException) {
+                binding.etBarcode.setError(cause.getMessage());
+                binding.etBarcode.requestFocus();
+                Toast.makeText(this, cause.getMessage(), Toast.LENGTH_LONG).show();
+                return;
+            }
+            if (cause != null) {
+                Toast.makeText(this, "Gagal menyimpan produk: " + cause.getMessage(), Toast.LENGTH_LONG).show();
+                return;
+            }
+            Toast.makeText(this, successMessage, Toast.LENGTH_SHORT).show();
+            finish();
+        }));
     }
     
     /**
@@ -206,7 +256,7 @@ public class AddProductActivity extends AppCompatActivity {
             if (products != null) {
                 for (Product product : products) {
                     if (product.id == productId) {
-                        productToEdit = product;
+                        productToEdit = product.copy(); // Form mengubah salinan, bukan instance milik adapter
                         fillFormWithProduct(product);
                         // Remove observer after loading
                         viewModel.getAllProducts().removeObservers(this);
@@ -289,77 +339,42 @@ public class AddProductActivity extends AppCompatActivity {
                     return;
                 }
                 
-                // Check network connectivity sebelum call API
-                if (!NetworkUtils.isNetworkAvailable(AddProductActivity.this)) {
-                    runOnUiThread(() -> {
-                        Toast.makeText(AddProductActivity.this, 
-                            "Tidak ada koneksi internet. Silakan isi data manual atau coba lagi nanti.", 
-                            Toast.LENGTH_LONG).show();
-                    });
-                    return;
+                // Cache memori -> cache database -> jaringan (Open Food Facts)
+                java.util.concurrent.CompletableFuture<BarcodeLookup> lookup =
+                        ProductLookupService.getInstance(AddProductActivity.this).lookup(barcode);
+                if (!lookup.isDone()) {
+                    runOnUiThread(() -> showLoading(true));
                 }
-                
-                // Tampilkan loading indicator
-                runOnUiThread(() -> showLoading(true));
-                
-                // Call API (Open Food Facts - 100% gratis, tidak perlu token)
-                ProductApiService apiService = ProductApiClient.getApiService();
-                Call<ProductApiResponse> call = apiService.lookupProduct(barcode);
-                
-                call.enqueue(new Callback<ProductApiResponse>() {
-                    @Override
-                    public void onResponse(Call<ProductApiResponse> call, Response<ProductApiResponse> response) {
-                        runOnUiThread(() -> showLoading(false));
-                        
-                        try {
-                            if (response.isSuccessful() && response.body() != null) {
-                                ProductApiResponse apiProduct = response.body();
-                                
-                                if (apiProduct != null && apiProduct.isSuccess()) {
-                                    // Data produk ditemukan di API, auto-fill form
-                                    runOnUiThread(() -> {
-                                        fillFormWithApiProduct(apiProduct);
-                                        Toast.makeText(AddProductActivity.this, 
-                                            "Data produk ditemukan dari database eksternal", 
-                                            Toast.LENGTH_SHORT).show();
-                                    });
-                                } else {
-                                    // Produk tidak ditemukan di API
-                                    runOnUiThread(() -> {
-                                        Toast.makeText(AddProductActivity.this, 
-                                            "Produk tidak ditemukan, silakan isi data manual", 
-                                            Toast.LENGTH_SHORT).show();
-                                    });
-                                }
-                            } else {
-                                // API error
-                                runOnUiThread(() -> {
-                                    Toast.makeText(AddProductActivity.this, 
-                                        "Gagal mengambil data produk, silakan isi manual", 
-                                        Toast.LENGTH_SHORT).show();
-                                });
-                            }
-                        } catch (Exception e) {
-                            // Handle any exception
-                            runOnUiThread(() -> {
-                                Toast.makeText(AddProductActivity.this, 
-                                    "Error: " + e.getMessage(), 
-                                    Toast.LENGTH_SHORT).show();
-                            });
-                        }
+
+                lookup.whenComplete((result, error) -> runOnUiThread(() -> {
+                    showLoading(false);
+                    if (isDestroyed()) {
+                        return;
                     }
-                    
-                    @Override
-                    public void onFailure(Call<ProductApiResponse> call, Throwable t) {
-                        runOnUiThread(() -> {
-                            showLoading(false);
+                    if (error != null) {
+                        if (ProductLookupService.unwrap(error) instanceof OfflineException) {
+                            Toast.makeText(AddProductActivity.this, 
+                                "Tidak ada koneksi internet. Silakan isi data manual atau coba lagi nanti.", 
+                                Toast.LENGTH_LONG).show();
+                        } else {
                             // Network error atau API tidak tersedia
                             Toast.makeText(AddProductActivity.this, 
                                 "Tidak dapat mengakses database produk, silakan isi manual", 
                                 Toast.LENGTH_SHORT).show();
-                        });
+                        }
+                    } else if (result.isSuccess()) {
+                        // Data produk ditemukan di API, auto-fill form
+                        fillFormWithApiProduct(result);
+                        Toast.makeText(AddProductActivity.this, 
+                            "Data produk ditemukan dari database eksternal", 
+                            Toast.LENGTH_SHORT).show();
+                    } else {
+                        // Produk tidak ditemukan di API
+                        Toast.makeText(AddProductActivity.this, 
+                            "Produk tidak ditemukan, silakan isi data manual", 
+                            Toast.LENGTH_SHORT).show();
                     }
-                });
+                }));
             }
         });
     }
@@ -387,7 +402,7 @@ public class AddProductActivity extends AppCompatActivity {
     /**
      * Auto-fill form dengan data dari API eksternal (Open Food Facts)
      */
-    private void fillFormWithApiProduct(ProductApiResponse apiProduct) {
+    private void fillFormWithApiProduct(BarcodeLookup apiProduct) {
         if (apiProduct == null || binding == null) {
             return;
         }
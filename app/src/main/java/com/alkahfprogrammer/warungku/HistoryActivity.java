@@ -26,8 +26,8 @@ public class HistoryActivity extends AppCompatActivity {
         setupRecyclerView();
         setupOfflineIndicator();
 
-        viewModel.getAllHistory().observe(this, history -> {
-            adapter.setItems(history);
+        viewModel.getHistoryPaging().observe(this, pagingData -> {
+            adapter.submitData(getLifecycle(), pagingData);
         });
 
         // Format currency konsisten dengan MainActivity
@@ -49,6 +49,9 @@ public class MainActivity extends AppCompatActivity {
         setupOfflineIndicator();
         setupNotificationPermission();
         requestNotificationPermission();
+
+        // Backup otomatis tiap malam (saat dicas & tidak dipakai); tidak dobel jika sudah terjadwal
+        com.alkahfprogrammer.warungku.worker.BackupWorker.schedule(this);
     }
     
     private void setupNotificationPermission() {
@@ -94,9 +97,7 @@ public class MainActivity extends AppCompatActivity {
         updateDailyDataObservers();
         
         // Check stock and send notifications if needed
-        com.alkahfprogrammer.warungku.utils.StockNotificationHelper notificationHelper = 
-            new com.alkahfprogrammer.warungku.utils.StockNotificationHelper(this);
-        notificationHelper.checkAndNotify();
+        com.alkahfprogrammer.warungku.utils.StockNotificationHelper.getInstance(this).checkAndNotify();
     }
     
     private void setupOfflineIndicator() {
@@ -155,9 +155,9 @@ public class ReportActivity extends AppCompatActivity {
         // profitLive observer dihapus karena keuntungan dihitung dari income - expense
         cashFlowLive.observe(this, cashFlows -> updateChart(cashFlows));
 
-        // Observe product data (tidak tergantung periode, selalu real-time)
-        topSellingLive = viewModel.getTopSellingProducts(10);
-        unsoldLive = viewModel.getUnsoldProducts();
+        // Produk terlaris & tidak laku sesuai periode yang sama (agregat sale_item)
+        topSellingLive = viewModel.getTopSellingProductsInRange(currentStart, Long.MAX_VALUE, 10);
+        unsoldLive = viewModel.getUnsoldProducts(currentStart, Long.MAX_VALUE);
 
         topSellingLive.observe(this, products -> {
             if (products != null) {
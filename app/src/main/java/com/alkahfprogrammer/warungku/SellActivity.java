@@ -2,6 +2,8 @@ package com.alkahfprogrammer.warungku;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.widget.EditText;
@@ -16,30 +18,37 @@ import com.journeyapps.barcodescanner.ScanContract;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import com.alkahfprogrammer.warungku.adapters.ProductSellAdapter;
+import com.alkahfprogrammer.warungku.data.DataRepository;
 import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.search.ProductSearchIndex;
 import com.alkahfprogrammer.warungku.databinding.ActivitySellBinding;
 import com.alkahfprogrammer.warungku.utils.BarcodeScannerHelper;
-import com.alkahfprogrammer.warungku.utils.NetworkUtils;
 import com.alkahfprogrammer.warungku.viewmodel.AppViewModel;
 import com.alkahfprogrammer.warungku.api.ProductApiClient;
-import com.alkahfprogrammer.warungku.api.ProductApiService;
-import com.alkahfprogrammer.warungku.api.ProductApiResponse;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import com.alkahfprogrammer.warungku.api.OfflineException;
+import com.alkahfprogrammer.warungku.api.ProductLookupService;
+import com.alkahfprogrammer.warungku.data.entity.BarcodeLookup;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SellActivity extends AppCompatActivity {
 
     private ActivitySellBinding binding;
     private AppViewModel viewModel;
     private ProductSellAdapter adapter;
-    private List<Product> allProducts = new ArrayList<>();
     private String currentSearchQuery = "";
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+
+    // Index dan query pencarian jalan di satu thread background, bukan di main thread
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger searchGeneration = new AtomicInteger(); // Query lama dibatalkan jika ada yang lebih baru
+    private final Runnable searchRunnable = this::applySortingAndFilter;
     private ActivityResultLauncher<ScanOptions> barcodeLauncher;
     private ActivityResultLauncher<String> requestPermissionLauncher;
 
@@ -103,7 +112,8 @@ public class SellActivity extends AppCompatActivity {
         });
 
         viewModel.getAllProducts().observe(this, products -> {
-            allProducts = products != null ? products : new ArrayList<>();
+            List<Product> snapshot = products != null ? products : new ArrayList<>();
+            searchExecutor.execute(() -> searchIndex.update(snapshot));
             applySortingAndFilter();
         });
 
@@ -140,6 +150,14 @@ public class SellActivity extends AppCompatActivity {
         binding.bottomNavigation.setSelectedItemId(R.id.nav_sell);
         setupOfflineIndicator();
     }
+
+    @Override
+    protected void onDestroy() {
+        searchHandler.removeCallbacks(searchRunnable);
+        searchGeneration.incrementAndGet();
+        searchExecutor.shutdownNow();
+        super.onDestroy();
+    }
     
     private void setupOfflineIndicator() {
         android.content.SharedPreferences prefs = getSharedPreferences("WarungKuPrefs", MODE_PRIVATE);
@@ -184,11 +202,11 @@ public class SellActivity extends AppCompatActivity {
 
             @Override
             public void onProductLongClick(Product product) {
-                // Toggle favorite
-                product.isFavorite = !product.isFavorite;
-                viewModel.updateProduct(product);
+                // Toggle favorite (jangan ubah objek di list adapter, biar DiffUtil melihat perubahannya)
+                boolean favorite = !product.isFavorite;
+                viewModel.setFavorite(product, favorite);
                 Toast.makeText(SellActivity.this, 
-                    product.isFavorite ? "Ditandai favorit" : "Favorit dihapus", 
+                    favorite ? "Ditandai favorit" : "Favorit dihapus", 
                     Toast.LENGTH_SHORT).show();
             }
         });
@@ -294,8 +312,10 @@ public class SellActivity extends AppCompatActivity {
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                currentSearchQuery = s.toString().toLowerCase().trim();
-                applySortingAndFilter();
+                currentSearchQuery = s.toString().trim();
+                // Debounce: query hanya dijalankan setelah ketikan berhenti sebentar
+                searchHandler.removeCallbacks(searchRunnable);
+                searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
             }
 
             @Override
@@ -303,38 +323,25 @@ public class SellActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Jalankan query di thread pencarian. Hasil query yang sudah digantikan query baru dibuang.
+     * Urutan (favorit, salesCount, lastSoldTimestamp) sudah dijaga oleh index.
+     */
     private void applySortingAndFilter() {
-        List<Product> filtered = new ArrayList<>();
-        
-        // Filter by search query
-        if (currentSearchQuery.isEmpty()) {
-            filtered.addAll(allProducts);
-        } else {
-            for (Product product : allProducts) {
-                if (product.name.toLowerCase().contains(currentSearchQuery)) {
-                    filtered.add(product);
-                }
-            }
-        }
-
-        // Sort: Favorite first, then by salesCount (desc), then by lastSoldTimestamp (desc)
-        Collections.sort(filtered, new Comparator<Product>() {
-            @Override
-            public int compare(Product p1, Product p2) {
-                // 1. Favorite first
-                if (p1.isFavorite && !p2.isFavorite) return -1;
-                if (!p1.isFavorite && p2.isFavorite) return 1;
-                
-                // 2. Then by salesCount (descending)
-                int salesCompare = Integer.compare(p2.salesCount, p1.salesCount);
-                if (salesCompare != 0) return salesCompare;
-                
-                // 3. Then by lastSoldTimestamp (descending - most recent first)
-                return Long.compare(p2.lastSoldTimestamp, p1.lastSoldTimestamp);
+        searchHandler.removeCallbacks(searchRunnable);
+        String query = currentSearchQuery;
+        int generation = searchGeneration.incrementAndGet();
+        searchExecutor.execute(() -> {
+            List<Product> result = searchIndex.search(query, () -> searchGeneration.get() != generation);
+            if (result == null) {
+                return; // Dibatalkan
             }
+            runOnUiThread(() -> {
+                if (searchGeneration.get() == generation && !isDestroyed()) {
+                    adapter.setProducts(result);
+                }
+            });
         });
-
-        adapter.setProducts(filtered);
     }
 
     private void setupBarcodeScanner() {
@@ -373,28 +380,27 @@ public class SellActivity extends AppCompatActivity {
     }
 
     private void handleBarcodeScanned(String barcode) {
-        // 1. Cek database lokal dulu
-        Product foundProduct = null;
-        for (Product product : allProducts) {
-            if (product.barcode != null && product.barcode.equals(barcode)) {
-                foundProduct = product;
-                break;
+        // 1. Cek database lokal dulu (index barcode di memori, tanpa antri ke database)
+        viewModel.getProductByBarcode(barcode, new DataRepository.ProductCallback() {
+            @Override
+            public void onProductFound(Product foundProduct) {
+                runOnUiThread(() -> {
+                    if (foundProduct.currentStock > 0) {
+                        // Langsung tambah ke keranjang dengan quantity 1 (tanpa konfirmasi)
+                        viewModel.addToCart(foundProduct, 1);
+                        Toast.makeText(SellActivity.this, foundProduct.name + " ditambahkan ke keranjang", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(SellActivity.this, "Stok habis untuk " + foundProduct.name, Toast.LENGTH_SHORT).show();
+                    }
+                });
             }
-        }
 
-        if (foundProduct != null) {
-            // Produk ditemukan di database lokal
-            if (foundProduct.currentStock > 0) {
-                // Langsung tambah ke keranjang dengan quantity 1 (tanpa konfirmasi)
-                viewModel.addToCart(foundProduct, 1);
-                Toast.makeText(this, foundProduct.name + " ditambahkan ke keranjang", Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, "Stok habis untuk " + foundProduct.name, Toast.LENGTH_SHORT).show();
+            @Override
+            public void onProductNotFound() {
+                // Produk tidak ditemukan di lokal, cek API atau tanya user
+                runOnUiThread(() -> showProductNotFoundDialog(barcode));
             }
-        } else {
-            // Produk tidak ditemukan di lokal, cek API atau tanya user
-            showProductNotFoundDialog(barcode);
-        }
+        });
     }
     
     /**
@@ -430,53 +436,42 @@ public class SellActivity extends AppCompatActivity {
      * Lookup produk dari API eksternal
      */
     private void lookupProductFromApi(String barcode) {
-        // Check network connectivity sebelum call API
-        if (!NetworkUtils.isNetworkAvailable(this)) {
-            Toast.makeText(this, 
-                "Tidak ada koneksi internet. Produk tidak ditemukan di database lokal.", 
-                Toast.LENGTH_LONG).show();
-            return;
+        // Cache memori -> cache database -> jaringan; barcode yang sudah dikenal tidak perlu internet
+        java.util.concurrent.CompletableFuture<BarcodeLookup> lookup =
+                ProductLookupService.getInstance(this).lookup(barcode);
+        if (!lookup.isDone()) {
+            Toast.makeText(this, "Mencari di database eksternal...", Toast.LENGTH_SHORT).show();
         }
-        
-        Toast.makeText(this, "Mencari di database eksternal...", Toast.LENGTH_SHORT).show();
-        
-        ProductApiService apiService = ProductApiClient.getApiService();
-        Call<ProductApiResponse> call = apiService.lookupProduct(barcode); // Open Food Facts - 100% gratis
-        
-        call.enqueue(new Callback<ProductApiResponse>() {
-            @Override
-            public void onResponse(Call<ProductApiResponse> call, Response<ProductApiResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    ProductApiResponse apiProduct = response.body();
-                    
-                    if (apiProduct.isSuccess()) {
-                        // Produk ditemukan di API, tawarkan untuk tambah ke database
-                        showAddProductFromApiDialog(apiProduct, barcode);
-                    } else {
-                        Toast.makeText(SellActivity.this, 
-                            "Produk tidak ditemukan di database eksternal", 
-                            Toast.LENGTH_SHORT).show();
-                    }
+
+        lookup.whenComplete((result, error) -> runOnUiThread(() -> {
+            if (isDestroyed()) {
+                return;
+            }
+            if (error != null) {
+                if (ProductLookupService.unwrap(error) instanceof OfflineException) {
+                    Toast.makeText(SellActivity.this, 
+                        "Tidak ada koneksi internet. Produk tidak ditemukan di database lokal.", 
+                        Toast.LENGTH_LONG).show();
                 } else {
                     Toast.makeText(SellActivity.this, 
-                        "Gagal mengakses database eksternal", 
+                        "Tidak dapat mengakses database eksternal", 
                         Toast.LENGTH_SHORT).show();
                 }
-            }
-            
-            @Override
-            public void onFailure(Call<ProductApiResponse> call, Throwable t) {
+            } else if (result.isSuccess()) {
+                // Produk ditemukan di API, tawarkan untuk tambah ke database
+                showAddProductFromApiDialog(result, barcode);
+            } else {
                 Toast.makeText(SellActivity.this, 
-                    "Tidak dapat mengakses database eksternal", 
+                    "Produk tidak ditemukan di database eksternal", 
                     Toast.LENGTH_SHORT).show();
             }
-        });
+        }));
     }
     
     /**
      * Dialog untuk menambah produk dari API ke database lokal
      */
-    private void showAddProductFromApiDialog(ProductApiResponse apiProduct, String barcode) {
+    private void showAddProductFromApiDialog(BarcodeLookup apiProduct, String barcode) {
         String productName = apiProduct.getName();
         String brand = apiProduct.getBrand();
         String quantity = apiProduct.getQuantity();
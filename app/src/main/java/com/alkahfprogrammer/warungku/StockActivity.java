@@ -12,21 +12,27 @@ import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import com.alkahfprogrammer.warungku.adapters.ProductStockAdapter;
 import com.alkahfprogrammer.warungku.databinding.ActivityStockBinding;
+import com.alkahfprogrammer.warungku.utils.BarcodeScannerHelper;
 import com.alkahfprogrammer.warungku.utils.ExcelExporter;
 import com.alkahfprogrammer.warungku.utils.ExcelImporter;
 import com.alkahfprogrammer.warungku.viewmodel.AppViewModel;
+import com.journeyapps.barcodescanner.ScanContract;
+import com.journeyapps.barcodescanner.ScanOptions;
 
 import java.io.InputStream;
 import java.util.List;
 
 public class StockActivity extends AppCompatActivity {
+    private static final String XLSX_MIME_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
 
     private ActivityStockBinding binding;
     private AppViewModel viewModel;
     private ProductStockAdapter adapter;
     private List<com.alkahfprogrammer.warungku.data.entity.Product> allProducts;
-    private ActivityResultLauncher<String> filePickerLauncher;
+    private ActivityResultLauncher<String[]> filePickerLauncher;
     private ActivityResultLauncher<String> fileSaverLauncher;
+    private ActivityResultLauncher<ScanOptions> barcodeLauncher;
+    private ActivityResultLauncher<String> requestPermissionLauncher;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -153,7 +159,7 @@ public class StockActivity extends AppCompatActivity {
     private void setupFilePickers() {
         // File picker for import
         filePickerLauncher = registerForActivityResult(
-            new ActivityResultContracts.GetContent(),
+            new ActivityResultContracts.OpenDocument(),
             uri -> {
                 if (uri != null) {
                     importProductsFromUri(uri);
@@ -161,6 +167,23 @@ public class StockActivity extends AppCompatActivity {
             }
         );
         
+        // Scan barcode untuk langsung membuka aksi stok produk
+        barcodeLauncher = registerForActivityResult(new ScanContract(), result -> {
+            if (result != null && result.getContents() != null) {
+                openProductByBarcode(result.getContents());
+            }
+        });
+        requestPermissionLauncher = registerForActivityResult(
+            new ActivityResultContracts.RequestPermission(),
+            isGranted -> {
+                if (isGranted) {
+                    scanBarcode();
+                } else {
+                    Toast.makeText(this, "Izin kamera diperlukan untuk scan barcode", Toast.LENGTH_SHORT).show();
+                }
+            }
+        );
+
         // File saver for export
         fileSaverLauncher = registerForActivityResult(
             new ActivityResultContracts.CreateDocument("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
@@ -175,7 +198,10 @@ public class StockActivity extends AppCompatActivity {
     private void setupToolbarMenu() {
         binding.toolbar.setOnMenuItemClickListener(item -> {
             int id = item.getItemId();
-            if (id == R.id.menu_export) {
+            if (id == R.id.menu_scan_barcode) {
+                scanBarcode();
+                return true;
+            } else if (id == R.id.menu_export) {
                 exportProducts();
                 return true;
             } else if (id == R.id.menu_import) {
@@ -184,27 +210,106 @@ public class StockActivity extends AppCompatActivity {
             } else if (id == R.id.menu_template) {
                 generateTemplate();
                 return true;
+            } else if (id == R.id.menu_enrich_products) {
+                com.alkahfprogrammer.warungku.worker.ProductEnrichmentWorker.enqueue(getApplicationContext());
+                Toast.makeText(this, "Gambar produk akan dilengkapi di latar belakang saat terhubung Wi-Fi",
+                        Toast.LENGTH_LONG).show();
+                return true;
             }
             return false;
         });
     }
     
-    private void exportProducts() {
-        if (allProducts == null || allProducts.isEmpty()) {
-            Toast.makeText(this, "Tidak ada produk untuk diexport", Toast.LENGTH_SHORT).show();
+    private void scanBarcode() {
+        if (!BarcodeScannerHelper.hasCameraPermission(this)) {
+            requestPermissionLauncher.launch(android.Manifest.permission.CAMERA);
             return;
         }
-        
-        // Show progress dialog
+
+        ScanOptions options = new ScanOptions();
+        options.setDesiredBarcodeFormats(ScanOptions.ALL_CODE_TYPES);
+        options.setPrompt("Arahkan kamera ke barcode");
+        options.setCameraId(0);
+        options.setBeepEnabled(true);
+        options.setBarcodeImageEnabled(false);
+        options.setOrientationLocked(true);
+        options.setCaptureActivity(PortraitCaptureActivity.class);
+        barcodeLauncher.launch(options);
+    }
+
+    private void openProductByBarcode(String barcode) {
+        // Index barcode di memori, tidak perlu query
+        com.alkahfprogrammer.warungku.data.entity.Product product = viewModel.findProductByBarcode(barcode);
+        if (product != null) {
+            showStockActionDialog(product);
+        } else {
+            Toast.makeText(this, "Produk dengan barcode " + barcode + " belum terdaftar", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void exportProducts() {
+        String[] options = {"Produk saja", "Produk + transaksi (pilih rentang tanggal)", "Produk (CSV)"};
+        new AlertDialog.Builder(this)
+            .setTitle("Export Excel")
+            .setItems(options, (dialog, which) -> {
+                if (which == 0) {
+                    if (allProducts == null || allProducts.isEmpty()) {
+                        Toast.makeText(this, "Tidak ada produk untuk diexport", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    ExcelExporter.ExportOptions exportOptions = ExcelExporter.ExportOptions.productsOnly();
+                    runExport((listener, cancel) -> ExcelExporter.exportWorkbook(this, exportOptions, listener, cancel),
+                        XLSX_MIME_TYPE);
+                } else if (which == 1) {
+                    pickExportRange();
+                } else {
+                    runExport((listener, cancel) -> com.alkahfprogrammer.warungku.utils.CsvCodec.exportProducts(
+                        this, ',', listener, cancel), "text/csv");
+                }
+            })
+            .show();
+    }
+    
+    private void pickExportRange() {
+        com.google.android.material.datepicker.MaterialDatePicker<androidx.core.util.Pair<Long, Long>> picker =
+            com.google.android.material.datepicker.MaterialDatePicker.Builder.dateRangePicker()
+                .setTitleText("Rentang transaksi")
+                .build();
+        picker.addOnPositiveButtonClickListener(selection -> {
+            if (selection == null || selection.first == null || selection.second == null) {
+                return;
+            }
+            // Picker memberi tanggal dalam UTC tengah malam; ubah ke awal hari lokal, akhir eksklusif
+            java.time.ZoneId zone = java.time.ZoneId.systemDefault();
+            java.time.LocalDate first = java.time.Instant.ofEpochMilli(selection.first)
+                .atZone(java.time.ZoneOffset.UTC).toLocalDate();
+            java.time.LocalDate last = java.time.Instant.ofEpochMilli(selection.second)
+                .atZone(java.time.ZoneOffset.UTC).toLocalDate();
+            long start = first.atStartOfDay(zone).toInstant().toEpochMilli();
+            long end = last.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            ExcelExporter.ExportOptions exportOptions = ExcelExporter.ExportOptions.withTransactions(start, end);
+            runExport((listener, cancel) -> ExcelExporter.exportWorkbook(this, exportOptions, listener, cancel),
+                XLSX_MIME_TYPE);
+        });
+        picker.show(getSupportFragmentManager(), "export_range");
+    }
+    
+    private void runExport(java.util.function.BiFunction<ExcelExporter.ProgressListener, android.os.CancellationSignal,
+            ExcelExporter.ExportResult> export, String mimeType) {
+        android.os.CancellationSignal cancel = new android.os.CancellationSignal();
         AlertDialog progressDialog = new AlertDialog.Builder(this)
-            .setMessage("Mengexport produk...")
+            .setMessage("Mengexport data...")
             .setCancelable(false)
+            .setNegativeButton("Batal", (dialog, which) -> cancel.cancel())
             .create();
         progressDialog.show();
         
-        // Run export in background
-        new Thread(() -> {
-            ExcelExporter.ExportResult result = ExcelExporter.exportProducts(this, allProducts);
+        // Run export in background, data dibaca per chunk jadi tidak menahan UI thread
+        com.alkahfprogrammer.warungku.data.AppDatabase.databaseWriteExecutor.execute(() -> {
+            ExcelExporter.ExportResult result = export.apply(
+                (exported, total) -> runOnUiThread(() ->
+                    progressDialog.setMessage("Mengexport data... " + exported + " / " + total + " baris")),
+                cancel);
             
             runOnUiThread(() -> {
                 progressDialog.dismiss();
@@ -212,7 +317,7 @@ public class StockActivity extends AppCompatActivity {
                 if (result.success) {
                     // Share file using Intent
                     Intent shareIntent = new Intent(Intent.ACTION_SEND);
-                    shareIntent.setType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+                    shareIntent.setType(mimeType);
                     
                     // Use FileProvider for secure file sharing
                     android.net.Uri fileUri = androidx.core.content.FileProvider.getUriForFile(
@@ -222,12 +327,12 @@ public class StockActivity extends AppCompatActivity {
                     );
                     
                     shareIntent.putExtra(Intent.EXTRA_STREAM, fileUri);
-                    shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Export Produk WarungKu");
-                    shareIntent.putExtra(Intent.EXTRA_TEXT, "File export produk dari aplikasi WarungKu");
+                    shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Export Data WarungKu");
+                    shareIntent.putExtra(Intent.EXTRA_TEXT, "File export dari aplikasi WarungKu");
                     shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
                     
                     try {
-                        startActivity(Intent.createChooser(shareIntent, "Bagikan atau Buka File Excel"));
+                        startActivity(Intent.createChooser(shareIntent, "Bagikan atau Buka File Export"));
                         Toast.makeText(this, "File tersimpan di Downloads", Toast.LENGTH_SHORT).show();
                     } catch (Exception e) {
                         // Fallback: show file path
@@ -237,11 +342,13 @@ public class StockActivity extends AppCompatActivity {
                         builder.setPositiveButton("OK", null);
                         builder.show();
                     }
+                } else if (result.cancelled) {
+                    Toast.makeText(this, "Export dibatalkan", Toast.LENGTH_SHORT).show();
                 } else {
                     Toast.makeText(this, "Export gagal: " + result.errorMessage, Toast.LENGTH_LONG).show();
                 }
             });
-        }).start();
+        });
     }
     
     private void exportProductsToUri(Uri uri) {
@@ -256,7 +363,11 @@ public class StockActivity extends AppCompatActivity {
     }
     
     private void importProducts() {
-        filePickerLauncher.launch("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        // Excel atau CSV/TSV, format dibedakan dari isi file saat impor
+        filePickerLauncher.launch(new String[] {
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "text/csv", "text/comma-separated-values", "text/tab-separated-values", "text/plain"
+        });
     }
     
     private void importProductsFromUri(Uri uri) {
@@ -268,14 +379,28 @@ public class StockActivity extends AppCompatActivity {
         
         new Thread(() -> {
             try {
-                InputStream inputStream = getContentResolver().openInputStream(uri);
-                ExcelImporter.ImportResult result = ExcelImporter.importProductsFromStream(this, inputStream, allProducts);
+                java.io.BufferedInputStream inputStream =
+                        new java.io.BufferedInputStream(getContentResolver().openInputStream(uri));
+                ExcelImporter.ProgressListener listener = (processed, total) -> runOnUiThread(() ->
+                        progressDialog.setMessage(total > 0
+                                ? "Mengimport produk... " + processed + " / " + total + " baris"
+                                : "Mengimport produk... " + processed + " baris"));
+                // File .xlsx adalah arsip zip ("PK"), selain itu dibaca sebagai CSV/TSV
+                ExcelImporter.ImportResult result = isZip(inputStream)
+                        ? ExcelImporter.importProductsFromStream(this, inputStream, listener)
+                        : com.alkahfprogrammer.warungku.utils.CsvCodec.importProducts(inputStream, listener);
                 inputStream.close();
                 
-                runOnUiThread(() -> {
+                runOnUiThread(() -> progressDialog.setMessage("Menyimpan " + result.successCount + " produk..."));
+                // Semua insert/update + cash flow ditulis dalam satu transaksi
+                viewModel.importProducts(result.upsert).whenComplete((summary, error) -> runOnUiThread(() -> {
                     progressDialog.dismiss();
-                    showImportResult(result);
-                });
+                    if (error != null) {
+                        Toast.makeText(this, "Gagal menyimpan produk: " + error.getMessage(), Toast.LENGTH_LONG).show();
+                        return;
+                    }
+                    showImportResult(result, summary);
+                }));
             } catch (Exception e) {
                 runOnUiThread(() -> {
                     progressDialog.dismiss();
@@ -285,34 +410,41 @@ public class StockActivity extends AppCompatActivity {
         }).start();
     }
     
-    private void showImportResult(ExcelImporter.ImportResult result) {
-        // Save imported products to database
-        for (com.alkahfprogrammer.warungku.data.entity.Product product : result.importedProducts) {
-            // Check if product has ID (existing product to update)
-            if (product.id > 0) {
-                viewModel.updateProduct(product);
-            } else {
-                // New product
-                viewModel.addProduct(product);
-            }
+    private static boolean isZip(java.io.BufferedInputStream in) throws java.io.IOException {
+        in.mark(2);
+        boolean zip = in.read() == 'P' && in.read() == 'K';
+        in.reset();
+        return zip;
+    }
+    
+    private void showImportResult(ExcelImporter.ImportResult result,
+                                  com.alkahfprogrammer.warungku.data.importer.ImportSummary summary) {
+        if (summary.needsEnrichment) {
+            // Lengkapi gambar dari barcode di latar belakang, produk sudah tersimpan
+            com.alkahfprogrammer.warungku.worker.ProductEnrichmentWorker.enqueue(getApplicationContext());
         }
         
+        List<String> errors = new java.util.ArrayList<>(result.errors);
+        errors.addAll(summary.errors);
+        
         // Show result dialog
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Import Selesai");
         
         StringBuilder message = new StringBuilder();
-        message.append("✅ Berhasil: ").append(result.successCount).append(" produk\n");
-        message.append("❌ Gagal: ").append(result.failCount).append(" produk\n\n");
-        
-        if (!result.errors.isEmpty()) {
-            message.append("Detail error:\n");
-            int maxErrors = Math.min(result.errors.size(), 10); // Show max 10 errors
+        message.append("✅ Ditambah: ").append(summary.inserted).append(" produk\n");
+        message.append("🔄 Diperbarui: ").append(summary.updated).append(" produk\n");
+        message.append("⏭ Dilewati: ").append(summary.skipped).append(" baris\n");
+        message.append("❌ Gagal: ").append(summary.failed).append(" baris\n\n");
+        
+        if (!errors.isEmpty()) {
+            message.append("Detail:\n");
+            int maxErrors = Math.min(errors.size(), 10); // Show max 10 errors
             for (int i = 0; i < maxErrors; i++) {
-                message.append("• ").append(result.errors.get(i)).append("\n");
+                message.append("• ").append(errors.get(i)).append("\n");
             }
-            if (result.errors.size() > 10) {
-                message.append("... dan ").append(result.errors.size() - 10).append(" error lainnya");
+            if (errors.size() > 10) {
+                message.append("... dan ").append(errors.size() - 10).append(" lainnya");
             }
         }
         
@@ -17,7 +17,6 @@ import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.appbar.MaterialToolbar;
-import com.alkahfprogrammer.warungku.data.DataRepository;
 import com.alkahfprogrammer.warungku.data.AppDatabase;
 import com.alkahfprogrammer.warungku.viewmodel.AppViewModel;
 import com.alkahfprogrammer.warungku.utils.DatabaseBackupUtils;
@@ -38,7 +37,6 @@ public class SummaryActivity extends AppCompatActivity {
     private TextView tvCartCount, tvCartTotal;
     private MaterialCardView cardNoCapitalWarning, cardBreakEvenAnnouncement, cardCartSummary, cardRoiSection, cardInitialCapital;
     private ProgressBar progressBarCapitalReturn;
-    private DataRepository repository;
     private AppViewModel viewModel;
     private SharedPreferences prefs;
     private static final String PREF_NAME = "WarungKuPrefs";
@@ -51,6 +49,9 @@ public class SummaryActivity extends AppCompatActivity {
     private LiveData<Double> totalIncomeLive, totalExpenseLive; // Untuk progress bar (total semua waktu)
     private int lastCheckedDay = -1;
     private ActivityResultLauncher<String> restoreFileLauncher;
+    private ActivityResultLauncher<String> mergeFileLauncher;
+    private ActivityResultLauncher<String> catalogFileLauncher;
+    private ActivityResultLauncher<String[]> cashFlowFileLauncher;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,7 +59,6 @@ public class SummaryActivity extends AppCompatActivity {
         
         setContentView(R.layout.activity_summary);
 
-        repository = new DataRepository(getApplication());
         viewModel = AppViewModel.getInstance(getApplication());
         prefs = getSharedPreferences(PREF_NAME, MODE_PRIVATE);
         
@@ -169,6 +169,26 @@ public class SummaryActivity extends AppCompatActivity {
             } else if (id == R.id.menu_restore) {
                 showRestoreDialog();
                 return true;
+            } else if (id == R.id.menu_merge_backup) {
+                mergeFileLauncher.launch("*/*");
+                return true;
+            } else if (id == R.id.menu_backup_history) {
+                showBackupHistoryDialog();
+                return true;
+            } else if (id == R.id.menu_network_status) {
+                showNetworkStatusDialog();
+                return true;
+            } else if (id == R.id.menu_import_catalog) {
+                catalogFileLauncher.launch("*/*");
+                return true;
+            } else if (id == R.id.menu_export_cash_flow) {
+                exportCashFlows();
+                return true;
+            } else if (id == R.id.menu_import_cash_flow) {
+                cashFlowFileLauncher.launch(new String[] {
+                    "text/csv", "text/comma-separated-values", "text/tab-separated-values", "text/plain"
+                });
+                return true;
             }
             return false;
         });
@@ -208,6 +228,30 @@ public class SummaryActivity extends AppCompatActivity {
                 }
             }
         );
+        mergeFileLauncher = registerForActivityResult(
+            new ActivityResultContracts.GetContent(),
+            uri -> {
+                if (uri != null) {
+                    prepareMerge(uri);
+                }
+            }
+        );
+        catalogFileLauncher = registerForActivityResult(
+            new ActivityResultContracts.GetContent(),
+            uri -> {
+                if (uri != null) {
+                    showCatalogImportDialog(uri);
+                }
+            }
+        );
+        cashFlowFileLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(),
+            uri -> {
+                if (uri != null) {
+                    importCashFlows(uri);
+                }
+            }
+        );
         
         // Backup & Restore buttons (from card - kept for backward compatibility, but hidden)
         View btnBackup = findViewById(R.id.btnBackup);
@@ -227,8 +271,165 @@ public class SummaryActivity extends AppCompatActivity {
         
     }
     
+    /**
+     * Ringkasan kesehatan akses API eksternal: status circuit breaker dan metrik per endpoint
+     */
+    private void showNetworkStatusDialog() {
+        com.alkahfprogrammer.warungku.api.CircuitBreaker breaker =
+                com.alkahfprogrammer.warungku.api.ProductApiClient.getCircuitBreaker(this);
+        StringBuilder message = new StringBuilder("Circuit breaker: " + breaker.getState());
+        if (breaker.getState() == com.alkahfprogrammer.warungku.api.CircuitBreaker.State.OPEN) {
+            message.append(" (coba lagi dalam ").append(breaker.getRetryInMillis() / 1000).append(" detik)");
+        }
+
+        java.util.List<com.alkahfprogrammer.warungku.api.HttpMetrics.EndpointStats> endpoints =
+                com.alkahfprogrammer.warungku.api.HttpMetrics.getInstance().snapshot();
+        if (endpoints.isEmpty()) {
+            message.append("\n\nBelum ada request sejak aplikasi dibuka.");
+        }
+        for (com.alkahfprogrammer.warungku.api.HttpMetrics.EndpointStats stats : endpoints) {
+            message.append("\n\n").append(stats.format());
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Status Koneksi API")
+                .setMessage(message.toString())
+                .setPositiveButton("OK", null)
+                .show();
+    }
+
+    /**
+     * Impor dump Open Food Facts (CSV/TSV/JSONL, boleh .gz) menjadi katalog barcode offline
+     */
+    private void showCatalogImportDialog(android.net.Uri uri) {
+        com.alkahfprogrammer.warungku.data.catalog.OfflineCatalog catalog =
+                com.alkahfprogrammer.warungku.data.catalog.OfflineCatalog.getInstance(this);
+        String current = catalog.isAvailable()
+                ? "Katalog saat ini: " + catalog.size() + " produk (dibuat "
+                    + new java.text.SimpleDateFormat("dd MMM yyyy", Locale.forLanguageTag("id-ID"))
+                        .format(new java.util.Date(catalog.getBuiltAt())) + ")."
+                : "Belum ada katalog offline.";
+
+        EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_TEXT);
+        input.setText("indonesia");
+        input.setHint("Negara (kosongkan untuk semua)");
+
+        new AlertDialog.Builder(this)
+            .setTitle("Impor Katalog Barcode Offline")
+            .setMessage(current + "\n\nHanya produk dari negara ini yang disimpan. " +
+                       "Katalog lama akan diganti.")
+            .setView(input)
+            .setPositiveButton("Impor", (dialog, which) -> performCatalogImport(uri, input.getText().toString()))
+            .setNegativeButton("Batal", null)
+            .show();
+    }
+
+    private void performCatalogImport(android.net.Uri uri, String country) {
+        Toast.makeText(this, "Mengimpor katalog, bisa beberapa menit...", Toast.LENGTH_LONG).show();
+
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            try {
+                com.alkahfprogrammer.warungku.data.catalog.OfflineCatalogImporter.Result result =
+                        com.alkahfprogrammer.warungku.data.catalog.OfflineCatalogImporter.importDump(this, uri, country);
+                runOnUiThread(() -> Toast.makeText(this,
+                        "Katalog berhasil diimpor: " + result.imported + " dari " + result.scanned + " produk",
+                        Toast.LENGTH_LONG).show());
+            } catch (Exception e) {
+                android.util.Log.e("SummaryActivity", "Error importing catalog", e);
+                runOnUiThread(() -> Toast.makeText(this,
+                        "Gagal impor katalog. Pastikan file dump Open Food Facts valid.",
+                        Toast.LENGTH_LONG).show());
+            }
+        });
+    }
+
+    /**
+     * Export seluruh riwayat transaksi ke CSV (dibaca per chunk, bisa dibatalkan)
+     */
+    private void exportCashFlows() {
+        android.os.CancellationSignal cancel = new android.os.CancellationSignal();
+        AlertDialog progressDialog = new AlertDialog.Builder(this)
+            .setMessage("Mengexport transaksi...")
+            .setCancelable(false)
+            .setNegativeButton("Batal", (dialog, which) -> cancel.cancel())
+            .create();
+        progressDialog.show();
+
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            com.alkahfprogrammer.warungku.utils.ExcelExporter.ExportResult result =
+                    com.alkahfprogrammer.warungku.utils.CsvCodec.exportCashFlows(this, 0, Long.MAX_VALUE, ',',
+                            (exported, total) -> runOnUiThread(() ->
+                                    progressDialog.setMessage("Mengexport transaksi... " + exported + " / " + total)),
+                            cancel);
+            runOnUiThread(() -> {
+                progressDialog.dismiss();
+                if (result.success) {
+                    Intent shareIntent = new Intent(Intent.ACTION_SEND);
+                    shareIntent.setType("text/csv");
+                    shareIntent.putExtra(Intent.EXTRA_STREAM, androidx.core.content.FileProvider.getUriForFile(
+                            this, getPackageName() + ".fileprovider", new File(result.filePath)));
+                    shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Export Transaksi WarungKu");
+                    shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                    startActivity(Intent.createChooser(shareIntent, "Bagikan File Transaksi"));
+                } else if (result.cancelled) {
+                    Toast.makeText(this, "Export dibatalkan", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(this, "Export gagal: " + result.errorMessage, Toast.LENGTH_LONG).show();
+                }
+            });
+        });
+    }
+
+    /**
+     * Tambahkan transaksi dari CSV/TSV; baris yang sudah ada dilewati
+     */
+    private void importCashFlows(android.net.Uri uri) {
+        AlertDialog progressDialog = new AlertDialog.Builder(this)
+            .setMessage("Membaca file transaksi...")
+            .setCancelable(false)
+            .create();
+        progressDialog.show();
+
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            try (java.io.InputStream inputStream = getContentResolver().openInputStream(uri)) {
+                com.alkahfprogrammer.warungku.data.importer.CashFlowImportEngine engine =
+                        com.alkahfprogrammer.warungku.utils.CsvCodec.importCashFlows(inputStream,
+                                (processed, total) -> runOnUiThread(() ->
+                                        progressDialog.setMessage("Membaca file transaksi... " + processed + " baris")));
+                runOnUiThread(() -> progressDialog.setMessage("Menyimpan " + engine.getStagedCount() + " transaksi..."));
+                viewModel.importCashFlows(engine).whenComplete((summary, error) -> runOnUiThread(() -> {
+                    progressDialog.dismiss();
+                    if (error != null) {
+                        Toast.makeText(this, "Gagal menyimpan transaksi: " + error.getMessage(), Toast.LENGTH_LONG).show();
+                        return;
+                    }
+                    StringBuilder message = new StringBuilder()
+                            .append("✅ Ditambah: ").append(summary.inserted).append(" transaksi\n")
+                            .append("⏭ Dilewati (sudah ada): ").append(summary.skipped).append("\n")
+                            .append("❌ Gagal: ").append(summary.failed);
+                    for (int i = 0; i < Math.min(summary.errors.size(), 10); i++) {
+                        message.append(i == 0 ? "\n\n" : "\n").append("• ").append(summary.errors.get(i));
+                    }
+                    new AlertDialog.Builder(this)
+                        .setTitle("Import Transaksi Selesai")
+                        .setMessage(message.toString())
+                        .setPositiveButton("OK", null)
+                        .show();
+                }));
+            } catch (Exception e) {
+                android.util.Log.e("SummaryActivity", "Error importing cash flows", e);
+                runOnUiThread(() -> {
+                    progressDialog.dismiss();
+                    Toast.makeText(this, "Error membaca file: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                });
+            }
+        });
+    }
+
     private void showRestoreDialog() {
-        restoreFileLauncher.launch("application/octet-stream");
+        // Tipe MIME file .wkb/.db beda-beda per aplikasi file; isi file divalidasi saat restore
+        restoreFileLauncher.launch("*/*");
     }
     
     private void performBackup() {
@@ -237,7 +438,9 @@ public class SummaryActivity extends AppCompatActivity {
         
         // Run backup di background thread
         AppDatabase.databaseWriteExecutor.execute(() -> {
-            File backupFile = DatabaseBackupUtils.backupDatabase(this);
+            com.alkahfprogrammer.warungku.data.backup.DatabaseSnapshot.Result snapshot =
+                DatabaseBackupUtils.createSnapshot(this);
+            File backupFile = snapshot != null ? snapshot.file : null;
             
             runOnUiThread(() -> {
                 if (backupFile != null && backupFile.exists()) {
@@ -247,7 +450,9 @@ public class SummaryActivity extends AppCompatActivity {
                         startActivity(Intent.createChooser(shareIntent, "Bagikan Backup"));
                     }
                     Toast.makeText(this, 
-                        "Backup berhasil!\nFile: " + backupFile.getName(), 
+                        "Backup berhasil!\nFile: " + backupFile.getName()
+                            + " (" + android.text.format.Formatter.formatShortFileSize(this, snapshot.compressedLength)
+                            + ", " + snapshot.header.getTotalRows() + " baris)", 
                         Toast.LENGTH_LONG).show();
                 } else {
                     Toast.makeText(this, "Gagal membuat backup", Toast.LENGTH_SHORT).show();
@@ -256,6 +461,85 @@ public class SummaryActivity extends AppCompatActivity {
         });
     }
     
+    private void showBackupHistoryDialog() {
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            File folder = DatabaseBackupUtils.getBackupFolder(this);
+            java.util.List<com.alkahfprogrammer.warungku.data.backup.BackupRotation.Entry> entries =
+                com.alkahfprogrammer.warungku.data.backup.BackupRotation.list(folder, true);
+            long chunkBytes = com.alkahfprogrammer.warungku.data.backup.IncrementalBackup.chunkStoreSize(folder);
+            runOnUiThread(() -> showBackupHistoryDialog(entries, chunkBytes));
+        });
+    }
+    
+    private void showBackupHistoryDialog(
+            java.util.List<com.alkahfprogrammer.warungku.data.backup.BackupRotation.Entry> entries, long chunkBytes) {
+        java.text.SimpleDateFormat dateFormat =
+            new java.text.SimpleDateFormat("dd MMM yyyy HH:mm", Locale.forLanguageTag("id-ID"));
+        
+        // Baris pertama: status backup otomatis dan pemakaian penyimpanan
+        long total = com.alkahfprogrammer.warungku.data.backup.BackupRotation.totalSize(entries) + chunkBytes;
+        String lastStatus = com.alkahfprogrammer.warungku.worker.BackupWorker.getLastStatus(this);
+        long lastRun = com.alkahfprogrammer.warungku.worker.BackupWorker.getLastRun(this);
+        String summary = "Backup otomatis: " + (lastStatus == null ? "belum pernah berjalan"
+                : dateFormat.format(new java.util.Date(lastRun)) + " - " + lastStatus)
+            + "\nTotal " + android.text.format.Formatter.formatShortFileSize(this, total) + " dari maks "
+            + android.text.format.Formatter.formatShortFileSize(this,
+                com.alkahfprogrammer.warungku.data.backup.BackupRotation.MAX_TOTAL_BYTES);
+        
+        String[] items = new String[entries.size() + 1];
+        items[0] = summary;
+        for (int i = 0; i < entries.size(); i++) {
+            com.alkahfprogrammer.warungku.data.backup.BackupRotation.Entry entry = entries.get(i);
+            StringBuilder line = new StringBuilder(dateFormat.format(new java.util.Date(entry.createdAt)))
+                .append(" - ").append(android.text.format.Formatter.formatShortFileSize(this, entry.size));
+            if (entry.header != null) {
+                line.append(", ").append(entry.header.getTotalRows()).append(" baris");
+            }
+            if (entry.isManifest()) {
+                line.append(", inkremental");
+            }
+            switch (entry.tier) {
+                case DAILY: line.append(" (harian)"); break;
+                case WEEKLY: line.append(" (mingguan)"); break;
+                case MONTHLY: line.append(" (bulanan)"); break;
+                default: break;
+            }
+            items[i + 1] = line.toString();
+        }
+        
+        new AlertDialog.Builder(this)
+            .setTitle("Riwayat Backup")
+            .setItems(items, (dialog, which) -> {
+                if (which > 0) {
+                    showBackupEntryDialog(entries.get(which - 1));
+                }
+            })
+            .setPositiveButton("Tutup", null)
+            .show();
+    }
+    
+    private void showBackupEntryDialog(com.alkahfprogrammer.warungku.data.backup.BackupRotation.Entry entry) {
+        File backupFile = entry.file;
+        // Backup inkremental hanya berisi daftar chunk di HP ini, jadi tidak bisa dibagikan
+        String[] actions = entry.isManifest()
+            ? new String[] { "Restore dari backup ini" }
+            : new String[] { "Restore dari backup ini", "Bagikan" };
+        new AlertDialog.Builder(this)
+            .setTitle(backupFile.getName())
+            .setItems(actions, (dialog, which) -> {
+                if (which == 1) {
+                    Intent shareIntent = DatabaseBackupUtils.getShareIntent(this, backupFile);
+                    if (shareIntent != null) {
+                        startActivity(Intent.createChooser(shareIntent, "Bagikan Backup"));
+                    }
+                } else {
+                    showRestoreConfirmationDialog(android.net.Uri.fromFile(backupFile));
+                }
+            })
+            .setNegativeButton("Batal", null)
+            .show();
+    }
+    
     private void showRestoreConfirmationDialog(android.net.Uri uri) {
         new AlertDialog.Builder(this)
             .setTitle("Konfirmasi Restore")
@@ -274,23 +558,116 @@ public class SummaryActivity extends AppCompatActivity {
         
         // Run restore di background thread
         AppDatabase.databaseWriteExecutor.execute(() -> {
-            boolean success = DatabaseRestoreUtils.restoreDatabaseFromUri(this, uri);
+            String message;
+            try {
+                java.io.InputStream inputStream = getContentResolver().openInputStream(uri);
+                if (inputStream == null) {
+                    throw new java.io.IOException("File tidak bisa dibuka");
+                }
+                com.alkahfprogrammer.warungku.data.backup.DatabaseRestorer.Staged staged =
+                    DatabaseRestoreUtils.restore(this, inputStream);
+                message = "Restore berhasil!\n" + staged.getTotalRows() + " baris dipulihkan"
+                    + (staged.migrated ? " (backup versi lama sudah diperbarui)" : "");
+            } catch (java.io.IOException e) {
+                android.util.Log.e("SummaryActivity", "Restore gagal", e);
+                message = "Gagal restore: " + e.getMessage() + "\nData sekarang tidak berubah.";
+            }
             
-            runOnUiThread(() -> {
-                if (success) {
-                    Toast.makeText(this, 
-                        "Restore berhasil!\nAplikasi akan dimuat ulang.", 
-                        Toast.LENGTH_LONG).show();
-                    
-                    // Restart activity untuk reload data
-                    finish();
-                    startActivity(new Intent(this, SummaryActivity.class));
-                } else {
-                    Toast.makeText(this, 
-                        "Gagal restore. Pastikan file backup valid.", 
-                        Toast.LENGTH_LONG).show();
+            // Data di layar ikut diperbarui lewat LiveData, tidak perlu restart activity
+            String text = message;
+            runOnUiThread(() -> Toast.makeText(this, text, Toast.LENGTH_LONG).show());
+        });
+    }
+    
+    private void prepareMerge(android.net.Uri uri) {
+        Toast.makeText(this, "Memeriksa backup...", Toast.LENGTH_SHORT).show();
+        
+        // Validasi + dry run di background, belum ada data yang ditulis
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            try {
+                java.io.InputStream inputStream = getContentResolver().openInputStream(uri);
+                if (inputStream == null) {
+                    throw new java.io.IOException("File tidak bisa dibuka");
                 }
-            });
+                com.alkahfprogrammer.warungku.data.backup.MergeRestorer.Plan plan =
+                    DatabaseRestoreUtils.prepareMerge(this, inputStream);
+                runOnUiThread(() -> showMergeConfirmationDialog(plan));
+            } catch (java.io.IOException | RuntimeException e) {
+                // RuntimeException (misal izin URI dicabut) juga dilaporkan, jangan sampai thread mati diam-diam
+                android.util.Log.e("SummaryActivity", "Gabung backup gagal", e);
+                com.alkahfprogrammer.warungku.data.backup.DatabaseRestorer.discard(this);
+                runOnUiThread(() -> Toast.makeText(this, "Gagal membaca backup: " + e.getMessage(),
+                    Toast.LENGTH_LONG).show());
+            }
+        });
+    }
+    
+    private void showMergeConfirmationDialog(com.alkahfprogrammer.warungku.data.backup.MergeRestorer.Plan plan) {
+        com.alkahfprogrammer.warungku.data.backup.MergeRestorer.Report report = plan.report;
+        NumberFormat formatter = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("id-ID"));
+        StringBuilder message = new StringBuilder()
+            .append("Transaksi baru: ").append(report.cashFlowsNew)
+            .append(" (").append(report.salesNew).append(" penjualan)\n")
+            .append("Sudah ada, dilewati: ").append(report.cashFlowsDuplicate).append("\n")
+            .append("Pemasukan: +").append(formatter.format(report.incomeAdded)).append("\n")
+            .append("Pengeluaran: +").append(formatter.format(report.expenseAdded)).append("\n")
+            .append("Produk cocok: ").append(report.productsMatched)
+            .append(", produk baru: ").append(report.productsNew);
+        if (!report.stockChanges.isEmpty()) {
+            message.append("\n\nPerubahan stok:");
+            int shown = Math.min(report.stockChanges.size(), 20);
+            for (int i = 0; i < shown; i++) {
+                message.append("\n").append(report.stockChanges.get(i));
+            }
+            if (report.stockChanges.size() > shown) {
+                message.append("\n... dan ").append(report.stockChanges.size() - shown).append(" produk lain");
+            }
+        }
+        if (!report.stockWarnings.isEmpty()) {
+            // Stok yang diedit langsung tanpa transaksi tidak bisa digabung, pengguna perlu cek manual
+            message.append("\n\nPerhatian, stok diubah tanpa transaksi (tidak ikut digabung, cek setelahnya):");
+            int shown = Math.min(report.stockWarnings.size(), 20);
+            for (int i = 0; i < shown; i++) {
+                message.append("\n").append(report.stockWarnings.get(i));
+            }
+            if (report.stockWarnings.size() > shown) {
+                message.append("\n... dan ").append(report.stockWarnings.size() - shown).append(" produk lain");
+            }
+        }
+        message.append("\n\nBackup otomatis akan dibuat sebelum digabung.");
+        
+        new AlertDialog.Builder(this)
+            .setTitle("Gabungkan Backup?")
+            .setMessage(message.toString())
+            .setPositiveButton("Gabungkan", (dialog, which) -> performMerge(plan))
+            .setNegativeButton("Batal", (dialog, which) -> discardMerge())
+            .setOnCancelListener(dialog -> discardMerge())
+            .show();
+    }
+    
+    private void discardMerge() {
+        AppDatabase.databaseWriteExecutor.execute(() ->
+            com.alkahfprogrammer.warungku.data.backup.DatabaseRestorer.discard(this));
+    }
+    
+    private void performMerge(com.alkahfprogrammer.warungku.data.backup.MergeRestorer.Plan plan) {
+        Toast.makeText(this, "Menggabungkan data...", Toast.LENGTH_SHORT).show();
+        
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            String message;
+            try {
+                com.alkahfprogrammer.warungku.data.backup.MergeRestorer.Report result =
+                    DatabaseRestoreUtils.merge(this, plan);
+                message = "Gabung berhasil!\n" + result.cashFlowsNew + " transaksi ditambahkan, "
+                    + result.productsNew + " produk baru";
+            } catch (java.io.IOException | RuntimeException e) {
+                android.util.Log.e("SummaryActivity", "Gabung backup gagal", e);
+                com.alkahfprogrammer.warungku.data.backup.DatabaseRestorer.discard(this);
+                message = "Gagal menggabungkan: " + e.getMessage();
+            }
+            
+            String text = message;
+            runOnUiThread(() -> Toast.makeText(this, text, Toast.LENGTH_LONG).show());
         });
     }
     
@@ -418,14 +795,14 @@ public class SummaryActivity extends AppCompatActivity {
         }
 
         // Data untuk periode yang dipilih (untuk display)
-        incomeLive = repository.getIncomeInRange(currentStart, currentEnd);
-        expenseLive = repository.getExpenseInRange(currentStart, currentEnd);
-        profitLive = repository.getProfitInRange(currentStart, currentEnd);
-        stockPurchaseLive = repository.getTotalStockPurchaseInRange(currentStart, currentEnd);
+        incomeLive = viewModel.getIncomeInRange(currentStart, currentEnd);
+        expenseLive = viewModel.getExpenseInRange(currentStart, currentEnd);
+        profitLive = viewModel.getProfitInRange(currentStart, currentEnd);
+        stockPurchaseLive = viewModel.getTotalStockPurchaseInRange(currentStart, currentEnd);
 
         // Data total semua waktu (untuk progress bar perkembangan modal)
-        totalIncomeLive = repository.getTotalIncome();
-        totalExpenseLive = repository.getTotalExpense();
+        totalIncomeLive = viewModel.getIncome();
+        totalExpenseLive = viewModel.getExpense();
 
         incomeLive.observe(this, this::updateCalculations);
         expenseLive.observe(this, this::updateCalculations);
@@ -0,0 +1,41 @@
+package com.alkahfprogrammer.warungku;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.alkahfprogrammer.warungku.data.image.ProductImageStore;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+
+/**
+ * Konfigurasi Glide untuk daftar produk.
+ *
+ * Gambar di daftar adalah thumbnail kecil berukuran tetap, jadi memory cache diukur dalam
+ * jumlah thumbnail (beberapa layar + preload), bukan jumlah layar penuh seperti default.
+ * Disk cache menampung hasil transform thumbnail dan fallback gambar remote yang belum
+ * punya thumbnail lokal.
+ */
+@GlideModule
+public class WarungKuGlideModule extends AppGlideModule {
+    private static final int MEMORY_CACHE_THUMBNAILS = 300;
+    private static final long DISK_CACHE_BYTES = 64L * 1024 * 1024;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        long thumbnailBytes = (long) ProductImageStore.THUMBNAIL_SIZE_PX * ProductImageStore.THUMBNAIL_SIZE_PX * 4;
+        long defaultBytes = new MemorySizeCalculator.Builder(context).build().getMemoryCacheSize();
+        // Jangan melebihi default (yang sudah memperhitungkan RAM perangkat)
+        builder.setMemoryCache(new LruResourceCache(Math.min(defaultBytes, thumbnailBytes * MEMORY_CACHE_THUMBNAILS)));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_BYTES));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -1,59 +1,101 @@
 package com.alkahfprogrammer.warungku.adapters;
 
-import android.graphics.Color;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.alkahfprogrammer.warungku.R;
 import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.model.HistoryItem;
 import com.alkahfprogrammer.warungku.databinding.ItemHistoryBinding;
+import com.alkahfprogrammer.warungku.databinding.ItemHistoryDayHeaderBinding;
 
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
-public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.ViewHolder> {
+/**
+ * Adapter riwayat transaksi berbasis Paging 3. Hanya halaman yang terlihat yang dimuat,
+ * pemisah hari sudah disisipkan di pager (lihat DataRepository.getHistoryPaging).
+ */
+public class HistoryAdapter extends PagingDataAdapter<HistoryItem, RecyclerView.ViewHolder> {
 
-    private List<CashFlow> items = new ArrayList<>();
     private final NumberFormat formatter = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("id-ID"));
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd MMM, HH:mm", Locale.getDefault());
+    private final DateTimeFormatter dayFormat = DateTimeFormatter.ofPattern("EEEE, dd MMM yyyy", Locale.forLanguageTag("id-ID"));
 
-    public void setItems(List<CashFlow> items) {
-        this.items = items;
-        notifyDataSetChanged();
+    private static final DiffUtil.ItemCallback<HistoryItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<HistoryItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull HistoryItem oldItem, @NonNull HistoryItem newItem) {
+            return oldItem.isSameItem(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull HistoryItem oldItem, @NonNull HistoryItem newItem) {
+            return oldItem.hasSameContent(newItem);
+        }
+    };
+
+    public HistoryAdapter() {
+        super(DIFF_CALLBACK);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        HistoryItem item = peek(position);
+        return item != null ? item.type : HistoryItem.TYPE_TRANSACTION;
     }
 
     @NonNull
     @Override
-    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        ItemHistoryBinding binding = ItemHistoryBinding.inflate(
-                LayoutInflater.from(parent.getContext()), parent, false);
-        return new ViewHolder(binding);
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == HistoryItem.TYPE_DAY_HEADER) {
+            return new DayHeaderViewHolder(ItemHistoryDayHeaderBinding.inflate(inflater, parent, false));
+        }
+        return new ViewHolder(ItemHistoryBinding.inflate(inflater, parent, false));
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        CashFlow item = items.get(position);
-        holder.binding.tvDescription.setText(item.description);
-        holder.binding.tvDate.setText(dateFormat.format(new Date(item.timestamp)));
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        HistoryItem historyItem = getItem(position);
+        if (historyItem == null) {
+            return; // Placeholder (tidak dipakai, placeholders dimatikan)
+        }
+
+        if (holder instanceof DayHeaderViewHolder) {
+            ((DayHeaderViewHolder) holder).binding.tvDayHeader.setText(formatDay(historyItem.epochDay));
+            return;
+        }
+
+        ViewHolder itemHolder = (ViewHolder) holder;
+        CashFlow item = historyItem.cashFlow;
+        itemHolder.binding.tvDescription.setText(item.description);
+        itemHolder.binding.tvDate.setText(dateFormat.format(new Date(item.timestamp)));
 
         if ("IN".equals(item.type)) {
-            holder.binding.tvAmount.setText("+ " + formatter.format(item.amount));
-            holder.binding.tvAmount.setTextColor(ContextCompat.getColor(holder.itemView.getContext(), R.color.primary));
+            itemHolder.binding.tvAmount.setText("+ " + formatter.format(item.amount));
+            itemHolder.binding.tvAmount.setTextColor(ContextCompat.getColor(holder.itemView.getContext(), R.color.primary));
         } else {
-            holder.binding.tvAmount.setText("- " + formatter.format(item.amount));
-            holder.binding.tvAmount.setTextColor(ContextCompat.getColor(holder.itemView.getContext(), R.color.error));
+            itemHolder.binding.tvAmount.setText("- " + formatter.format(item.amount));
+            itemHolder.binding.tvAmount.setTextColor(ContextCompat.getColor(holder.itemView.getContext(), R.color.error));
         }
     }
 
-    @Override
-    public int getItemCount() {
-        return items.size();
+    private String formatDay(long epochDay) {
+        long today = LocalDate.now().toEpochDay();
+        if (epochDay == today) {
+            return "Hari Ini";
+        } else if (epochDay == today - 1) {
+            return "Kemarin";
+        }
+        return LocalDate.ofEpochDay(epochDay).format(dayFormat);
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -64,4 +106,13 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.ViewHold
             this.binding = binding;
         }
     }
+
+    static class DayHeaderViewHolder extends RecyclerView.ViewHolder {
+        ItemHistoryDayHeaderBinding binding;
+
+        DayHeaderViewHolder(ItemHistoryDayHeaderBinding binding) {
+            super(binding.getRoot());
+            this.binding = binding;
+        }
+    }
 }
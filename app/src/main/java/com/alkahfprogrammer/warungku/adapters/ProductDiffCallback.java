@@ -0,0 +1,49 @@
+package com.alkahfprogrammer.warungku.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.alkahfprogrammer.warungku.data.entity.Product;
+
+import java.util.Objects;
+
+/**
+ * DiffUtil untuk daftar produk, dipakai bersama oleh adapter produk.
+ * Room mengirim ulang seluruh list setiap ada penjualan; dengan diff ini hanya baris
+ * yang benar-benar berubah yang di-bind ulang, dan perubahan stok saja cukup update teks stok.
+ */
+public class ProductDiffCallback extends DiffUtil.ItemCallback<Product> {
+
+    // Payload: hanya angka stok / jumlah terjual yang berubah (kasus umum setelah penjualan)
+    public static final String PAYLOAD_STOCK = "payload_stock";
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+        return oldItem.id == newItem.id;
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+        return sameExceptStock(oldItem, newItem)
+                && oldItem.currentStock == newItem.currentStock
+                && oldItem.minStock == newItem.minStock
+                && oldItem.salesCount == newItem.salesCount;
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull Product oldItem, @NonNull Product newItem) {
+        if (sameExceptStock(oldItem, newItem)) {
+            return PAYLOAD_STOCK;
+        }
+        return null; // Bind penuh
+    }
+
+    private boolean sameExceptStock(Product oldItem, Product newItem) {
+        return Objects.equals(oldItem.name, newItem.name)
+                && Double.compare(oldItem.sellPrice, newItem.sellPrice) == 0
+                && oldItem.isFavorite == newItem.isFavorite
+                && Objects.equals(oldItem.imageUrl, newItem.imageUrl);
+    }
+}
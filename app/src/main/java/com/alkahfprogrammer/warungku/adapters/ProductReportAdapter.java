@@ -6,6 +6,7 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.card.MaterialCardView;
@@ -13,23 +14,27 @@ import com.alkahfprogrammer.warungku.R;
 import com.alkahfprogrammer.warungku.data.entity.Product;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
-public class ProductReportAdapter extends RecyclerView.Adapter<ProductReportAdapter.ViewHolder> {
+public class ProductReportAdapter extends ListAdapter<Product, ProductReportAdapter.ViewHolder> {
 
-    private List<Product> products = new ArrayList<>();
     private final NumberFormat formatter = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("id-ID"));
     private final boolean isTopSelling; // true untuk top selling, false untuk unsold
 
     public ProductReportAdapter(boolean isTopSelling) {
+        super(new ProductDiffCallback());
         this.isTopSelling = isTopSelling;
+        setHasStableIds(true);
     }
 
     public void setProducts(List<Product> products) {
-        this.products = products != null ? products : new ArrayList<>();
-        notifyDataSetChanged();
+        submitList(products);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
     }
 
     @NonNull
@@ -40,12 +45,24 @@ public class ProductReportAdapter extends RecyclerView.Adapter<ProductReportAdap
         return new ViewHolder(view);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(ProductDiffCallback.PAYLOAD_STOCK)) {
+            bindInfo(holder, getItem(position));
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Product product = products.get(position);
+        Product product = getItem(position);
         holder.tvName.setText(product.name);
         holder.tvPrice.setText(formatter.format(product.sellPrice));
+        bindInfo(holder, product);
+    }
 
+    private void bindInfo(ViewHolder holder, Product product) {
         if (isTopSelling) {
             // Untuk produk terlaris: tampilkan jumlah penjualan
             holder.tvInfo.setText("Terjual: " + product.salesCount + " unit");
@@ -57,11 +74,6 @@ public class ProductReportAdapter extends RecyclerView.Adapter<ProductReportAdap
         }
     }
 
-    @Override
-    public int getItemCount() {
-        return products.size();
-    }
-
     static class ViewHolder extends RecyclerView.ViewHolder {
         MaterialCardView card;
         TextView tvName, tvPrice, tvInfo;
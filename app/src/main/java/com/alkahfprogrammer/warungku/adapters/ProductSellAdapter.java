@@ -4,24 +4,20 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.resource.bitmap.RoundedCorners;
-import com.bumptech.glide.request.RequestOptions;
-import com.alkahfprogrammer.warungku.R;
 import com.alkahfprogrammer.warungku.data.entity.Product;
 import com.alkahfprogrammer.warungku.databinding.ItemProductSellBinding;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
-public class ProductSellAdapter extends RecyclerView.Adapter<ProductSellAdapter.ViewHolder> {
+public class ProductSellAdapter extends ListAdapter<Product, ProductSellAdapter.ViewHolder> {
 
-    private List<Product> products = new ArrayList<>();
     private final OnProductClickListener listener;
     private final NumberFormat formatter = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("id-ID"));
+    private ProductThumbnailLoader thumbnailLoader;
 
     public interface OnProductClickListener {
         void onProductClick(Product product);
@@ -30,12 +26,33 @@ public class ProductSellAdapter extends RecyclerView.Adapter<ProductSellAdapter.
     }
 
     public ProductSellAdapter(OnProductClickListener listener) {
+        super(new ProductDiffCallback());
         this.listener = listener;
+        setHasStableIds(true);
     }
 
+    /**
+     * Diff dihitung di background thread oleh ListAdapter, hanya baris yang berubah yang di-bind ulang
+     */
     public void setProducts(List<Product> products) {
-        this.products = products;
-        notifyDataSetChanged();
+        submitList(products);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        thumbnailLoader = new ProductThumbnailLoader(recyclerView, this);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        thumbnailLoader.detach(recyclerView);
     }
 
     @NonNull
@@ -43,44 +60,60 @@ public class ProductSellAdapter extends RecyclerView.Adapter<ProductSellAdapter.
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         ItemProductSellBinding binding = ItemProductSellBinding.inflate(
                 LayoutInflater.from(parent.getContext()), parent, false);
-        return new ViewHolder(binding);
+        ViewHolder holder = new ViewHolder(binding);
+        // Listener dipasang sekali; produk diambil dari posisi terkini supaya tidak basi setelah partial bind
+        holder.itemView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                listener.onProductClick(getItem(position));
+            }
+        });
+        holder.itemView.setOnLongClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                listener.onProductLongClick(getItem(position));
+            }
+            return true;
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        boolean partial = false;
+        if (payloads.contains(ProductDiffCallback.PAYLOAD_STOCK)) {
+            // Hanya stok yang berubah, gambar tidak dimuat ulang
+            bindStock(holder, getItem(position));
+            partial = true;
+        }
+        if (payloads.contains(ProductThumbnailLoader.PAYLOAD_THUMBNAIL)) {
+            thumbnailLoader.load(holder.binding.ivProductImage, getItem(position));
+            partial = true;
+        }
+        if (partial) {
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Product product = products.get(position);
+        Product product = getItem(position);
         holder.binding.tvProductName.setText(product.name);
         holder.binding.tvProductPrice.setText(formatter.format(product.sellPrice));
-        holder.binding.tvProductStock.setText("Stok: " + product.currentStock);
+        bindStock(holder, product);
         
-        // Load product image
-        if (product.imageUrl != null && !product.imageUrl.isEmpty()) {
-            Glide.with(holder.itemView.getContext())
-                    .load(product.imageUrl)
-                    .apply(new RequestOptions()
-                            .placeholder(R.drawable.ic_image_placeholder)
-                            .error(R.drawable.ic_image_placeholder)
-                            .transform(new RoundedCorners(16)))
-                    .into(holder.binding.ivProductImage);
-        } else {
-            holder.binding.ivProductImage.setImageResource(R.drawable.ic_image_placeholder);
-        }
+        // Thumbnail lokal berukuran pasti (bukan foto ukuran penuh)
+        thumbnailLoader.load(holder.binding.ivProductImage, product);
         
         // Show/hide favorite icon
         if (holder.binding.ivFavorite != null) {
             holder.binding.ivFavorite.setVisibility(product.isFavorite ? android.view.View.VISIBLE : android.view.View.GONE);
         }
-
-        holder.itemView.setOnClickListener(v -> listener.onProductClick(product));
-        holder.itemView.setOnLongClickListener(v -> {
-            listener.onProductLongClick(product);
-            return true;
-        });
     }
 
-    @Override
-    public int getItemCount() {
-        return products.size();
+    private void bindStock(ViewHolder holder, Product product) {
+        holder.binding.tvProductStock.setText("Stok: " + product.currentStock);
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -5,36 +5,51 @@ import android.view.LayoutInflater;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.resource.bitmap.RoundedCorners;
-import com.bumptech.glide.request.RequestOptions;
 import com.alkahfprogrammer.warungku.R;
 import com.alkahfprogrammer.warungku.data.entity.Product;
 import com.alkahfprogrammer.warungku.databinding.ItemProductStockBinding;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
-public class ProductStockAdapter extends RecyclerView.Adapter<ProductStockAdapter.ViewHolder> {
+public class ProductStockAdapter extends ListAdapter<Product, ProductStockAdapter.ViewHolder> {
 
-    private List<Product> products = new ArrayList<>();
     private final NumberFormat formatter = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("id-ID"));
     private OnProductClickListener listener;
+    private ProductThumbnailLoader thumbnailLoader;
 
     public interface OnProductClickListener {
         void onProductClick(Product product);
     }
 
     public ProductStockAdapter(OnProductClickListener listener) {
+        super(new ProductDiffCallback());
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     public void setProducts(List<Product> products) {
-        this.products = products;
-        notifyDataSetChanged();
+        submitList(products);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        thumbnailLoader = new ProductThumbnailLoader(recyclerView, this);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        thumbnailLoader.detach(recyclerView);
     }
 
     @NonNull
@@ -42,29 +57,49 @@ public class ProductStockAdapter extends RecyclerView.Adapter<ProductStockAdapte
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         ItemProductStockBinding binding = ItemProductStockBinding.inflate(
                 LayoutInflater.from(parent.getContext()), parent, false);
-        return new ViewHolder(binding);
+        ViewHolder holder = new ViewHolder(binding);
+        holder.itemView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (listener != null && position != RecyclerView.NO_POSITION)
+                listener.onProductClick(getItem(position));
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        boolean partial = false;
+        if (payloads.contains(ProductDiffCallback.PAYLOAD_STOCK)) {
+            bindStock(holder, getItem(position));
+            partial = true;
+        }
+        if (payloads.contains(ProductThumbnailLoader.PAYLOAD_THUMBNAIL)) {
+            thumbnailLoader.load(holder.binding.ivProductImage, getItem(position));
+            partial = true;
+        }
+        if (partial) {
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Product product = products.get(position);
+        Product product = getItem(position);
         holder.binding.tvName.setText(product.name);
         holder.binding.tvPrice.setText(formatter.format(product.sellPrice));
-        holder.binding.tvStock.setText(String.valueOf(product.currentStock));
 
-        // Load product image
-        if (product.imageUrl != null && !product.imageUrl.isEmpty()) {
-            Glide.with(holder.itemView.getContext())
-                    .load(product.imageUrl)
-                    .apply(new RequestOptions()
-                            .placeholder(R.drawable.ic_image_placeholder)
-                            .error(R.drawable.ic_image_placeholder)
-                            .transform(new RoundedCorners(16)))
-                    .into(holder.binding.ivProductImage);
-        } else {
-            holder.binding.ivProductImage.setImageResource(R.drawable.ic_image_placeholder);
-        }
+        // Thumbnail lokal berukuran pasti (bukan foto ukuran penuh)
+        thumbnailLoader.load(holder.binding.ivProductImage, product);
+
+        bindStock(holder, product);
+    }
 
+    /**
+     * Angka stok dan label status; satu-satunya bagian yang di-bind ulang saat stok berubah
+     */
+    private void bindStock(ViewHolder holder, Product product) {
+        holder.binding.tvStock.setText(String.valueOf(product.currentStock));
         if (product.currentStock == 0) {
             // Stok habis - MERAH
             holder.binding.tvStatus.setVisibility(android.view.View.VISIBLE);
@@ -78,16 +113,6 @@ public class ProductStockAdapter extends RecyclerView.Adapter<ProductStockAdapte
         } else {
             holder.binding.tvStatus.setVisibility(android.view.View.GONE);
         }
-
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null)
-                listener.onProductClick(product);
-        });
-    }
-
-    @Override
-    public int getItemCount() {
-        return products.size();
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,106 @@
+package com.alkahfprogrammer.warungku.adapters;
+
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.alkahfprogrammer.warungku.R;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.image.ProductImageStore;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.resource.bitmap.CenterCrop;
+import com.bumptech.glide.load.resource.bitmap.RoundedCorners;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Muat gambar produk di daftar dengan ukuran target pasti, plus preload baris berikutnya saat scroll.
+ *
+ * Memakai thumbnail lokal dari ProductImageStore jika sudah ada; kalau belum, imageUrl asli
+ * tetap di-decode langsung ke ukuran thumbnail. Request untuk tampil dan untuk preload dibuat
+ * dari method yang sama, jadi hasil preload selalu kena memory cache. Begitu thumbnail lokal
+ * selesai dibuat, baris produknya di-bind ulang (hanya gambar) supaya beralih ke file lokal.
+ */
+public class ProductThumbnailLoader implements ListPreloader.PreloadModelProvider<Product>,
+        ProductImageStore.OnThumbnailReadyListener {
+    // Payload: hanya gambar yang perlu dimuat ulang
+    public static final String PAYLOAD_THUMBNAIL = "payload_thumbnail";
+    private static final int MAX_PRELOAD = 12;
+
+    private final ListAdapter<Product, ?> adapter;
+    private final RequestManager glide;
+    private final ProductImageStore store;
+    private final int sizePx;
+    private final RecyclerViewPreloader<Product> preloader;
+
+    ProductThumbnailLoader(@NonNull RecyclerView recyclerView, @NonNull ListAdapter<Product, ?> adapter) {
+        this.adapter = adapter;
+        this.glide = Glide.with(recyclerView);
+        this.store = ProductImageStore.getInstance(recyclerView.getContext());
+        this.sizePx = recyclerView.getResources().getDimensionPixelSize(R.dimen.product_thumbnail_size);
+        this.preloader = new RecyclerViewPreloader<>(glide, this,
+                new FixedPreloadSizeProvider<>(sizePx, sizePx), MAX_PRELOAD);
+        recyclerView.addOnScrollListener(preloader);
+        store.addOnThumbnailReadyListener(this);
+    }
+
+    void detach(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(preloader);
+        store.removeOnThumbnailReadyListener(this);
+    }
+
+    @Override
+    public void onThumbnailReady(int productId) {
+        List<Product> products = adapter.getCurrentList();
+        for (int position = 0; position < products.size(); position++) {
+            if (products.get(position).id == productId) {
+                adapter.notifyItemChanged(position, PAYLOAD_THUMBNAIL);
+                return;
+            }
+        }
+    }
+
+    void load(ImageView view, Product product) {
+        RequestBuilder<?> request = getPreloadRequestBuilder(product);
+        if (request != null) {
+            request.into(view);
+        } else {
+            glide.clear(view);
+            view.setImageResource(R.drawable.ic_image_placeholder);
+        }
+    }
+
+    @NonNull
+    @Override
+    public List<Product> getPreloadItems(int position) {
+        List<Product> products = adapter.getCurrentList();
+        if (position < 0 || position >= products.size()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(products.get(position));
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Product product) {
+        if (product.imageUrl == null || product.imageUrl.isEmpty()) {
+            return null;
+        }
+        File thumbnail = store.getThumbnail(product);
+        return glide.load(thumbnail != null ? thumbnail : product.imageUrl)
+                .override(sizePx, sizePx)
+                .transform(new CenterCrop(), new RoundedCorners(16))
+                .placeholder(R.drawable.ic_image_placeholder)
+                .error(R.drawable.ic_image_placeholder);
+    }
+}
@@ -3,20 +3,27 @@ package com.alkahfprogrammer.warungku.adapters;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.alkahfprogrammer.warungku.data.entity.Product;
 import com.alkahfprogrammer.warungku.databinding.ItemShoppingBinding;
 
-import java.util.ArrayList;
 import java.util.List;
 
-public class ShoppingAdapter extends RecyclerView.Adapter<ShoppingAdapter.ViewHolder> {
+public class ShoppingAdapter extends ListAdapter<Product, ShoppingAdapter.ViewHolder> {
 
-    private List<Product> products = new ArrayList<>();
+    public ShoppingAdapter() {
+        super(new ProductDiffCallback());
+        setHasStableIds(true);
+    }
 
     public void setProducts(List<Product> products) {
-        this.products = products;
-        notifyDataSetChanged();
+        submitList(products);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
     }
 
     @NonNull
@@ -27,17 +34,25 @@ public class ShoppingAdapter extends RecyclerView.Adapter<ShoppingAdapter.ViewHo
         return new ViewHolder(binding);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(ProductDiffCallback.PAYLOAD_STOCK)) {
+            bindStock(holder, getItem(position));
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Product product = products.get(position);
+        Product product = getItem(position);
         holder.binding.tvName.setText(product.name);
-        holder.binding.tvStockInfo.setText("Sisa stok: " + product.currentStock);
-        holder.binding.tvSalesCount.setText(product.salesCount + " kali terjual");
+        bindStock(holder, product);
     }
 
-    @Override
-    public int getItemCount() {
-        return products.size();
+    private void bindStock(ViewHolder holder, Product product) {
+        holder.binding.tvStockInfo.setText("Sisa stok: " + product.currentStock);
+        holder.binding.tvSalesCount.setText(product.salesCount + " kali terjual");
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
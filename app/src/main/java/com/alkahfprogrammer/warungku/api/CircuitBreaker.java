@@ -0,0 +1,89 @@
+package com.alkahfprogrammer.warungku.api;
+
+/**
+ * Circuit breaker sederhana untuk API eksternal.
+ *
+ * CLOSED: request jalan normal. Setelah beberapa kegagalan beruntun -> OPEN: request langsung
+ * ditolak (kasir tidak menunggu timeout). Setelah jeda -> HALF_OPEN: satu request percobaan
+ * diizinkan; sukses menutup kembali, gagal membuka lagi dengan jeda yang lebih panjang.
+ *
+ * Tidak memakai kelas Android supaya bisa diuji di JVM biasa.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long baseOpenMillis;
+    private final long maxOpenMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int consecutiveOpens;
+    private long openUntilNanos;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, long baseOpenMillis, long maxOpenMillis) {
+        this.failureThreshold = failureThreshold;
+        this.baseOpenMillis = baseOpenMillis;
+        this.maxOpenMillis = maxOpenMillis;
+    }
+
+    /**
+     * @return true jika request boleh dikirim
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false; // Hanya satu request percobaan
+            }
+            probeInFlight = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        consecutiveOpens = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            // Jeda terbuka naik eksponensial setiap kali percobaan gagal lagi
+            long openMillis = Math.min(maxOpenMillis, baseOpenMillis << Math.min(consecutiveOpens, 16));
+            consecutiveOpens++;
+            state = State.OPEN;
+            openUntilNanos = System.nanoTime() + openMillis * 1_000_000L;
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * Request percobaan selesai tanpa hasil (dibatalkan, atau exception selain IOException):
+     * lepaskan slot percobaan supaya request berikutnya bisa mencoba, tanpa menghitungnya sebagai gagal
+     */
+    public synchronized void releaseProbe() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Sisa waktu sebelum request percobaan diizinkan (0 jika tidak terbuka)
+     */
+    public synchronized long getRetryInMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, (openUntilNanos - System.nanoTime()) / 1_000_000L);
+    }
+}
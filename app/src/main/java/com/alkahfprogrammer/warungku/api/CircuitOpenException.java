@@ -0,0 +1,12 @@
+package com.alkahfprogrammer.warungku.api;
+
+import java.io.IOException;
+
+/**
+ * Request ditolak tanpa menyentuh jaringan karena circuit breaker sedang terbuka
+ */
+public class CircuitOpenException extends IOException {
+    public CircuitOpenException(long retryInMs) {
+        super("Circuit open, retry in " + retryInMs + " ms");
+    }
+}
@@ -0,0 +1,111 @@
+package com.alkahfprogrammer.warungku.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import okhttp3.Request;
+
+/**
+ * Penghitung latensi dan error per endpoint untuk semua request HTTP aplikasi
+ */
+public class HttpMetrics {
+    private static final Pattern DIGITS = Pattern.compile("\\d{4,}"); // Barcode/ID di path digabung jadi satu endpoint
+
+    private static volatile HttpMetrics INSTANCE;
+
+    private final ConcurrentHashMap<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+    public static HttpMetrics getInstance() {
+        if (INSTANCE == null) {
+            synchronized (HttpMetrics.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new HttpMetrics();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Nama endpoint: method + host + path dengan angka panjang diganti {n}
+     */
+    public static String endpointOf(Request request) {
+        String path = DIGITS.matcher(request.url().encodedPath()).replaceAll("{n}");
+        return request.method() + " " + request.url().host() + path;
+    }
+
+    public void recordSuccess(String endpoint, long latencyMillis, boolean fromCache) {
+        EndpointStats stats = stats(endpoint);
+        stats.requests.incrementAndGet();
+        stats.totalLatencyMillis.addAndGet(latencyMillis);
+        stats.maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+        if (fromCache) {
+            stats.cacheHits.incrementAndGet();
+        }
+    }
+
+    public void recordError(String endpoint, long latencyMillis) {
+        EndpointStats stats = stats(endpoint);
+        stats.requests.incrementAndGet();
+        stats.errors.incrementAndGet();
+        stats.totalLatencyMillis.addAndGet(latencyMillis);
+        stats.maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+    }
+
+    public void recordRetry(String endpoint) {
+        stats(endpoint).retries.incrementAndGet();
+    }
+
+    /**
+     * Request yang ditolak tanpa ke jaringan (offline atau circuit terbuka)
+     */
+    public void recordRejected(String endpoint) {
+        stats(endpoint).rejected.incrementAndGet();
+    }
+
+    public List<EndpointStats> snapshot() {
+        return new ArrayList<>(endpoints.values());
+    }
+
+    private EndpointStats stats(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, EndpointStats::new);
+    }
+
+    public static class EndpointStats {
+        public final String endpoint;
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong cacheHits = new AtomicLong();
+        final AtomicLong totalLatencyMillis = new AtomicLong();
+        final AtomicLong maxLatencyMillis = new AtomicLong();
+
+        EndpointStats(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        public long getAverageLatencyMillis() {
+            long count = requests.get();
+            return count == 0 ? 0 : totalLatencyMillis.get() / count;
+        }
+
+        public String format() {
+            return String.format(Locale.US, "%s\n  %d request, %d error, %d retry, %d ditolak, %d dari cache\n  rata-rata %d ms, maks %d ms",
+                    endpoint, requests.get(), errors.get(), retries.get(), rejected.get(), cacheHits.get(),
+                    getAverageLatencyMillis(), maxLatencyMillis.get());
+        }
+    }
+}
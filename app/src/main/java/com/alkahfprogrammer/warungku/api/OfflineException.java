@@ -0,0 +1,12 @@
+package com.alkahfprogrammer.warungku.api;
+
+import java.io.IOException;
+
+/**
+ * Tidak ada koneksi dan respons tidak tersedia di cache
+ */
+public class OfflineException extends IOException {
+    public OfflineException() {
+        super("No network connection");
+    }
+}
@@ -1,9 +1,17 @@
 package com.alkahfprogrammer.warungku.api;
 
+import android.content.Context;
+
+import com.alkahfprogrammer.warungku.utils.NetworkUtils;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
+import okhttp3.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Client untuk mengakses API produk eksternal
@@ -11,7 +19,9 @@ import java.util.concurrent.TimeUnit;
  * Catatan: 
  * - Base URL bisa diganti sesuai API yang digunakan
  * - Untuk production, tambahkan API key jika diperlukan
- * - Implementasi caching untuk mengurangi API calls
+ * - Caching hasil lookup ada di ProductLookupService (memori + tabel barcode_lookup_cache)
+ * - Semua request lewat satu OkHttpClient bersama: disk cache, gagal cepat saat offline,
+ *   retry dengan backoff, circuit breaker, dan metrik per endpoint (HttpMetrics)
  */
 public class ProductApiClient {
     
@@ -23,34 +33,101 @@ public class ProductApiClient {
     // ✅ Database sangat besar, termasuk produk Indonesia
     // ✅ Open source, community-driven
     private static final String BASE_URL = "https://world.openfoodfacts.org/api/v0/";
-    
-    private static ProductApiService apiService;
+
+    private static final long HTTP_CACHE_SIZE = 10L * 1024 * 1024; // 10 MB
+    private static final int DEFAULT_CACHE_MAX_AGE = 24 * 60 * 60; // Detik, untuk respons tanpa Cache-Control
+    private static final int MAX_RETRIES = 2;
+    private static final long BASE_BACKOFF_MS = 250;
+
+    // Breaker milik client bersama; client lain (misal di test) membawa breaker sendiri
+    private static volatile CircuitBreaker circuitBreaker;
+    private static volatile OkHttpClient httpClient;
+    private static volatile ProductApiService apiService;
     
     /**
      * Get API service instance
      * Menggunakan singleton pattern untuk efisiensi
      */
-    public static ProductApiService getApiService() {
+    public static ProductApiService getApiService(Context context) {
         if (apiService == null) {
-            // Setup OkHttp client
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .connectTimeout(10, TimeUnit.SECONDS)
-                    .readTimeout(10, TimeUnit.SECONDS)
-                    .writeTimeout(10, TimeUnit.SECONDS)
-                    .build();
-            
-            // Setup Retrofit
-            Retrofit retrofit = new Retrofit.Builder()
-                    .baseUrl(BASE_URL)
-                    .client(client)
-                    .addConverterFactory(GsonConverterFactory.create())
-                    .build();
-            
-            apiService = retrofit.create(ProductApiService.class);
+            synchronized (ProductApiClient.class) {
+                if (apiService == null) {
+                    apiService = create(getHttpClient(context), BASE_URL);
+                }
+            }
         }
-        
         return apiService;
     }
+
+    /**
+     * Buat service dengan base URL lain, misalnya server lokal (MockWebServer) untuk pengujian
+     */
+    public static ProductApiService create(OkHttpClient client, String baseUrl) {
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+        return retrofit.create(ProductApiService.class);
+    }
+
+    /**
+     * OkHttpClient bersama untuk semua akses jaringan aplikasi
+     */
+    public static OkHttpClient getHttpClient(Context context) {
+        if (httpClient == null) {
+            synchronized (ProductApiClient.class) {
+                if (httpClient == null) {
+                    Context appContext = context.getApplicationContext();
+                    circuitBreaker = newCircuitBreaker();
+                    httpClient = newClientBuilder(() -> NetworkUtils.isNetworkAvailable(appContext), circuitBreaker)
+                            .cache(new Cache(new File(appContext.getCacheDir(), "http_cache"), HTTP_CACHE_SIZE))
+                            .build();
+                }
+            }
+        }
+        return httpClient;
+    }
+
+    /**
+     * Terbuka setelah 3 kegagalan beruntun, coba lagi setelah 15 detik (naik sampai 5 menit)
+     */
+    public static CircuitBreaker newCircuitBreaker() {
+        return new CircuitBreaker(3, 15_000, 5 * 60_000);
+    }
+
+    /**
+     * Builder dengan interceptor dan timeout standar; cek koneksi dan breaker bisa diganti saat pengujian
+     */
+    public static OkHttpClient.Builder newClientBuilder(java.util.function.BooleanSupplier isOnline,
+                                                        CircuitBreaker circuitBreaker) {
+        return new OkHttpClient.Builder()
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(5, TimeUnit.SECONDS)
+                .writeTimeout(5, TimeUnit.SECONDS)
+                .callTimeout(12, TimeUnit.SECONDS) // Batas total termasuk retry, kasir tidak menunggu 30 detik
+                .addInterceptor(new ResilienceInterceptor(isOnline, circuitBreaker, HttpMetrics.getInstance(),
+                        MAX_RETRIES, BASE_BACKOFF_MS))
+                .addNetworkInterceptor(chain -> {
+                    // OFF tidak selalu mengirim Cache-Control; tanpa ini respons tidak masuk disk cache
+                    Response response = chain.proceed(chain.request());
+                    if ("GET".equals(chain.request().method()) && response.isSuccessful()
+                            && response.header("Cache-Control") == null) {
+                        return response.newBuilder()
+                                .header("Cache-Control", "public, max-age=" + DEFAULT_CACHE_MAX_AGE)
+                                .build();
+                    }
+                    return response;
+                });
+    }
+
+    /**
+     * Breaker client bersama (dipakai semua request aplikasi)
+     */
+    public static CircuitBreaker getCircuitBreaker(Context context) {
+        getHttpClient(context);
+        return circuitBreaker;
+    }
     
     /**
      * Check if API is configured
@@ -60,4 +137,3 @@ public class ProductApiClient {
         return true; // API sudah dikonfigurasi - Open Food Facts 100% gratis!
     }
 }
-
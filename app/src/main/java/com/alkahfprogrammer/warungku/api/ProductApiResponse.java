@@ -1,6 +1,6 @@
 package com.alkahfprogrammer.warungku.api;
 
-import com.google.gson.annotations.SerializedName;
+import com.google.gson.annotations.JsonAdapter;
 
 /**
  * Response model dari Open Food Facts API
@@ -8,74 +8,40 @@ import com.google.gson.annotations.SerializedName;
  * 
  * ✅ 100% gratis, tidak ada batasan request
  * ✅ Database sangat besar, termasuk produk Indonesia
+ *
+ * Hanya field yang dipakai aplikasi; di-decode oleh ProductApiResponseAdapter (streaming),
+ * field lain di dokumen dilewati tanpa dibuat objeknya.
  */
+@JsonAdapter(ProductApiResponseAdapter.class)
 public class ProductApiResponse {
     
-    @SerializedName("status")
-    public Integer status; // 1 = found, 0 = not found
+    public Integer status; // "status": 1 = found, 0 = not found
     
-    @SerializedName("status_verbose")
-    public String statusVerbose; // Status message
+    public String statusVerbose; // "status_verbose": Status message
     
-    @SerializedName("product")
-    public Product product;
+    public Product product; // "product"
     
     /**
      * Nested class untuk product data dari Open Food Facts
      */
     public static class Product {
-        @SerializedName("product_name")
-        public String productName; // Nama produk
+        public String productName; // "product_name": Nama produk
         
-        @SerializedName("product_name_en")
-        public String productNameEn; // Nama produk (English)
+        public String productNameEn; // "product_name_en": Nama produk (English)
         
-        @SerializedName("brands")
-        public String brands; // Merek (bisa multiple, dipisah koma)
+        public String brands; // "brands": Merek (bisa multiple, dipisah koma)
         
-        @SerializedName("brands_tags")
-        public String[] brandsTags; // Array brand tags
+        public String categories; // "categories": Kategori
         
-        @SerializedName("categories")
-        public String categories; // Kategori
+        public String quantity; // "quantity": Kuantitas (misal: "330ml", "500g")
         
-        @SerializedName("categories_tags")
-        public String[] categoriesTags; // Array kategori tags
+        public String imageUrl; // "image_url": URL gambar produk
         
-        @SerializedName("quantity")
-        public String quantity; // Kuantitas (misal: "330ml", "500g")
+        public String imageFrontUrl; // "image_front_url": URL gambar depan
         
-        @SerializedName("image_url")
-        public String imageUrl; // URL gambar produk
+        public String imageSmallUrl; // "image_small_url": URL gambar kecil
         
-        @SerializedName("image_front_url")
-        public String imageFrontUrl; // URL gambar depan
-        
-        @SerializedName("image_small_url")
-        public String imageSmallUrl; // URL gambar kecil
-        
-        @SerializedName("code")
-        public String code; // Barcode
-        
-        @SerializedName("countries")
-        public String countries; // Negara (bisa multiple)
-        
-        @SerializedName("countries_tags")
-        public String[] countriesTags; // Array negara tags
-        
-        @SerializedName("ingredients_text")
-        public String ingredientsText; // Daftar bahan
-        
-        @SerializedName("nutriments")
-        public Nutriments nutriments; // Informasi nutrisi
-    }
-    
-    /**
-     * Nested class untuk nutriments (opsional, untuk info nutrisi)
-     */
-    public static class Nutriments {
-        @SerializedName("energy-kcal_100g")
-        public Double energyKcal; // Kalori per 100g
+        public String code; // "code": Barcode
     }
     
     public ProductApiResponse() {
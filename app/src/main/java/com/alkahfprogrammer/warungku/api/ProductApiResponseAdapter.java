@@ -0,0 +1,150 @@
+package com.alkahfprogrammer.warungku.api;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Decoder streaming untuk response Open Food Facts.
+ *
+ * Ditulis manual (tanpa refleksi Gson): hanya field yang dipakai yang dibaca,
+ * sisanya dilewati dengan skipValue() sehingga nutrisi, daftar gambar, bahan, dll.
+ * tidak pernah dibuat menjadi objek walau server mengirim dokumen lengkap.
+ */
+public class ProductApiResponseAdapter extends TypeAdapter<ProductApiResponse> {
+
+    @Override
+    public ProductApiResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        ProductApiResponse response = new ProductApiResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "status":
+                    response.status = readInteger(in);
+                    break;
+                case "status_verbose":
+                    response.statusVerbose = readString(in);
+                    break;
+                case "product":
+                    response.product = readProduct(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return response;
+    }
+
+    private static ProductApiResponse.Product readProduct(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return null;
+        }
+
+        ProductApiResponse.Product product = new ProductApiResponse.Product();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "product_name":
+                    product.productName = readString(in);
+                    break;
+                case "product_name_en":
+                    product.productNameEn = readString(in);
+                    break;
+                case "brands":
+                    product.brands = readString(in);
+                    break;
+                case "categories":
+                    product.categories = readString(in);
+                    break;
+                case "quantity":
+                    product.quantity = readString(in);
+                    break;
+                case "image_url":
+                    product.imageUrl = readString(in);
+                    break;
+                case "image_front_url":
+                    product.imageFrontUrl = readString(in);
+                    break;
+                case "image_small_url":
+                    product.imageSmallUrl = readString(in);
+                    break;
+                case "code":
+                    product.code = readString(in);
+                    break;
+                default:
+                    in.skipValue(); // Subtree besar (nutriments, images, ingredients, ...) tidak dialokasikan
+                    break;
+            }
+        }
+        in.endObject();
+        return product;
+    }
+
+    /**
+     * String atau angka sebagai teks; tipe lain (null, array, object) dianggap tidak ada
+     */
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return in.nextString();
+        }
+        in.skipValue();
+        return null;
+    }
+
+    /**
+     * OFF kadang mengirim status sebagai angka, kadang sebagai string
+     */
+    private static Integer readInteger(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            try {
+                return in.nextInt();
+            } catch (NumberFormatException e) {
+                // nextInt() yang gagal (misal 1.5 atau "abc") tidak mengonsumsi token; lewati supaya
+                // nextName() berikutnya tidak gagal
+                in.skipValue();
+                return null;
+            }
+        }
+        in.skipValue();
+        return null;
+    }
+
+    @Override
+    public void write(JsonWriter out, ProductApiResponse response) throws IOException {
+        if (response == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("status").value(response.status);
+        out.name("status_verbose").value(response.statusVerbose);
+        if (response.product != null) {
+            ProductApiResponse.Product product = response.product;
+            out.name("product").beginObject();
+            out.name("code").value(product.code);
+            out.name("product_name").value(product.productName);
+            out.name("product_name_en").value(product.productNameEn);
+            out.name("brands").value(product.brands);
+            out.name("categories").value(product.categories);
+            out.name("quantity").value(product.quantity);
+            out.name("image_url").value(product.imageUrl);
+            out.name("image_front_url").value(product.imageFrontUrl);
+            out.name("image_small_url").value(product.imageSmallUrl);
+            out.endObject();
+        }
+        out.endObject();
+    }
+}
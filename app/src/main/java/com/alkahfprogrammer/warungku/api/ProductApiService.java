@@ -12,20 +12,25 @@ import retrofit2.http.Query;
  * Dokumentasi: https://world.openfoodfacts.org/data
  */
 public interface ProductApiService {
+
+    // Hanya field yang dipakai aplikasi; dokumen lengkap OFF bisa 50-200 KB per produk
+    String LOOKUP_FIELDS = "code,product_name,product_name_en,brands,categories,quantity," +
+            "image_url,image_front_url,image_small_url";
     
     /**
      * Lookup produk berdasarkan barcode menggunakan Open Food Facts API
      * 
-     * Endpoint: GET /product/{barcode}.json
+     * Endpoint: GET /product/{barcode}.json?fields=...
      * 
      * ✅ 100% gratis, tidak ada batasan request
      * ✅ Tidak perlu API key
      * ✅ Database sangat besar, termasuk produk Indonesia
      * 
      * @param barcode Kode barcode produk (EAN-13, UPC, dll)
+     * @param fields Daftar field yang diminta, biasanya {@link #LOOKUP_FIELDS}
      * @return Data produk dari database eksternal
      */
     @GET("product/{barcode}.json")
-    Call<ProductApiResponse> lookupProduct(@Path("barcode") String barcode);
+    Call<ProductApiResponse> lookupProduct(@Path("barcode") String barcode, @Query("fields") String fields);
 }
 
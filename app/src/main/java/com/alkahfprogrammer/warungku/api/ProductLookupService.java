@@ -0,0 +1,156 @@
+package com.alkahfprogrammer.warungku.api;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.DatabaseWriter;
+import com.alkahfprogrammer.warungku.data.catalog.OfflineCatalog;
+import com.alkahfprogrammer.warungku.data.dao.BarcodeLookupDao;
+import com.alkahfprogrammer.warungku.data.entity.BarcodeLookup;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Response;
+
+/**
+ * Lookup barcode ke database eksternal dengan cache bertingkat:
+ * 1. LRU di memori
+ * 2. Tabel barcode_lookup_cache (dengan TTL, termasuk hasil "tidak ditemukan")
+ * 3. Katalog offline hasil impor dump Open Food Facts (OfflineCatalog), jika ada
+ * 4. Baru ke jaringan (Open Food Facts)
+ *
+ * Scan ulang barang yang sudah diketahui tidak ada di API langsung dijawab dari cache,
+ * dan beberapa lookup barcode yang sama sekaligus hanya menghasilkan satu request.
+ */
+public class ProductLookupService {
+    private static final String TAG = "ProductLookupService";
+    private static final int MEMORY_CACHE_SIZE = 200;
+    private static final long FOUND_TTL_MS = TimeUnit.DAYS.toMillis(30);
+    private static final long NOT_FOUND_TTL_MS = TimeUnit.DAYS.toMillis(3); // Data OFF bisa bertambah, cek lagi lebih cepat
+
+    private static volatile ProductLookupService INSTANCE;
+
+    private final Context context;
+    private final BarcodeLookupDao barcodeLookupDao;
+    private final DatabaseWriter writer;
+    private final OfflineCatalog offlineCatalog;
+    private final LruCache<String, BarcodeLookup> memoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+    private final ConcurrentHashMap<String, CompletableFuture<BarcodeLookup>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private ProductLookupService(Context context) {
+        this.context = context.getApplicationContext();
+        AppDatabase db = AppDatabase.getDatabase(this.context);
+        this.barcodeLookupDao = db.barcodeLookupDao();
+        this.writer = DatabaseWriter.getInstance(db);
+        this.offlineCatalog = OfflineCatalog.getInstance(this.context);
+
+        long now = System.currentTimeMillis();
+        writer.submit(() -> barcodeLookupDao.deleteExpired(now - FOUND_TTL_MS, now - NOT_FOUND_TTL_MS));
+    }
+
+    public static ProductLookupService getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ProductLookupService.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ProductLookupService(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Cari data produk berdasarkan barcode.
+     * Future selesai dengan BarcodeLookup (cek isSuccess()), atau gagal dengan
+     * OfflineException / CircuitOpenException / IOException jika tidak ada cache dan jaringan
+     * tidak bisa dipakai.
+     */
+    public CompletableFuture<BarcodeLookup> lookup(String barcode) {
+        String code = barcode.trim();
+        BarcodeLookup cached = memoryCache.get(code);
+        if (cached != null && isFresh(cached, System.currentTimeMillis())) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<BarcodeLookup> created = new CompletableFuture<>();
+        CompletableFuture<BarcodeLookup> existing = inFlight.putIfAbsent(code, created);
+        if (existing != null) {
+            return existing; // Gabung dengan lookup yang sedang berjalan
+        }
+        executor.execute(() -> {
+            try {
+                created.complete(load(code));
+            } catch (Exception e) {
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(code, created);
+            }
+        });
+        return created;
+    }
+
+    private BarcodeLookup load(String code) throws IOException {
+        long now = System.currentTimeMillis();
+        BarcodeLookup stored = barcodeLookupDao.get(code);
+        if (stored != null && stored.found && isFresh(stored, now)) {
+            memoryCache.put(code, stored);
+            return stored;
+        }
+
+        // Katalog offline dicek sebelum negative cache: bisa punya barcode yang belum ada saat API dicek
+        BarcodeLookup offline = offlineCatalog.find(code, now);
+        if (offline != null) {
+            memoryCache.put(code, offline); // Tidak perlu disimpan ke Room, sudah ada di file lokal
+            return offline;
+        }
+        if (stored != null && isFresh(stored, now)) {
+            memoryCache.put(code, stored);
+            return stored;
+        }
+
+        // Offline / circuit terbuka ditangani ProductApiClient (gagal cepat dengan IOException)
+        try {
+            Response<ProductApiResponse> response = ProductApiClient.getApiService(context)
+                    .lookupProduct(code, ProductApiService.LOOKUP_FIELDS).execute();
+            BarcodeLookup result;
+            if (response.isSuccessful()) {
+                result = BarcodeLookup.fromResponse(code, response.body(), now);
+            } else if (response.code() == 404) {
+                result = BarcodeLookup.notFound(code, now);
+            } else {
+                throw new IOException("HTTP " + response.code());
+            }
+            memoryCache.put(code, result);
+            writer.submit(() -> barcodeLookupDao.put(result));
+            return result;
+        } catch (IOException e) {
+            if (stored != null) {
+                // Cache kedaluwarsa masih lebih baik daripada tidak ada
+                Log.w(TAG, "Lookup failed, using stale cache for " + code, e);
+                return stored;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isFresh(BarcodeLookup lookup, long now) {
+        long ttl = lookup.found ? FOUND_TTL_MS : NOT_FOUND_TTL_MS;
+        return now - lookup.fetchedAt < ttl;
+    }
+
+    /**
+     * Ambil penyebab asli dari error CompletableFuture
+     */
+    public static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
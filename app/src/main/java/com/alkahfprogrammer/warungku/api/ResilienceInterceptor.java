@@ -0,0 +1,156 @@
+package com.alkahfprogrammer.warungku.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Interceptor aplikasi untuk semua request keluar:
+ * - Offline: langsung jawab dari disk cache, atau gagal cepat dengan OfflineException.
+ * - Circuit breaker terbuka: gagal cepat dengan CircuitOpenException.
+ * - Error jaringan (termasuk connect/read timeout) / 5xx: diulang dengan exponential backoff + jitter,
+ *   selama sisa callTimeout masih cukup. Call yang dibatalkan atau thread yang diinterupsi tidak diulang.
+ * - Latensi, error, retry, dan cache hit dicatat ke HttpMetrics.
+ */
+public class ResilienceInterceptor implements Interceptor {
+    private final BooleanSupplier isOnline;
+    private final CircuitBreaker circuitBreaker;
+    private final HttpMetrics metrics;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+
+    public ResilienceInterceptor(BooleanSupplier isOnline, CircuitBreaker circuitBreaker, HttpMetrics metrics,
+                                 int maxRetries, long baseBackoffMillis) {
+        this.isOnline = isOnline;
+        this.circuitBreaker = circuitBreaker;
+        this.metrics = metrics;
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String endpoint = HttpMetrics.endpointOf(request);
+        long start = System.nanoTime();
+
+        if (!isOnline.getAsBoolean()) {
+            return proceedFromCache(chain, request, endpoint, start);
+        }
+        if (!circuitBreaker.allowRequest()) {
+            metrics.recordRejected(endpoint);
+            throw new CircuitOpenException(circuitBreaker.getRetryInMillis());
+        }
+
+        boolean recorded = false;
+        try {
+            IOException lastError = null;
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    Response response = chain.proceed(request);
+                    if (response.code() >= 500 && attempt < maxRetries) {
+                        long delay = backoffDelay(attempt);
+                        if (fitsCallTimeout(chain, start, delay)) {
+                            response.close();
+                            metrics.recordRetry(endpoint);
+                            sleep(delay);
+                            continue;
+                        }
+                    }
+                    recorded = true;
+                    if (response.code() >= 500) {
+                        circuitBreaker.onFailure();
+                        metrics.recordError(endpoint, elapsedMillis(start));
+                    } else {
+                        circuitBreaker.onSuccess();
+                        metrics.recordSuccess(endpoint, elapsedMillis(start), isFromCache(response));
+                    }
+                    return response;
+                } catch (IOException e) {
+                    lastError = e;
+                    if (attempt >= maxRetries || isCancelled(chain, e)) {
+                        break;
+                    }
+                    long delay = backoffDelay(attempt);
+                    if (!fitsCallTimeout(chain, start, delay)) {
+                        break;
+                    }
+                    metrics.recordRetry(endpoint);
+                    sleep(delay);
+                }
+            }
+
+            recorded = true;
+            circuitBreaker.onFailure();
+            metrics.recordError(endpoint, elapsedMillis(start));
+            throw lastError;
+        } finally {
+            if (!recorded) {
+                // Keluar tanpa hasil (RuntimeException dari chain, backoff diinterupsi): request percobaan
+                // half-open tidak boleh menahan slotnya selamanya
+                circuitBreaker.releaseProbe();
+            }
+        }
+    }
+
+    private Response proceedFromCache(Chain chain, Request request, String endpoint, long start) throws IOException {
+        Request cacheOnly = request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build();
+        Response response = chain.proceed(cacheOnly);
+        if (response.code() == 504) {
+            // 504 dari OkHttp = tidak ada di cache dan jaringan dilarang
+            response.close();
+            metrics.recordRejected(endpoint);
+            throw new OfflineException();
+        }
+        metrics.recordSuccess(endpoint, elapsedMillis(start), true);
+        return response;
+    }
+
+    /**
+     * SocketTimeoutException (connect/read timeout) juga turunan InterruptedIOException, tapi layak diulang.
+     * Yang berhenti hanya pembatalan call (termasuk callTimeout habis) dan interupsi thread.
+     */
+    private static boolean isCancelled(Chain chain, IOException e) {
+        return chain.call().isCanceled()
+                || (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException));
+    }
+
+    /**
+     * Retry hanya jika setelah backoff masih ada sisa callTimeout untuk percobaan berikutnya
+     */
+    private static boolean fitsCallTimeout(Chain chain, long startNanos, long delayMillis) {
+        long budgetNanos = chain.call().timeout().timeoutNanos();
+        if (budgetNanos == 0) {
+            return true; // Tanpa callTimeout
+        }
+        return System.nanoTime() - startNanos + delayMillis * 1_000_000L < budgetNanos;
+    }
+
+    private long backoffDelay(int attempt) {
+        return (baseBackoffMillis << attempt) + ThreadLocalRandom.current().nextLong(baseBackoffMillis + 1);
+    }
+
+    private static void sleep(long delay) throws InterruptedIOException {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during backoff");
+        }
+    }
+
+    private static boolean isFromCache(Response response) {
+        return response.cacheResponse() != null && response.networkResponse() == null;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+}
@@ -1,6 +1,9 @@
 package com.alkahfprogrammer.warungku.data;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
 import androidx.room.Database;
 import androidx.room.Room;
@@ -8,21 +11,40 @@ import androidx.room.RoomDatabase;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.alkahfprogrammer.warungku.data.dao.BarcodeLookupDao;
 import com.alkahfprogrammer.warungku.data.dao.CashFlowDao;
+import com.alkahfprogrammer.warungku.data.dao.DailySummaryDao;
 import com.alkahfprogrammer.warungku.data.dao.ProductDao;
+import com.alkahfprogrammer.warungku.data.dao.SaleDao;
+import com.alkahfprogrammer.warungku.data.entity.BarcodeLookup;
 import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.DailySummary;
 import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.entity.Sale;
+import com.alkahfprogrammer.warungku.data.entity.SaleItem;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-@Database(entities = { Product.class, CashFlow.class }, version = 7, exportSchema = false)
+@Database(entities = { Product.class, CashFlow.class, DailySummary.class, Sale.class, SaleItem.class,
+        BarcodeLookup.class }, version = AppDatabase.VERSION, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
     public abstract ProductDao productDao();
 
     public abstract CashFlowDao cashFlowDao();
 
+    public abstract DailySummaryDao dailySummaryDao();
+
+    public abstract SaleDao saleDao();
+
+    public abstract BarcodeLookupDao barcodeLookupDao();
+
+    public static final int VERSION = 11;
+    private static final String DB_NAME = "warungku_db";
+
     private static volatile AppDatabase INSTANCE;
     private static final int NUMBER_OF_THREADS = 4;
     public static final ExecutorService databaseWriteExecutor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
@@ -130,19 +152,186 @@ public abstract class AppDatabase extends RoomDatabase {
             database.execSQL("ALTER TABLE products ADD COLUMN imageUrl TEXT");
         }
     };
+    
+    // Migration from version 7 to 8: Add indexes for dashboard, report and barcode queries
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Barcode kosong dan duplikat harus dibersihkan sebelum index unik dibuat
+            database.execSQL("UPDATE products SET barcode = NULL WHERE barcode IS NOT NULL AND TRIM(barcode) = ''");
+            database.execSQL("UPDATE products SET barcode = NULL WHERE barcode IS NOT NULL AND id NOT IN " +
+                    "(SELECT MIN(id) FROM products WHERE barcode IS NOT NULL GROUP BY barcode)");
+            
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS index_products_barcode ON products (barcode)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_products_salesCount ON products (salesCount)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_cash_flow_type_timestamp ON cash_flow (type, timestamp)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_cash_flow_timestamp ON cash_flow (timestamp)");
+        }
+    };
+    
+    // Migration from version 8 to 9: Add daily_summary rollup table and backfill it from cash_flow
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS daily_summary (" +
+                    "epochDay INTEGER PRIMARY KEY NOT NULL," +
+                    "income REAL NOT NULL," +
+                    "expense REAL NOT NULL," +
+                    "profit REAL NOT NULL," +
+                    "stockPurchase REAL NOT NULL," +
+                    "transactionCount INTEGER NOT NULL" +
+                    ")");
+            
+            // Epoch day lokal = julianday(tanggal lokal) - julianday('1970-01-01')
+            database.execSQL("INSERT INTO daily_summary (epochDay, income, expense, profit, stockPurchase, transactionCount) " +
+                    "SELECT CAST(julianday(date(timestamp / 1000, 'unixepoch', 'localtime')) - 2440587.5 AS INTEGER) AS day, " +
+                    "SUM(CASE WHEN type = 'IN' THEN amount ELSE 0 END), " +
+                    "SUM(CASE WHEN type = 'OUT' THEN amount ELSE 0 END), " +
+                    "SUM(CASE WHEN type = 'IN' THEN IFNULL(profit, 0) ELSE 0 END), " +
+                    "SUM(CASE WHEN type = 'OUT' AND (productId IS NOT NULL OR description LIKE 'Tambah Stok:%') THEN amount ELSE 0 END), " +
+                    "COUNT(*) " +
+                    "FROM cash_flow GROUP BY day");
+        }
+    };
+    
+    // Migration from version 9 to 10: Add sale and sale_item tables for per-product sales reports
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS sale (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
+                    "cashFlowId INTEGER NOT NULL," +
+                    "timestamp INTEGER NOT NULL," +
+                    "totalAmount REAL NOT NULL," +
+                    "totalProfit REAL NOT NULL," +
+                    "itemCount INTEGER NOT NULL" +
+                    ")");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_sale_timestamp ON sale (timestamp)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_sale_cashFlowId ON sale (cashFlowId)");
+            
+            database.execSQL("CREATE TABLE IF NOT EXISTS sale_item (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
+                    "saleId INTEGER NOT NULL," +
+                    "productId INTEGER NOT NULL," +
+                    "productName TEXT," +
+                    "quantity INTEGER NOT NULL," +
+                    "unitSellPrice REAL NOT NULL," +
+                    "unitBuyPrice REAL," +
+                    "lineProfit REAL NOT NULL," +
+                    "timestamp INTEGER NOT NULL" +
+                    ")");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_sale_item_saleId ON sale_item (saleId)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_sale_item_productId_timestamp ON sale_item (productId, timestamp)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_sale_item_timestamp ON sale_item (timestamp)");
+            backfillSales(database);
+        }
+    };
+
+    /**
+     * Isi sale/sale_item dari riwayat penjualan satu produk ("Jual Nama (n)") supaya laporan per periode
+     * tidak kosong setelah upgrade. Checkout multi-produk ("Jual: A (1), B (2)") tidak punya harga per
+     * produk, jadi tidak di-backfill.
+     */
+    static void backfillSales(SupportSQLiteDatabase database) {
+        Map<String, Integer> productIdByName = new HashMap<>();
+        try (Cursor products = database.query("SELECT id, name FROM products WHERE name IS NOT NULL")) {
+            while (products.moveToNext()) {
+                productIdByName.putIfAbsent(products.getString(1), products.getInt(0));
+            }
+        }
+
+        try (Cursor flows = database.query("SELECT id, timestamp, amount, profit, description, productId FROM cash_flow " +
+                "WHERE type = 'IN' AND description LIKE 'Jual %' AND description NOT LIKE 'Jual:%' " +
+                "AND id NOT IN (SELECT cashFlowId FROM sale)")) {
+            while (flows.moveToNext()) {
+                String description = flows.getString(4);
+                int open = description.lastIndexOf(" (");
+                if (open < 5 || !description.endsWith(")")) {
+                    continue;
+                }
+                String name = description.substring(5, open);
+                int quantity;
+                try {
+                    quantity = Integer.parseInt(description.substring(open + 2, description.length() - 1).trim());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                Integer productId = flows.isNull(5) ? productIdByName.get(name) : Integer.valueOf(flows.getInt(5));
+                if (quantity <= 0 || productId == null) {
+                    continue;
+                }
+
+                long timestamp = flows.getLong(1);
+                double amount = flows.getDouble(2);
+                Double profit = flows.isNull(3) ? null : flows.getDouble(3);
+
+                ContentValues sale = new ContentValues();
+                sale.put("cashFlowId", flows.getLong(0));
+                sale.put("timestamp", timestamp);
+                sale.put("totalAmount", amount);
+                sale.put("totalProfit", profit != null ? profit : 0.0);
+                sale.put("itemCount", quantity);
+                long saleId = database.insert("sale", SQLiteDatabase.CONFLICT_NONE, sale);
+
+                ContentValues item = new ContentValues();
+                item.put("saleId", saleId);
+                item.put("productId", productId);
+                item.put("productName", name);
+                item.put("quantity", quantity);
+                item.put("unitSellPrice", amount / quantity);
+                item.put("unitBuyPrice", profit != null ? (amount - profit) / quantity : null);
+                item.put("lineProfit", profit != null ? profit : 0.0);
+                item.put("timestamp", timestamp);
+                database.insert("sale_item", SQLiteDatabase.CONFLICT_NONE, item);
+            }
+        }
+    }
+
+    // Migration from version 10 to 11: Add barcode_lookup_cache for external barcode lookups
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS barcode_lookup_cache (" +
+                    "barcode TEXT PRIMARY KEY NOT NULL," +
+                    "found INTEGER NOT NULL," +
+                    "name TEXT," +
+                    "brand TEXT," +
+                    "quantity TEXT," +
+                    "category TEXT," +
+                    "imageUrl TEXT," +
+                    "fetchedAt INTEGER NOT NULL" +
+                    ")");
+        }
+    };
 
     public static AppDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
-                            AppDatabase.class, "warungku_db")
-                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7)
-                            .fallbackToDestructiveMigration() // For development: drop and recreate if migration fails
+                            AppDatabase.class, DB_NAME)
+                            // Tanpa fallbackToDestructiveMigration: migrasi yang gagal atau hilang harus crash,
+                            // bukan diam-diam menghapus seluruh riwayat penjualan
+                            .addMigrations(allMigrations())
                             .build();
                 }
             }
         }
         return INSTANCE;
     }
+
+    /**
+     * Instance terpisah untuk file database lain (misal file hasil restore) dengan migrasi yang sama.
+     * Tanpa fallbackToDestructiveMigration: file yang tidak bisa dimigrasi ditolak, bukan dikosongkan.
+     */
+    public static AppDatabase openDetached(Context context, String name) {
+        return Room.databaseBuilder(context.getApplicationContext(), AppDatabase.class, name)
+                .addMigrations(allMigrations())
+                .build();
+    }
+
+    private static Migration[] allMigrations() {
+        return new Migration[] { MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6,
+                MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11 };
+    }
 }
@@ -2,67 +2,164 @@ package com.alkahfprogrammer.warungku.data;
 
 import android.app.Application;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingLiveData;
 import com.alkahfprogrammer.warungku.data.dao.CashFlowDao;
+import com.alkahfprogrammer.warungku.data.dao.DailySummaryDao;
 import com.alkahfprogrammer.warungku.data.dao.ProductDao;
+import com.alkahfprogrammer.warungku.data.dao.SaleDao;
 import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.DailySummary;
 import com.alkahfprogrammer.warungku.data.entity.Product;
-
+import com.alkahfprogrammer.warungku.data.entity.Sale;
+import com.alkahfprogrammer.warungku.data.entity.SaleItem;
+import com.alkahfprogrammer.warungku.data.image.ProductImageStore;
+import com.alkahfprogrammer.warungku.data.importer.CashFlowImportEngine;
+import com.alkahfprogrammer.warungku.data.importer.ImportSummary;
+import com.alkahfprogrammer.warungku.data.importer.ProductUpsertEngine;
+import com.alkahfprogrammer.warungku.data.model.HistoryItem;
+import com.alkahfprogrammer.warungku.data.model.ProductSalesTotal;
+import com.alkahfprogrammer.warungku.data.model.StockEvent;
+import com.alkahfprogrammer.warungku.data.paging.CashFlowPagingSource;
+import com.alkahfprogrammer.warungku.data.search.BarcodeIndex;
+import com.alkahfprogrammer.warungku.utils.StockNotificationHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import kotlinx.coroutines.CoroutineScope;
 
 public class DataRepository {
+    private static final String TAG = "DataRepository";
+    private static final int HISTORY_PAGE_SIZE = 50;
     private final ProductDao productDao;
     private final CashFlowDao cashFlowDao;
+    private final DailySummaryDao dailySummaryDao;
+    private final SaleDao saleDao;
+    private final AppDatabase db;
+    private final DatabaseWriter writer;
+    private final BarcodeIndex barcodeIndex;
     private final LiveData<List<Product>> allProducts;
-    private final LiveData<List<CashFlow>> allHistory;
     private final Application application;
+    private final ExecutorService stockEventExecutor = Executors.newSingleThreadExecutor();
+
+    private static volatile DataRepository INSTANCE;
 
-    public DataRepository(Application application) {
+    /**
+     * Satu repository per proses: observer index barcode & thumbnail di bawah didaftarkan sekali
+     * (observeForever tidak pernah dilepas), bukan sekali per activity / ViewModel.
+     */
+    public static DataRepository getInstance(Application application) {
+        if (INSTANCE == null) {
+            synchronized (DataRepository.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DataRepository(application);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private DataRepository(Application application) {
         this.application = application;
-        AppDatabase db = AppDatabase.getDatabase(application);
+        db = AppDatabase.getDatabase(application);
+        writer = DatabaseWriter.getInstance(db);
         productDao = db.productDao();
         cashFlowDao = db.cashFlowDao();
+        dailySummaryDao = db.dailySummaryDao();
+        saleDao = db.saleDao();
         allProducts = productDao.getAllProducts();
-        allHistory = cashFlowDao.getAllHistory();
+
+        // Index barcode ikut setiap emisi produk, jadi lookup scan tidak perlu query ke database
+        barcodeIndex = BarcodeIndex.getInstance();
+        ProductImageStore imageStore = ProductImageStore.getInstance(application);
+        allProducts.observeForever(products -> {
+            if (products != null) {
+                barcodeIndex.update(products);
+                imageStore.sync(products); // Thumbnail dibuat/dihapus di background
+            }
+        });
     }
 
     public LiveData<List<Product>> getAllProducts() {
         return allProducts;
     }
 
-    public LiveData<List<CashFlow>> getAllHistory() {
-        return allHistory;
+    /**
+     * Riwayat transaksi per halaman (keyset pada timestamp, id) dengan pemisah hari.
+     * Memori tetap konstan berapa pun jumlah transaksinya.
+     */
+    public LiveData<PagingData<HistoryItem>> getHistoryPaging(CoroutineScope scope) {
+        Pager<CashFlowPagingSource.Key, CashFlow> pager = new Pager<>(
+                new PagingConfig(HISTORY_PAGE_SIZE, HISTORY_PAGE_SIZE, false),
+                () -> new CashFlowPagingSource(db, AppDatabase.databaseWriteExecutor));
+        LiveData<PagingData<HistoryItem>> items = Transformations.map(
+                PagingLiveData.getLiveData(pager), this::withDaySeparators);
+        return PagingLiveData.cachedIn(items, scope);
     }
 
+    private PagingData<HistoryItem> withDaySeparators(PagingData<CashFlow> pagingData) {
+        Executor executor = AppDatabase.databaseWriteExecutor;
+        PagingData<HistoryItem> items = PagingDataTransforms.map(pagingData, executor,
+                flow -> HistoryItem.transaction(flow, DailySummary.toEpochDay(flow.timestamp)));
+        return PagingDataTransforms.insertSeparators(items, executor, (before, after) -> {
+            if (after == null) {
+                return null;
+            }
+            if (before == null || before.epochDay != after.epochDay) {
+                return HistoryItem.dayHeader(after.epochDay);
+            }
+            return null;
+        });
+    }
+
+    // Total & ringkasan periode dibaca dari rekap daily_summary (O(hari), bukan O(transaksi)).
+    // Rentang waktu dibulatkan ke hari lokal: start dan end ikut dihitung sehari penuh.
     public LiveData<Double> getCurrentBalance() {
-        return cashFlowDao.getCurrentBalance();
+        return dailySummaryDao.getCurrentBalance();
     }
 
     public LiveData<Double> getTotalIncome() {
-        return cashFlowDao.getTotalIncome();
+        return dailySummaryDao.getTotalIncome();
     }
 
     public LiveData<Double> getTotalExpense() {
-        return cashFlowDao.getTotalExpense();
+        return dailySummaryDao.getTotalExpense();
     }
 
     public LiveData<Double> getIncomeInRange(long start, long end) {
-        return cashFlowDao.getIncomeInRange(start, end);
+        return dailySummaryDao.getIncomeInRange(DailySummary.toEpochDay(start), DailySummary.toEpochDay(end));
     }
 
     public LiveData<Double> getExpenseInRange(long start, long end) {
-        return cashFlowDao.getExpenseInRange(start, end);
+        return dailySummaryDao.getExpenseInRange(DailySummary.toEpochDay(start), DailySummary.toEpochDay(end));
     }
 
     public LiveData<Double> getProfitInRange(long start, long end) {
-        return cashFlowDao.getProfitInRange(start, end);
+        return dailySummaryDao.getProfitInRange(DailySummary.toEpochDay(start), DailySummary.toEpochDay(end));
     }
 
     public LiveData<Double> getTotalStockPurchase() {
-        return cashFlowDao.getTotalStockPurchase();
+        return dailySummaryDao.getTotalStockPurchase();
     }
 
     public LiveData<Double> getTotalStockPurchaseInRange(long start, long end) {
-        return cashFlowDao.getTotalStockPurchaseInRange(start, end);
+        return dailySummaryDao.getStockPurchaseInRange(DailySummary.toEpochDay(start), DailySummary.toEpochDay(end));
+    }
+
+    public LiveData<List<DailySummary>> getDailySummariesInRange(long start, long end) {
+        return dailySummaryDao.getSummariesInRange(DailySummary.toEpochDay(start), DailySummary.toEpochDay(end));
     }
 
     public LiveData<List<Product>> getShoppingList() {
@@ -74,16 +171,30 @@ public class DataRepository {
         return productDao.getTopSellingProducts(limit);
     }
 
-    public LiveData<List<Product>> getUnsoldProducts() {
-        return productDao.getUnsoldProducts();
+    public LiveData<List<Product>> getUnsoldProducts(long start, long end) {
+        return productDao.getUnsoldProducts(start, end);
     }
 
     public LiveData<List<CashFlow>> getCashFlowInRange(long start, long end) {
         return cashFlowDao.getCashFlowInRange(start, end);
     }
 
-    public void insertProduct(Product product) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
+    public LiveData<List<Product>> getTopSellingProductsInRange(long start, long end, int limit) {
+        return saleDao.getTopSellingProductsInRange(start, end, limit);
+    }
+
+    public LiveData<List<ProductSalesTotal>> getProductSalesInRange(long start, long end) {
+        return saleDao.getProductSalesInRange(start, end);
+    }
+
+    // Semua penulisan lewat DatabaseWriter: satu thread, perintah beruntun di-commit bersama dalam satu transaksi.
+    // Future yang dikembalikan selesai setelah data ter-commit.
+
+    public CompletableFuture<Void> insertProduct(Product product) {
+        List<StockEvent> events = new ArrayList<>();
+        return writer.submit(() -> {
+            events.clear();
+            ensureBarcodeFree(product);
             long productId = productDao.insert(product);
             
             // Catat biaya pembelian jika ada stok awal dan buyPrice
@@ -92,88 +203,204 @@ public class DataRepository {
                 if (cost > 0) {
                     CashFlow flow = new CashFlow("OUT", cost, "Tambah Stok: " + product.name + " (" + product.currentStock + ")",
                             System.currentTimeMillis(), (int) productId, 0.0);
-                    cashFlowDao.insert(flow);
+                    recordCashFlow(flow);
                 }
             }
-            
-            // Check stock notifications
-            checkStockNotifications();
-        });
+            // Produk baru dianggap berangkat dari stok normal
+            addEvent(events, StockEvent.detect((int) productId, product.name, Integer.MAX_VALUE, product.minStock,
+                    product.currentStock, product.minStock));
+        }).thenRun(() -> dispatchStockEvents(events));
     }
 
-    public void updateProduct(Product product) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
+    public CompletableFuture<Void> updateProduct(Product product) {
+        List<StockEvent> events = new ArrayList<>();
+        return writer.submit(() -> {
+            events.clear();
+            Product before = productDao.getProductById(product.id);
+            ensureBarcodeFree(product);
             productDao.update(product);
-            // Check stock notifications
-            checkStockNotifications();
+            if (before != null) {
+                addEvent(events, StockEvent.detect(product.id, product.name, before.currentStock, before.minStock,
+                        product.currentStock, product.minStock));
+            }
+        }).thenRun(() -> dispatchStockEvents(events));
+    }
+    
+    /**
+     * Tolak barcode yang sudah dimiliki produk lain, daripada membiarkan index unik gagal di tengah transaksi.
+     * Dipanggil dari perintah penulis, jadi tidak ada penulis lain di antara cek dan insert/update.
+     */
+    private void ensureBarcodeFree(Product product) {
+        if (product.barcode == null) {
+            return;
+        }
+        Product owner = productDao.getProductByBarcode(product.barcode);
+        if (owner != null && owner.id != product.id) {
+            throw new DuplicateBarcodeException(product.barcode, owner.name);
+        }
+    }
+
+    /**
+     * Tulis hasil impor produk sebagai satu perintah (satu transaksi): insert/update per chunk
+     * beserta cash flow "Tambah Stok" untuk stok yang bertambah.
+     * @return future berisi ringkasan, selesai setelah semuanya ter-commit
+     */
+    public CompletableFuture<ImportSummary> importProducts(ProductUpsertEngine upsert) {
+        List<StockEvent> events = new ArrayList<>();
+        AtomicReference<ImportSummary> summary = new AtomicReference<>();
+        return writer.submit(() -> {
+            events.clear();
+            summary.set(upsert.apply(db, events));
+        }).thenApply(ignored -> {
+            dispatchStockEvents(events);
+            return summary.get();
+        });
+    }
+
+    /**
+     * Tambahkan riwayat cash_flow hasil impor (beserta rekap harian) dalam satu perintah penulis
+     */
+    public CompletableFuture<ImportSummary> importCashFlows(CashFlowImportEngine engine) {
+        AtomicReference<ImportSummary> summary = new AtomicReference<>();
+        return writer.submit(() -> summary.set(engine.apply(db))).thenApply(ignored -> summary.get());
+    }
+
+    public CompletableFuture<Void> updateCashFlow(CashFlow cashFlow) {
+        return writer.submit(() -> {
+            CashFlow old = cashFlowDao.getById(cashFlow.id);
+            if (old != null) {
+                dailySummaryDao.unrecord(old);
+            }
+            cashFlowDao.update(cashFlow);
+            dailySummaryDao.record(cashFlow);
         });
     }
     
-    public void updateCashFlow(CashFlow cashFlow) {
-        AppDatabase.databaseWriteExecutor.execute(() -> cashFlowDao.update(cashFlow));
+    public CompletableFuture<Void> insertCashFlow(CashFlow cashFlow) {
+        return writer.submit(() -> recordCashFlow(cashFlow));
     }
     
-    public void insertCashFlow(CashFlow cashFlow) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            cashFlowDao.insert(cashFlow);
-        });
+    /**
+     * Insert cash flow sekaligus update rekap harian. Harus dipanggil di dalam transaksi.
+     */
+    private void recordCashFlow(CashFlow flow) {
+        cashFlowDao.insert(flow);
+        dailySummaryDao.record(flow);
+    }
+    
+    /**
+     * Insert penjualan (cash flow + sale + sale_item) sekaligus update rekap harian. Harus dipanggil di dalam transaksi.
+     */
+    private void recordSale(CashFlow flow, Sale sale, List<SaleItem> items) {
+        saleDao.insertSaleWithItems(flow, sale, items);
+        dailySummaryDao.record(flow);
     }
 
-    public void sellProduct(Product product, int quantity) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            product.currentStock -= quantity;
-            product.salesCount += quantity;
-            product.lastSoldTimestamp = System.currentTimeMillis();
-            productDao.update(product);
+    /**
+     * Jual satu produk. Objek product tidak diubah (milik adapter, DiffUtil harus melihat perubahan dari emisi baru).
+     * @return future berisi stok setelah penjualan
+     */
+    public CompletableFuture<Integer> sellProduct(Product product, int quantity) {
+        List<StockEvent> events = new ArrayList<>();
+        AtomicInteger newStock = new AtomicInteger();
+        return writer.submit(() -> {
+            events.clear();
+            long currentTime = System.currentTimeMillis();
+            int stock = productDao.decrementStock(product.id, quantity, currentTime);
+            newStock.set(stock);
+            addEvent(events, StockEvent.detect(product.id, product.name, stock + quantity, product.minStock,
+                    stock, product.minStock));
 
-            double amount = product.sellPrice * quantity;
-            Double profit = (product.buyPrice != null) ? (product.sellPrice - product.buyPrice) * quantity : 0.0;
+            SaleItem saleItem = new SaleItem(product.id, product.name, quantity, product.sellPrice, product.buyPrice, currentTime);
+            double amount = saleItem.getRevenue();
 
             CashFlow flow = new CashFlow("IN", amount, "Jual " + product.name + " (" + quantity + ")",
-                    System.currentTimeMillis(), product.id, profit);
-            cashFlowDao.insert(flow);
-            // Check stock notifications
-            checkStockNotifications();
+                    currentTime, product.id, saleItem.lineProfit);
+            Sale sale = new Sale(currentTime, amount, saleItem.lineProfit, quantity);
+            recordSale(flow, sale, Collections.singletonList(saleItem));
+        }).thenApply(ignored -> {
+            dispatchStockEvents(events);
+            return newStock.get();
         });
     }
 
-    public void addProductStock(Product product, int quantity, double buyPrice) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            product.currentStock += quantity;
-            // Update buyPrice jika berbeda dari yang lama
-            if (product.buyPrice == null || product.buyPrice != buyPrice) {
-                product.buyPrice = buyPrice;
-            }
-            productDao.update(product);
+    /**
+     * Tambah stok. Objek product tidak diubah, stok & buyPrice baru datang lewat emisi LiveData berikutnya.
+     * @return future berisi stok setelah ditambah
+     */
+    public CompletableFuture<Integer> addProductStock(Product product, int quantity, double buyPrice) {
+        List<StockEvent> events = new ArrayList<>();
+        AtomicInteger newStock = new AtomicInteger();
+        return writer.submit(() -> {
+            events.clear();
+            // Stok ditambah di SQL, buyPrice selalu diganti dengan harga beli terbaru
+            int stock = productDao.incrementStock(product.id, quantity, buyPrice);
+            newStock.set(stock);
+            addEvent(events, StockEvent.detect(product.id, product.name, stock - quantity, product.minStock,
+                    stock, product.minStock));
 
             double cost = buyPrice * quantity;
             if (cost > 0) {
                 CashFlow flow = new CashFlow("OUT", cost, "Tambah Stok: " + product.name + " (" + quantity + ")",
                         System.currentTimeMillis(), product.id, 0.0);
-                cashFlowDao.insert(flow);
+                recordCashFlow(flow);
             }
-            // Check stock notifications (stok mungkin sudah kembali normal)
-            checkStockNotifications();
+        }).thenApply(ignored -> {
+            dispatchStockEvents(events); // Stok mungkin sudah kembali normal
+            return newStock.get();
         });
     }
 
-    public void deleteProduct(Product product) {
-        AppDatabase.databaseWriteExecutor.execute(() -> productDao.delete(product));
+    public CompletableFuture<Void> setFavorite(Product product, boolean isFavorite) {
+        return writer.submit(() -> productDao.setFavorite(product.id, isFavorite));
+    }
+
+    public CompletableFuture<Void> deleteProduct(Product product) {
+        return writer.submit(() -> productDao.delete(product))
+                .thenRun(() -> StockNotificationHelper.getInstance(application).forgetProduct(product.id));
+    }
+
+    public DatabaseWriter.Stats getWriterStats() {
+        return writer.getStats();
     }
     
+    private static void addEvent(List<StockEvent> events, StockEvent event) {
+        if (event != null) {
+            events.add(event);
+        }
+    }
+
     /**
-     * Check stock and send notifications if needed
+     * Kirim event stok yang melewati batas ke notifier, hanya setelah transaksinya ter-commit
      */
-    private void checkStockNotifications() {
-        // Run in background thread to avoid blocking
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            com.alkahfprogrammer.warungku.utils.StockNotificationHelper notificationHelper = 
-                new com.alkahfprogrammer.warungku.utils.StockNotificationHelper(application);
-            notificationHelper.checkAndNotify();
-        });
+    private void dispatchStockEvents(List<StockEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        // Jangan tahan thread penulis untuk membuat notifikasi. Satu thread supaya event dikirim sesuai urutan
+        // datangnya; yang tetap terbalik (thenRun di thread pemanggil) dibuang helper lewat StockEvent.sequence
+        stockEventExecutor.execute(() ->
+                StockNotificationHelper.getInstance(application).onStockEvents(events));
+    }
+
+    /**
+     * Lookup barcode dari index di memori (tanpa query). Null jika tidak ada atau index belum terisi.
+     */
+    public Product findProductByBarcode(String barcode) {
+        return barcodeIndex.find(barcode);
     }
 
     public void getProductByBarcode(String barcode, ProductCallback callback) {
+        if (barcodeIndex.isLoaded()) {
+            Product product = barcodeIndex.find(barcode);
+            if (product != null) {
+                callback.onProductFound(product);
+            } else {
+                callback.onProductNotFound();
+            }
+            return;
+        }
+        // Index belum terisi (emisi pertama belum datang), fallback ke query
         AppDatabase.databaseWriteExecutor.execute(() -> {
             Product product = productDao.getProductByBarcode(barcode);
             if (product != null) {
@@ -189,27 +416,35 @@ public class DataRepository {
         void onProductNotFound();
     }
 
-    public void checkout(List<com.alkahfprogrammer.warungku.data.model.CartItem> items) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
+    public CompletableFuture<Void> checkout(List<com.alkahfprogrammer.warungku.data.model.CartItem> items) {
+        List<StockEvent> events = new ArrayList<>();
+        return writer.submit(() -> {
+            events.clear();
             StringBuilder desc = new StringBuilder("Jual: ");
             double totalAmount = 0;
             double totalProfit = 0;
+            int totalQuantity = 0;
+            List<SaleItem> saleItems = new ArrayList<>();
 
             long currentTime = System.currentTimeMillis();
             for (com.alkahfprogrammer.warungku.data.model.CartItem item : items) {
                 Product product = item.product;
                 int quantity = item.quantity;
 
-                // Update stock, sales count, and last sold timestamp
-                product.currentStock -= quantity;
-                product.salesCount += quantity;
-                product.lastSoldTimestamp = currentTime;
-                productDao.update(product);
+                // Update stock, sales count, and last sold timestamp (relatif di SQL, satu transaksi per checkout).
+                // Objek product di keranjang tidak diubah: perintah bisa diulang, dan adapter butuh emisi baru.
+                int stock = productDao.decrementStock(product.id, quantity, currentTime);
+                addEvent(events, StockEvent.detect(product.id, product.name, stock + quantity, product.minStock,
+                        stock, product.minStock));
+
+                // Catat rincian per produk dengan harga saat transaksi
+                SaleItem saleItem = new SaleItem(product.id, product.name, quantity, product.sellPrice, product.buyPrice, currentTime);
+                saleItems.add(saleItem);
 
                 // Accumulate totals
-                totalAmount += product.sellPrice * quantity;
-                double profit = (product.buyPrice != null) ? (product.sellPrice - product.buyPrice) * quantity : 0.0;
-                totalProfit += profit;
+                totalAmount += saleItem.getRevenue();
+                totalProfit += saleItem.lineProfit;
+                totalQuantity += quantity;
 
                 desc.append(product.name).append(" (").append(quantity).append("), ");
             }
@@ -221,10 +456,9 @@ public class DataRepository {
             }
 
             CashFlow flow = new CashFlow("IN", totalAmount, finalDesc,
-                    System.currentTimeMillis(), null, totalProfit);
-            cashFlowDao.insert(flow);
-            // Check stock notifications
-            checkStockNotifications();
-        });
+                    currentTime, null, totalProfit);
+            Sale sale = new Sale(currentTime, totalAmount, totalProfit, totalQuantity);
+            recordSale(flow, sale, saleItems);
+        }).thenRun(() -> dispatchStockEvents(events));
     }
 }
@@ -0,0 +1,192 @@
+package com.alkahfprogrammer.warungku.data;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Satu-satunya thread penulis database.
+ *
+ * Semua perintah tulis masuk antrian; perintah yang datang dalam jendela singkat
+ * digabung dan di-commit dalam satu transaksi (group commit), jadi saat kasir
+ * memasukkan barang beruntun, biaya fsync dibayar sekali per batch, bukan per perintah.
+ *
+ * Perintah harus murni pekerjaan database: jika batch gagal, setiap perintah di dalamnya diulang
+ * sendiri-sendiri, jadi perintah bisa berjalan lebih dari sekali. Jangan mengubah objek di luar
+ * perintah (misal field Product milik adapter); hasil yang dibutuhkan pemanggil dikumpulkan ulang
+ * dari awal setiap kali perintah berjalan.
+ */
+public class DatabaseWriter {
+    private static final String TAG = "DatabaseWriter";
+    private static final long BATCH_WINDOW_MS = 5; // Tunggu perintah berikutnya maksimal 5ms
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private static volatile DatabaseWriter INSTANCE;
+
+    private final AppDatabase db;
+    private final BlockingQueue<Command> queue = new LinkedBlockingQueue<>();
+
+    // Statistik (ditulis hanya oleh thread penulis)
+    private volatile long totalBatches;
+    private volatile long totalCommands;
+    private volatile long totalCommitNanos;
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+
+    // Package-private untuk test; aplikasi memakai getInstance
+    DatabaseWriter(AppDatabase db) {
+        this.db = db;
+        Thread thread = new Thread(this::runLoop, "warungku-db-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static DatabaseWriter getInstance(AppDatabase db) {
+        if (INSTANCE == null) {
+            synchronized (DatabaseWriter.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DatabaseWriter(db);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Antrikan perintah tulis. Perintah dijalankan di dalam transaksi, jangan buka transaksi sendiri,
+     * dan bisa dijalankan ulang (lihat doc kelas), jadi hanya boleh berisi pekerjaan database.
+     * @return future yang selesai setelah transaksi yang memuat perintah ini ter-commit
+     */
+    public CompletableFuture<Void> submit(Runnable work) {
+        Command command = new Command(work);
+        queue.add(command);
+        return command.future;
+    }
+
+    private void runLoop() {
+        List<Command> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                long deadline = SystemClock.elapsedRealtime() + BATCH_WINDOW_MS;
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    long remaining = deadline - SystemClock.elapsedRealtime();
+                    Command next = remaining > 0 ? queue.poll(remaining, TimeUnit.MILLISECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Writer thread interrupted", e);
+                failAll(batch, e);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                // Thread penulis tidak boleh mati (misal OutOfMemoryError): future yang tersisa di batch ini
+                // digagalkan, antrian berikutnya tetap dilayani
+                Log.e(TAG, "Writer loop failed", e);
+                failAll(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitBatch(List<Command> batch) {
+        long start = System.nanoTime();
+        try {
+            db.runInTransaction(() -> {
+                for (Command command : batch) {
+                    command.work.run();
+                }
+            });
+        } catch (Throwable e) {
+            // Satu perintah gagal membatalkan seluruh batch, ulangi satu per satu supaya yang lain tetap tersimpan
+            Log.w(TAG, "Batch of " + batch.size() + " failed, retrying individually", e);
+            for (Command command : batch) {
+                try {
+                    db.runInTransaction(command.work);
+                    command.future.complete(null);
+                } catch (Throwable individual) {
+                    Log.e(TAG, "Write command failed", individual);
+                    command.future.completeExceptionally(individual);
+                }
+            }
+            recordStats(batch.size(), System.nanoTime() - start);
+            return;
+        }
+        recordStats(batch.size(), System.nanoTime() - start);
+        for (Command command : batch) {
+            command.future.complete(null);
+        }
+    }
+
+    private static void failAll(List<Command> batch, Throwable error) {
+        for (Command command : batch) {
+            command.future.completeExceptionally(error); // Tidak berpengaruh pada future yang sudah selesai
+        }
+    }
+
+    private void recordStats(int batchSize, long commitNanos) {
+        totalBatches++;
+        totalCommands += batchSize;
+        totalCommitNanos += commitNanos;
+        lastBatchSize = batchSize;
+        if (batchSize > maxBatchSize) {
+            maxBatchSize = batchSize;
+        }
+        if (batchSize > 1) {
+            Log.d(TAG, "Committed batch of " + batchSize + " in " + (commitNanos / 1000) + "us");
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(totalBatches, totalCommands, totalCommitNanos, lastBatchSize, maxBatchSize, queue.size());
+    }
+
+    /**
+     * Snapshot statistik penulis: ukuran batch dan latensi commit
+     */
+    public static class Stats {
+        public final long batches;
+        public final long commands;
+        public final long totalCommitNanos;
+        public final int lastBatchSize;
+        public final int maxBatchSize;
+        public final int pending;
+
+        Stats(long batches, long commands, long totalCommitNanos, int lastBatchSize, int maxBatchSize, int pending) {
+            this.batches = batches;
+            this.commands = commands;
+            this.totalCommitNanos = totalCommitNanos;
+            this.lastBatchSize = lastBatchSize;
+            this.maxBatchSize = maxBatchSize;
+            this.pending = pending;
+        }
+
+        public double getAverageBatchSize() {
+            return batches == 0 ? 0 : (double) commands / batches;
+        }
+
+        public double getAverageCommitMillis() {
+            return batches == 0 ? 0 : totalCommitNanos / 1_000_000.0 / batches;
+        }
+    }
+
+    private static class Command {
+        final Runnable work;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Command(Runnable work) {
+            this.work = work;
+        }
+    }
+}
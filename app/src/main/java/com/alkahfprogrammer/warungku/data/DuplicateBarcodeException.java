@@ -0,0 +1,15 @@
+package com.alkahfprogrammer.warungku.data;
+
+/**
+ * Barcode yang disimpan sudah dimiliki produk lain (index unik products.barcode)
+ */
+public class DuplicateBarcodeException extends RuntimeException {
+    public final String barcode;
+    public final String ownerName;
+
+    public DuplicateBarcodeException(String barcode, String ownerName) {
+        super("Barcode " + barcode + " sudah dipakai produk \"" + ownerName + "\"");
+        this.barcode = barcode;
+        this.ownerName = ownerName;
+    }
+}
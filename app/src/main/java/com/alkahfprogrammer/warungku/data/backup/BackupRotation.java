@@ -0,0 +1,164 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Daftar dan rotasi file backup di folder WarungKu_Backup.
+ *
+ * Retensi grandfather-father-son: backup terbaru per hari untuk KEEP_DAILY hari terakhir yang punya
+ * backup, terbaru per minggu untuk KEEP_WEEKLY minggu, dan terbaru per bulan untuk KEEP_MONTHLY bulan.
+ * Sisanya dihapus. Jika total ukuran (termasuk chunk backup inkremental) masih di atas MAX_TOTAL_BYTES,
+ * backup tertua dihapus sampai muat; backup terbaru tidak pernah dihapus.
+ */
+public class BackupRotation {
+    private static final String TAG = "BackupRotation";
+    static final int KEEP_DAILY = 7;
+    static final int KEEP_WEEKLY = 4;
+    static final int KEEP_MONTHLY = 12;
+    public static final long MAX_TOTAL_BYTES = 200L * 1024 * 1024;
+    private static final String FOLDER = "WarungKu_Backup";
+
+    public enum Tier { DAILY, WEEKLY, MONTHLY, NONE }
+
+    public static class Entry {
+        public final File file;
+        public final long createdAt;
+        public final long size;
+        public Tier tier = Tier.NONE;
+        public DatabaseSnapshot.Header header; // Hanya untuk .wkb/.wkm, dan hanya jika diminta saat list()
+
+        Entry(File file) {
+            this.file = file;
+            this.createdAt = file.lastModified();
+            this.size = file.length();
+        }
+
+        public boolean isSnapshot() {
+            return file.getName().endsWith(DatabaseSnapshot.EXTENSION);
+        }
+
+        /**
+         * Backup inkremental: hanya bisa di-restore di perangkat ini (chunk-nya ada di folder chunks)
+         */
+        public boolean isManifest() {
+            return file.getName().endsWith(IncrementalBackup.EXTENSION);
+        }
+    }
+
+    /**
+     * Folder backup di app's external files directory (dibuat jika belum ada)
+     */
+    public static File getFolder(Context context) {
+        File folder = new File(context.getExternalFilesDir(null), FOLDER);
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        return folder;
+    }
+
+    /**
+     * Semua backup di folder, terbaru dulu, dengan tier retensinya
+     * @param readHeaders baca header .wkb/.wkm (jumlah baris, versi skema) untuk ditampilkan
+     */
+    public static List<Entry> list(File folder, boolean readHeaders) {
+        List<Entry> entries = new ArrayList<>();
+        File[] files = folder.listFiles((dir, name) -> name.startsWith("warungku_backup_")
+                && (name.endsWith(DatabaseSnapshot.EXTENSION) || name.endsWith(IncrementalBackup.EXTENSION)
+                    || name.endsWith(".db")));
+        if (files == null) {
+            return entries;
+        }
+        for (File file : files) {
+            Entry entry = new Entry(file);
+            if (readHeaders && (entry.isSnapshot() || entry.isManifest())) {
+                try {
+                    entry.header = entry.isSnapshot()
+                            ? DatabaseSnapshot.readHeader(file) : IncrementalBackup.readHeader(file);
+                } catch (IOException e) {
+                    Log.w(TAG, "Header " + file.getName() + " tidak terbaca", e);
+                }
+            }
+            entries.add(entry);
+        }
+        entries.sort((a, b) -> Long.compare(b.createdAt, a.createdAt));
+        assignTiers(entries);
+        return entries;
+    }
+
+    /**
+     * Hapus backup di luar retensi dan di atas batas ukuran
+     * @return backup yang tersisa, terbaru dulu
+     */
+    public static List<Entry> prune(File folder) {
+        List<Entry> entries = list(folder, false);
+        List<Entry> kept = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            if (entry.tier == Tier.NONE) {
+                delete(entry);
+            } else {
+                kept.add(entry);
+            }
+        }
+        long chunkBytes = IncrementalBackup.collectGarbage(folder);
+        while (totalSize(kept) + chunkBytes > MAX_TOTAL_BYTES && kept.size() > 1) {
+            Entry oldest = kept.remove(kept.size() - 1);
+            delete(oldest);
+            if (oldest.isManifest()) {
+                chunkBytes = IncrementalBackup.collectGarbage(folder);
+            }
+        }
+        return kept;
+    }
+
+    public static long totalSize(List<Entry> entries) {
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.size;
+        }
+        return total;
+    }
+
+    /**
+     * entries harus urut terbaru dulu: entry pertama yang masuk hari/minggu/bulan baru adalah yang terbaru di sana
+     */
+    private static void assignTiers(List<Entry> entries) {
+        Set<Integer> days = new HashSet<>();
+        Set<Integer> weeks = new HashSet<>();
+        Set<Integer> months = new HashSet<>();
+        Calendar calendar = Calendar.getInstance();
+        for (Entry entry : entries) {
+            calendar.setTimeInMillis(entry.createdAt);
+            int day = calendar.get(Calendar.YEAR) * 1000 + calendar.get(Calendar.DAY_OF_YEAR);
+            int week = calendar.getWeekYear() * 100 + calendar.get(Calendar.WEEK_OF_YEAR);
+            int month = calendar.get(Calendar.YEAR) * 100 + calendar.get(Calendar.MONTH);
+
+            // Urutan penting: tier terkecil yang berlaku yang ditampilkan, tapi semua slot tetap dihitung
+            Tier tier = Tier.NONE;
+            if (days.size() < KEEP_DAILY && days.add(day)) {
+                tier = Tier.DAILY;
+            }
+            if (weeks.size() < KEEP_WEEKLY && weeks.add(week) && tier == Tier.NONE) {
+                tier = Tier.WEEKLY;
+            }
+            if (months.size() < KEEP_MONTHLY && months.add(month) && tier == Tier.NONE) {
+                tier = Tier.MONTHLY;
+            }
+            entry.tier = tier;
+        }
+    }
+
+    private static void delete(Entry entry) {
+        if (entry.file.delete()) {
+            Log.i(TAG, "Backup dihapus: " + entry.file.getName() + " (" + entry.size / 1024 + " KB)");
+        }
+    }
+}
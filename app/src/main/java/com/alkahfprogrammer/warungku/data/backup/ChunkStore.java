@@ -0,0 +1,120 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Penyimpanan chunk berdasarkan isi: setiap chunk unik disimpan sekali sebagai file terkompresi
+ * bernama SHA-256 isinya (folder dua huruf pertama hash, supaya satu folder tidak berisi ribuan file).
+ */
+class ChunkStore {
+    private final File root;
+
+    ChunkStore(File root) {
+        this.root = root;
+    }
+
+    /**
+     * Simpan chunk jika belum ada
+     * @return ukuran file yang ditulis, atau 0 jika chunk sudah tersimpan
+     */
+    long put(byte[] hash, byte[] data, int length) throws IOException {
+        File file = fileFor(hash);
+        if (file.exists()) {
+            return 0;
+        }
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        File partial = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(partial)) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (OutputStream out = new DeflaterOutputStream(stream, deflater)) {
+                out.write(data, 0, length);
+            } finally {
+                deflater.end();
+            }
+        }
+        if (!partial.renameTo(file)) {
+            partial.delete();
+            throw new IOException("Gagal menyimpan chunk " + toHex(hash));
+        }
+        return file.length();
+    }
+
+    /**
+     * Baca chunk dan cocokkan panjang serta hash-nya
+     * @throws IOException jika chunk hilang atau isinya tidak cocok
+     */
+    byte[] get(byte[] hash, int length) throws IOException {
+        File file = fileFor(hash);
+        if (!file.exists()) {
+            throw new IOException("Chunk " + toHex(hash) + " tidak ditemukan");
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(length);
+        try (InputStream in = new InflaterInputStream(new FileInputStream(file))) {
+            byte[] block = new byte[8192];
+            int read;
+            while ((read = in.read(block)) > 0) {
+                buffer.write(block, 0, read);
+            }
+        }
+        byte[] data = buffer.toByteArray();
+        MessageDigest digest = DatabaseSnapshot.sha256();
+        if (data.length != length || !MessageDigest.isEqual(digest.digest(data), hash)) {
+            throw new IOException("Chunk " + toHex(hash) + " rusak");
+        }
+        return data;
+    }
+
+    /**
+     * Hapus chunk yang tidak dirujuk manifest mana pun
+     * @param referenced hash (hex) yang masih dipakai, atau null untuk hanya menghitung ukuran
+     * @return total ukuran chunk yang tersisa
+     */
+    long retainOnly(Set<String> referenced) {
+        long total = 0;
+        File[] dirs = root.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return 0;
+        }
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (referenced == null || referenced.contains(file.getName())) {
+                    total += file.length();
+                } else {
+                    file.delete(); // Termasuk .tmp sisa proses yang terhenti
+                }
+            }
+        }
+        return total;
+    }
+
+    static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private File fileFor(byte[] hash) {
+        String hex = toHex(hash);
+        return new File(new File(root, hex.substring(0, 2)), hex);
+    }
+}
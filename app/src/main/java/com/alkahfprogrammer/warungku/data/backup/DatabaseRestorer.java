@@ -0,0 +1,322 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.DatabaseWriter;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Restore database tanpa menutup koneksi Room yang sedang dipakai.
+ *
+ * prepare(): isi backup di-stream ke file staging di folder databases (snapshot .wkb diekstrak sambil
+ * dicek checksum-nya, manifest .wkm disusun ulang dari chunk, file .db lama disalin apa adanya), lalu
+ * dicek header SQLite, PRAGMA integrity_check dan versi skemanya. Backup dari versi lama dimigrasi lewat
+ * instance Room terpisah dengan migrasi yang sama; Room juga menolak file yang skemanya tidak cocok.
+ * Sampai tahap ini database aktif belum disentuh.
+ *
+ * apply(): isi tabel database aktif diganti dengan isi file staging dalam SATU transaksi di DatabaseWriter.
+ * File tidak ditukar lewat rename karena instance Room, DAO dan LiveData dipegang banyak singleton
+ * (DataRepository, DatabaseWriter, AppViewModel); dengan transaksi, restore tetap atomik (gagal = rollback,
+ * data lama utuh) dan trigger invalidation Room memberi tahu semua observer setelah commit.
+ */
+public class DatabaseRestorer {
+    private static final String TAG = "DatabaseRestorer";
+    private static final String STAGING_NAME = "warungku_restore";
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int CHUNK_SIZE = 2000;
+    private static final byte[] SQLITE_HEADER = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+    // Tabel data; tabel internal SQLite, Android dan Room tidak ikut disalin
+    private static final String TABLES_SQL = "SELECT name FROM sqlite_master WHERE type = 'table'"
+            + " AND name NOT LIKE 'sqlite_%' AND name NOT IN ('android_metadata', 'room_master_table')"
+            + " ORDER BY name";
+
+    /**
+     * File backup yang sudah lolos validasi dan siap di-apply
+     */
+    public static class Staged {
+        public final File file;
+        public final int schemaVersion; // Versi skema asli backup, sebelum migrasi
+        public final boolean migrated;
+        public final Map<String, Long> rowCounts;
+
+        Staged(File file, int schemaVersion, boolean migrated, Map<String, Long> rowCounts) {
+            this.file = file;
+            this.schemaVersion = schemaVersion;
+            this.migrated = migrated;
+            this.rowCounts = rowCounts;
+        }
+
+        public long getTotalRows() {
+            long total = 0;
+            for (long count : rowCounts.values()) {
+                total += count;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Tulis dan validasi backup di file staging. Stream ditutup setelah dibaca.
+     * @throws IOException dengan pesan yang bisa ditampilkan ke pengguna jika backup tidak valid
+     */
+    public static Staged prepare(Context context, InputStream source) throws IOException {
+        long started = SystemClock.elapsedRealtime();
+        discard(context);
+        File staging = context.getDatabasePath(STAGING_NAME);
+        try {
+            writeStaging(context, source, staging);
+            checkHeader(staging);
+            int version = checkDatabase(staging);
+            if (version > AppDatabase.VERSION) {
+                throw new IOException("Backup berasal dari versi aplikasi yang lebih baru (skema " + version + ")");
+            }
+            migrate(context);
+            Staged staged = new Staged(staging, version, version < AppDatabase.VERSION, countRows(staging));
+            Log.i(TAG, "Backup siap: skema " + version + ", " + staged.getTotalRows() + " baris, "
+                    + staging.length() / 1024 + " KB dalam " + (SystemClock.elapsedRealtime() - started) + " ms");
+            return staged;
+        } catch (IOException | RuntimeException e) {
+            discard(context);
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw new IOException("Backup tidak valid: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ganti isi database aktif dengan backup yang sudah di-prepare, lalu hapus file staging.
+     * Blok sampai transaksi ter-commit; jangan dipanggil dari thread UI atau dari DatabaseWriter.
+     */
+    public static void apply(Context context, Staged staged) throws IOException {
+        long started = SystemClock.elapsedRealtime();
+        AppDatabase db = AppDatabase.getDatabase(context);
+        try {
+            // Perintah bisa dijalankan ulang setelah rollback group commit, jadi semua state dibuat di dalamnya
+            DatabaseWriter.getInstance(db).submit(() -> {
+                SupportSQLiteDatabase live = db.getOpenHelper().getWritableDatabase();
+                try (SQLiteDatabase source = openStaging(staged.file)) {
+                    replaceContents(live, source);
+                }
+            }).get();
+            Log.i(TAG, "Restore " + staged.getTotalRows() + " baris selesai dalam "
+                    + (SystemClock.elapsedRealtime() - started) + " ms");
+        } catch (ExecutionException e) {
+            throw new IOException("Gagal menulis data backup, data lama tidak berubah", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Restore dibatalkan", e);
+        } finally {
+            discard(context);
+        }
+    }
+
+    /**
+     * Hapus file staging beserta -wal/-shm/-journal
+     */
+    public static void discard(Context context) {
+        context.deleteDatabase(STAGING_NAME);
+    }
+
+    private static void writeStaging(Context context, InputStream source, File staging) throws IOException {
+        try (InputStream in = new BufferedInputStream(source, BUFFER_SIZE)) {
+            if (DatabaseSnapshot.isSnapshot(in)) {
+                DatabaseSnapshot.extract(in, staging);
+                return;
+            }
+            if (IncrementalBackup.isManifest(in)) {
+                IncrementalBackup.rebuild(in, BackupRotation.getFolder(context), staging);
+                return;
+            }
+            try (OutputStream out = new FileOutputStream(staging)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    private static void checkHeader(File file) throws IOException {
+        byte[] header = new byte[SQLITE_HEADER.length];
+        int total = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while (total < header.length && (read = in.read(header, total, header.length - total)) > 0) {
+                total += read;
+            }
+        }
+        if (total < header.length || !Arrays.equals(header, SQLITE_HEADER)) {
+            throw new IOException("File bukan backup WarungKu");
+        }
+    }
+
+    /**
+     * @return versi skema (PRAGMA user_version)
+     */
+    private static int checkDatabase(File file) throws IOException {
+        try (SQLiteDatabase db = openStaging(file)) {
+            String integrity = DatabaseUtils.stringForQuery(db, "PRAGMA integrity_check", null);
+            if (!"ok".equalsIgnoreCase(integrity)) {
+                throw new IOException("File backup rusak: " + integrity);
+            }
+            if (DatabaseUtils.queryNumEntries(db, "sqlite_master", "type = 'table' AND name = 'products'") == 0) {
+                throw new IOException("File bukan backup WarungKu");
+            }
+            int version = (int) DatabaseUtils.longForQuery(db, "PRAGMA user_version", null);
+            if (version < 1) {
+                throw new IOException("Versi skema backup tidak dikenal");
+            }
+            return version;
+        }
+    }
+
+    /**
+     * Buka file staging lewat Room terpisah: migrasi dijalankan jika versinya lebih lama, dan identity
+     * hash skema dicek. Gagal di sini berarti backup tidak bisa dipakai oleh versi aplikasi ini.
+     */
+    private static void migrate(Context context) {
+        AppDatabase staged = AppDatabase.openDetached(context, STAGING_NAME);
+        try {
+            staged.getOpenHelper().getWritableDatabase();
+        } finally {
+            staged.close();
+        }
+    }
+
+    /**
+     * Tanpa flag WAL, jadi framework mengubah file staging ke journal biasa dan tidak butuh file -shm
+     */
+    static SQLiteDatabase openStaging(File file) {
+        return SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+    }
+
+    private static Map<String, Long> countRows(File file) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        try (SQLiteDatabase db = openStaging(file)) {
+            for (String table : listTables(db)) {
+                counts.put(table, DatabaseUtils.queryNumEntries(db, quote(table)));
+            }
+        }
+        return counts;
+    }
+
+    private static List<String> listTables(SQLiteDatabase db) {
+        List<String> tables = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(TABLES_SQL, null)) {
+            while (cursor.moveToNext()) {
+                tables.add(cursor.getString(0));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Dijalankan di dalam transaksi DatabaseWriter. Tabel yang tidak ada di backup ikut dikosongkan.
+     */
+    private static void replaceContents(SupportSQLiteDatabase live, SQLiteDatabase source) {
+        List<String> tables = new ArrayList<>();
+        try (Cursor cursor = live.query(TABLES_SQL)) {
+            while (cursor.moveToNext()) {
+                tables.add(cursor.getString(0));
+            }
+        }
+        List<String> sourceTables = listTables(source);
+        for (String table : tables) {
+            live.execSQL("DELETE FROM " + quote(table));
+        }
+        for (String table : tables) {
+            if (sourceTables.contains(table)) {
+                copyTable(live, source, table);
+            }
+        }
+    }
+
+    /**
+     * Salin per chunk berdasarkan rowid (keyset), jadi cursor tidak pernah mengulang dari awal tabel
+     */
+    private static void copyTable(SupportSQLiteDatabase live, SQLiteDatabase source, String table) {
+        List<String> columns = new ArrayList<>();
+        try (Cursor cursor = live.query("PRAGMA table_info(" + quote(table) + ")")) {
+            int nameIndex = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                columns.add(quote(cursor.getString(nameIndex)));
+            }
+        }
+        String columnList = String.join(", ", columns);
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        SupportSQLiteStatement insert = live.compileStatement(
+                "INSERT INTO " + quote(table) + " (" + columnList + ") VALUES (" + placeholders + ")");
+
+        long lastRowId = Long.MIN_VALUE;
+        while (true) {
+            int copied = 0;
+            try (Cursor cursor = source.rawQuery("SELECT rowid, " + columnList + " FROM " + quote(table)
+                    + " WHERE rowid > " + lastRowId + " ORDER BY rowid LIMIT " + CHUNK_SIZE, null)) {
+                while (cursor.moveToNext()) {
+                    lastRowId = cursor.getLong(0);
+                    for (int i = 1; i < cursor.getColumnCount(); i++) {
+                        bind(insert, i, cursor, i);
+                    }
+                    insert.executeInsert();
+                    insert.clearBindings();
+                    copied++;
+                }
+            }
+            if (copied < CHUNK_SIZE) {
+                return;
+            }
+        }
+    }
+
+    private static void bind(SupportSQLiteStatement statement, int index, Cursor cursor, int column) {
+        switch (cursor.getType(column)) {
+            case Cursor.FIELD_TYPE_INTEGER:
+                statement.bindLong(index, cursor.getLong(column));
+                break;
+            case Cursor.FIELD_TYPE_FLOAT:
+                statement.bindDouble(index, cursor.getDouble(column));
+                break;
+            case Cursor.FIELD_TYPE_STRING:
+                statement.bindString(index, cursor.getString(column));
+                break;
+            case Cursor.FIELD_TYPE_BLOB:
+                statement.bindBlob(index, cursor.getBlob(column));
+                break;
+            default:
+                statement.bindNull(index);
+        }
+    }
+
+    private static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+}
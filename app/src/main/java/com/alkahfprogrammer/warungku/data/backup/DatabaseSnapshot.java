@@ -0,0 +1,413 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshot database yang konsisten dan terkompresi (file .wkb).
+ *
+ * Snapshot dibuat dengan VACUUM INTO dari koneksi baca terpisah: di mode WAL pembaca tidak pernah
+ * menahan penulis, jadi DatabaseWriter tetap meng-commit transaksi kasir selama backup berjalan, dan
+ * hasilnya adalah isi database pada satu titik commit (termasuk yang masih di file -wal), sudah
+ * dipadatkan tanpa halaman kosong. SQLite bawaan Android di bawah 3.27 (API < 30) belum punya
+ * VACUUM INTO; di sana tabel disalin lewat ATTACH di dalam satu transaksi baca.
+ *
+ * Format file:
+ *   [0..8)   magic "WKSNAP01"
+ *   [8..12)  versi format
+ *   [12..16) versi skema (PRAGMA user_version = versi Room)
+ *   [16..24) waktu pembuatan
+ *   [24..32) ukuran file SQLite asli
+ *   [32..64) SHA-256 file SQLite asli
+ *   [64..)   jumlah tabel, lalu (nama, jumlah baris) per tabel
+ *   sisanya  file SQLite dalam stream gzip
+ */
+public class DatabaseSnapshot {
+    private static final String TAG = "DatabaseSnapshot";
+    private static final String DB_NAME = "warungku_db";
+    private static final byte[] MAGIC = { 'W', 'K', 'S', 'N', 'A', 'P', '0', '1' };
+    private static final int FORMAT_VERSION = 1;
+    private static final int RAW_LENGTH_OFFSET = 24;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static final String EXTENSION = ".wkb";
+
+    public static class Header {
+        public int formatVersion;
+        public int schemaVersion;
+        public long createdAt;
+        public long rawLength;
+        public byte[] sha256 = new byte[32];
+        public final Map<String, Long> rowCounts = new LinkedHashMap<>();
+
+        public long getTotalRows() {
+            long total = 0;
+            for (long count : rowCounts.values()) {
+                total += count;
+            }
+            return total;
+        }
+    }
+
+    public static class Result {
+        public File file;
+        public Header header;
+        public long compressedLength;
+        public long durationMs;
+    }
+
+    /**
+     * Buat snapshot ke target. Ditulis ke file sementara lalu di-rename, jadi target tidak pernah setengah jadi.
+     * Panggil dari thread background, bukan dari DatabaseWriter.
+     */
+    public static Result create(Context context, File target) throws IOException {
+        return create(openActiveDatabase(context), context.getCacheDir(), target);
+    }
+
+    /**
+     * Snapshot dari file database tertentu (yang boleh sedang dibuka Room); file sementara di tempDir
+     */
+    static Result create(File dbFile, File tempDir, File target) throws IOException {
+        long started = SystemClock.elapsedRealtime();
+        // Diambil sebelum snapshot dibaca: commit setelah titik ini belum tentu ikut ter-backup
+        long createdAt = System.currentTimeMillis();
+        File snapshotFile = writeTemporary(dbFile, tempDir);
+        File partial = new File(target.getPath() + ".tmp");
+        try {
+            Header header = inspect(snapshotFile, createdAt);
+            compress(snapshotFile, partial, header);
+            if (!partial.renameTo(target)) {
+                throw new IOException("Gagal mengganti nama " + partial + " ke " + target);
+            }
+
+            Result result = new Result();
+            result.file = target;
+            result.header = header;
+            result.compressedLength = target.length();
+            result.durationMs = SystemClock.elapsedRealtime() - started;
+            Log.i(TAG, "Snapshot " + target.getName() + ": " + header.getTotalRows() + " baris, "
+                    + header.rawLength / 1024 + " KB -> " + result.compressedLength / 1024 + " KB dalam "
+                    + result.durationMs + " ms");
+            return result;
+        } finally {
+            partial.delete();
+            deleteTemporary(snapshotFile);
+        }
+    }
+
+    /**
+     * Tulis snapshot SQLite mentah (belum dikompresi) ke file sementara di tempDir.
+     * Hapus dengan deleteTemporary() setelah dipakai.
+     */
+    static File writeTemporary(File dbFile, File tempDir) throws IOException {
+        File snapshotFile = File.createTempFile("snapshot", ".db", tempDir);
+        try {
+            writeSnapshot(dbFile, snapshotFile);
+            return snapshotFile;
+        } catch (IOException | RuntimeException e) {
+            deleteTemporary(snapshotFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Pastikan Room sudah membuka database (file -wal/-shm ada) sebelum koneksi snapshot dibuka
+     * @return file database aplikasi
+     */
+    static File openActiveDatabase(Context context) {
+        AppDatabase.getDatabase(context).getOpenHelper().getWritableDatabase();
+        return context.getDatabasePath(DB_NAME);
+    }
+
+    static void deleteTemporary(File snapshotFile) {
+        snapshotFile.delete();
+        new File(snapshotFile.getPath() + "-journal").delete();
+    }
+
+    /**
+     * Cek 8 byte pertama file
+     */
+    public static boolean isSnapshot(File file) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), MAGIC.length)) {
+            return isSnapshot(in);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cek magic tanpa memajukan stream (butuh stream yang mendukung mark, misal BufferedInputStream)
+     */
+    public static boolean isSnapshot(InputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.mark(MAGIC.length);
+        int total = 0;
+        int read;
+        while (total < magic.length && (read = in.read(magic, total, magic.length - total)) > 0) {
+            total += read;
+        }
+        in.reset();
+        return total == MAGIC.length && Arrays.equals(magic, MAGIC);
+    }
+
+    /**
+     * Baca header tanpa membuka isi snapshot (untuk daftar backup / validasi)
+     */
+    public static Header readHeader(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return readHeader(in);
+        }
+    }
+
+    /**
+     * Ekstrak file SQLite dari snapshot ke target dan cocokkan ukuran serta SHA-256-nya dengan header.
+     * Jika gagal, target yang setengah jadi dihapus.
+     * @throws IOException jika file bukan snapshot, terpotong, atau checksum tidak cocok
+     */
+    public static Header extract(InputStream source, File target) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source, BUFFER_SIZE));
+        Header header = readHeader(in);
+        MessageDigest digest = sha256();
+        long written = 0;
+        try (InputStream payload = new GZIPInputStream(in, BUFFER_SIZE);
+             OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = payload.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+                digest.update(buffer, 0, read);
+                written += read;
+            }
+        } catch (IOException e) {
+            target.delete(); // Terpotong atau stream gzip rusak
+            throw e;
+        }
+        if (written != header.rawLength || !MessageDigest.isEqual(digest.digest(), header.sha256)) {
+            target.delete();
+            throw new IOException("Checksum snapshot tidak cocok, file rusak");
+        }
+        return header;
+    }
+
+    private static void writeSnapshot(File dbFile, File snapshotFile) throws IOException {
+        // VACUUM INTO menolak file tujuan yang sudah ada
+        snapshotFile.delete();
+        // Read-only: koneksi ini tidak mengubah journal mode dan tidak bisa mengambil kunci tulis
+        try (SQLiteDatabase source = SQLiteDatabase.openDatabase(dbFile.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS)) {
+            if (supportsVacuumInto(source)) {
+                source.execSQL("VACUUM INTO " + DatabaseUtils.sqlEscapeString(snapshotFile.getPath()));
+                return;
+            }
+        }
+        copyByAttach(dbFile, snapshotFile);
+    }
+
+    private static boolean supportsVacuumInto(SQLiteDatabase db) {
+        String[] parts = DatabaseUtils.stringForQuery(db, "SELECT sqlite_version()", null).split("\\.");
+        int major = Integer.parseInt(parts[0]);
+        int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+        return major > 3 || (major == 3 && minor >= 27);
+    }
+
+    /**
+     * Pengganti VACUUM INTO untuk SQLite lama: database snapshot jadi koneksi utama, database aktif
+     * di-ATTACH, lalu skema dan isi tabel disalin dalam satu transaksi DEFERRED. Transaksi deferred hanya
+     * mengambil kunci baca di database aktif, jadi penulis tidak tertahan.
+     *
+     * BEGIN ditulis dengan komentar di depan karena SQLiteDatabase mencegat pernyataan yang diawali
+     * "BEGIN" dan menggantinya dengan BEGIN EXCLUSIVE, yang justru mengunci database aktif.
+     */
+    private static void copyByAttach(File dbFile, File snapshotFile) {
+        try (SQLiteDatabase snapshot = SQLiteDatabase.openDatabase(snapshotFile.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.NO_LOCALIZED_COLLATORS)) {
+            snapshot.execSQL("ATTACH DATABASE ? AS src", new Object[]{ dbFile.getPath() });
+            snapshot.execSQL("/* snapshot */ BEGIN DEFERRED");
+            boolean committed = false;
+            try {
+                List<String> tables = new ArrayList<>();
+                List<String> deferred = new ArrayList<>();
+                boolean hasSequence = false;
+                try (Cursor cursor = snapshot.rawQuery("SELECT type, name, sql FROM src.sqlite_master"
+                        + " WHERE sql IS NOT NULL ORDER BY rowid", null)) {
+                    while (cursor.moveToNext()) {
+                        String name = cursor.getString(1);
+                        if ("sqlite_sequence".equals(name)) {
+                            hasSequence = true;
+                        } else if (name.startsWith("sqlite_")) {
+                            continue;
+                        } else if ("table".equals(cursor.getString(0))) {
+                            snapshot.execSQL(cursor.getString(2));
+                            tables.add(name);
+                        } else {
+                            deferred.add(cursor.getString(2)); // Index, view, trigger dibuat setelah data
+                        }
+                    }
+                }
+                for (String table : tables) {
+                    String quoted = "\"" + table.replace("\"", "\"\"") + "\"";
+                    snapshot.execSQL("INSERT INTO main." + quoted + " SELECT * FROM src." + quoted);
+                }
+                for (String sql : deferred) {
+                    snapshot.execSQL(sql);
+                }
+                if (hasSequence) {
+                    snapshot.execSQL("DELETE FROM main.sqlite_sequence");
+                    snapshot.execSQL("INSERT INTO main.sqlite_sequence SELECT * FROM src.sqlite_sequence");
+                }
+                long version = DatabaseUtils.longForQuery(snapshot, "PRAGMA src.user_version", null);
+                snapshot.execSQL("PRAGMA main.user_version = " + version);
+                snapshot.execSQL("/* snapshot */ COMMIT");
+                committed = true;
+            } finally {
+                if (!committed) {
+                    snapshot.execSQL("/* snapshot */ ROLLBACK");
+                }
+            }
+            snapshot.execSQL("DETACH DATABASE src");
+        }
+    }
+
+    static Header inspect(File snapshotFile, long createdAt) {
+        Header header = new Header();
+        header.formatVersion = FORMAT_VERSION;
+        header.createdAt = createdAt;
+        try (SQLiteDatabase snapshot = SQLiteDatabase.openDatabase(snapshotFile.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS)) {
+            header.schemaVersion = (int) DatabaseUtils.longForQuery(snapshot, "PRAGMA user_version", null);
+            List<String> tables = new ArrayList<>();
+            try (Cursor cursor = snapshot.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table'"
+                    + " AND name NOT LIKE 'sqlite_%' AND name NOT IN ('android_metadata', 'room_master_table')"
+                    + " ORDER BY name", null)) {
+                while (cursor.moveToNext()) {
+                    tables.add(cursor.getString(0));
+                }
+            }
+            for (String table : tables) {
+                header.rowCounts.put(table, DatabaseUtils.queryNumEntries(snapshot, table));
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Tulis header (ukuran & checksum masih kosong), stream isi SQLite lewat gzip sambil menghitung
+     * SHA-256, lalu isi ukuran & checksum di posisinya. Satu kali baca file snapshot.
+     */
+    private static void compress(File snapshotFile, File target, Header header) throws IOException {
+        MessageDigest digest = sha256();
+        long rawLength = 0;
+        FileOutputStream file = new FileOutputStream(target);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, BUFFER_SIZE));
+        try {
+            writeHeader(out, header);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+             InputStream in = new FileInputStream(snapshotFile)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                gzip.write(buffer, 0, read);
+                digest.update(buffer, 0, read);
+                rawLength += read;
+            }
+            gzip.finish();
+            out.flush();
+            file.getFD().sync();
+        }
+        header.rawLength = rawLength;
+        header.sha256 = digest.digest();
+        try (RandomAccessFile patch = new RandomAccessFile(target, "rw")) {
+            patch.seek(RAW_LENGTH_OFFSET);
+            patch.writeLong(header.rawLength);
+            patch.write(header.sha256);
+            patch.getFD().sync();
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, Header header) throws IOException {
+        out.write(MAGIC);
+        writeHeaderFields(out, header);
+    }
+
+    /**
+     * Isi header tanpa magic; dipakai juga oleh manifest IncrementalBackup
+     */
+    static void writeHeaderFields(DataOutputStream out, Header header) throws IOException {
+        out.writeInt(header.formatVersion);
+        out.writeInt(header.schemaVersion);
+        out.writeLong(header.createdAt);
+        out.writeLong(header.rawLength);
+        out.write(header.sha256);
+        out.writeInt(header.rowCounts.size());
+        for (Map.Entry<String, Long> entry : header.rowCounts.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Bukan file snapshot WarungKu");
+        }
+        Header header = readHeaderFields(in);
+        if (header.formatVersion > FORMAT_VERSION) {
+            throw new IOException("Format snapshot " + header.formatVersion + " belum didukung");
+        }
+        return header;
+    }
+
+    static Header readHeaderFields(DataInputStream in) throws IOException {
+        Header header = new Header();
+        header.formatVersion = in.readInt();
+        header.schemaVersion = in.readInt();
+        header.createdAt = in.readLong();
+        header.rawLength = in.readLong();
+        in.readFully(header.sha256);
+        int tables = in.readInt();
+        for (int i = 0; i < tables; i++) {
+            header.rowCounts.put(in.readUTF(), in.readLong());
+        }
+        return header;
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
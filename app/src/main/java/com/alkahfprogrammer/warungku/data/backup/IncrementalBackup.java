@@ -0,0 +1,380 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Backup inkremental dengan deduplikasi chunk.
+ *
+ * Snapshot (DatabaseSnapshot) di-dump menjadi stream baris (RowDump), lalu dipotong dengan
+ * content-defined chunking (gear hash): batas chunk ditentukan isi 64 byte terakhir, bukan posisi, jadi
+ * sisipan di tengah hanya mengubah chunk di sekitarnya. Setiap chunk unik disimpan sekali di ChunkStore
+ * (folder "chunks"), dan setiap backup hanya berupa manifest kecil (.wkm): header snapshot + daftar
+ * hash chunk. Backup kedua setelah sehari berjualan (~960 transaksi, 2000 produk, riwayat sebulan)
+ * menambah ~110-120 KB: chunk baris transaksi baru di ujung tabelnya, ditambah blok kolom stok produk
+ * yang berubah. Baris baru itu sendiri sudah ~75 KB terkompresi, jadi ini mendekati batas bawahnya.
+ *
+ * Restore menyusun ulang stream dari manifest, mencocokkan hash setiap chunk dan SHA-256 seluruh stream,
+ * lalu membangun file SQLite baru dari dump (dipanggil oleh DatabaseRestorer).
+ */
+public class IncrementalBackup {
+    private static final String TAG = "IncrementalBackup";
+    private static final byte[] MAGIC = { 'W', 'K', 'M', 'A', 'N', 'I', '0', '1' };
+    // 2: dump per kolom (RowDump WKDUMP02); aplikasi lama menolak dengan pesan format, bukan dump rusak
+    private static final int FORMAT_VERSION = 2;
+    private static final String CHUNK_FOLDER = "chunks";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Rata-rata 8 KB (13 bit), minimal 2 KB, maksimal 64 KB per chunk
+    private static final int MIN_CHUNK = 2 * 1024;
+    private static final int MAX_CHUNK = 64 * 1024;
+    private static final int BOUNDARY_BITS = 13;
+    // Tabel gear harus sama di semua versi aplikasi: java.util.Random dengan seed tetap dijamin deterministik
+    private static final long[] GEAR = gearTable(0x5741_524E_474B_55L);
+
+    public static final String EXTENSION = ".wkm";
+
+    public static class Result {
+        public File file;
+        public DatabaseSnapshot.Header header;
+        public int chunkCount;
+        public int newChunks;
+        public long newBytes; // Ukuran chunk baru yang benar-benar ditulis (terkompresi)
+        public long durationMs;
+    }
+
+    private static class ChunkRef {
+        final byte[] hash;
+        final int length;
+
+        ChunkRef(byte[] hash, int length) {
+            this.hash = hash;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Buat backup inkremental: chunk baru ke folder/chunks, manifest ke target (tmp lalu rename)
+     */
+    public static Result create(Context context, File folder, File target) throws IOException {
+        return create(DatabaseSnapshot.openActiveDatabase(context), context.getCacheDir(), folder, target);
+    }
+
+    /**
+     * Backup inkremental dari file database tertentu (yang boleh sedang dibuka Room); file sementara di tempDir
+     */
+    static Result create(File dbFile, File tempDir, File folder, File target) throws IOException {
+        // Satu proses per waktu: collectGarbage tidak boleh menghapus chunk yang manifestnya belum ditulis
+        synchronized (IncrementalBackup.class) {
+            long started = SystemClock.elapsedRealtime();
+            long createdAt = System.currentTimeMillis();
+            File snapshotFile = DatabaseSnapshot.writeTemporary(dbFile, tempDir);
+            File partial = new File(target.getPath() + ".tmp");
+            try {
+                DatabaseSnapshot.Header header = DatabaseSnapshot.inspect(snapshotFile, createdAt);
+                header.formatVersion = FORMAT_VERSION;
+
+                ChunkingOutputStream chunker = new ChunkingOutputStream(chunkStore(folder));
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(chunker, BUFFER_SIZE))) {
+                    RowDump.write(snapshotFile, out);
+                }
+                header.rawLength = chunker.length;
+                header.sha256 = chunker.digest.digest();
+                writeManifest(partial, header, chunker.refs);
+                if (!partial.renameTo(target)) {
+                    throw new IOException("Gagal mengganti nama " + partial + " ke " + target);
+                }
+
+                Result result = new Result();
+                result.file = target;
+                result.header = header;
+                result.chunkCount = chunker.refs.size();
+                result.newChunks = chunker.newChunks;
+                result.newBytes = chunker.newBytes;
+                result.durationMs = SystemClock.elapsedRealtime() - started;
+                Log.i(TAG, "Backup inkremental " + target.getName() + ": " + result.chunkCount + " chunk, "
+                        + result.newChunks + " baru (" + result.newBytes / 1024 + " KB), manifest "
+                        + target.length() / 1024 + " KB dalam " + result.durationMs + " ms");
+                return result;
+            } finally {
+                partial.delete();
+                DatabaseSnapshot.deleteTemporary(snapshotFile);
+            }
+        }
+    }
+
+    public static boolean isManifest(File file) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), MAGIC.length)) {
+            return isManifest(in);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cek magic tanpa memajukan stream (butuh stream yang mendukung mark)
+     */
+    public static boolean isManifest(InputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.mark(MAGIC.length);
+        int total = 0;
+        int read;
+        while (total < magic.length && (read = in.read(magic, total, magic.length - total)) > 0) {
+            total += read;
+        }
+        in.reset();
+        return total == MAGIC.length && Arrays.equals(magic, MAGIC);
+    }
+
+    public static DatabaseSnapshot.Header readHeader(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return readHeader(in);
+        }
+    }
+
+    /**
+     * Susun ulang isi manifest menjadi file SQLite di target. Chunk dibaca dari folder/chunks.
+     * @throws IOException jika ada chunk yang hilang/rusak atau checksum keseluruhan tidak cocok
+     */
+    static void rebuild(InputStream source, File folder, File target) throws IOException {
+        DataInputStream manifest = new DataInputStream(new BufferedInputStream(source, BUFFER_SIZE));
+        DatabaseSnapshot.Header header = readHeader(manifest);
+        List<ChunkRef> refs = readRefs(manifest);
+        manifest.close();
+
+        ReassemblingInputStream data = new ReassemblingInputStream(chunkStore(folder), refs);
+        RowDump.rebuild(new DataInputStream(new BufferedInputStream(data, BUFFER_SIZE)), target);
+        data.drain();
+        if (data.length != header.rawLength || !MessageDigest.isEqual(data.digest.digest(), header.sha256)) {
+            throw new IOException("Checksum backup inkremental tidak cocok");
+        }
+    }
+
+    /**
+     * Hapus chunk yang tidak dirujuk manifest mana pun di folder
+     * @return total ukuran chunk yang tersisa
+     */
+    public static long collectGarbage(File folder) {
+        synchronized (IncrementalBackup.class) {
+            File[] manifests = folder.listFiles((dir, name) -> name.endsWith(EXTENSION));
+            Set<String> referenced = new HashSet<>();
+            boolean complete = true;
+            if (manifests != null) {
+                for (File file : manifests) {
+                    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                        readHeader(in);
+                        for (ChunkRef ref : readRefs(in)) {
+                            referenced.add(ChunkStore.toHex(ref.hash));
+                        }
+                    } catch (IOException e) {
+                        // Manifest tidak terbaca: jangan hapus apa pun, chunk-nya mungkin masih dibutuhkan
+                        Log.w(TAG, "Manifest " + file.getName() + " tidak terbaca", e);
+                        complete = false;
+                    }
+                }
+            }
+            return chunkStore(folder).retainOnly(complete ? referenced : null);
+        }
+    }
+
+    /**
+     * Ukuran semua chunk di folder (untuk ditampilkan bersama riwayat backup)
+     */
+    public static long chunkStoreSize(File folder) {
+        return chunkStore(folder).retainOnly(null);
+    }
+
+    private static ChunkStore chunkStore(File folder) {
+        return new ChunkStore(new File(folder, CHUNK_FOLDER));
+    }
+
+    private static void writeManifest(File file, DatabaseSnapshot.Header header, List<ChunkRef> refs) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+            out.write(MAGIC);
+            DatabaseSnapshot.writeHeaderFields(out, header);
+            out.writeInt(refs.size());
+            for (ChunkRef ref : refs) {
+                out.write(ref.hash);
+                out.writeInt(ref.length);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+    }
+
+    private static DatabaseSnapshot.Header readHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Bukan manifest backup WarungKu");
+        }
+        DatabaseSnapshot.Header header = DatabaseSnapshot.readHeaderFields(in);
+        if (header.formatVersion > FORMAT_VERSION) {
+            throw new IOException("Format manifest " + header.formatVersion + " belum didukung");
+        }
+        return header;
+    }
+
+    private static List<ChunkRef> readRefs(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<ChunkRef> refs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] hash = new byte[32];
+            in.readFully(hash);
+            refs.add(new ChunkRef(hash, in.readInt()));
+        }
+        return refs;
+    }
+
+    private static long[] gearTable(long seed) {
+        Random random = new Random(seed);
+        long[] table = new long[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextLong();
+        }
+        return table;
+    }
+
+    /**
+     * Memotong stream menjadi chunk dan menyimpannya ke ChunkStore sambil menghitung SHA-256 keseluruhan
+     */
+    private static class ChunkingOutputStream extends OutputStream {
+        private final ChunkStore store;
+        private final byte[] buffer = new byte[MAX_CHUNK];
+        private int position;
+        private long hash;
+
+        final List<ChunkRef> refs = new ArrayList<>();
+        final MessageDigest digest = DatabaseSnapshot.sha256();
+        final MessageDigest chunkDigest = DatabaseSnapshot.sha256();
+        long length;
+        int newChunks;
+        long newBytes;
+
+        ChunkingOutputStream(ChunkStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[position++] = (byte) b;
+            // Bit teratas bergantung pada 64 byte terakhir (geser 1 bit per byte)
+            hash = (hash << 1) + GEAR[b & 0xFF];
+            if (position == MAX_CHUNK || (position >= MIN_CHUNK && (hash >>> (64 - BOUNDARY_BITS)) == 0)) {
+                emit();
+            }
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int count) throws IOException {
+            for (int i = offset; i < offset + count; i++) {
+                write(data[i]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (position > 0) {
+                emit();
+            }
+        }
+
+        private void emit() throws IOException {
+            chunkDigest.update(buffer, 0, position);
+            byte[] chunkHash = chunkDigest.digest();
+            long written = store.put(chunkHash, buffer, position);
+            if (written > 0) {
+                newChunks++;
+                newBytes += written;
+            }
+            refs.add(new ChunkRef(chunkHash, position));
+            digest.update(buffer, 0, position);
+            length += position;
+            position = 0;
+        }
+    }
+
+    /**
+     * Membaca chunk sesuai urutan manifest; setiap chunk dicek hash-nya oleh ChunkStore.get()
+     */
+    private static class ReassemblingInputStream extends InputStream {
+        private final ChunkStore store;
+        private final List<ChunkRef> refs;
+        private int next;
+        private byte[] current = new byte[0];
+        private int position;
+
+        final MessageDigest digest = DatabaseSnapshot.sha256();
+        long length;
+
+        ReassemblingInputStream(ChunkStore store, List<ChunkRef> refs) {
+            this.store = store;
+            this.refs = refs;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureData()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] data, int offset, int count) throws IOException {
+            if (count == 0) {
+                return 0;
+            }
+            if (!ensureData()) {
+                return -1;
+            }
+            int read = Math.min(count, current.length - position);
+            System.arraycopy(current, position, data, offset, read);
+            position += read;
+            return read;
+        }
+
+        /**
+         * Muat sisa chunk (jika dump berakhir lebih awal) supaya checksum keseluruhan bisa dicek
+         */
+        void drain() throws IOException {
+            while (ensureData()) {
+                position = current.length;
+            }
+        }
+
+        private boolean ensureData() throws IOException {
+            while (position >= current.length) {
+                if (next >= refs.size()) {
+                    return false;
+                }
+                ChunkRef ref = refs.get(next++);
+                current = store.get(ref.hash, ref.length);
+                position = 0;
+                digest.update(current);
+                length += current.length;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,613 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.DatabaseWriter;
+import com.alkahfprogrammer.warungku.data.dao.CashFlowDao;
+import com.alkahfprogrammer.warungku.data.dao.ProductDao;
+import com.alkahfprogrammer.warungku.data.dao.SaleDao;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.entity.Sale;
+import com.alkahfprogrammer.warungku.data.entity.SaleItem;
+import com.alkahfprogrammer.warungku.data.importer.ProductUpsertEngine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Gabungkan backup dari HP lain ke database aktif, tanpa mengganti data yang sudah ada.
+ *
+ * analyze() (dry run, hanya membaca): produk backup dicocokkan ke produk di sini lewat barcode lalu nama
+ * ternormalisasi (aturan yang sama dengan ProductUpsertEngine). Setiap baris cash_flow diberi sidik jari
+ * isi (waktu, jenis, jumlah, keterangan); baris yang sidik jarinya sudah ada di sini atau muncul dua kali
+ * di backup dilewati. Perubahan stok dihitung dari baris yang akan ditambahkan saja: sale_item (atau
+ * "Jual X (n)" lama tanpa sale) mengurangi stok, "Tambah Stok: X (n)" menambah. Riwayat sebelum kedua HP
+ * berpisah ada di kedua database, jadi tidak dihitung dua kali.
+ *
+ * Perubahan stok tanpa baris cash_flow (misal stok diedit langsung saat stock opname) tidak bisa
+ * digabung. analyze() memperingatkannya: untuk setiap produk yang cocok, stok saat kedua HP berpisah
+ * ditaksir dari masing-masing sisi (stok backup dikurangi selisih baris yang ditambahkan, stok di sini
+ * dikurangi selisih baris yang hanya ada di sini). Jika keduanya berbeda, ada perubahan stok tanpa
+ * transaksi di salah satu HP, dan produknya masuk stockWarnings.
+ *
+ * apply(): produk baru ditulis dulu, lalu cash_flow beserta sale/sale_item dan selisih stoknya per
+ * CHUNK_SIZE baris, setiap chunk satu perintah DatabaseWriter. Kasir tetap bisa berjualan di sela chunk.
+ * Jika berhenti di tengah, gabung ulang aman: chunk yang sudah ter-commit terdeteksi sebagai duplikat
+ * beserta selisih stoknya, karena keduanya ditulis di transaksi yang sama.
+ */
+public class MergeRestorer {
+    private static final String TAG = "MergeRestorer";
+    private static final int CHUNK_SIZE = 2000;
+
+    private static final String PRODUCTS_SQL = "SELECT id, name, sellPrice, buyPrice, currentStock, minStock,"
+            + " salesCount, isFavorite, lastSoldTimestamp, barcode, imageUrl FROM products ORDER BY id";
+    private static final String FLOWS_SQL = "SELECT id, type, amount, description, timestamp, productId, profit"
+            + " FROM cash_flow WHERE id > ? ORDER BY id LIMIT " + CHUNK_SIZE;
+    private static final String SALES_SQL = "SELECT id, cashFlowId, timestamp, totalAmount, totalProfit, itemCount"
+            + " FROM sale WHERE cashFlowId BETWEEN ? AND ?";
+    private static final String ITEMS_SQL = "SELECT i.saleId, i.productId, i.productName, i.quantity,"
+            + " i.unitSellPrice, i.unitBuyPrice, i.timestamp FROM sale_item i JOIN sale s ON s.id = i.saleId"
+            + " WHERE s.cashFlowId BETWEEN ? AND ? ORDER BY i.id";
+
+    /**
+     * Hasil dry run (atau hasil akhir apply) untuk ditampilkan sebelum pengguna menyetujui
+     */
+    public static class Report {
+        public int productsMatched;
+        public int productsNew;
+        public int cashFlowsNew;
+        public int cashFlowsDuplicate;
+        public int salesNew;
+        public double incomeAdded;
+        public double expenseAdded;
+        public final List<String> stockChanges = new ArrayList<>(); // "Nama: 10 -> 7", produk yang sudah ada
+        public final List<String> stockWarnings = new ArrayList<>(); // "Nama: selisih -5 tanpa transaksi"
+        public long durationMs;
+    }
+
+    /**
+     * Keputusan dry run yang dipakai ulang oleh apply(): baris mana yang ditambahkan tidak dihitung ulang
+     */
+    public static class Plan {
+        public final Report report = new Report();
+        final DatabaseRestorer.Staged staged;
+        final BitSet append = new BitSet(); // id cash_flow di backup yang akan ditambahkan
+        final Map<Integer, Delta> deltas = new HashMap<>(); // id produk di backup -> selisih dari baris baru
+
+        Plan(DatabaseRestorer.Staged staged) {
+            this.staged = staged;
+        }
+    }
+
+    static class Delta {
+        int stock;
+        int sold;
+        long lastSold;
+
+        void sell(int quantity, long timestamp) {
+            stock -= quantity;
+            sold += quantity;
+            lastSold = Math.max(lastSold, timestamp);
+        }
+    }
+
+    /**
+     * Sumber baris cash_flow: file staging (SQLiteDatabase) atau database aktif (SupportSQLiteDatabase)
+     */
+    private interface Source {
+        Cursor query(String sql, String[] args);
+    }
+
+    private static class Chunk {
+        final List<CashFlow> flows = new ArrayList<>(CHUNK_SIZE); // id = id di backup
+        final Map<Long, Sale> sales = new HashMap<>(); // cashFlowId di backup -> sale
+        final Map<Long, List<SaleItem>> items = new HashMap<>(); // id sale di backup -> rincian
+        int lastId;
+    }
+
+    /**
+     * Dry run: baca backup yang sudah di-prepare dan database aktif, tanpa menulis apa pun
+     */
+    public static Plan analyze(Context context, DatabaseRestorer.Staged staged) {
+        return analyze(AppDatabase.getDatabase(context), staged);
+    }
+
+    // Package-private untuk test; aplikasi memakai analyze(Context, Staged)
+    static Plan analyze(AppDatabase db, DatabaseRestorer.Staged staged) {
+        long started = SystemClock.elapsedRealtime();
+        Plan plan = new Plan(staged);
+        Report report = plan.report;
+
+        try (SQLiteDatabase source = DatabaseRestorer.openStaging(staged.file)) {
+            List<Product> live = db.productDao().getAllProductsSync();
+            List<Product> sourceProducts = readProducts(source);
+            Map<Integer, Integer> sourceStock = new HashMap<>(sourceProducts.size() * 2);
+            for (Product product : sourceProducts) {
+                sourceStock.put(product.id, product.currentStock);
+            }
+            Map<Integer, Product> products = resolveProducts(sourceProducts, live);
+
+            long[] range = timestampRange(source);
+            long[] existing = range == null ? new long[0] : liveFingerprints(db.cashFlowDao(), range[0], range[1]);
+            Set<Long> seen = new HashSet<>(); // Sidik jari semua baris backup, termasuk yang sudah ada di sini
+
+            int afterId = Integer.MIN_VALUE;
+            Chunk chunk;
+            do {
+                chunk = readChunk(source::rawQuery, afterId);
+                for (CashFlow flow : chunk.flows) {
+                    long key = fingerprint(flow);
+                    if (!seen.add(key) || Arrays.binarySearch(existing, key) >= 0) {
+                        report.cashFlowsDuplicate++;
+                        continue;
+                    }
+                    plan.append.set(flow.id);
+                    report.cashFlowsNew++;
+                    if ("IN".equals(flow.type)) {
+                        report.incomeAdded += flow.amount;
+                    } else {
+                        report.expenseAdded += flow.amount;
+                    }
+                    Sale sale = chunk.sales.get((long) flow.id);
+                    if (sale != null) {
+                        report.salesNew++;
+                    }
+                    collectDeltas(flow, sale != null ? chunk.items.get(sale.id) : null, plan.deltas);
+                }
+                afterId = chunk.lastId;
+            } while (chunk.flows.size() == CHUNK_SIZE);
+
+            // Ringkasan produk: beberapa produk backup bisa jatuh ke satu produk yang sama
+            Map<Product, Integer> stockDeltas = new LinkedHashMap<>();
+            Set<Product> created = Collections.newSetFromMap(new IdentityHashMap<>());
+            boolean anyMatched = false;
+            for (Product target : products.values()) {
+                anyMatched |= target.id != 0;
+            }
+            Map<Integer, Delta> liveDeltas = anyMatched
+                    ? liveOnlyDeltas(db.getOpenHelper().getReadableDatabase(), seen) : Collections.emptyMap();
+            for (Map.Entry<Integer, Product> entry : products.entrySet()) {
+                Product target = entry.getValue();
+                if (target.id == 0) {
+                    created.add(target);
+                    continue;
+                }
+                report.productsMatched++;
+                Delta delta = plan.deltas.get(entry.getKey());
+                if (delta != null && delta.stock != 0) {
+                    stockDeltas.merge(target, delta.stock, Integer::sum);
+                }
+
+                // Stok saat berpisah menurut backup vs menurut database ini
+                Delta liveDelta = liveDeltas.get(target.id);
+                int sourceBase = sourceStock.get(entry.getKey()) - (delta != null ? delta.stock : 0);
+                int liveBase = target.currentStock - (liveDelta != null ? liveDelta.stock : 0);
+                if (sourceBase != liveBase) {
+                    int difference = sourceBase - liveBase;
+                    report.stockWarnings.add(target.name + ": selisih " + (difference > 0 ? "+" : "") + difference
+                            + " tanpa transaksi");
+                }
+            }
+            report.productsNew = created.size();
+            for (Map.Entry<Product, Integer> entry : stockDeltas.entrySet()) {
+                Product product = entry.getKey();
+                report.stockChanges.add(product.name + ": " + product.currentStock + " -> "
+                        + (product.currentStock + entry.getValue()));
+            }
+        }
+        report.durationMs = SystemClock.elapsedRealtime() - started;
+        Log.i(TAG, "Dry run: " + report.cashFlowsNew + " baris baru, " + report.cashFlowsDuplicate
+                + " duplikat, " + report.productsNew + " produk baru, " + report.stockWarnings.size()
+                + " peringatan stok dalam " + report.durationMs + " ms");
+        return plan;
+    }
+
+    /**
+     * Tulis hasil dry run ke database aktif per chunk, lalu hapus file staging.
+     * Blok sampai chunk terakhir ter-commit; jangan dipanggil dari thread UI atau dari DatabaseWriter.
+     * @return jumlah yang benar-benar ditulis
+     */
+    public static Report apply(Context context, Plan plan) throws IOException {
+        AppDatabase db = AppDatabase.getDatabase(context);
+        return apply(context, db, DatabaseWriter.getInstance(db), plan);
+    }
+
+    // Package-private untuk test; aplikasi memakai apply(Context, Plan)
+    static Report apply(Context context, AppDatabase db, DatabaseWriter writer, Plan plan) throws IOException {
+        long started = SystemClock.elapsedRealtime();
+        Report result = new Report();
+        result.productsMatched = plan.report.productsMatched;
+        result.cashFlowsDuplicate = plan.report.cashFlowsDuplicate;
+        result.stockChanges.addAll(plan.report.stockChanges);
+        result.stockWarnings.addAll(plan.report.stockWarnings);
+
+        try (SQLiteDatabase source = DatabaseRestorer.openStaging(plan.staged.file)) {
+            List<Product> sourceProducts = readProducts(source);
+            // Diisi ulang setiap kali perintah dijalankan (perintah bisa diulang setelah rollback group commit)
+            Map<Integer, Integer> productIds = new HashMap<>();
+            int[] created = new int[1];
+            writer.submit(() -> {
+                productIds.clear();
+                created[0] = insertNewProducts(db.productDao(), sourceProducts, plan.deltas, productIds);
+            }).get();
+            result.productsNew = created[0];
+
+            Report[] chunkResult = new Report[1];
+            int[] lastId = { Integer.MIN_VALUE };
+            int read;
+            do {
+                int afterId = lastId[0];
+                int[] size = new int[1];
+                writer.submit(() -> {
+                    Chunk chunk = readChunk(source::rawQuery, afterId);
+                    chunkResult[0] = writeChunk(db, chunk, plan.append, productIds);
+                    size[0] = chunk.flows.size();
+                    lastId[0] = chunk.lastId;
+                }).get();
+                read = size[0];
+                result.cashFlowsNew += chunkResult[0].cashFlowsNew;
+                result.salesNew += chunkResult[0].salesNew;
+                result.incomeAdded += chunkResult[0].incomeAdded;
+                result.expenseAdded += chunkResult[0].expenseAdded;
+            } while (read == CHUNK_SIZE);
+        } catch (ExecutionException e) {
+            throw new IOException("Gagal menggabungkan backup, " + result.cashFlowsNew
+                    + " baris sudah masuk (gabung ulang aman)", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Gabung backup dibatalkan", e);
+        } finally {
+            DatabaseRestorer.discard(context);
+        }
+        result.durationMs = SystemClock.elapsedRealtime() - started;
+        Log.i(TAG, "Gabung " + result.cashFlowsNew + " baris, " + result.productsNew + " produk baru selesai dalam "
+                + result.durationMs + " ms");
+        return result;
+    }
+
+    /**
+     * Dijalankan di DatabaseWriter. Produk baru mulai dari stok backup dikurangi selisih baris yang akan
+     * ditambahkan, jadi setelah semua chunk masuk stoknya sama dengan di HP asal.
+     * @return jumlah produk baru
+     */
+    private static int insertNewProducts(ProductDao productDao, List<Product> sourceProducts,
+                                         Map<Integer, Delta> deltas, Map<Integer, Integer> productIds) {
+        Map<Integer, Product> resolved = resolveProducts(copyAll(sourceProducts), productDao.getAllProductsSync());
+        List<Product> inserts = new ArrayList<>();
+        Set<Product> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Integer, Product> entry : resolved.entrySet()) {
+            Product product = entry.getValue();
+            if (product.id != 0 || !pending.add(product)) {
+                continue;
+            }
+            Delta delta = deltas.get(entry.getKey());
+            if (delta != null) {
+                product.currentStock -= delta.stock;
+                product.salesCount = Math.max(0, product.salesCount - delta.sold);
+            }
+            inserts.add(product);
+        }
+        if (!inserts.isEmpty()) {
+            long[] ids = productDao.insertAll(inserts);
+            for (int i = 0; i < inserts.size(); i++) {
+                inserts.get(i).id = (int) ids[i];
+            }
+        }
+        for (Map.Entry<Integer, Product> entry : resolved.entrySet()) {
+            productIds.put(entry.getKey(), entry.getValue().id);
+        }
+        return inserts.size();
+    }
+
+    /**
+     * Dijalankan di DatabaseWriter: satu chunk cash_flow backup beserta sale, sale_item dan selisih stoknya
+     */
+    private static Report writeChunk(AppDatabase db, Chunk chunk, BitSet append, Map<Integer, Integer> productIds) {
+        SaleDao saleDao = db.saleDao();
+        Report report = new Report();
+        Map<Integer, Delta> deltas = new HashMap<>();
+        List<CashFlow> inserted = new ArrayList<>();
+
+        for (CashFlow flow : chunk.flows) {
+            if (!append.get(flow.id)) {
+                continue;
+            }
+            Sale sale = chunk.sales.get((long) flow.id);
+            List<SaleItem> items = sale != null ? chunk.items.get(sale.id) : null;
+            collectDeltas(flow, items, deltas);
+
+            flow.id = 0;
+            flow.productId = flow.productId != null ? productIds.get(flow.productId) : null;
+            long cashFlowId = saleDao.insertCashFlow(flow);
+            inserted.add(flow);
+            report.cashFlowsNew++;
+            if ("IN".equals(flow.type)) {
+                report.incomeAdded += flow.amount;
+            } else {
+                report.expenseAdded += flow.amount;
+            }
+            if (sale == null) {
+                continue;
+            }
+            sale.id = 0;
+            sale.cashFlowId = cashFlowId;
+            long saleId = saleDao.insertSale(sale);
+            if (items != null) {
+                for (SaleItem item : items) {
+                    Integer productId = productIds.get(item.productId);
+                    item.saleId = saleId;
+                    item.productId = productId != null ? productId : 0; // Produk sudah dihapus di HP asal
+                }
+                saleDao.insertItems(items);
+            }
+            report.salesNew++;
+        }
+
+        ProductDao productDao = db.productDao();
+        for (Map.Entry<Integer, Delta> entry : deltas.entrySet()) {
+            Integer productId = productIds.get(entry.getKey());
+            Delta delta = entry.getValue();
+            if (productId != null) {
+                productDao.applyMergeDelta(productId, delta.stock, delta.sold, delta.lastSold);
+            }
+        }
+        if (!inserted.isEmpty()) {
+            db.dailySummaryDao().recordAll(inserted);
+        }
+        return report;
+    }
+
+    /**
+     * Selisih stok dari satu baris cash_flow yang ditambahkan, dikunci dengan id produk di backup
+     */
+    private static void collectDeltas(CashFlow flow, List<SaleItem> items, Map<Integer, Delta> deltas) {
+        if (items != null) {
+            for (SaleItem item : items) {
+                deltas.computeIfAbsent(item.productId, id -> new Delta()).sell(item.quantity, item.timestamp);
+            }
+            return;
+        }
+        if (flow.productId == null || flow.description == null) {
+            return;
+        }
+        int quantity = parseQuantity(flow.description);
+        if (quantity <= 0) {
+            return;
+        }
+        Delta delta = deltas.computeIfAbsent(flow.productId, id -> new Delta());
+        if ("OUT".equals(flow.type) && flow.description.startsWith("Tambah Stok:")) {
+            delta.stock += quantity;
+        } else if ("IN".equals(flow.type) && flow.description.startsWith("Jual ")) {
+            delta.sell(quantity, flow.timestamp); // Penjualan sebelum ada tabel sale
+        }
+    }
+
+    /**
+     * Jumlah di akhir keterangan, misal "Tambah Stok: Gula (12)" -> 12; 0 jika tidak ada
+     */
+    static int parseQuantity(String description) {
+        int close = description.length() - 1;
+        if (close < 0 || description.charAt(close) != ')') {
+            return 0;
+        }
+        int open = description.lastIndexOf('(', close);
+        if (open < 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(description.substring(open + 1, close).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Cocokkan produk backup ke produk di sini: barcode dulu, lalu nama. Produk yang tidak cocok dipetakan
+     * ke objek baru (id 0) yang juga didaftarkan, jadi produk backup bernama sama jatuh ke produk baru yang sama.
+     * @return id produk di backup -> produk tujuan
+     */
+    private static Map<Integer, Product> resolveProducts(List<Product> sourceProducts, List<Product> live) {
+        Map<String, Product> byName = new HashMap<>(live.size() * 2);
+        Map<String, Product> byBarcode = new HashMap<>(live.size() * 2);
+        for (Product product : live) {
+            if (product.name != null) {
+                byName.putIfAbsent(ProductUpsertEngine.normalizeName(product.name), product);
+            }
+            String barcode = ProductUpsertEngine.normalizeBarcode(product.barcode);
+            if (barcode != null) {
+                byBarcode.put(barcode, product);
+            }
+        }
+
+        Map<Integer, Product> resolved = new LinkedHashMap<>();
+        for (Product incoming : sourceProducts) {
+            String barcode = ProductUpsertEngine.normalizeBarcode(incoming.barcode);
+            String nameKey = ProductUpsertEngine.normalizeName(incoming.name);
+            Product target = barcode != null ? byBarcode.get(barcode) : null;
+            if (target == null) {
+                target = byName.get(nameKey);
+            }
+            if (target == null) {
+                target = incoming;
+                int sourceId = incoming.id;
+                target.id = 0;
+                target.barcode = barcode;
+                byName.put(nameKey, target);
+                if (barcode != null) {
+                    byBarcode.put(barcode, target);
+                }
+                resolved.put(sourceId, target);
+                continue;
+            }
+            resolved.put(incoming.id, target);
+        }
+        return resolved;
+    }
+
+    private static List<Product> readProducts(SQLiteDatabase source) {
+        List<Product> products = new ArrayList<>();
+        try (Cursor cursor = source.rawQuery(PRODUCTS_SQL, null)) {
+            while (cursor.moveToNext()) {
+                Product product = new Product(cursor.getString(1), cursor.getDouble(2),
+                        cursor.isNull(3) ? null : cursor.getDouble(3), cursor.getInt(4), cursor.getInt(5));
+                product.id = cursor.getInt(0);
+                product.salesCount = cursor.getInt(6);
+                product.isFavorite = cursor.getInt(7) != 0;
+                product.lastSoldTimestamp = cursor.getLong(8);
+                product.barcode = cursor.getString(9);
+                product.imageUrl = cursor.getString(10);
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * resolveProducts() mengubah id produk yang tidak cocok, jadi setiap percobaan apply memakai salinan
+     */
+    private static List<Product> copyAll(List<Product> products) {
+        List<Product> copies = new ArrayList<>(products.size());
+        for (Product source : products) {
+            copies.add(source.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * Selisih stok dari baris cash_flow di sini yang tidak ada di backup (dicatat setelah kedua HP berpisah),
+     * dikunci dengan id produk di sini
+     */
+    private static Map<Integer, Delta> liveOnlyDeltas(SupportSQLiteDatabase live, Set<Long> sourceKeys) {
+        Map<Integer, Delta> deltas = new HashMap<>();
+        int afterId = Integer.MIN_VALUE;
+        Chunk chunk;
+        do {
+            chunk = readChunk(live::query, afterId);
+            for (CashFlow flow : chunk.flows) {
+                if (!sourceKeys.contains(fingerprint(flow))) {
+                    Sale sale = chunk.sales.get((long) flow.id);
+                    collectDeltas(flow, sale != null ? chunk.items.get(sale.id) : null, deltas);
+                }
+            }
+            afterId = chunk.lastId;
+        } while (chunk.flows.size() == CHUNK_SIZE);
+        return deltas;
+    }
+
+    private static Chunk readChunk(Source source, int afterId) {
+        Chunk chunk = new Chunk();
+        chunk.lastId = afterId;
+        try (Cursor cursor = source.query(FLOWS_SQL, new String[] { String.valueOf(afterId) })) {
+            while (cursor.moveToNext()) {
+                CashFlow flow = new CashFlow(cursor.getString(1), cursor.getDouble(2), cursor.getString(3),
+                        cursor.getLong(4), cursor.isNull(5) ? null : cursor.getInt(5),
+                        cursor.isNull(6) ? null : cursor.getDouble(6));
+                flow.id = cursor.getInt(0);
+                chunk.flows.add(flow);
+                chunk.lastId = flow.id;
+            }
+        }
+        if (chunk.flows.isEmpty()) {
+            return chunk;
+        }
+
+        String[] range = { String.valueOf(chunk.flows.get(0).id), String.valueOf(chunk.lastId) };
+        try (Cursor cursor = source.query(SALES_SQL, range)) {
+            while (cursor.moveToNext()) {
+                Sale sale = new Sale(cursor.getLong(2), cursor.getDouble(3), cursor.getDouble(4), cursor.getInt(5));
+                sale.id = cursor.getLong(0);
+                sale.cashFlowId = cursor.getLong(1);
+                chunk.sales.putIfAbsent(sale.cashFlowId, sale);
+            }
+        }
+        try (Cursor cursor = source.query(ITEMS_SQL, range)) {
+            while (cursor.moveToNext()) {
+                SaleItem item = new SaleItem(cursor.getInt(1), cursor.getString(2), cursor.getInt(3),
+                        cursor.getDouble(4), cursor.isNull(5) ? null : cursor.getDouble(5), cursor.getLong(6));
+                item.saleId = cursor.getLong(0);
+                chunk.items.computeIfAbsent(item.saleId, id -> new ArrayList<>()).add(item);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * @return {min, max} timestamp cash_flow di backup, null jika kosong
+     */
+    private static long[] timestampRange(SQLiteDatabase source) {
+        try (Cursor cursor = source.rawQuery("SELECT MIN(timestamp), MAX(timestamp) FROM cash_flow", null)) {
+            if (!cursor.moveToFirst() || cursor.isNull(0)) {
+                return null;
+            }
+            return new long[] { cursor.getLong(0), cursor.getLong(1) };
+        }
+    }
+
+    /**
+     * Sidik jari cash_flow di sini dalam rentang waktu backup, terurut untuk binary search.
+     * Array long, bukan Set: 200 ribu baris cukup 1,6 MB.
+     */
+    private static long[] liveFingerprints(CashFlowDao cashFlowDao, long start, long end) {
+        long[] keys = new long[1024];
+        int count = 0;
+        long afterTimestamp = start - 1;
+        int afterId = Integer.MAX_VALUE;
+        int read;
+        do {
+            read = 0;
+            // Kolom: id, timestamp, type, amount, profit, description, productId
+            try (Cursor cursor = cashFlowDao.getExportChunk(afterTimestamp, afterId, end + 1, CHUNK_SIZE)) {
+                while (cursor.moveToNext()) {
+                    afterId = cursor.getInt(0);
+                    afterTimestamp = cursor.getLong(1);
+                    if (count == keys.length) {
+                        keys = Arrays.copyOf(keys, count * 2);
+                    }
+                    keys[count++] = fingerprint(afterTimestamp, cursor.getString(2), cursor.getDouble(3),
+                            cursor.getString(5));
+                    read++;
+                }
+            }
+        } while (read == CHUNK_SIZE);
+        keys = Arrays.copyOf(keys, count);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private static long fingerprint(CashFlow flow) {
+        return fingerprint(flow.timestamp, flow.type, flow.amount, flow.description);
+    }
+
+    /**
+     * FNV-1a 64 bit dari kunci yang sama dengan CashFlowImportEngine. Peluang dua baris berbeda bertabrakan
+     * di 400 ribu baris sekitar 1 banding 100 juta, jauh di bawah peluang data dobel karena salah ketik.
+     */
+    static long fingerprint(long timestamp, String type, double amount, String description) {
+        String key = timestamp + "|" + type + "|" + amount + "|" + description;
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
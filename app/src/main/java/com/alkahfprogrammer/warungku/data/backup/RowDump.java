@@ -0,0 +1,303 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dump biner isi database: skema (sqlite_master) lalu baris setiap tabel urut rowid.
+ *
+ * Dipakai IncrementalBackup sebagai bahan chunking, bukan file SQLite-nya langsung: VACUUM menyusun ulang
+ * halaman, jadi satu baris baru di cash_flow menggeser nomor halaman semua tabel sesudahnya dan mengubah
+ * halaman interior di seluruh file. Di dump, baris baru hanya menambah byte di ujung bagian tabelnya,
+ * sehingga chunk di sekitarnya tetap sama.
+ *
+ * Baris ditulis per blok BLOCK_SIZE baris, kolom demi kolom (column-major). Penjualan mengubah
+ * currentStock, salesCount dan lastSoldTimestamp di banyak produk sekaligus; kalau ditulis per baris,
+ * perubahan itu tersebar di seluruh bagian products dan hampir setiap chunk-nya ikut berubah. Per kolom,
+ * nama, harga dan barcode tetap berderet utuh dan chunk-nya bisa dipakai ulang. Nilai sejenis yang
+ * berdekatan juga lebih mudah dikompresi.
+ *
+ * Format: magic, user_version, daftar objek skema (type, name, sql), lalu per tabel: nama, kolom, dan
+ * blok (jumlah baris, lalu nilai bertipe kolom pertama semua baris, kolom kedua, dst.), diakhiri jumlah 0.
+ * Dump versi 1 (per baris: penanda 1 + nilai bertipe per kolom, diakhiri penanda 0) masih bisa dibaca.
+ */
+class RowDump {
+    private static final byte[] MAGIC = { 'W', 'K', 'D', 'U', 'M', 'P', '0', '2' };
+    private static final byte[] MAGIC_V1 = { 'W', 'K', 'D', 'U', 'M', 'P', '0', '1' };
+    private static final int BLOCK_SIZE = 1024;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_LONG = 1;
+    private static final int TYPE_DOUBLE = 2;
+    private static final int TYPE_TEXT = 3;
+    private static final int TYPE_BLOB = 4;
+
+    private RowDump() {
+    }
+
+    /**
+     * Tulis dump dari file snapshot (bukan database aktif: isinya harus diam selama dibaca)
+     */
+    static void write(File snapshotFile, DataOutputStream out) throws IOException {
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(snapshotFile.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS)) {
+            out.write(MAGIC);
+            out.writeInt((int) DatabaseUtils.longForQuery(db, "PRAGMA user_version", null));
+
+            List<String> tables = new ArrayList<>();
+            List<String[]> objects = new ArrayList<>();
+            try (Cursor cursor = db.rawQuery("SELECT type, name, sql FROM sqlite_master"
+                    + " WHERE sql IS NOT NULL ORDER BY rowid", null)) {
+                while (cursor.moveToNext()) {
+                    String type = cursor.getString(0);
+                    String name = cursor.getString(1);
+                    if ("table".equals(type)) {
+                        tables.add(name); // sqlite_sequence ikut sebagai data
+                    }
+                    if (!name.startsWith("sqlite_")) {
+                        objects.add(new String[] { type, name, cursor.getString(2) });
+                    }
+                }
+            }
+            out.writeInt(objects.size());
+            for (String[] object : objects) {
+                for (String field : object) {
+                    writeString(out, field);
+                }
+            }
+
+            out.writeInt(tables.size());
+            for (String table : tables) {
+                writeTable(db, table, out);
+            }
+        }
+    }
+
+    /**
+     * Bangun file SQLite baru dari dump; target belum boleh ada
+     */
+    static void rebuild(DataInputStream in, File target) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        boolean columnMajor = Arrays.equals(magic, MAGIC);
+        if (!columnMajor && !Arrays.equals(magic, MAGIC_V1)) {
+            throw new IOException("Isi backup inkremental tidak dikenal");
+        }
+        int userVersion = in.readInt();
+        int objectCount = in.readInt();
+        List<String> deferred = new ArrayList<>();
+
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(target.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.NO_LOCALIZED_COLLATORS)) {
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < objectCount; i++) {
+                    String type = readString(in);
+                    readString(in); // nama, hanya untuk dibaca manusia
+                    String sql = readString(in);
+                    if ("table".equals(type)) {
+                        db.execSQL(sql);
+                    } else {
+                        deferred.add(sql); // Index, view, trigger dibuat setelah data
+                    }
+                }
+                int tableCount = in.readInt();
+                for (int i = 0; i < tableCount; i++) {
+                    readTable(db, in, columnMajor);
+                }
+                for (String sql : deferred) {
+                    db.execSQL(sql);
+                }
+                db.execSQL("PRAGMA user_version = " + userVersion);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    private static void writeTable(SQLiteDatabase db, String table, DataOutputStream out) throws IOException {
+        List<String> columns = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + quote(table) + ")", null)) {
+            int nameIndex = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(nameIndex));
+            }
+        }
+        writeString(out, table);
+        out.writeInt(columns.size());
+        StringBuilder columnList = new StringBuilder();
+        for (String column : columns) {
+            writeString(out, column);
+            columnList.append(", ").append(quote(column));
+        }
+
+        // Keyset per rowid: cursor Android mengulang query dari awal untuk setiap window baru
+        ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[columns.size()];
+        DataOutputStream[] values = new DataOutputStream[columns.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new ByteArrayOutputStream();
+            values[i] = new DataOutputStream(buffers[i]);
+        }
+        long lastRowId = Long.MIN_VALUE;
+        int read;
+        do {
+            read = 0;
+            try (Cursor cursor = db.rawQuery("SELECT rowid" + columnList + " FROM " + quote(table)
+                    + " WHERE rowid > " + lastRowId + " ORDER BY rowid LIMIT " + BLOCK_SIZE, null)) {
+                while (cursor.moveToNext()) {
+                    lastRowId = cursor.getLong(0);
+                    for (int i = 0; i < values.length; i++) {
+                        writeValue(values[i], cursor, i + 1);
+                    }
+                    read++;
+                }
+            }
+            if (read > 0) {
+                out.writeInt(read);
+                for (ByteArrayOutputStream buffer : buffers) {
+                    buffer.writeTo(out);
+                    buffer.reset();
+                }
+            }
+        } while (read == BLOCK_SIZE);
+        out.writeInt(0);
+    }
+
+    private static void readTable(SQLiteDatabase db, DataInputStream in, boolean columnMajor) throws IOException {
+        String table = readString(in);
+        int columnCount = in.readInt();
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < columnCount; i++) {
+            columnList.append(i == 0 ? "" : ", ").append(quote(readString(in)));
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        if ("sqlite_sequence".equals(table)) {
+            // Dibuat otomatis oleh tabel AUTOINCREMENT dan sudah terisi saat insert, ganti dengan nilai asli
+            db.execSQL("DELETE FROM sqlite_sequence");
+        }
+        try (SQLiteStatement insert = db.compileStatement("INSERT INTO " + quote(table)
+                + " (" + columnList + ") VALUES (" + placeholders + ")")) {
+            if (!columnMajor) {
+                while (in.readByte() != 0) {
+                    for (int i = 1; i <= columnCount; i++) {
+                        bindValue(insert, i, readValue(in));
+                    }
+                    insert.executeInsert();
+                    insert.clearBindings();
+                }
+                return;
+            }
+            int rows;
+            while ((rows = in.readInt()) > 0) {
+                if (rows > BLOCK_SIZE) {
+                    throw new IOException("Blok " + rows + " baris di tabel " + table + " tidak valid");
+                }
+                Object[][] block = new Object[columnCount][rows];
+                for (int column = 0; column < columnCount; column++) {
+                    for (int row = 0; row < rows; row++) {
+                        block[column][row] = readValue(in);
+                    }
+                }
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < columnCount; column++) {
+                        bindValue(insert, column + 1, block[column][row]);
+                    }
+                    insert.executeInsert();
+                    insert.clearBindings();
+                }
+            }
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Cursor cursor, int column) throws IOException {
+        switch (cursor.getType(column)) {
+            case Cursor.FIELD_TYPE_INTEGER:
+                out.writeByte(TYPE_LONG);
+                out.writeLong(cursor.getLong(column));
+                break;
+            case Cursor.FIELD_TYPE_FLOAT:
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble(cursor.getDouble(column));
+                break;
+            case Cursor.FIELD_TYPE_STRING:
+                out.writeByte(TYPE_TEXT);
+                writeString(out, cursor.getString(column));
+                break;
+            case Cursor.FIELD_TYPE_BLOB:
+                byte[] blob = cursor.getBlob(column);
+                out.writeByte(TYPE_BLOB);
+                out.writeInt(blob.length);
+                out.write(blob);
+                break;
+            default:
+                out.writeByte(TYPE_NULL);
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        int type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_TEXT:
+                return readString(in);
+            case TYPE_BLOB:
+                byte[] blob = new byte[in.readInt()];
+                in.readFully(blob);
+                return blob;
+            default:
+                throw new IOException("Tipe nilai tidak dikenal: " + type);
+        }
+    }
+
+    private static void bindValue(SQLiteStatement statement, int index, Object value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else if (value instanceof Long) {
+            statement.bindLong(index, (Long) value);
+        } else if (value instanceof Double) {
+            statement.bindDouble(index, (Double) value);
+        } else if (value instanceof String) {
+            statement.bindString(index, (String) value);
+        } else {
+            statement.bindBlob(index, (byte[]) value);
+        }
+    }
+
+    /**
+     * Panjang int + UTF-8 (writeUTF dibatasi 64 KB)
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
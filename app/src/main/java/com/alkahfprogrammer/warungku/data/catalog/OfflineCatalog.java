@@ -0,0 +1,203 @@
+package com.alkahfprogrammer.warungku.data.catalog;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.alkahfprogrammer.warungku.data.entity.BarcodeLookup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Katalog referensi barcode offline (hasil impor dump Open Food Facts), read-only.
+ *
+ * Format file (big-endian):
+ * - Header: magic, versi, waktu dibuat (ms), jumlah entri
+ * - long[jumlah]: kode GTIN sebagai angka, terurut naik
+ * - int[jumlah]: offset record di blok string
+ * - Blok string: per record 5 field (nama, merek, kuantitas, kategori, gambar),
+ *   masing-masing panjang u16 + UTF-8 (0xFFFF = null)
+ *
+ * File di-memory-map, jadi lookup adalah binary search langsung di page cache:
+ * heap tidak menampung isi katalog, hanya string hasil lookup yang dibuat.
+ */
+public class OfflineCatalog {
+    private static final String TAG = "OfflineCatalog";
+    static final String FILE_NAME = "off_catalog.bin";
+    static final int MAGIC = 0x574B4354; // "WKCT"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24; // magic, versi, builtAt, count, padding (supaya long[] rata 8 byte)
+    static final int FIELD_COUNT = 5;
+    static final int NULL_LENGTH = 0xFFFF;
+    static final int MAX_FIELD_BYTES = 0xFFFE;
+
+    private static volatile OfflineCatalog INSTANCE;
+
+    private final File file;
+    private volatile Snapshot snapshot; // null jika belum ada katalog
+
+    private static class Snapshot {
+        final MappedByteBuffer buffer;
+        final int count;
+        final long builtAt;
+        final int offsetsStart;
+        final int stringsStart;
+
+        Snapshot(MappedByteBuffer buffer, int count, long builtAt) {
+            this.buffer = buffer;
+            this.count = count;
+            this.builtAt = builtAt;
+            this.offsetsStart = HEADER_SIZE + count * 8;
+            this.stringsStart = offsetsStart + count * 4;
+        }
+    }
+
+    private OfflineCatalog(Context context) {
+        this(getFile(context));
+    }
+
+    /**
+     * Katalog dari file tertentu; aplikasi memakai getInstance(), konstruktor ini untuk pengujian
+     */
+    OfflineCatalog(File file) {
+        this.file = file;
+        reload();
+    }
+
+    public static OfflineCatalog getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (OfflineCatalog.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new OfflineCatalog(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    static File getFile(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * Map ulang file katalog (setelah impor). File lama yang masih di-map tetap valid
+     * sampai tidak dipakai lagi, karena impor mengganti file lewat rename.
+     */
+    public synchronized void reload() {
+        if (!file.exists()) {
+            snapshot = null;
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                Log.w(TAG, "Invalid catalog file, ignoring");
+                snapshot = null;
+                return;
+            }
+            long builtAt = buffer.getLong(8);
+            int count = buffer.getInt(16);
+            if (count < 0 || (long) HEADER_SIZE + count * 12L > buffer.capacity()) {
+                Log.w(TAG, "Truncated catalog file, ignoring");
+                snapshot = null;
+                return;
+            }
+            snapshot = new Snapshot(buffer, count, builtAt);
+            Log.d(TAG, "Catalog loaded: " + count + " products");
+        } catch (IOException e) {
+            Log.e(TAG, "Error mapping catalog", e);
+            snapshot = null;
+        }
+    }
+
+    public boolean isAvailable() {
+        Snapshot current = snapshot;
+        return current != null && current.count > 0;
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.count : 0;
+    }
+
+    /**
+     * @return waktu katalog dibuat (ms), 0 jika belum ada
+     */
+    public long getBuiltAt() {
+        Snapshot current = snapshot;
+        return current != null ? current.builtAt : 0;
+    }
+
+    /**
+     * Cari barcode di katalog. Aman dipanggil dari banyak thread (hanya baca absolut dari buffer).
+     * @return hasil lookup (found = true), atau null jika tidak ada di katalog
+     */
+    public BarcodeLookup find(String barcode, long now) {
+        Snapshot current = snapshot;
+        if (current == null || barcode == null) {
+            return null;
+        }
+        long key = gtinKey(barcode.trim());
+        if (key < 0) {
+            return null;
+        }
+
+        ByteBuffer buffer = current.buffer;
+        int low = 0;
+        int high = current.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long code = buffer.getLong(HEADER_SIZE + mid * 8);
+            if (code < key) {
+                low = mid + 1;
+            } else if (code > key) {
+                high = mid - 1;
+            } else {
+                return readRecord(current, barcode.trim(), mid, now);
+            }
+        }
+        return null;
+    }
+
+    private static BarcodeLookup readRecord(Snapshot current, String barcode, int index, long now) {
+        ByteBuffer record = current.buffer.duplicate(); // Posisi sendiri per lookup
+        record.position(current.stringsStart + current.buffer.getInt(current.offsetsStart + index * 4));
+        String[] fields = new String[FIELD_COUNT];
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            int length = record.getShort() & 0xFFFF;
+            if (length != NULL_LENGTH) {
+                byte[] bytes = new byte[length];
+                record.get(bytes);
+                fields[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        return new BarcodeLookup(barcode, true, fields[0], fields[1], fields[2], fields[3], fields[4], now);
+    }
+
+    /**
+     * Kode GTIN (EAN-8, UPC-A, EAN-13, GTIN-14) sebagai angka. Nol di depan tidak mengubah nilai,
+     * sama seperti normalisasi GTIN: EAN-8 dan UPC-A setara dengan EAN-13 berawalan nol.
+     * @return -1 jika bukan GTIN numerik
+     */
+    static long gtinKey(String code) {
+        int length = code.length();
+        if (length < 8 || length > 14) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
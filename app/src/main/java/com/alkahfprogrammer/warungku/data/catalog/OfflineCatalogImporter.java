@@ -0,0 +1,519 @@
+package com.alkahfprogrammer.warungku.data.catalog;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import com.alkahfprogrammer.warungku.api.ProductApiResponse;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Membangun file OfflineCatalog dari dump Open Food Facts yang disediakan pengguna
+ * (export CSV/TSV "products.csv" atau JSONL, boleh terkompresi .gz).
+ *
+ * Dump dibaca streaming baris per baris, difilter per negara, dan hanya field yang dipakai
+ * aplikasi yang disimpan. Selama impor, heap hanya menampung long[] kode + int[] offset;
+ * string langsung ditulis ke file sementara.
+ */
+public class OfflineCatalogImporter {
+    private static final String TAG = "OfflineCatalogImporter";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIELD_CHARS = 1000; // Jauh di bawah MAX_FIELD_BYTES walau semua karakter 3 byte
+    private static final String STRINGS_TEMP_NAME = "off_catalog_strings.tmp";
+
+    public static class Result {
+        public final int scanned;  // Jumlah produk di dump
+        public final int imported; // Jumlah barcode unik di katalog
+
+        Result(int scanned, int imported) {
+            this.scanned = scanned;
+            this.imported = imported;
+        }
+    }
+
+    /**
+     * Impor dump dan ganti katalog yang ada. Jalankan di background thread.
+     * @param country nama/tag negara, misal "indonesia" atau "en:indonesia"; kosong = semua negara
+     */
+    public static Result importDump(Context context, Uri uri, String country) throws IOException {
+        File stringsFile = new File(context.getCacheDir(), STRINGS_TEMP_NAME);
+        File target = OfflineCatalog.getFile(context);
+        File output = new File(target.getPath() + ".tmp");
+        String countryFilter = normalizeCountry(country);
+
+        try {
+            Builder builder = new Builder(stringsFile);
+            int scanned;
+            try (InputStream raw = context.getContentResolver().openInputStream(uri)) {
+                if (raw == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                BufferedInputStream in = decompressIfNeeded(new BufferedInputStream(raw, BUFFER_SIZE));
+                scanned = isJsonLines(in)
+                        ? readJsonLines(in, countryFilter, builder)
+                        : readCsv(in, countryFilter, builder);
+            } finally {
+                builder.closeStrings();
+            }
+
+            int imported = builder.writeTo(output, System.currentTimeMillis());
+            if (!output.renameTo(target)) {
+                throw new IOException("Cannot replace " + target);
+            }
+            OfflineCatalog.getInstance(context).reload();
+            Log.d(TAG, "Catalog imported: " + imported + " of " + scanned + " products");
+            return new Result(scanned, imported);
+        } finally {
+            stringsFile.delete();
+            output.delete(); // Tidak ada lagi jika rename berhasil
+        }
+    }
+
+    private static BufferedInputStream decompressIfNeeded(BufferedInputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return in;
+    }
+
+    /**
+     * JSONL diawali '{'; selain itu dianggap CSV/TSV dengan baris header
+     */
+    private static boolean isJsonLines(BufferedInputStream in) throws IOException {
+        in.mark(BUFFER_SIZE);
+        try {
+            int c;
+            do {
+                c = in.read();
+            } while (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == 0xEF || c == 0xBB || c == 0xBF); // Termasuk BOM UTF-8
+            return c == '{';
+        } finally {
+            in.reset();
+        }
+    }
+
+    // ---------- CSV / TSV ----------
+
+    private static int readCsv(InputStream in, String countryFilter, Builder builder) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        String header = reader.readLine();
+        if (header == null) {
+            return 0;
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        // Export resmi OFF memakai tab tanpa quoting; CSV biasa memakai koma dengan quoting
+        char delimiter = header.indexOf('\t') >= 0 ? '\t' : ',';
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = split(header, delimiter);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        int code = column(columns, "code");
+        if (code < 0) {
+            throw new IOException("Missing 'code' column");
+        }
+        int productName = column(columns, "product_name");
+        int productNameEn = column(columns, "product_name_en");
+        int brands = column(columns, "brands");
+        int categories = column(columns, "categories");
+        int quantity = column(columns, "quantity");
+        int imageUrl = column(columns, "image_url");
+        int imageFrontUrl = column(columns, "image_front_url");
+        int imageSmallUrl = column(columns, "image_small_url");
+        int[] countryColumns = {
+                column(columns, "countries_tags"), column(columns, "countries_en"), column(columns, "countries")
+        };
+
+        int scanned = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            scanned++;
+            List<String> values = split(line, delimiter);
+            if (!countryFilter.isEmpty() && !matchesCountry(values, countryColumns, countryFilter)) {
+                continue;
+            }
+            ProductApiResponse.Product product = new ProductApiResponse.Product();
+            product.code = value(values, code);
+            product.productName = value(values, productName);
+            product.productNameEn = value(values, productNameEn);
+            product.brands = value(values, brands);
+            product.categories = value(values, categories);
+            product.quantity = value(values, quantity);
+            product.imageUrl = value(values, imageUrl);
+            product.imageFrontUrl = value(values, imageFrontUrl);
+            product.imageSmallUrl = value(values, imageSmallUrl);
+            builder.add(product);
+        }
+        return scanned;
+    }
+
+    private static boolean matchesCountry(List<String> values, int[] countryColumns, String countryFilter) {
+        for (int column : countryColumns) {
+            String countries = value(values, column);
+            if (containsCountry(countries, countryFilter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int column(Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index != null ? index : -1;
+    }
+
+    private static String value(List<String> values, int index) {
+        if (index < 0 || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Pecah satu baris. Quoting ("...", "" untuk kutip) hanya untuk CSV koma; TSV OFF tidak
+     * memakai quoting dan nama produk boleh berisi tanda kutip.
+     * Field CSV multi-baris tidak didukung (tidak ada di export OFF).
+     */
+    private static List<String> split(String line, char delimiter) {
+        List<String> values = new ArrayList<>();
+        if (delimiter == '\t') {
+            int start = 0;
+            int end;
+            while ((end = line.indexOf('\t', start)) >= 0) {
+                values.add(line.substring(start, end));
+                start = end + 1;
+            }
+            values.add(line.substring(start));
+            return values;
+        }
+
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    // ---------- JSONL ----------
+
+    private static int readJsonLines(InputStream in, String countryFilter, Builder builder) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.setLenient(true); // Beberapa dokumen top-level berurutan (satu per baris)
+        int scanned = 0;
+        while (reader.peek() != JsonToken.END_DOCUMENT) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            scanned++;
+            ProductApiResponse.Product product = new ProductApiResponse.Product();
+            String countries = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "code":
+                        product.code = readString(reader);
+                        break;
+                    case "product_name":
+                        product.productName = readString(reader);
+                        break;
+                    case "product_name_en":
+                        product.productNameEn = readString(reader);
+                        break;
+                    case "brands":
+                        product.brands = readString(reader);
+                        break;
+                    case "categories":
+                        product.categories = readString(reader);
+                        break;
+                    case "quantity":
+                        product.quantity = readString(reader);
+                        break;
+                    case "image_url":
+                        product.imageUrl = readString(reader);
+                        break;
+                    case "image_front_url":
+                        product.imageFrontUrl = readString(reader);
+                        break;
+                    case "image_small_url":
+                        product.imageSmallUrl = readString(reader);
+                        break;
+                    case "countries_tags":
+                    case "countries":
+                        String tags = readTags(reader);
+                        countries = countries == null ? tags : countries + "," + tags;
+                        break;
+                    default:
+                        reader.skipValue(); // Nutrisi, gambar, bahan, dll. tidak dibuat objeknya
+                        break;
+                }
+            }
+            reader.endObject();
+
+            if (countryFilter.isEmpty() || containsCountry(countries, countryFilter)) {
+                builder.add(product);
+            }
+        }
+        return scanned;
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    /**
+     * Array string (countries_tags) atau string biasa, digabung dengan koma
+     */
+    private static String readTags(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            return readString(reader);
+        }
+        StringBuilder tags = new StringBuilder();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String tag = readString(reader);
+            if (tag != null) {
+                tags.append(tag).append(',');
+            }
+        }
+        reader.endArray();
+        return tags.toString();
+    }
+
+    /**
+     * Cocokkan ke countries_tags ("en:united-kingdom") maupun nama ("United Kingdom")
+     */
+    private static boolean containsCountry(String countries, String countryFilter) {
+        return countries != null && countries.toLowerCase(Locale.ROOT).replace('-', ' ').contains(countryFilter);
+    }
+
+    private static String normalizeCountry(String country) {
+        if (country == null) {
+            return "";
+        }
+        String normalized = country.trim().toLowerCase(Locale.ROOT);
+        int colon = normalized.indexOf(':');
+        if (colon >= 0) {
+            normalized = normalized.substring(colon + 1); // "en:indonesia" -> "indonesia"
+        }
+        return normalized.replace('-', ' ').trim();
+    }
+
+    // ---------- Penulisan file ----------
+
+    /**
+     * Kumpulkan kode + offset di array primitif; string record ditulis ke file sementara
+     */
+    private static class Builder {
+        private final File stringsFile;
+        private final DataOutputStream strings;
+        private long stringBytes = 0;
+        private long[] codes = new long[4096];
+        private int[] offsets = new int[4096];
+        private int count = 0;
+
+        Builder(File stringsFile) throws IOException {
+            this.stringsFile = stringsFile;
+            this.strings = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(stringsFile), BUFFER_SIZE));
+        }
+
+        void add(ProductApiResponse.Product product) throws IOException {
+            if (product.code == null) {
+                return;
+            }
+            long key = OfflineCatalog.gtinKey(product.code.trim());
+            ProductApiResponse response = new ProductApiResponse();
+            response.status = 1;
+            response.product = product;
+            if (key < 0 || !response.isSuccess()) {
+                return; // Bukan GTIN numerik atau tanpa nama: tidak berguna untuk form produk
+            }
+
+            // Normalisasi field sama dengan hasil API (merek/kategori pertama, prioritas gambar)
+            String[] fields = {
+                    response.getName(), response.getBrand(), response.getQuantity(),
+                    response.getCategory(), response.getImageUrl()
+            };
+            if ((long) OfflineCatalog.HEADER_SIZE + (count + 1) * 12L + stringBytes
+                    + OfflineCatalog.FIELD_COUNT * (2L + MAX_FIELD_CHARS * 3L) > Integer.MAX_VALUE) {
+                throw new IOException("Catalog too large, use a narrower country filter");
+            }
+
+            if (count == codes.length) {
+                codes = Arrays.copyOf(codes, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            codes[count] = key;
+            offsets[count] = (int) stringBytes;
+            count++;
+            for (String field : fields) {
+                writeField(field);
+            }
+        }
+
+        private void writeField(String field) throws IOException {
+            if (field == null) {
+                strings.writeShort(OfflineCatalog.NULL_LENGTH);
+                stringBytes += 2;
+                return;
+            }
+            if (field.length() > MAX_FIELD_CHARS) {
+                int end = MAX_FIELD_CHARS;
+                if (Character.isHighSurrogate(field.charAt(end - 1))) {
+                    end--;
+                }
+                field = field.substring(0, end);
+            }
+            byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+            strings.writeShort(bytes.length);
+            strings.write(bytes);
+            stringBytes += 2 + bytes.length;
+        }
+
+        void closeStrings() throws IOException {
+            strings.close();
+        }
+
+        /**
+         * Urutkan, buang duplikat (simpan kemunculan pertama di dump), lalu tulis file katalog
+         * @return jumlah entri yang ditulis
+         */
+        int writeTo(File output, long builtAt) throws IOException {
+            sort(codes, offsets, 0, count - 1);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique > 0 && codes[unique - 1] == codes[i]) {
+                    offsets[unique - 1] = Math.min(offsets[unique - 1], offsets[i]);
+                    continue;
+                }
+                codes[unique] = codes[i];
+                offsets[unique] = offsets[i];
+                unique++;
+            }
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(output), BUFFER_SIZE))) {
+                out.writeInt(OfflineCatalog.MAGIC);
+                out.writeInt(OfflineCatalog.VERSION);
+                out.writeLong(builtAt);
+                out.writeInt(unique);
+                out.writeInt(0); // Padding
+                for (int i = 0; i < unique; i++) {
+                    out.writeLong(codes[i]);
+                }
+                for (int i = 0; i < unique; i++) {
+                    out.writeInt(offsets[i]);
+                }
+                // Record duplikat yang dibuang tetap ada di blok string, tidak dirujuk
+                copy(stringsFile, out);
+            }
+            return unique;
+        }
+
+        private static void copy(File source, OutputStream out) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = new FileInputStream(source)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+
+        /**
+         * Quicksort kode dengan offset ikut dipindah (tanpa boxing)
+         */
+        private static void sort(long[] codes, int[] offsets, int low, int high) {
+            while (high - low > 16) {
+                long pivot = codes[(low + high) >>> 1];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (codes[i] < pivot) i++;
+                    while (codes[j] > pivot) j--;
+                    if (i <= j) {
+                        swap(codes, offsets, i++, j--);
+                    }
+                }
+                // Rekursi ke bagian kecil, loop di bagian besar supaya stack tetap dangkal
+                if (j - low < high - i) {
+                    sort(codes, offsets, low, j);
+                    low = i;
+                } else {
+                    sort(codes, offsets, i, high);
+                    high = j;
+                }
+            }
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && codes[j - 1] > codes[j]; j--) {
+                    swap(codes, offsets, j - 1, j);
+                }
+            }
+        }
+
+        private static void swap(long[] codes, int[] offsets, int a, int b) {
+            long code = codes[a];
+            codes[a] = codes[b];
+            codes[b] = code;
+            int offset = offsets[a];
+            offsets[a] = offsets[b];
+            offsets[b] = offset;
+        }
+    }
+}
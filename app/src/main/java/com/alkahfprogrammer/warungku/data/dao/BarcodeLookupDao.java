@@ -0,0 +1,22 @@
+package com.alkahfprogrammer.warungku.data.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.alkahfprogrammer.warungku.data.entity.BarcodeLookup;
+
+@Dao
+public interface BarcodeLookupDao {
+    @Query("SELECT * FROM barcode_lookup_cache WHERE barcode = :barcode")
+    BarcodeLookup get(String barcode);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void put(BarcodeLookup lookup);
+
+    // Bersihkan entri kedaluwarsa (found dan not found punya TTL berbeda)
+    @Query("DELETE FROM barcode_lookup_cache WHERE (found = 1 AND fetchedAt < :foundCutoff) " +
+            "OR (found = 0 AND fetchedAt < :notFoundCutoff)")
+    int deleteExpired(long foundCutoff, long notFoundCutoff);
+}
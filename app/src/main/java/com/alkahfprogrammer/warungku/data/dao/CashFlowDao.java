@@ -1,5 +1,7 @@
 package com.alkahfprogrammer.warungku.data.dao;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Insert;
@@ -14,12 +16,33 @@ import java.util.List;
 public interface CashFlowDao {
     @Insert
     void insert(CashFlow cashFlow);
+
+    // Batch untuk impor, dipanggil di dalam transaksi penulis
+    @Insert
+    void insertAll(List<CashFlow> cashFlows);
     
     @Update
     void update(CashFlow cashFlow);
 
-    @Query("SELECT * FROM cash_flow ORDER BY timestamp DESC")
-    LiveData<List<CashFlow>> getAllHistory();
+    @Query("SELECT * FROM cash_flow WHERE id = :id")
+    CashFlow getById(int id);
+
+    // Keyset pagination riwayat: urut (timestamp, id) menurun, memakai index timestamp (id = rowid)
+    @Query("SELECT * FROM cash_flow ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<CashFlow> getHistoryFirstPage(int limit);
+
+    @Query("SELECT * FROM cash_flow WHERE timestamp <= :timestamp AND (timestamp < :timestamp OR id <= :id) " +
+            "ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<CashFlow> getHistoryFrom(long timestamp, int id, int limit);
+
+    @Query("SELECT * FROM cash_flow WHERE timestamp <= :timestamp AND (timestamp < :timestamp OR id < :id) " +
+            "ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<CashFlow> getHistoryOlderThan(long timestamp, int id, int limit);
+
+    // Urut menaik (terdekat dulu), dibalik oleh PagingSource
+    @Query("SELECT * FROM cash_flow WHERE timestamp >= :timestamp AND (timestamp > :timestamp OR id > :id) " +
+            "ORDER BY timestamp ASC, id ASC LIMIT :limit")
+    List<CashFlow> getHistoryNewerThan(long timestamp, int id, int limit);
 
     @Query("SELECT SUM(amount) FROM cash_flow WHERE type = 'IN'")
     LiveData<Double> getTotalIncome();
@@ -54,6 +77,20 @@ public interface CashFlowDao {
     @Query("SELECT * FROM cash_flow WHERE timestamp BETWEEN :start AND :end ORDER BY timestamp ASC")
     LiveData<List<CashFlow>> getCashFlowInRange(long start, long end);
     
+    // Export streaming: keyset menaik pada (timestamp, id) sampai :end (eksklusif), dibaca lewat Cursor
+    @Query("SELECT id, timestamp, type, amount, profit, description, productId FROM cash_flow " +
+            "WHERE timestamp < :end AND (timestamp > :afterTimestamp OR (timestamp = :afterTimestamp AND id > :afterId)) " +
+            "ORDER BY timestamp ASC, id ASC LIMIT :limit")
+    Cursor getExportChunk(long afterTimestamp, int afterId, long end, int limit);
+
+    @Query("SELECT COUNT(*) FROM cash_flow WHERE timestamp >= :start AND timestamp < :end")
+    int countInRange(long start, long end);
+
+    // Deteksi baris yang sudah ada saat impor ulang (memakai index timestamp)
+    @Query("SELECT COUNT(*) FROM cash_flow WHERE timestamp = :timestamp AND type = :type AND amount = :amount " +
+            "AND description IS :description")
+    int countMatching(long timestamp, String type, double amount, String description);
+
     @Query("DELETE FROM cash_flow")
     void deleteAll();
 }
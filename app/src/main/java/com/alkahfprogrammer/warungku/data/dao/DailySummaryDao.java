@@ -0,0 +1,100 @@
+package com.alkahfprogrammer.warungku.data.dao;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.DailySummary;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Dao
+public interface DailySummaryDao {
+    @Query("INSERT OR IGNORE INTO daily_summary (epochDay, income, expense, profit, stockPurchase, transactionCount) " +
+            "VALUES (:epochDay, 0, 0, 0, 0, 0)")
+    void ensureDay(long epochDay);
+
+    @Query("UPDATE daily_summary SET income = income + :income, expense = expense + :expense, profit = profit + :profit, " +
+            "stockPurchase = stockPurchase + :stockPurchase, transactionCount = transactionCount + :count " +
+            "WHERE epochDay = :epochDay")
+    void addToDay(long epochDay, double income, double expense, double profit, double stockPurchase, int count);
+
+    /**
+     * Tambahkan satu baris cash_flow ke rekap harinya. Panggil di transaksi yang sama dengan insert cash_flow.
+     */
+    @Transaction
+    default void record(CashFlow flow) {
+        apply(flow, 1);
+    }
+
+    /**
+     * Batalkan kontribusi satu baris cash_flow (misal sebelum baris tersebut diubah)
+     */
+    @Transaction
+    default void unrecord(CashFlow flow) {
+        apply(flow, -1);
+    }
+
+    default void apply(CashFlow flow, int sign) {
+        long day = DailySummary.toEpochDay(flow.timestamp);
+        double[] totals = new double[DailySummary.TOTALS_LENGTH];
+        DailySummary.accumulate(flow, totals);
+        ensureDay(day);
+        addToDay(day, sign * totals[0], sign * totals[1], sign * totals[2], sign * totals[3], sign);
+    }
+
+    /**
+     * Sama dengan record() untuk banyak baris sekaligus (impor): dijumlahkan per hari dulu,
+     * lalu satu UPDATE per hari, bukan per baris
+     */
+    @Transaction
+    default void recordAll(List<CashFlow> flows) {
+        Map<Long, double[]> days = new HashMap<>();
+        for (CashFlow flow : flows) {
+            DailySummary.accumulate(flow, days.computeIfAbsent(DailySummary.toEpochDay(flow.timestamp),
+                    day -> new double[DailySummary.TOTALS_LENGTH]));
+        }
+        for (Map.Entry<Long, double[]> entry : days.entrySet()) {
+            double[] totals = entry.getValue();
+            ensureDay(entry.getKey());
+            addToDay(entry.getKey(), totals[0], totals[1], totals[2], totals[3], (int) totals[4]);
+        }
+    }
+
+    @Query("SELECT * FROM daily_summary WHERE epochDay BETWEEN :startDay AND :endDay ORDER BY epochDay ASC")
+    LiveData<List<DailySummary>> getSummariesInRange(long startDay, long endDay);
+
+    @Query("SELECT * FROM daily_summary WHERE epochDay BETWEEN :startDay AND :endDay ORDER BY epochDay ASC")
+    List<DailySummary> getSummariesInRangeSync(long startDay, long endDay);
+
+    @Query("SELECT SUM(income) FROM daily_summary WHERE epochDay BETWEEN :startDay AND :endDay")
+    LiveData<Double> getIncomeInRange(long startDay, long endDay);
+
+    @Query("SELECT SUM(expense) FROM daily_summary WHERE epochDay BETWEEN :startDay AND :endDay")
+    LiveData<Double> getExpenseInRange(long startDay, long endDay);
+
+    @Query("SELECT SUM(profit) FROM daily_summary WHERE epochDay BETWEEN :startDay AND :endDay")
+    LiveData<Double> getProfitInRange(long startDay, long endDay);
+
+    @Query("SELECT SUM(stockPurchase) FROM daily_summary WHERE epochDay BETWEEN :startDay AND :endDay")
+    LiveData<Double> getStockPurchaseInRange(long startDay, long endDay);
+
+    @Query("SELECT SUM(income) FROM daily_summary")
+    LiveData<Double> getTotalIncome();
+
+    @Query("SELECT SUM(expense) FROM daily_summary")
+    LiveData<Double> getTotalExpense();
+
+    @Query("SELECT SUM(stockPurchase) FROM daily_summary")
+    LiveData<Double> getTotalStockPurchase();
+
+    @Query("SELECT SUM(income - expense) FROM daily_summary")
+    LiveData<Double> getCurrentBalance();
+
+    @Query("DELETE FROM daily_summary")
+    void deleteAll();
+}
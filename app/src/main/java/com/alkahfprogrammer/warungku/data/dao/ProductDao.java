@@ -1,10 +1,13 @@
 package com.alkahfprogrammer.warungku.data.dao;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import com.alkahfprogrammer.warungku.data.entity.Product;
@@ -19,32 +22,111 @@ public interface ProductDao {
     @Update
     void update(Product product);
 
+    // Batch untuk impor (ProductUpsertEngine), dipanggil di dalam transaksi penulis
+    @Insert
+    long[] insertAll(List<Product> products);
+
+    @Update
+    int updateAll(List<Product> products);
+
     @Delete
     void delete(Product product);
 
+    // Update stok relatif di SQL (bukan menulis ulang seluruh baris dari objek yang mungkin sudah basi),
+    // supaya penjualan yang berjalan bersamaan tidak saling menimpa
+    @Query("UPDATE products SET currentStock = currentStock - :quantity, salesCount = salesCount + :quantity, " +
+            "lastSoldTimestamp = :timestamp WHERE id = :id")
+    int applySale(int id, int quantity, long timestamp);
+
+    @Query("UPDATE products SET currentStock = currentStock + :quantity, buyPrice = :buyPrice WHERE id = :id")
+    int applyRestock(int id, int quantity, double buyPrice);
+
+    // Selisih dari gabung backup (MergeRestorer): relatif seperti applySale, lastSoldTimestamp tidak mundur
+    @Query("UPDATE products SET currentStock = currentStock + :stockDelta, salesCount = salesCount + :sold, " +
+            "lastSoldTimestamp = MAX(lastSoldTimestamp, :lastSold) WHERE id = :id")
+    int applyMergeDelta(int id, int stockDelta, int sold, long lastSold);
+
+    @Query("UPDATE products SET isFavorite = :isFavorite WHERE id = :id")
+    void setFavorite(int id, boolean isFavorite);
+
+    @Query("SELECT currentStock FROM products WHERE id = :id")
+    int getCurrentStock(int id);
+
+    /**
+     * Kurangi stok & tambah salesCount secara atomik
+     * @return stok setelah update
+     */
+    @Transaction
+    default int decrementStock(int id, int quantity, long timestamp) {
+        applySale(id, quantity, timestamp);
+        return getCurrentStock(id);
+    }
+
+    /**
+     * Tambah stok secara atomik
+     * @return stok setelah update
+     */
+    @Transaction
+    default int incrementStock(int id, int quantity, double buyPrice) {
+        applyRestock(id, quantity, buyPrice);
+        return getCurrentStock(id);
+    }
+
     @Query("SELECT * FROM products ORDER BY name ASC")
     LiveData<List<Product>> getAllProducts();
     
     @Query("SELECT * FROM products ORDER BY name ASC")
     List<Product> getAllProductsSync();
 
+    // Urutan diambil dengan menelusuri index salesCount dari belakang (tanpa temp B-tree untuk ORDER BY),
+    // filter stok dicek per baris. Dijaga oleh QueryPlanTest.
     @Query("SELECT * FROM products WHERE currentStock <= minStock ORDER BY salesCount DESC")
     LiveData<List<Product>> getShoppingList();
 
+    @Query("SELECT * FROM products WHERE currentStock <= minStock OR currentStock <= 0")
+    List<Product> getLowStockProductsSync();
+
     @Query("SELECT * FROM products WHERE id = :id")
     Product getProductById(int id);
 
     @Query("SELECT * FROM products WHERE barcode = :barcode LIMIT 1")
     Product getProductByBarcode(String barcode);
 
+    // Kandidat pelengkapan data online: punya barcode tapi gambar/nama kosong, urut id supaya bisa dilanjutkan
+    @Query("SELECT * FROM products WHERE barcode IS NOT NULL AND barcode != '' " +
+            "AND (imageUrl IS NULL OR name IS NULL OR TRIM(name) = '') AND id > :afterId ORDER BY id LIMIT :limit")
+    List<Product> getProductsToEnrich(int afterId, int limit);
+
+    // Hanya isi field yang masih kosong, supaya editan pengguna selama lookup tidak tertimpa
+    @Query("UPDATE products SET imageUrl = COALESCE(imageUrl, :imageUrl), " +
+            "name = CASE WHEN name IS NULL OR TRIM(name) = '' THEN COALESCE(:name, name) ELSE name END " +
+            "WHERE id = :id")
+    int fillMissingDetails(int id, String name, String imageUrl);
+
+    // Ganti gambar hanya jika belum diubah pengguna sejak disalin (ProductImageStore)
+    @Query("UPDATE products SET imageUrl = :newUrl WHERE id = :id AND imageUrl = :oldUrl")
+    int replaceImageUrl(int id, String oldUrl, String newUrl);
+
     // Query untuk laporan: Produk terlaris (top 10 berdasarkan salesCount)
     @Query("SELECT * FROM products WHERE salesCount > 0 ORDER BY salesCount DESC LIMIT :limit")
     LiveData<List<Product>> getTopSellingProducts(int limit);
 
-    // Query untuk laporan: Produk tidak laku (belum pernah dijual)
-    @Query("SELECT * FROM products WHERE salesCount = 0 OR salesCount IS NULL ORDER BY name ASC")
-    LiveData<List<Product>> getUnsoldProducts();
+    // Query untuk laporan: Produk tidak laku (tidak terjual dalam periode, dari sale_item seperti produk terlaris)
+    @Query("SELECT * FROM products WHERE id NOT IN " +
+            "(SELECT productId FROM sale_item WHERE timestamp BETWEEN :start AND :end) ORDER BY name ASC")
+    LiveData<List<Product>> getUnsoldProducts(long start, long end);
     
+    // Export streaming: keyset per id, kolom dibaca langsung dari Cursor tanpa membuat objek Product
+    @Query("SELECT id, name, buyPrice, sellPrice, currentStock, minStock, barcode FROM products " +
+            "WHERE id > :afterId ORDER BY id LIMIT :limit")
+    Cursor getExportChunk(int afterId, int limit);
+
+    @Query("SELECT id FROM products")
+    List<Integer> getAllIds();
+
+    @Query("SELECT COUNT(*) FROM products")
+    int getProductCount();
+
     @Query("DELETE FROM products")
     void deleteAll();
 }
@@ -0,0 +1,67 @@
+package com.alkahfprogrammer.warungku.data.dao;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.entity.Sale;
+import com.alkahfprogrammer.warungku.data.entity.SaleItem;
+import com.alkahfprogrammer.warungku.data.model.ProductSalesTotal;
+
+import java.util.List;
+
+@Dao
+public interface SaleDao {
+    @Insert
+    long insertCashFlow(CashFlow cashFlow);
+
+    @Insert
+    long insertSale(Sale sale);
+
+    @Insert
+    void insertItems(List<SaleItem> items);
+
+    /**
+     * Simpan cash flow, sale dan semua sale_item dalam satu transaksi
+     * @return id sale yang baru
+     */
+    @Transaction
+    default long insertSaleWithItems(CashFlow cashFlow, Sale sale, List<SaleItem> items) {
+        sale.cashFlowId = insertCashFlow(cashFlow);
+        long saleId = insertSale(sale);
+        for (SaleItem item : items) {
+            item.saleId = saleId;
+        }
+        insertItems(items);
+        return saleId;
+    }
+
+    @Query("SELECT * FROM sale_item WHERE saleId = :saleId")
+    List<SaleItem> getItemsForSale(long saleId);
+
+    @Query("SELECT * FROM sale WHERE cashFlowId = :cashFlowId LIMIT 1")
+    Sale getSaleByCashFlowId(long cashFlowId);
+
+    @Query("SELECT IFNULL(SUM(quantity), 0) FROM sale_item WHERE productId = :productId AND timestamp BETWEEN :start AND :end")
+    LiveData<Integer> getQuantitySoldInRange(int productId, long start, long end);
+
+    @Query("SELECT IFNULL(SUM(quantity * unitSellPrice), 0) FROM sale_item WHERE productId = :productId AND timestamp BETWEEN :start AND :end")
+    LiveData<Double> getRevenueInRange(int productId, long start, long end);
+
+    @Query("SELECT productId, productName, SUM(quantity) AS quantity, SUM(quantity * unitSellPrice) AS revenue, SUM(lineProfit) AS profit " +
+            "FROM sale_item WHERE timestamp BETWEEN :start AND :end GROUP BY productId ORDER BY quantity DESC")
+    LiveData<List<ProductSalesTotal>> getProductSalesInRange(long start, long end);
+
+    // Query untuk laporan: Produk terlaris dalam periode. salesCount diisi jumlah terjual di periode tsb
+    // supaya ProductReportAdapter bisa dipakai apa adanya.
+    @Query("SELECT p.id, p.name, p.sellPrice, p.buyPrice, p.currentStock, p.minStock, t.quantity AS salesCount, " +
+            "p.isFavorite, p.lastSoldTimestamp, p.barcode, p.imageUrl " +
+            "FROM (SELECT productId, SUM(quantity) AS quantity FROM sale_item " +
+            "WHERE timestamp BETWEEN :start AND :end GROUP BY productId) t " +
+            "JOIN products p ON p.id = t.productId ORDER BY t.quantity DESC LIMIT :limit")
+    LiveData<List<Product>> getTopSellingProductsInRange(long start, long end, int limit);
+}
@@ -0,0 +1,74 @@
+package com.alkahfprogrammer.warungku.data.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.alkahfprogrammer.warungku.api.ProductApiResponse;
+
+/**
+ * Hasil lookup barcode ke database eksternal (Open Food Facts) yang di-cache lokal.
+ * found = false berarti barcode sudah pernah dicari dan tidak ada (negative cache).
+ */
+@Entity(tableName = "barcode_lookup_cache")
+public class BarcodeLookup {
+    @PrimaryKey
+    @NonNull
+    public String barcode;
+
+    public boolean found;
+    public String name;
+    public String brand;
+    public String quantity;
+    public String category;
+    public String imageUrl;
+    public long fetchedAt; // Waktu diambil dari API (ms)
+
+    public BarcodeLookup(@NonNull String barcode, boolean found, String name, String brand,
+                         String quantity, String category, String imageUrl, long fetchedAt) {
+        this.barcode = barcode;
+        this.found = found;
+        this.name = name;
+        this.brand = brand;
+        this.quantity = quantity;
+        this.category = category;
+        this.imageUrl = imageUrl;
+        this.fetchedAt = fetchedAt;
+    }
+
+    public static BarcodeLookup fromResponse(@NonNull String barcode, ProductApiResponse response, long fetchedAt) {
+        if (response == null || !response.isSuccess()) {
+            return notFound(barcode, fetchedAt);
+        }
+        return new BarcodeLookup(barcode, true, response.getName(), response.getBrand(),
+                response.getQuantity(), response.getCategory(), response.getImageUrl(), fetchedAt);
+    }
+
+    public static BarcodeLookup notFound(@NonNull String barcode, long fetchedAt) {
+        return new BarcodeLookup(barcode, false, null, null, null, null, null, fetchedAt);
+    }
+
+    public boolean isSuccess() {
+        return found && name != null && !name.isEmpty();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public String getQuantity() {
+        return quantity;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+}
@@ -1,9 +1,15 @@
 package com.alkahfprogrammer.warungku.data.entity;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "cash_flow")
+// Index (type, timestamp) untuk query ringkasan per periode, (timestamp) untuk riwayat & grafik
+@Entity(tableName = "cash_flow",
+        indices = {
+                @Index(value = { "type", "timestamp" }),
+                @Index(value = { "timestamp" })
+        })
 public class CashFlow {
     @PrimaryKey(autoGenerate = true)
     public int id;
@@ -0,0 +1,59 @@
+package com.alkahfprogrammer.warungku.data.entity;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Rekap harian cash_flow, diperbarui di transaksi yang sama dengan penulisan cash_flow
+ * sehingga ringkasan per periode cukup menjumlahkan beberapa baris per hari.
+ */
+@Entity(tableName = "daily_summary")
+public class DailySummary {
+    @PrimaryKey
+    public long epochDay; // Hari lokal sejak 1970-01-01
+
+    public double income;
+    public double expense;
+    public double profit;
+    public double stockPurchase;
+    public int transactionCount;
+
+    public DailySummary(long epochDay, double income, double expense, double profit, double stockPurchase, int transactionCount) {
+        this.epochDay = epochDay;
+        this.income = income;
+        this.expense = expense;
+        this.profit = profit;
+        this.stockPurchase = stockPurchase;
+        this.transactionCount = transactionCount;
+    }
+
+    // Urutan isi array totals untuk accumulate(): income, expense, profit, stockPurchase, transactionCount
+    public static final int TOTALS_LENGTH = 5;
+
+    /**
+     * Tambahkan kontribusi satu baris cash_flow ke totals
+     */
+    public static void accumulate(CashFlow flow, double[] totals) {
+        if ("IN".equals(flow.type)) {
+            totals[0] += flow.amount;
+            totals[2] += flow.profit != null ? flow.profit : 0.0;
+        } else {
+            totals[1] += flow.amount;
+            // Sama dengan definisi CashFlowDao.getTotalStockPurchase
+            if (flow.productId != null || (flow.description != null && flow.description.startsWith("Tambah Stok:"))) {
+                totals[3] += flow.amount;
+            }
+        }
+        totals[4]++;
+    }
+
+    /**
+     * Konversi timestamp (ms) ke epoch day menurut zona waktu perangkat
+     */
+    public static long toEpochDay(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+}
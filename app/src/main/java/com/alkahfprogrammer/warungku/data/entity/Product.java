@@ -1,9 +1,15 @@
 package com.alkahfprogrammer.warungku.data.entity;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "products")
+// Barcode unik (NULL boleh lebih dari satu), salesCount untuk urutan terlaris & daftar belanja
+@Entity(tableName = "products",
+        indices = {
+                @Index(value = { "barcode" }, unique = true),
+                @Index(value = { "salesCount" })
+        })
 public class Product {
     @PrimaryKey(autoGenerate = true)
     public int id;
@@ -31,4 +37,18 @@ public class Product {
         this.barcode = null;
         this.imageUrl = null;
     }
+
+    /**
+     * Salinan untuk diubah tanpa menyentuh instance yang sedang dipegang adapter / LiveData
+     */
+    public Product copy() {
+        Product copy = new Product(name, sellPrice, buyPrice, currentStock, minStock);
+        copy.id = id;
+        copy.salesCount = salesCount;
+        copy.isFavorite = isFavorite;
+        copy.lastSoldTimestamp = lastSoldTimestamp;
+        copy.barcode = barcode;
+        copy.imageUrl = imageUrl;
+        return copy;
+    }
 }
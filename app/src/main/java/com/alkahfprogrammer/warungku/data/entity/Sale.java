@@ -0,0 +1,32 @@
+package com.alkahfprogrammer.warungku.data.entity;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Satu transaksi penjualan (keranjang). Baris cash_flow "IN"-nya disimpan di cashFlowId,
+ * rincian per produk ada di sale_item.
+ */
+@Entity(tableName = "sale",
+        indices = {
+                @Index(value = { "timestamp" }),
+                @Index(value = { "cashFlowId" })
+        })
+public class Sale {
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    public long cashFlowId;
+    public long timestamp;
+    public double totalAmount;
+    public double totalProfit;
+    public int itemCount; // Total unit terjual
+
+    public Sale(long timestamp, double totalAmount, double totalProfit, int itemCount) {
+        this.timestamp = timestamp;
+        this.totalAmount = totalAmount;
+        this.totalProfit = totalProfit;
+        this.itemCount = itemCount;
+    }
+}
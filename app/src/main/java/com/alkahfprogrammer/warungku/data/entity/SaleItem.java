@@ -0,0 +1,43 @@
+package com.alkahfprogrammer.warungku.data.entity;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Rincian satu produk dalam sebuah Sale. Harga disimpan saat transaksi (bukan dibaca ulang dari products),
+ * timestamp diduplikasi dari Sale supaya laporan per produk per periode cukup memakai index.
+ */
+@Entity(tableName = "sale_item",
+        indices = {
+                @Index(value = { "saleId" }),
+                @Index(value = { "productId", "timestamp" }),
+                @Index(value = { "timestamp" })
+        })
+public class SaleItem {
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    public long saleId;
+    public int productId;
+    public String productName; // Nama saat transaksi, tetap ada walau produk dihapus
+    public int quantity;
+    public double unitSellPrice;
+    public Double unitBuyPrice; // Nullable, sama seperti Product.buyPrice
+    public double lineProfit;
+    public long timestamp;
+
+    public SaleItem(int productId, String productName, int quantity, double unitSellPrice, Double unitBuyPrice, long timestamp) {
+        this.productId = productId;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.unitSellPrice = unitSellPrice;
+        this.unitBuyPrice = unitBuyPrice;
+        this.lineProfit = unitBuyPrice != null ? (unitSellPrice - unitBuyPrice) * quantity : 0.0;
+        this.timestamp = timestamp;
+    }
+
+    public double getRevenue() {
+        return unitSellPrice * quantity;
+    }
+}
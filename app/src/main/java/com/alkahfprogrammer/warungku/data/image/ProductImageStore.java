@@ -0,0 +1,337 @@
+package com.alkahfprogrammer.warungku.data.image;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.DatabaseWriter;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.utils.NetworkUtils;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.request.FutureTarget;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Penyimpanan gambar produk di app storage.
+ *
+ * - Thumbnail: WebP persegi THUMBNAIL_SIZE_PX, nama file "<productId>_<hash imageUrl>.webp".
+ *   Dibuat di background dari imageUrl (URL OFF, file lokal, atau content://) dengan decode yang
+ *   sudah di-downsample, jadi daftar produk tidak pernah men-decode foto ukuran penuh.
+ * - Gambar dari galeri: disalin (maks PICKED_IMAGE_MAX_PX) ke folder sendiri saat dipilih,
+ *   supaya imageUrl tidak bergantung pada izin content:// yang bisa dicabut. Produk lama yang
+ *   masih menyimpan content:// disalin saat sync, lalu imageUrl-nya diganti ke file lokal.
+ * - Gambar remote hanya diunduh lewat Wi-Fi, sama seperti ProductEnrichmentWorker.
+ *
+ * Decode berjalan satu per satu per executor untuk membatasi memori: satu untuk thumbnail (satu task
+ * per produk, jadi task basi bisa dilewati), satu lagi untuk gambar yang baru dipilih, supaya tombol
+ * Simpan tidak menunggu antrean thumbnail seluruh katalog. Setiap thumbnail baru diumumkan ke
+ * OnThumbnailReadyListener di main thread, supaya daftar bisa bind ulang barisnya.
+ */
+public class ProductImageStore {
+    private static final String TAG = "ProductImageStore";
+    public static final int THUMBNAIL_SIZE_PX = 192; // 48dp pada xxxhdpi
+    private static final int PICKED_IMAGE_MAX_PX = 512;
+    private static final int WEBP_QUALITY = 80;
+    private static final String THUMBNAIL_DIR = "thumbnails";
+    private static final String PICKED_DIR = "product_images";
+    private static final String EXTENSION = ".webp";
+    private static final long ORPHAN_PICK_AGE_MS = TimeUnit.DAYS.toMillis(1); // Gambar dipilih tapi produk tidak disimpan
+
+    private static volatile ProductImageStore INSTANCE;
+
+    public interface OnThumbnailReadyListener {
+        void onThumbnailReady(int productId);
+    }
+
+    private final Context context;
+    private final File thumbnailDir;
+    private final File pickedDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ExecutorService pickExecutor = Executors.newSingleThreadExecutor();
+    // productId -> imageUrl menurut sync terakhir; task per produk yang imageUrl-nya sudah berganti dilewati
+    private final Map<Integer, String> wanted = new ConcurrentHashMap<>();
+    // Task per produk yang masih di antrean ("<productId> <imageUrl>"), supaya emisi berikutnya tidak menggandakannya
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    // productId -> nama file thumbnail yang ada di disk (dibaca UI thread, ditulis executor)
+    private final Map<Integer, String> thumbnails = new ConcurrentHashMap<>();
+    // Nama file thumbnail yang gagal dibuat di sesi ini (misal izin content:// sudah hilang), tidak dicoba ulang
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+    // URI content:// yang gagal disalin di sesi ini (izin sudah hilang), tidak dicoba ulang
+    private final Set<String> failedImports = ConcurrentHashMap.newKeySet();
+    private final Set<OnThumbnailReadyListener> listeners = new CopyOnWriteArraySet<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ProductImageStore(Context context) {
+        this.context = context.getApplicationContext();
+        this.thumbnailDir = new File(this.context.getFilesDir(), THUMBNAIL_DIR);
+        this.pickedDir = new File(this.context.getFilesDir(), PICKED_DIR);
+        executor.execute(this::scan);
+    }
+
+    public static ProductImageStore getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ProductImageStore.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ProductImageStore(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @return file thumbnail untuk imageUrl produk saat ini, atau null jika belum dibuat
+     */
+    public File getThumbnail(Product product) {
+        if (product.imageUrl == null || product.imageUrl.isEmpty()) {
+            return null;
+        }
+        String name = thumbnails.get(product.id);
+        if (name == null || !name.equals(thumbnailName(product.id, product.imageUrl))) {
+            return null; // Belum dibuat, atau imageUrl sudah berganti
+        }
+        return new File(thumbnailDir, name);
+    }
+
+    public void addOnThumbnailReadyListener(OnThumbnailReadyListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeOnThumbnailReadyListener(OnThumbnailReadyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sinkronkan dengan daftar produk terbaru: buat thumbnail yang belum ada / sudah basi,
+     * hapus thumbnail produk yang sudah dihapus. Dipanggil dari DataRepository.
+     * Yang murah (hapus file) langsung dikerjakan; decode dijadwalkan sebagai task per produk.
+     */
+    public void sync(List<Product> products) {
+        executor.execute(() -> {
+            Set<Integer> ids = new HashSet<>(products.size() * 2);
+            Set<String> referencedPicks = new HashSet<>();
+            for (Product product : products) {
+                ids.add(product.id);
+                if (product.imageUrl == null || product.imageUrl.isEmpty()) {
+                    wanted.remove(product.id);
+                    removeThumbnail(product.id);
+                    continue;
+                }
+                wanted.put(product.id, product.imageUrl);
+                if (product.imageUrl.startsWith("file:")) {
+                    referencedPicks.add(Uri.parse(product.imageUrl).getLastPathSegment());
+                } else if (product.imageUrl.startsWith("content:") && !failedImports.contains(product.imageUrl)) {
+                    // Thumbnail dibuat dari salinan lokal di emisi berikutnya
+                    schedule(product.id, product.imageUrl, () -> importLegacyPick(product.id, product.imageUrl));
+                    continue;
+                }
+                String name = thumbnailName(product.id, product.imageUrl);
+                if (!name.equals(thumbnails.get(product.id)) && !failed.contains(name)) {
+                    schedule(product.id, product.imageUrl, () -> createThumbnail(product.id, product.imageUrl, name));
+                }
+            }
+            for (Integer id : new HashSet<>(thumbnails.keySet())) {
+                if (!ids.contains(id)) {
+                    removeThumbnail(id);
+                }
+            }
+            wanted.keySet().retainAll(ids);
+            deleteOrphanPicks(referencedPicks);
+        });
+    }
+
+    /**
+     * Antrekan pekerjaan decode satu produk; dilewati jika imageUrl produk sudah berganti atau
+     * produknya terhapus sebelum giliran task ini tiba
+     */
+    private void schedule(int productId, String imageUrl, Runnable work) {
+        String key = productId + " " + imageUrl;
+        if (!queued.add(key)) {
+            return; // Sudah di antrean dari emisi sebelumnya
+        }
+        executor.execute(() -> {
+            queued.remove(key);
+            if (imageUrl.equals(wanted.get(productId))) {
+                work.run();
+            }
+        });
+    }
+
+    /**
+     * Salin gambar dari galeri ke app storage (sudah diperkecil).
+     * @return future berisi URI file lokal untuk disimpan sebagai imageUrl
+     */
+    public CompletableFuture<String> importPicked(Uri source) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        pickExecutor.execute(() -> {
+            try {
+                result.complete(copyPicked(source));
+            } catch (Exception e) {
+                Log.e(TAG, "Error importing picked image", e);
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Salin gambar galeri ke app storage (diperkecil), dipanggil dari pickExecutor atau executor
+     * @return URI file lokal
+     */
+    private String copyPicked(Uri source) throws Exception {
+        File target = new File(pickedDir, UUID.randomUUID() + EXTENSION);
+        FutureTarget<Bitmap> decode = Glide.with(context)
+                .asBitmap()
+                .load(source)
+                .downsample(DownsampleStrategy.CENTER_INSIDE) // Perkecil saja, tidak pernah diperbesar
+                .diskCacheStrategy(DiskCacheStrategy.NONE)
+                .skipMemoryCache(true)
+                .submit(PICKED_IMAGE_MAX_PX, PICKED_IMAGE_MAX_PX);
+        try {
+            writeWebp(decode.get(), target);
+            return Uri.fromFile(target).toString();
+        } finally {
+            Glide.with(context).clear(decode);
+        }
+    }
+
+    /**
+     * imageUrl content:// dari versi lama (disimpan langsung dari galeri): salin selagi izinnya
+     * masih ada, lalu ganti imageUrl produk ke file lokal. Jika produk sudah diedit sementara itu,
+     * salinan tidak dirujuk dan dibersihkan oleh deleteOrphanPicks.
+     */
+    private void importLegacyPick(int productId, String imageUrl) {
+        String localUrl;
+        try {
+            localUrl = copyPicked(Uri.parse(imageUrl));
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot copy legacy image for product " + productId, e);
+            failedImports.add(imageUrl);
+            return;
+        }
+        AppDatabase db = AppDatabase.getDatabase(context);
+        DatabaseWriter.getInstance(db).submit(() -> db.productDao().replaceImageUrl(productId, imageUrl, localUrl));
+    }
+
+    private void scan() {
+        File[] files = thumbnailDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            int separator = name.indexOf('_');
+            if (!name.endsWith(EXTENSION) || separator <= 0) {
+                file.delete(); // Sisa file sementara
+                continue;
+            }
+            try {
+                thumbnails.put(Integer.parseInt(name.substring(0, separator)), name);
+            } catch (NumberFormatException e) {
+                file.delete();
+            }
+        }
+    }
+
+    private void createThumbnail(int productId, String imageUrl, String name) {
+        boolean remote = imageUrl.startsWith("http");
+        if (remote && !NetworkUtils.isWifiConnected(context)) {
+            return; // Jangan habiskan kuota data seluler; coba lagi di sync berikutnya
+        }
+        FutureTarget<Bitmap> decode = Glide.with(context)
+                .asBitmap()
+                .load(imageUrl)
+                .centerCrop() // Downsample saat decode, lalu crop persegi
+                .diskCacheStrategy(DiskCacheStrategy.NONE) // Sumber besar tidak perlu ikut di-cache
+                .skipMemoryCache(true)
+                .submit(THUMBNAIL_SIZE_PX, THUMBNAIL_SIZE_PX);
+        try {
+            writeWebp(decode.get(), new File(thumbnailDir, name));
+            String previous = thumbnails.put(productId, name);
+            if (previous != null && !previous.equals(name)) {
+                new File(thumbnailDir, previous).delete();
+            }
+            mainHandler.post(() -> {
+                for (OnThumbnailReadyListener listener : listeners) {
+                    listener.onThumbnailReady(productId);
+                }
+            });
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot create thumbnail for product " + productId, e);
+            failed.add(name);
+        } finally {
+            Glide.with(context).clear(decode);
+        }
+    }
+
+    private void removeThumbnail(int productId) {
+        String name = thumbnails.remove(productId);
+        if (name != null) {
+            new File(thumbnailDir, name).delete();
+        }
+    }
+
+    private void deleteOrphanPicks(Set<String> referencedPicks) {
+        File[] files = pickedDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - ORPHAN_PICK_AGE_MS;
+        for (File file : files) {
+            if (!referencedPicks.contains(file.getName()) && file.lastModified() < cutoff) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Tulis ke file sementara lalu rename, supaya pembaca tidak pernah melihat file setengah jadi
+     */
+    private static void writeWebp(Bitmap bitmap, File target) throws IOException {
+        File dir = target.getParentFile();
+        if (dir != null && !dir.mkdirs() && !dir.isDirectory()) { // Bisa dibuat bersamaan oleh executor lain
+            throw new IOException("Cannot create " + dir);
+        }
+        File temp = new File(target.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            if (!bitmap.compress(webpFormat(), WEBP_QUALITY, out)) {
+                throw new IOException("WebP encoding failed");
+            }
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Cannot write " + target);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webpFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+
+    private static String thumbnailName(int productId, String imageUrl) {
+        return productId + "_" + Integer.toHexString(imageUrl.hashCode()) + EXTENSION;
+    }
+}
@@ -0,0 +1,91 @@
+package com.alkahfprogrammer.warungku.data.importer;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.dao.CashFlowDao;
+import com.alkahfprogrammer.warungku.data.dao.DailySummaryDao;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Impor riwayat cash_flow (hanya menambah baris).
+ *
+ * Baris yang sudah ada di database atau muncul dua kali di file (waktu, jenis, jumlah dan keterangan
+ * sama) dilewati, jadi file export yang sama aman diimpor ulang. Alurnya sama dengan
+ * ProductUpsertEngine: stage() di thread impor, apply() di thread penulis dalam satu transaksi.
+ */
+public class CashFlowImportEngine {
+    private static final int CHUNK_SIZE = 500;
+
+    private final List<CashFlow> staged = new ArrayList<>();
+    private final List<String> stageErrors = new ArrayList<>();
+    private int stageSkipped;
+    private int stageFailed;
+
+    public void stage(CashFlow flow) {
+        staged.add(flow);
+    }
+
+    public void skip(int rowNumber, String reason) {
+        stageSkipped++;
+        if (reason != null) {
+            stageErrors.add("Baris " + rowNumber + ": " + reason);
+        }
+    }
+
+    public void fail(int rowNumber, String reason) {
+        stageFailed++;
+        stageErrors.add("Baris " + rowNumber + ": " + reason);
+    }
+
+    public int getStagedCount() {
+        return staged.size();
+    }
+
+    /**
+     * Tulis semua baris yang sudah di-stage beserta rekap hariannya. Harus dipanggil di dalam transaksi
+     * (perintah DatabaseWriter); aman dijalankan ulang setelah rollback.
+     */
+    public ImportSummary apply(AppDatabase db) {
+        CashFlowDao cashFlowDao = db.cashFlowDao();
+        DailySummaryDao dailySummaryDao = db.dailySummaryDao();
+
+        ImportSummary summary = new ImportSummary();
+        summary.skipped = stageSkipped;
+        summary.failed = stageFailed;
+        summary.errors.addAll(stageErrors);
+
+        // ID produk dari perangkat/versi lain belum tentu ada di sini
+        Set<Integer> productIds = new HashSet<>(db.productDao().getAllIds());
+        Set<String> seen = new HashSet<>(staged.size() * 2);
+        List<CashFlow> batch = new ArrayList<>(CHUNK_SIZE);
+
+        for (int start = 0; start < staged.size(); start += CHUNK_SIZE) {
+            int end = Math.min(staged.size(), start + CHUNK_SIZE);
+            for (int i = start; i < end; i++) {
+                CashFlow flow = staged.get(i);
+                String key = flow.timestamp + "|" + flow.type + "|" + flow.amount + "|" + flow.description;
+                if (!seen.add(key)
+                        || cashFlowDao.countMatching(flow.timestamp, flow.type, flow.amount, flow.description) > 0) {
+                    summary.skipped++;
+                    continue;
+                }
+                flow.id = 0;
+                if (flow.productId != null && !productIds.contains(flow.productId)) {
+                    flow.productId = null;
+                }
+                batch.add(flow);
+            }
+            if (!batch.isEmpty()) {
+                cashFlowDao.insertAll(batch);
+                dailySummaryDao.recordAll(batch);
+                summary.inserted += batch.size();
+                batch.clear();
+            }
+        }
+        return summary;
+    }
+}
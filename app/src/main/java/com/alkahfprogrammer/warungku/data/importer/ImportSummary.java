@@ -0,0 +1,21 @@
+package com.alkahfprogrammer.warungku.data.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ringkasan impor: setiap baris data masuk tepat satu hitungan
+ */
+public class ImportSummary {
+    public int inserted;
+    public int updated;
+    public int skipped; // Duplikat, baris kosong, atau data sama persis dengan yang tersimpan
+    public int failed;
+    public final List<String> errors = new ArrayList<>();
+    // Ada produk tersimpan dengan barcode tapi tanpa gambar, kandidat ProductEnrichmentWorker
+    public boolean needsEnrichment;
+
+    public int getWrittenCount() {
+        return inserted + updated;
+    }
+}
@@ -0,0 +1,271 @@
+package com.alkahfprogrammer.warungku.data.importer;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.dao.CashFlowDao;
+import com.alkahfprogrammer.warungku.data.dao.DailySummaryDao;
+import com.alkahfprogrammer.warungku.data.dao.ProductDao;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.model.StockEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Upsert hasil impor produk.
+ *
+ * Tahap 1 (thread impor): parser memanggil stage() untuk setiap baris valid dan fail()/skip() untuk
+ * baris yang ditolak. Duplikat di dalam file (nama ternormalisasi atau barcode sama) langsung ditolak
+ * di sini; baris pertama yang menang.
+ *
+ * Tahap 2 (thread penulis, lewat DataRepository.importProducts): apply() membaca produk yang ada sekali,
+ * meng-index-nya ke hash map nama & barcode, mencocokkan setiap baris dalam O(1), lalu menulis
+ * insert/update per chunk beserta cash flow "Tambah Stok" di transaksi yang sama.
+ */
+public class ProductUpsertEngine {
+    private static final int CHUNK_SIZE = 500;
+
+    private static class StagedRow {
+        final int rowNumber;
+        final Product product;
+
+        StagedRow(int rowNumber, Product product) {
+            this.rowNumber = rowNumber;
+            this.product = product;
+        }
+    }
+
+    private final List<StagedRow> staged = new ArrayList<>();
+    // Kunci -> nomor baris pertama yang memakainya, untuk deteksi duplikat di dalam file
+    private final Map<String, Integer> rowByName = new HashMap<>();
+    private final Map<String, Integer> rowByBarcode = new HashMap<>();
+    private final List<String> stageErrors = new ArrayList<>();
+    private int stageSkipped;
+    private int stageFailed;
+
+    /**
+     * Daftarkan satu baris valid.
+     * @return false jika baris dilewati karena duplikat baris sebelumnya di file yang sama
+     */
+    public boolean stage(int rowNumber, Product product) {
+        String nameKey = normalizeName(product.name);
+        String barcode = normalizeBarcode(product.barcode);
+        Integer previous = rowByName.get(nameKey);
+        if (previous != null) {
+            skip(rowNumber, "nama \"" + product.name + "\" sama dengan baris " + previous + ", dilewati");
+            return false;
+        }
+        if (barcode != null) {
+            previous = rowByBarcode.get(barcode);
+            if (previous != null) {
+                skip(rowNumber, "barcode " + barcode + " sama dengan baris " + previous + ", dilewati");
+                return false;
+            }
+            rowByBarcode.put(barcode, rowNumber);
+        }
+        rowByName.put(nameKey, rowNumber);
+        product.id = 0;
+        product.barcode = barcode;
+        staged.add(new StagedRow(rowNumber, product));
+        return true;
+    }
+
+    /**
+     * Baris dilewati (bukan error), misal baris kosong. Alasan boleh null.
+     */
+    public void skip(int rowNumber, String reason) {
+        stageSkipped++;
+        if (reason != null) {
+            stageErrors.add("Baris " + rowNumber + ": " + reason);
+        }
+    }
+
+    public void fail(int rowNumber, String reason) {
+        stageFailed++;
+        stageErrors.add("Baris " + rowNumber + ": " + reason);
+    }
+
+    public int getStagedCount() {
+        return staged.size();
+    }
+
+    /**
+     * Tulis semua baris yang sudah di-stage. Harus dipanggil di dalam transaksi (perintah DatabaseWriter).
+     * Aman dijalankan ulang setelah rollback: hasil selalu dihitung ulang dari isi database saat itu.
+     * @param events diisi event stok yang melewati batas, dikirim setelah commit
+     */
+    public ImportSummary apply(AppDatabase db, List<StockEvent> events) {
+        ProductDao productDao = db.productDao();
+        CashFlowDao cashFlowDao = db.cashFlowDao();
+        DailySummaryDao dailySummaryDao = db.dailySummaryDao();
+
+        ImportSummary summary = new ImportSummary();
+        summary.skipped = stageSkipped;
+        summary.failed = stageFailed;
+        summary.errors.addAll(stageErrors);
+
+        List<Product> existing = productDao.getAllProductsSync();
+        Map<String, Product> byName = new HashMap<>(existing.size() * 2);
+        Map<String, Product> byBarcode = new HashMap<>(existing.size() * 2);
+        for (Product product : existing) {
+            if (product.name != null) {
+                byName.putIfAbsent(normalizeName(product.name), product); // Nama kembar lama: yang pertama (urut nama)
+            }
+            String barcode = normalizeBarcode(product.barcode);
+            if (barcode != null) {
+                byBarcode.put(barcode, product);
+            }
+        }
+
+        // Produk yang sudah diubah oleh baris lain di impor ini (id -> nomor baris)
+        Map<Integer, Integer> touched = new HashMap<>();
+        long now = System.currentTimeMillis();
+        List<Product> inserts = new ArrayList<>(CHUNK_SIZE);
+        List<Product> updates = new ArrayList<>(CHUNK_SIZE);
+        List<CashFlow> flows = new ArrayList<>();
+
+        for (int start = 0; start < staged.size(); start += CHUNK_SIZE) {
+            int end = Math.min(staged.size(), start + CHUNK_SIZE);
+            for (int i = start; i < end; i++) {
+                StagedRow row = staged.get(i);
+                Product incoming = row.product;
+                Product byCode = incoming.barcode != null ? byBarcode.get(incoming.barcode) : null;
+                Product named = byName.get(normalizeName(incoming.name));
+                if (byCode != null && named != null && byCode != named) {
+                    fail(summary, row.rowNumber, "barcode " + incoming.barcode + " milik \"" + byCode.name
+                            + "\", tetapi nama milik produk lain");
+                    continue;
+                }
+                Product target = byCode != null ? byCode : named;
+
+                if (target == null) {
+                    incoming.id = 0;
+                    inserts.add(incoming);
+                    continue;
+                }
+                Integer previousRow = touched.get(target.id);
+                if (previousRow != null) {
+                    fail(summary, row.rowNumber, "produk \"" + target.name + "\" sudah diubah oleh baris " + previousRow);
+                    continue;
+                }
+                touched.put(target.id, row.rowNumber);
+
+                // Barcode kosong di file: barcode lama dipertahankan
+                String barcode = incoming.barcode != null ? incoming.barcode : target.barcode;
+                if (isUnchanged(target, incoming, barcode)) {
+                    summary.skipped++;
+                    continue;
+                }
+                Product updated = target.copy();
+                updated.name = incoming.name;
+                updated.sellPrice = incoming.sellPrice;
+                updated.buyPrice = incoming.buyPrice;
+                updated.currentStock = incoming.currentStock;
+                updated.minStock = incoming.minStock;
+                updated.barcode = barcode;
+                updates.add(updated);
+
+                int added = updated.currentStock - target.currentStock;
+                if (added > 0) {
+                    addStockFlow(flows, updated, updated.id, added, now);
+                }
+                addEvent(events, StockEvent.detect(updated.id, updated.name, target.currentStock, target.minStock,
+                        updated.currentStock, updated.minStock));
+            }
+
+            // Update dulu: barcode yang dipakai baris baru dijamin tidak dimiliki produk lain
+            if (!updates.isEmpty()) {
+                productDao.updateAll(updates);
+                summary.updated += updates.size();
+                for (Product product : updates) {
+                    markEnrichment(summary, product);
+                }
+            }
+            if (!inserts.isEmpty()) {
+                long[] ids = productDao.insertAll(inserts);
+                for (int i = 0; i < inserts.size(); i++) {
+                    Product product = inserts.get(i);
+                    int id = (int) ids[i];
+                    if (product.currentStock > 0) {
+                        addStockFlow(flows, product, id, product.currentStock, now);
+                    }
+                    // Produk baru dianggap berangkat dari stok normal
+                    addEvent(events, StockEvent.detect(id, product.name, Integer.MAX_VALUE, product.minStock,
+                            product.currentStock, product.minStock));
+                    markEnrichment(summary, product);
+                }
+                summary.inserted += inserts.size();
+            }
+            if (!flows.isEmpty()) {
+                cashFlowDao.insertAll(flows);
+                dailySummaryDao.recordAll(flows);
+            }
+            inserts.clear();
+            updates.clear();
+            flows.clear();
+        }
+        return summary;
+    }
+
+    /**
+     * Kunci nama untuk pencocokan: trim, spasi ganda dirapatkan, huruf kecil
+     */
+    public static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public static String normalizeBarcode(String barcode) {
+        if (barcode == null) {
+            return null;
+        }
+        String trimmed = barcode.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static boolean isUnchanged(Product target, Product incoming, String barcode) {
+        return Objects.equals(target.name, incoming.name)
+                && target.sellPrice == incoming.sellPrice
+                && Objects.equals(target.buyPrice, incoming.buyPrice)
+                && target.currentStock == incoming.currentStock
+                && target.minStock == incoming.minStock
+                && Objects.equals(target.barcode, barcode);
+    }
+
+    /**
+     * Sama dengan pencatatan di DataRepository.insertProduct / addProductStock
+     */
+    private static void addStockFlow(List<CashFlow> flows, Product product, int productId, int quantity, long now) {
+        if (product.buyPrice == null) {
+            return;
+        }
+        double cost = product.buyPrice * quantity;
+        if (cost > 0) {
+            flows.add(new CashFlow("OUT", cost, "Tambah Stok: " + product.name + " (" + quantity + ")",
+                    now, productId, 0.0));
+        }
+    }
+
+    private static void markEnrichment(ImportSummary summary, Product product) {
+        if (product.barcode != null && product.imageUrl == null) {
+            summary.needsEnrichment = true;
+        }
+    }
+
+    private static void fail(ImportSummary summary, int rowNumber, String reason) {
+        summary.failed++;
+        summary.errors.add("Baris " + rowNumber + ": " + reason);
+    }
+
+    private static void addEvent(List<StockEvent> events, StockEvent event) {
+        if (event != null) {
+            events.add(event);
+        }
+    }
+}
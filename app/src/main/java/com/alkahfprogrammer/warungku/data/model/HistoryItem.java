@@ -0,0 +1,48 @@
+package com.alkahfprogrammer.warungku.data.model;
+
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+
+import java.util.Objects;
+
+/**
+ * Item di daftar riwayat: transaksi atau pemisah hari
+ */
+public class HistoryItem {
+    public static final int TYPE_DAY_HEADER = 0;
+    public static final int TYPE_TRANSACTION = 1;
+
+    public final int type;
+    public final long epochDay;
+    public final CashFlow cashFlow; // null untuk pemisah hari
+
+    private HistoryItem(int type, long epochDay, CashFlow cashFlow) {
+        this.type = type;
+        this.epochDay = epochDay;
+        this.cashFlow = cashFlow;
+    }
+
+    public static HistoryItem transaction(CashFlow cashFlow, long epochDay) {
+        return new HistoryItem(TYPE_TRANSACTION, epochDay, cashFlow);
+    }
+
+    public static HistoryItem dayHeader(long epochDay) {
+        return new HistoryItem(TYPE_DAY_HEADER, epochDay, null);
+    }
+
+    public boolean isSameItem(HistoryItem other) {
+        if (type != other.type) {
+            return false;
+        }
+        return type == TYPE_DAY_HEADER ? epochDay == other.epochDay : cashFlow.id == other.cashFlow.id;
+    }
+
+    public boolean hasSameContent(HistoryItem other) {
+        if (type == TYPE_DAY_HEADER) {
+            return epochDay == other.epochDay;
+        }
+        return cashFlow.amount == other.cashFlow.amount
+                && cashFlow.timestamp == other.cashFlow.timestamp
+                && Objects.equals(cashFlow.type, other.cashFlow.type)
+                && Objects.equals(cashFlow.description, other.cashFlow.description);
+    }
+}
@@ -0,0 +1,12 @@
+package com.alkahfprogrammer.warungku.data.model;
+
+/**
+ * Hasil agregat sale_item per produk dalam satu periode
+ */
+public class ProductSalesTotal {
+    public int productId;
+    public String productName;
+    public int quantity;
+    public double revenue;
+    public double profit;
+}
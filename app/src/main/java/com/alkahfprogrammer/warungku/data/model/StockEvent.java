@@ -0,0 +1,57 @@
+package com.alkahfprogrammer.warungku.data.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event perubahan level stok satu produk, dikirim hanya saat stok melewati batas
+ * (minStock atau nol) di sebuah transaksi tulis.
+ */
+public class StockEvent {
+    public static final int LEVEL_OK = 0;
+    public static final int LEVEL_LOW = 1; // 0 < currentStock <= minStock
+    public static final int LEVEL_OUT = 2; // currentStock <= 0
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    public final int productId;
+    public final String productName;
+    public final int currentStock;
+    public final int minStock;
+    public final int previousLevel;
+    public final int level;
+    /**
+     * Urutan commit. Event dibuat di dalam perintah DatabaseWriter (satu thread penulis), jadi nomor yang
+     * lebih besar selalu berasal dari transaksi yang ter-commit belakangan.
+     */
+    public final long sequence;
+
+    public StockEvent(int productId, String productName, int currentStock, int minStock, int previousLevel, int level) {
+        this.productId = productId;
+        this.productName = productName;
+        this.currentStock = currentStock;
+        this.minStock = minStock;
+        this.previousLevel = previousLevel;
+        this.level = level;
+        this.sequence = SEQUENCE.incrementAndGet();
+    }
+
+    public static int levelOf(int stock, int minStock) {
+        if (stock <= 0) {
+            return LEVEL_OUT;
+        }
+        return stock <= minStock ? LEVEL_LOW : LEVEL_OK;
+    }
+
+    /**
+     * Buat event jika level stok berubah, null jika tidak ada batas yang terlewati
+     */
+    public static StockEvent detect(int productId, String productName, int stockBefore, int minStockBefore,
+                                    int stockAfter, int minStockAfter) {
+        int before = levelOf(stockBefore, minStockBefore);
+        int after = levelOf(stockAfter, minStockAfter);
+        if (before == after) {
+            return null;
+        }
+        return new StockEvent(productId, productName, stockAfter, minStockAfter, before, after);
+    }
+}
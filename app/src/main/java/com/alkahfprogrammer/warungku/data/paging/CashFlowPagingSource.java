@@ -0,0 +1,116 @@
+package com.alkahfprogrammer.warungku.data.paging;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+import androidx.room.InvalidationTracker;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.dao.CashFlowDao;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * PagingSource riwayat cash_flow dengan keyset pagination pada (timestamp, id).
+ * Tidak memakai OFFSET, jadi biaya tiap halaman tetap walau tabel berisi jutaan baris.
+ */
+public class CashFlowPagingSource extends ListenableFuturePagingSource<CashFlowPagingSource.Key, CashFlow> {
+
+    private final CashFlowDao cashFlowDao;
+    private final Executor executor;
+    private final InvalidationTracker.Observer observer;
+
+    public CashFlowPagingSource(AppDatabase db, Executor executor) {
+        this.cashFlowDao = db.cashFlowDao();
+        this.executor = executor;
+        // Data berubah (transaksi baru) -> PagingSource baru dibuat oleh Pager
+        this.observer = new InvalidationTracker.Observer("cash_flow") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+        db.getInvalidationTracker().addWeakObserver(observer);
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<Key, CashFlow>> loadFuture(@NonNull LoadParams<Key> params) {
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            executor.execute(() -> {
+                try {
+                    completer.set(loadPage(params));
+                } catch (Exception e) {
+                    completer.set(new LoadResult.Error<>(e));
+                }
+            });
+            return "CashFlowPagingSource.load";
+        });
+    }
+
+    private LoadResult<Key, CashFlow> loadPage(LoadParams<Key> params) {
+        Key key = params.getKey();
+        int limit = params.getLoadSize();
+
+        if (params instanceof LoadParams.Prepend) {
+            // Halaman yang lebih baru dari item pertama
+            List<CashFlow> newer = cashFlowDao.getHistoryNewerThan(key.timestamp, key.id, limit);
+            Collections.reverse(newer);
+            Key prevKey = newer.size() < limit ? null : Key.of(newer.get(0));
+            return new LoadResult.Page<>(newer, prevKey, key,
+                    LoadResult.Page.COUNT_UNDEFINED, LoadResult.Page.COUNT_UNDEFINED);
+        }
+
+        List<CashFlow> page;
+        Key prevKey;
+        if (key == null) {
+            page = cashFlowDao.getHistoryFirstPage(limit);
+            prevKey = null;
+        } else if (params instanceof LoadParams.Refresh) {
+            page = cashFlowDao.getHistoryFrom(key.timestamp, key.id, limit);
+            prevKey = page.isEmpty() ? null : Key.of(page.get(0));
+        } else {
+            page = cashFlowDao.getHistoryOlderThan(key.timestamp, key.id, limit);
+            prevKey = key;
+        }
+        Key nextKey = page.size() < limit ? null : Key.of(page.get(page.size() - 1));
+        return new LoadResult.Page<>(page, prevKey, nextKey,
+                LoadResult.Page.COUNT_UNDEFINED, LoadResult.Page.COUNT_UNDEFINED);
+    }
+
+    @Nullable
+    @Override
+    public Key getRefreshKey(@NonNull PagingState<Key, CashFlow> state) {
+        // Muat ulang mulai dari item yang sedang terlihat supaya posisi scroll tidak lompat
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+        CashFlow anchor = state.closestItemToPosition(anchorPosition);
+        return anchor != null ? Key.of(anchor) : null;
+    }
+
+    /**
+     * Posisi keyset: (timestamp, id) satu baris cash_flow
+     */
+    public static class Key {
+        public final long timestamp;
+        public final int id;
+
+        Key(long timestamp, int id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+
+        static Key of(CashFlow flow) {
+            return new Key(flow.timestamp, flow.id);
+        }
+    }
+}
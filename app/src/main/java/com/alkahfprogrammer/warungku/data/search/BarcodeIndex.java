@@ -0,0 +1,227 @@
+package com.alkahfprogrammer.warungku.data.search;
+
+import com.alkahfprogrammer.warungku.data.entity.Product;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index barcode -> produk di memori, dipakai bersama oleh layar jual, tambah produk, dan stok.
+ *
+ * EAN-13 dan UPC-A (12 digit, sama dengan EAN-13 berawalan 0) disimpan sebagai long primitif
+ * di hash table open addressing, jadi lookup hasil scan tidak membuat objek dan tetap O(1)
+ * berapa pun jumlah produknya. Simbologi lain (EAN-8, Code128, dll) memakai map String.
+ *
+ * Diperbarui dari emisi LiveData produk oleh DataRepository; hanya barcode yang berubah yang
+ * dihapus/ditambah ulang.
+ */
+public class BarcodeIndex {
+    private static final long NO_KEY = -1L; // Barcode numerik tidak pernah negatif
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static volatile BarcodeIndex INSTANCE;
+
+    private long[] keys = newKeys(INITIAL_CAPACITY);
+    private Product[] values = new Product[INITIAL_CAPACITY];
+    private int size;
+
+    private final Map<String, Product> otherCodes = new HashMap<>();
+    private final Map<Integer, String> barcodeById = new HashMap<>();
+    private boolean loaded = false;
+
+    private BarcodeIndex() {
+    }
+
+    public static BarcodeIndex getInstance() {
+        if (INSTANCE == null) {
+            synchronized (BarcodeIndex.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new BarcodeIndex();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Sinkronkan dengan daftar produk terbaru dari Room
+     */
+    public synchronized void update(List<Product> products) {
+        Set<Integer> seen = new HashSet<>(products.size() * 2);
+        for (Product product : products) {
+            seen.add(product.id);
+            String barcode = normalize(product.barcode);
+            String previous = barcodeById.get(product.id);
+            if (previous != null && !previous.equals(barcode)) {
+                remove(previous, product.id);
+            }
+            if (barcode != null) {
+                put(barcode, product); // Selalu ganti referensi supaya stok yang terlihat terbaru
+                barcodeById.put(product.id, barcode);
+            } else {
+                barcodeById.remove(product.id);
+            }
+        }
+
+        Iterator<Map.Entry<Integer, String>> iterator = barcodeById.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, String> entry = iterator.next();
+            if (!seen.contains(entry.getKey())) {
+                remove(entry.getValue(), entry.getKey());
+                iterator.remove();
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * @return produk dengan barcode ini, atau null jika tidak ada
+     */
+    public synchronized Product find(String barcode) {
+        String code = normalize(barcode);
+        if (code == null) {
+            return null;
+        }
+        long key = numericKey(code);
+        if (key == NO_KEY) {
+            return otherCodes.get(code);
+        }
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != NO_KEY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sudah pernah menerima daftar produk? Sebelum itu hasil find() null belum tentu berarti tidak ada.
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    private void put(String code, Product product) {
+        long key = numericKey(code);
+        if (key == NO_KEY) {
+            otherCodes.put(code, product);
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != NO_KEY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == NO_KEY) {
+            keys[i] = key;
+            size++;
+        }
+        values[i] = product;
+    }
+
+    private void remove(String code, int productId) {
+        long key = numericKey(code);
+        if (key == NO_KEY) {
+            Product current = otherCodes.get(code);
+            if (current != null && current.id == productId) {
+                otherCodes.remove(code);
+            }
+            return;
+        }
+        int mask = keys.length - 1;
+        int gap = slot(key, mask);
+        while (keys[gap] != key) {
+            if (keys[gap] == NO_KEY) {
+                return;
+            }
+            gap = (gap + 1) & mask;
+        }
+        if (values[gap].id != productId) {
+            return; // Sudah dipakai produk lain (barcode 12 dan 13 digit yang setara)
+        }
+
+        // Backward shift: geser entri berikutnya ke celah supaya rantai probing tidak putus
+        int j = gap;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == NO_KEY) {
+                break;
+            }
+            int home = slot(keys[j], mask);
+            boolean homeBetween = gap <= j ? (gap < home && home <= j) : (gap < home || home <= j);
+            if (!homeBetween) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = NO_KEY;
+        values[gap] = null;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Product[] oldValues = values;
+        keys = newKeys(capacity);
+        values = new Product[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_KEY) {
+                int j = slot(oldKeys[i], mask);
+                while (keys[j] != NO_KEY) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] array = new long[capacity];
+        Arrays.fill(array, NO_KEY);
+        return array;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * EAN-13 / UPC-A sebagai angka; selain itu NO_KEY (pakai map String)
+     */
+    static long numericKey(String code) {
+        int length = code.length();
+        if (length != 12 && length != 13) {
+            return NO_KEY;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_KEY;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static String normalize(String barcode) {
+        if (barcode == null) {
+            return null;
+        }
+        String trimmed = barcode.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -0,0 +1,314 @@
+package com.alkahfprogrammer.warungku.data.search;
+
+import com.alkahfprogrammer.warungku.data.entity.Product;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Index pencarian produk di memori untuk layar jual.
+ *
+ * - Token pendek (1-2 huruf) dicari sebagai substring lewat posting huruf/bigram ("ab" menemukan "Kabel",
+ *   sama seperti contains() di layar jual sebelumnya). Posting-nya persis, jadi tidak perlu diverifikasi.
+ * - Token 3 huruf atau lebih dicari sebagai substring lewat posting trigram, lalu diverifikasi.
+ * - Query angka juga dicocokkan ke akhiran barcode (misal 4 digit terakhir di kemasan).
+ * Urutan ranking (favorit, salesCount, lastSoldTimestamp) disimpan terurut, jadi hasil query
+ * tidak perlu di-sort ulang.
+ *
+ * Tidak thread-safe: update() dan search() harus dipanggil dari satu thread yang sama.
+ */
+public class ProductSearchIndex {
+    private static final int GRAM_SIZE = 3;
+    private static final int MIN_BARCODE_SUFFIX = 3;
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+
+    // Favorit dulu, lalu paling laku, lalu paling baru terjual; nama dan id supaya urutan stabil.
+    // Dibandingkan dari kunci yang disalin ke Entry, bukan dari objek Product yang bisa diubah di luar index.
+    private static final Comparator<Entry> RANK_ORDER = (e1, e2) -> {
+        if (e1.favorite != e2.favorite) return e1.favorite ? -1 : 1;
+        int salesCompare = Integer.compare(e2.salesCount, e1.salesCount);
+        if (salesCompare != 0) return salesCompare;
+        int soldCompare = Long.compare(e2.lastSoldTimestamp, e1.lastSoldTimestamp);
+        if (soldCompare != 0) return soldCompare;
+        int nameCompare = String.CASE_INSENSITIVE_ORDER.compare(
+                e1.name != null ? e1.name : "", e2.name != null ? e2.name : "");
+        if (nameCompare != 0) return nameCompare;
+        return Integer.compare(e1.id, e2.id);
+    };
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Integer>> shortGramPostings = new HashMap<>(); // Substring 1-2 huruf
+    private final Map<String, Set<Integer>> gramPostings = new HashMap<>();
+    // Barcode dibalik, supaya pencarian akhiran menjadi pencarian awalan (range scan)
+    private final TreeMap<String, Set<Integer>> reversedBarcodes = new TreeMap<>();
+    private Entry[] ranked = new Entry[0];
+
+    private static class Entry {
+        Product product;
+        // Salinan nama & kunci ranking saat terakhir di-index
+        int id;
+        String name;
+        boolean favorite;
+        int salesCount;
+        long lastSoldTimestamp;
+        String normalizedName;
+        String[] tokens;
+        String barcode;
+        int rank;
+    }
+
+    /**
+     * Sinkronkan index dengan daftar produk terbaru dari Room.
+     * Hanya produk yang nama/barcode-nya berubah yang di-index ulang; urutan ranking
+     * hanya dihitung ulang jika ada produk baru, terhapus, atau kunci rankingnya berubah.
+     */
+    public void update(List<Product> products) {
+        Set<Integer> seen = new HashSet<>(products.size() * 2);
+        boolean reorder = false;
+
+        for (Product product : products) {
+            seen.add(product.id);
+            Entry entry = entries.get(product.id);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(product.id, entry);
+                index(entry, product);
+                captureRank(entry, product);
+                reorder = true;
+                continue;
+            }
+            if (!Objects.equals(entry.name, product.name)
+                    || !Objects.equals(entry.barcode, normalizeBarcode(product.barcode))) {
+                unindex(entry);
+                index(entry, product);
+                reorder = true; // Nama ikut menentukan urutan
+            }
+            if (entry.favorite != product.isFavorite || entry.salesCount != product.salesCount
+                    || entry.lastSoldTimestamp != product.lastSoldTimestamp) {
+                reorder = true;
+            }
+            entry.product = product;
+            captureRank(entry, product);
+        }
+
+        Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Entry> item = iterator.next();
+            if (!seen.contains(item.getKey())) {
+                unindex(item.getValue());
+                iterator.remove();
+                reorder = true;
+            }
+        }
+
+        if (reorder) {
+            ranked = entries.values().toArray(new Entry[0]);
+            Arrays.sort(ranked, RANK_ORDER);
+            for (int i = 0; i < ranked.length; i++) {
+                ranked[i].rank = i;
+            }
+        }
+    }
+
+    /**
+     * Cari produk, hasil sudah terurut sesuai ranking.
+     * @param cancelled dicek berkala; jika true, pencarian dihentikan dan mengembalikan null
+     */
+    public List<Product> search(String query, BooleanSupplier cancelled) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            List<Product> all = new ArrayList<>(ranked.length);
+            for (Entry entry : ranked) {
+                all.add(entry.product);
+            }
+            return all;
+        }
+
+        BitSet matches = new BitSet(ranked.length);
+        Set<Integer> nameMatches = matchName(normalized.split(" "), cancelled);
+        if (nameMatches == null) {
+            return null;
+        }
+        for (Integer id : nameMatches) {
+            matches.set(entries.get(id).rank);
+        }
+
+        String digits = normalized.replace(" ", "");
+        if (digits.length() >= MIN_BARCODE_SUFFIX && isDigits(digits)) {
+            String reversed = new StringBuilder(digits).reverse().toString();
+            for (Set<Integer> ids : reversedBarcodes.subMap(reversed, reversed + Character.MAX_VALUE).values()) {
+                for (Integer id : ids) {
+                    matches.set(entries.get(id).rank);
+                }
+            }
+        }
+        if (cancelled.getAsBoolean()) {
+            return null;
+        }
+
+        List<Product> result = new ArrayList<>(matches.cardinality());
+        for (int rank = matches.nextSetBit(0); rank >= 0; rank = matches.nextSetBit(rank + 1)) {
+            result.add(ranked[rank].product);
+        }
+        return result;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Set<Integer> matchName(String[] queryTokens, BooleanSupplier cancelled) {
+        Set<Integer> candidates = null;
+        for (String token : queryTokens) {
+            if (token.length() < GRAM_SIZE) {
+                candidates = intersect(candidates, shortGramPostings.get(token));
+            } else {
+                for (int i = 0; i + GRAM_SIZE <= token.length() && (candidates == null || !candidates.isEmpty()); i++) {
+                    candidates = intersect(candidates, gramPostings.get(token.substring(i, i + GRAM_SIZE)));
+                }
+            }
+            if (candidates.isEmpty() || cancelled.getAsBoolean()) {
+                return cancelled.getAsBoolean() ? null : candidates;
+            }
+        }
+
+        // Trigram hanya menyaring kandidat; pastikan token benar-benar substring dari nama
+        int checked = 0;
+        Iterator<Integer> iterator = candidates.iterator();
+        while (iterator.hasNext()) {
+            if (++checked % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                return null;
+            }
+            Entry entry = entries.get(iterator.next());
+            for (String token : queryTokens) {
+                if (token.length() >= GRAM_SIZE && !entry.normalizedName.contains(token)) {
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static Set<Integer> intersect(Set<Integer> candidates, Set<Integer> postings) {
+        if (postings == null) {
+            return new HashSet<>();
+        }
+        if (candidates == null) {
+            return new HashSet<>(postings);
+        }
+        candidates.retainAll(postings);
+        return candidates;
+    }
+
+    private static void captureRank(Entry entry, Product product) {
+        entry.favorite = product.isFavorite;
+        entry.salesCount = product.salesCount;
+        entry.lastSoldTimestamp = product.lastSoldTimestamp;
+    }
+
+    private void index(Entry entry, Product product) {
+        entry.product = product;
+        entry.id = product.id;
+        entry.name = product.name;
+        entry.normalizedName = normalize(product.name);
+        entry.tokens = entry.normalizedName.isEmpty() ? new String[0] : entry.normalizedName.split(" ");
+        entry.barcode = normalizeBarcode(product.barcode);
+
+        for (String token : entry.tokens) {
+            for (int length = 1; length < GRAM_SIZE; length++) {
+                for (int i = 0; i + length <= token.length(); i++) {
+                    add(shortGramPostings, token.substring(i, i + length), product.id);
+                }
+            }
+            for (int i = 0; i + GRAM_SIZE <= token.length(); i++) {
+                add(gramPostings, token.substring(i, i + GRAM_SIZE), product.id);
+            }
+        }
+        if (entry.barcode != null) {
+            add(reversedBarcodes, new StringBuilder(entry.barcode).reverse().toString(), product.id);
+        }
+    }
+
+    private void unindex(Entry entry) {
+        int id = entry.id;
+        for (String token : entry.tokens) {
+            for (int length = 1; length < GRAM_SIZE; length++) {
+                for (int i = 0; i + length <= token.length(); i++) {
+                    remove(shortGramPostings, token.substring(i, i + length), id);
+                }
+            }
+            for (int i = 0; i + GRAM_SIZE <= token.length(); i++) {
+                remove(gramPostings, token.substring(i, i + GRAM_SIZE), id);
+            }
+        }
+        if (entry.barcode != null) {
+            remove(reversedBarcodes, new StringBuilder(entry.barcode).reverse().toString(), id);
+        }
+    }
+
+    private static void add(Map<String, Set<Integer>> postings, String key, int id) {
+        Set<Integer> ids = postings.get(key);
+        if (ids == null) {
+            ids = new HashSet<>(4);
+            postings.put(key, ids);
+        }
+        ids.add(id);
+    }
+
+    private static void remove(Map<String, Set<Integer>> postings, String key, int id) {
+        Set<Integer> ids = postings.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Huruf kecil, tanpa aksen, selain huruf/angka jadi satu spasi
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+        return NON_ALNUM.matcher(stripped).replaceAll(" ").trim();
+    }
+
+    private static String normalizeBarcode(String barcode) {
+        if (barcode == null) {
+            return null;
+        }
+        String trimmed = barcode.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static boolean isDigits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,311 @@
+package com.alkahfprogrammer.warungku.utils;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.importer.CashFlowImportEngine;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Impor/export CSV dan TSV tanpa Apache POI, untuk produk dan riwayat cash_flow.
+ *
+ * Kolom sama dengan file Excel (ExcelExporter.PRODUCT_HEADERS / CASH_FLOW_HEADERS). Impor produk
+ * memakai validasi dan upsert yang sama dengan ExcelImporter; export membaca Room per chunk
+ * lewat query Cursor yang sama dengan ExcelExporter.
+ */
+public class CsvCodec {
+    private static final String TAG = "CsvCodec";
+    private static final int PROGRESS_INTERVAL = 1000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    // Dengan milidetik: impor ulang mencocokkan baris lewat timestamp persis (CashFlowImportEngine)
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS", Locale.ROOT);
+    // Format waktu lain yang diterima saat impor (export versi lama, file yang diedit di Excel)
+    private static final DateTimeFormatter[] TIME_INPUT_FORMATS = {
+            TIME_FORMAT,
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.ROOT),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm", Locale.ROOT),
+            DateTimeFormatter.ofPattern("d/M/yyyy H:mm:ss", Locale.ROOT),
+            DateTimeFormatter.ofPattern("d/M/yyyy H:mm", Locale.ROOT)
+    };
+
+    /**
+     * Import produk dari CSV/TSV (pemisah dideteksi otomatis). Hasilnya ditulis lewat AppViewModel.importProducts().
+     */
+    public static ExcelImporter.ImportResult importProducts(InputStream inputStream, ExcelImporter.ProgressListener listener) {
+        ExcelImporter.ImportResult result = new ExcelImporter.ImportResult();
+        int processed = 0;
+        try (CsvReader reader = new CsvReader(inputStream)) {
+            boolean header = true;
+            while (reader.next()) {
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                if (++processed % PROGRESS_INTERVAL == 0 && listener != null) {
+                    listener.onProgress(processed, 0);
+                }
+                ExcelImporter.importRow(reader, result);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Import failed", e);
+            result.errors.add("Error membaca file: " + e.getMessage());
+        }
+        if (listener != null) {
+            listener.onProgress(processed, processed);
+        }
+        return result;
+    }
+
+    /**
+     * Import riwayat cash_flow dari CSV/TSV. Hasilnya ditulis lewat AppViewModel.importCashFlows().
+     */
+    public static CashFlowImportEngine importCashFlows(InputStream inputStream, ExcelImporter.ProgressListener listener)
+            throws IOException {
+        CashFlowImportEngine engine = new CashFlowImportEngine();
+        ZoneId zone = ZoneId.systemDefault();
+        int processed = 0;
+        try (CsvReader reader = new CsvReader(inputStream)) {
+            boolean header = true;
+            while (reader.next()) {
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                if (++processed % PROGRESS_INTERVAL == 0 && listener != null) {
+                    listener.onProgress(processed, 0);
+                }
+                try {
+                    engine.stage(parseCashFlowFromRow(reader, zone));
+                } catch (IllegalArgumentException e) {
+                    engine.fail(reader.getRowNumber(), e.getMessage());
+                }
+            }
+        }
+        if (listener != null) {
+            listener.onProgress(processed, processed);
+        }
+        return engine;
+    }
+
+    /**
+     * Export semua produk ke file CSV (',') atau TSV ('\t') di folder Downloads aplikasi
+     */
+    public static ExcelExporter.ExportResult exportProducts(Context context, char delimiter,
+                                                            ExcelExporter.ProgressListener listener,
+                                                            CancellationSignal cancel) {
+        AppDatabase db = AppDatabase.getDatabase(context);
+        return export(context, "WarungKu_Products_", delimiter, cancel, writer -> {
+            writer.row(ExcelExporter.PRODUCT_HEADERS);
+            int total = db.productDao().getProductCount();
+            int exported = 0;
+            int afterId = 0;
+            while (true) {
+                checkCancelled(cancel);
+                int count = 0;
+                try (Cursor cursor = db.productDao().getExportChunk(afterId, CHUNK_SIZE)) {
+                    int id = cursor.getColumnIndexOrThrow("id");
+                    int name = cursor.getColumnIndexOrThrow("name");
+                    int buyPrice = cursor.getColumnIndexOrThrow("buyPrice");
+                    int sellPrice = cursor.getColumnIndexOrThrow("sellPrice");
+                    int stock = cursor.getColumnIndexOrThrow("currentStock");
+                    int minStock = cursor.getColumnIndexOrThrow("minStock");
+                    int barcode = cursor.getColumnIndexOrThrow("barcode");
+                    while (cursor.moveToNext()) {
+                        writer.field(cursor.getString(name));
+                        if (cursor.isNull(buyPrice)) {
+                            writer.empty();
+                        } else {
+                            writer.field(cursor.getDouble(buyPrice));
+                        }
+                        writer.field(cursor.getDouble(sellPrice))
+                                .field(cursor.getInt(stock))
+                                .field(cursor.getInt(minStock))
+                                .field(cursor.getString(barcode))
+                                .endRow();
+                        afterId = cursor.getInt(id);
+                        count++;
+                    }
+                }
+                exported += count;
+                if (listener != null) {
+                    listener.onProgress(exported, Math.max(exported, total));
+                }
+                if (count < CHUNK_SIZE) {
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * Export cash_flow dengan timestamp di [startTime, endTime) ke file CSV/TSV di folder Downloads aplikasi
+     */
+    public static ExcelExporter.ExportResult exportCashFlows(Context context, long startTime, long endTime, char delimiter,
+                                                             ExcelExporter.ProgressListener listener,
+                                                             CancellationSignal cancel) {
+        AppDatabase db = AppDatabase.getDatabase(context);
+        ZoneId zone = ZoneId.systemDefault();
+        return export(context, "WarungKu_Transaksi_", delimiter, cancel,
+                writer -> writeCashFlows(db, writer, startTime, endTime, zone, listener, cancel));
+    }
+
+    /**
+     * Isi file export cash_flow, per chunk berurutan (timestamp, id)
+     */
+    static void writeCashFlows(AppDatabase db, CsvWriter writer, long startTime, long endTime, ZoneId zone,
+                               ExcelExporter.ProgressListener listener, CancellationSignal cancel) throws IOException {
+        writer.row(ExcelExporter.CASH_FLOW_HEADERS);
+        int total = db.cashFlowDao().countInRange(startTime, endTime);
+        int exported = 0;
+        // Mulai tepat sebelum startTime; afterId maksimum supaya baris di (startTime - 1) tidak ikut
+        long afterTimestamp = startTime - 1;
+        int afterId = Integer.MAX_VALUE;
+        while (true) {
+            checkCancelled(cancel);
+            int count = 0;
+            try (Cursor cursor = db.cashFlowDao().getExportChunk(afterTimestamp, afterId, endTime, CHUNK_SIZE)) {
+                int id = cursor.getColumnIndexOrThrow("id");
+                int timestamp = cursor.getColumnIndexOrThrow("timestamp");
+                int type = cursor.getColumnIndexOrThrow("type");
+                int amount = cursor.getColumnIndexOrThrow("amount");
+                int profit = cursor.getColumnIndexOrThrow("profit");
+                int description = cursor.getColumnIndexOrThrow("description");
+                int productId = cursor.getColumnIndexOrThrow("productId");
+                while (cursor.moveToNext()) {
+                    afterTimestamp = cursor.getLong(timestamp);
+                    afterId = cursor.getInt(id);
+                    writer.field(TIME_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(afterTimestamp), zone)))
+                            .field("IN".equals(cursor.getString(type)) ? "Masuk" : "Keluar")
+                            .field(cursor.getDouble(amount));
+                    if (cursor.isNull(profit)) {
+                        writer.empty();
+                    } else {
+                        writer.field(cursor.getDouble(profit));
+                    }
+                    writer.field(cursor.getString(description));
+                    if (cursor.isNull(productId)) {
+                        writer.empty();
+                    } else {
+                        writer.field(cursor.getInt(productId));
+                    }
+                    writer.endRow();
+                    count++;
+                }
+            }
+            exported += count;
+            if (listener != null) {
+                listener.onProgress(exported, Math.max(exported, total));
+            }
+            if (count < CHUNK_SIZE) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Validasi satu baris cash_flow (kolom CASH_FLOW_HEADERS)
+     * @throws IllegalArgumentException berisi pesan untuk pengguna
+     */
+    static CashFlow parseCashFlowFromRow(ImportRow row, ZoneId zone) {
+        long timestamp = parseTime(row.getString(0), zone);
+
+        String typeText = row.getString(1);
+        String type;
+        if ("IN".equalsIgnoreCase(typeText) || "Masuk".equalsIgnoreCase(typeText) || "Pemasukan".equalsIgnoreCase(typeText)) {
+            type = "IN";
+        } else if ("OUT".equalsIgnoreCase(typeText) || "Keluar".equalsIgnoreCase(typeText)
+                || "Pengeluaran".equalsIgnoreCase(typeText)) {
+            type = "OUT";
+        } else {
+            throw new IllegalArgumentException("Jenis harus Masuk atau Keluar");
+        }
+
+        Double amount = row.getDouble(2);
+        if (amount == null || amount <= 0) {
+            throw new IllegalArgumentException("Jumlah harus lebih dari 0");
+        }
+        Double profit = row.getDouble(3);
+        if (profit == null) {
+            profit = 0.0;
+        }
+        return new CashFlow(type, amount, row.getString(4), timestamp, row.getInt(5), profit);
+    }
+
+    private static long parseTime(String text, ZoneId zone) {
+        if (text == null) {
+            throw new IllegalArgumentException("Waktu wajib diisi");
+        }
+        for (DateTimeFormatter format : TIME_INPUT_FORMATS) {
+            try {
+                return LocalDateTime.parse(text, format).atZone(zone).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ignored) {
+                // Coba format berikutnya
+            }
+        }
+        throw new IllegalArgumentException("Format waktu tidak dikenali: " + text + " (contoh: 2024-01-31 13:45:00)");
+    }
+
+    private interface Body {
+        void write(CsvWriter writer) throws IOException;
+    }
+
+    /**
+     * Tulis ke file sementara lalu rename; file setengah jadi dihapus jika gagal/dibatalkan
+     */
+    private static ExcelExporter.ExportResult export(Context context, String prefix, char delimiter,
+                                                     CancellationSignal cancel, Body body) {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+        String fileName = prefix + sdf.format(new Date()) + (delimiter == '\t' ? ".tsv" : ".csv");
+        File downloadsDir = new File(context.getExternalFilesDir(null), "Downloads");
+        if (!downloadsDir.exists()) {
+            downloadsDir.mkdirs();
+        }
+        File file = new File(downloadsDir, fileName);
+        File temp = new File(downloadsDir, fileName + ".tmp");
+        try {
+            try (CsvWriter writer = new CsvWriter(new BufferedOutputStream(new FileOutputStream(temp), WRITE_BUFFER_BYTES),
+                    delimiter)) {
+                body.write(writer);
+            }
+            checkCancelled(cancel);
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot write " + file);
+            }
+            Log.d(TAG, "Export successful: " + file.getAbsolutePath());
+            return new ExcelExporter.ExportResult(true, file.getAbsolutePath(), null);
+        } catch (OperationCanceledException e) {
+            temp.delete();
+            ExcelExporter.ExportResult result = new ExcelExporter.ExportResult(false, null, "Export dibatalkan");
+            result.cancelled = true;
+            return result;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Export failed", e);
+            temp.delete();
+            return new ExcelExporter.ExportResult(false, null, e.getMessage());
+        }
+    }
+
+    private static void checkCancelled(CancellationSignal cancel) {
+        if (cancel != null) {
+            cancel.throwIfCanceled();
+        }
+    }
+}
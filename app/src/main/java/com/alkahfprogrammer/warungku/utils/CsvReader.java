@@ -0,0 +1,213 @@
+package com.alkahfprogrammer.warungku.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser CSV/TSV streaming, satu record sekaligus.
+ *
+ * - Pemisah (koma, titik koma, atau tab) dideteksi dari baris header; BOM UTF-8 dibuang.
+ * - Field ber-kutip mendukung "" sebagai tanda kutip dan baris baru di dalam kutip.
+ * - Isi record disalin ke satu buffer char yang dipakai ulang; angka diparse langsung dari
+ *   buffer itu, String hanya dibuat saat getString() dipanggil.
+ *
+ * Objek ini sendiri adalah ImportRow untuk record yang sedang aktif (berlaku sampai next() berikutnya).
+ */
+public class CsvReader implements ImportRow, Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_COLUMNS = 32; // Kolom lebih dari ini dibaca tapi diabaikan
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private char delimiter;
+
+    // Record aktif: isi semua field berurutan di row, batas field di starts/ends
+    private char[] row = new char[256];
+    private CharBuffer rowView = CharBuffer.wrap(row);
+    private int rowLength;
+    private final int[] starts = new int[MAX_COLUMNS];
+    private final int[] ends = new int[MAX_COLUMNS];
+    private int columnCount;
+    private int recordNumber;
+
+    public CsvReader(InputStream in) throws IOException {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8), (char) 0);
+    }
+
+    /**
+     * @param delimiter pemisah kolom, atau 0 untuk deteksi otomatis dari baris pertama
+     */
+    public CsvReader(Reader reader, char delimiter) throws IOException {
+        this.reader = reader;
+        fill();
+        if (limit > 0 && buffer[0] == '\uFEFF') {
+            position = 1;
+        }
+        this.delimiter = delimiter != 0 ? delimiter : detectDelimiter();
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Baca record berikutnya; baris kosong dilewati
+     * @return false di akhir file
+     */
+    public boolean next() throws IOException {
+        while (readRecord()) {
+            if (columnCount > 1 || rowLength > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public int getRowNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public String getString(int column) {
+        if (column >= columnCount) {
+            return null;
+        }
+        int start = starts[column];
+        int end = ends[column];
+        while (start < end && Character.isWhitespace(row[start])) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(row[end - 1])) {
+            end--;
+        }
+        return start == end ? null : new String(row, start, end - start);
+    }
+
+    @Override
+    public Double getDouble(int column) {
+        if (column >= columnCount) {
+            return null;
+        }
+        return ImportRow.parseNumber(rowView, starts[column], ends[column]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private boolean readRecord() throws IOException {
+        rowLength = 0;
+        columnCount = 0;
+        if (position >= limit && !fill()) {
+            return false;
+        }
+        recordNumber++;
+        int fieldStart = 0;
+        boolean inQuotes = false;
+        while (true) {
+            if (position >= limit && !fill()) {
+                endField(fieldStart);
+                return true;
+            }
+            char c = buffer[position++];
+            if (inQuotes) {
+                if (c != '"') {
+                    append(c);
+                } else if (peek() == '"') {
+                    position++;
+                    append('"');
+                } else {
+                    inQuotes = false;
+                }
+            } else if (c == delimiter) {
+                endField(fieldStart);
+                fieldStart = rowLength;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    position++;
+                }
+                endField(fieldStart);
+                return true;
+            } else if (c == '"' && rowLength == fieldStart) {
+                inQuotes = true;
+            } else {
+                append(c);
+            }
+        }
+    }
+
+    private void endField(int fieldStart) {
+        if (columnCount < MAX_COLUMNS) {
+            starts[columnCount] = fieldStart;
+            ends[columnCount] = rowLength;
+        }
+        columnCount++;
+    }
+
+    private void append(char c) {
+        if (rowLength == row.length) {
+            char[] grown = new char[row.length * 2];
+            System.arraycopy(row, 0, grown, 0, rowLength);
+            row = grown;
+            rowView = CharBuffer.wrap(row);
+        }
+        row[rowLength++] = c;
+    }
+
+    private int peek() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        limit = Math.max(read, 0);
+        return limit > 0;
+    }
+
+    /**
+     * Pemisah yang paling sering muncul di luar kutip pada baris pertama; default koma
+     */
+    private char detectDelimiter() {
+        int commas = 0;
+        int semicolons = 0;
+        int tabs = 0;
+        boolean inQuotes = false;
+        for (int i = position; i < limit; i++) {
+            char c = buffer[i];
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (inQuotes) {
+                continue;
+            } else if (c == '\n' || c == '\r') {
+                break;
+            } else if (c == ',') {
+                commas++;
+            } else if (c == ';') {
+                semicolons++;
+            } else if (c == '\t') {
+                tabs++;
+            }
+        }
+        if (tabs > 0 && tabs >= commas && tabs >= semicolons) {
+            return '\t';
+        }
+        return semicolons > commas ? ';' : ',';
+    }
+}
@@ -0,0 +1,104 @@
+package com.alkahfprogrammer.warungku.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Penulis CSV/TSV ber-buffer. Field hanya dikutip jika berisi pemisah, tanda kutip, atau baris baru.
+ * File UTF-8 diawali BOM supaya Excel membaca huruf non-ASCII dengan benar; CsvReader membuangnya lagi.
+ */
+public class CsvWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+    private final char delimiter;
+    private boolean rowStarted;
+
+    public CsvWriter(OutputStream stream, char delimiter) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.delimiter = delimiter;
+        out.write('\uFEFF');
+    }
+
+    public CsvWriter row(String... values) throws IOException {
+        for (String value : values) {
+            field(value);
+        }
+        return endRow();
+    }
+
+    public CsvWriter field(String value) throws IOException {
+        separate();
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return this;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+        return this;
+    }
+
+    public CsvWriter field(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Angka tanpa pemisah ribuan dan tanpa notasi ilmiah, maksimal 2 desimal (dibaca ulang oleh
+     * ImportRow.parseNumber, yang menganggap tepat 3 digit setelah pemisah sebagai ribuan)
+     */
+    public CsvWriter field(double value) throws IOException {
+        separate();
+        out.write(ImportRow.formatNumber(Math.round(value * 100) / 100.0));
+        return this;
+    }
+
+    public CsvWriter empty() throws IOException {
+        separate();
+        return this;
+    }
+
+    public CsvWriter endRow() throws IOException {
+        out.write("\r\n");
+        rowStarted = false;
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void separate() throws IOException {
+        if (rowStarted) {
+            out.write(delimiter);
+        }
+        rowStarted = true;
+    }
+
+    private boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -3,62 +3,85 @@ package com.alkahfprogrammer.warungku.utils;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.util.Log;
 import androidx.core.content.FileProvider;
 
+import com.alkahfprogrammer.warungku.data.backup.BackupRotation;
+import com.alkahfprogrammer.warungku.data.backup.DatabaseSnapshot;
+import com.alkahfprogrammer.warungku.data.backup.IncrementalBackup;
+
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 
 public class DatabaseBackupUtils {
     
+    private static final String TAG = "DatabaseBackup";
     private static final String DB_NAME = "warungku_db";
-    private static final String BACKUP_FOLDER = "WarungKu_Backup";
     
     /**
-     * Backup database SQLite file ke app's external files directory
+     * Backup database ke app's external files directory sebagai snapshot terkompresi (.wkb)
      * Tidak perlu permission untuk Android 10+
      * @return File path jika berhasil, null jika gagal
      */
     public static File backupDatabase(Context context) {
+        DatabaseSnapshot.Result result = createSnapshot(context);
+        return result != null ? result.file : null;
+    }
+    
+    /**
+     * Sama dengan backupDatabase, tapi mengembalikan header (versi skema, jumlah baris) dan ukuran file
+     * @return null jika gagal
+     */
+    public static DatabaseSnapshot.Result createSnapshot(Context context) {
         try {
-            // Get database file
             File dbFile = context.getDatabasePath(DB_NAME);
             if (!dbFile.exists()) {
                 return null;
             }
             
-            // Create backup folder di app's external files directory
-            File backupFolder = new File(context.getExternalFilesDir(null), BACKUP_FOLDER);
-            if (!backupFolder.exists()) {
-                backupFolder.mkdirs();
-            }
+            File backupFolder = getBackupFolder(context);
             
             // Create backup file dengan timestamp
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
+            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US)
                 .format(new Date());
-            String backupFileName = "warungku_backup_" + timestamp + ".db";
-            File backupFile = new File(backupFolder, backupFileName);
-            
-            // Copy database file
-            FileInputStream fis = new FileInputStream(dbFile);
-            FileOutputStream fos = new FileOutputStream(backupFile);
-            FileChannel source = fis.getChannel();
-            FileChannel destination = fos.getChannel();
-            destination.transferFrom(source, 0, source.size());
-            
-            source.close();
-            destination.close();
-            fis.close();
-            fos.close();
+            String backupFileName = "warungku_backup_" + timestamp + DatabaseSnapshot.EXTENSION;
+            DatabaseSnapshot.Result result = DatabaseSnapshot.create(context, new File(backupFolder, backupFileName));
             
-            return backupFile;
-        } catch (IOException e) {
-            e.printStackTrace();
+            // Rotasi harian/mingguan/bulanan + batas ukuran, backup terbaru selalu disimpan
+            BackupRotation.prune(backupFolder);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Gagal membuat backup", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Folder backup di app's external files directory (dibuat jika belum ada)
+     */
+    public static File getBackupFolder(Context context) {
+        return BackupRotation.getFolder(context);
+    }
+    
+    /**
+     * Backup inkremental (.wkm): hanya chunk yang berubah sejak backup sebelumnya yang ditulis.
+     * Hemat penyimpanan untuk backup terjadwal, tapi tidak bisa dibagikan ke perangkat lain.
+     * Folder tidak dirotasi di sini: pemanggil dulu memutuskan apakah manifest baru disimpan (misal
+     * dibuang karena isinya sama dengan backup terakhir), baru memanggil BackupRotation.prune.
+     * @return null jika gagal
+     */
+    public static IncrementalBackup.Result createIncrementalBackup(Context context) {
+        try {
+            File backupFolder = getBackupFolder(context);
+            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US)
+                .format(new Date());
+            String manifestName = "warungku_backup_" + timestamp + IncrementalBackup.EXTENSION;
+            return IncrementalBackup.create(context, backupFolder, new File(backupFolder, manifestName));
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Gagal membuat backup inkremental", e);
             return null;
         }
     }
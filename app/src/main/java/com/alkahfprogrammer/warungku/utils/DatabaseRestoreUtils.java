@@ -2,21 +2,23 @@ package com.alkahfprogrammer.warungku.utils;
 
 import android.content.Context;
 import android.net.Uri;
-import com.alkahfprogrammer.warungku.data.AppDatabase;
+import android.util.Log;
+import com.alkahfprogrammer.warungku.data.backup.DatabaseRestorer;
+import com.alkahfprogrammer.warungku.data.backup.DatabaseSnapshot;
+import com.alkahfprogrammer.warungku.data.backup.IncrementalBackup;
+import com.alkahfprogrammer.warungku.data.backup.MergeRestorer;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.channels.FileChannel;
 
 public class DatabaseRestoreUtils {
     
-    private static final String DB_NAME = "warungku_db";
+    private static final String TAG = "DatabaseRestore";
     
     /**
-     * Restore database dari file SQLite
+     * Restore database dari file backup (.wkb, .wkm atau .db)
      * Note: Method ini akan membuat backup otomatis sebelum restore
      * @param context Context
      * @param backupFile File backup yang akan di-restore
@@ -28,46 +30,10 @@ public class DatabaseRestoreUtils {
         }
         
         try {
-            // 1. Buat backup otomatis sebelum restore (safety)
-            File autoBackup = DatabaseBackupUtils.backupDatabase(context);
-            if (autoBackup == null) {
-                // Jika gagal backup, tetap lanjutkan restore (user sudah konfirmasi)
-                // Tapi log warning
-                android.util.Log.w("DatabaseRestore", "Gagal membuat backup otomatis sebelum restore");
-            }
-            
-            // 2. Close database connection
-            AppDatabase db = AppDatabase.getDatabase(context);
-            db.close();
-            
-            // 3. Get database file
-            File dbFile = context.getDatabasePath(DB_NAME);
-            File dbWalFile = new File(dbFile.getPath() + "-wal");
-            File dbShmFile = new File(dbFile.getPath() + "-shm");
-            
-            // 4. Delete existing database files
-            if (dbFile.exists()) dbFile.delete();
-            if (dbWalFile.exists()) dbWalFile.delete();
-            if (dbShmFile.exists()) dbShmFile.delete();
-            
-            // 5. Copy backup file ke database location
-            FileInputStream fis = new FileInputStream(backupFile);
-            FileOutputStream fos = new FileOutputStream(dbFile);
-            FileChannel source = fis.getChannel();
-            FileChannel destination = fos.getChannel();
-            destination.transferFrom(source, 0, source.size());
-            
-            source.close();
-            destination.close();
-            fis.close();
-            fos.close();
-            
-            // 6. Reopen database (akan dibuat otomatis oleh Room)
-            AppDatabase.getDatabase(context);
-            
+            restore(context, new FileInputStream(backupFile));
             return true;
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.e(TAG, "Restore gagal", e);
             return false;
         }
     }
@@ -84,59 +50,83 @@ public class DatabaseRestoreUtils {
         }
         
         try {
-            // 1. Buat backup otomatis sebelum restore
-            File autoBackup = DatabaseBackupUtils.backupDatabase(context);
-            if (autoBackup == null) {
-                android.util.Log.w("DatabaseRestore", "Gagal membuat backup otomatis sebelum restore");
-            }
-            
-            // 2. Close database connection
-            AppDatabase db = AppDatabase.getDatabase(context);
-            db.close();
-            
-            // 3. Get database file
-            File dbFile = context.getDatabasePath(DB_NAME);
-            File dbWalFile = new File(dbFile.getPath() + "-wal");
-            File dbShmFile = new File(dbFile.getPath() + "-shm");
-            
-            // 4. Delete existing database files
-            if (dbFile.exists()) dbFile.delete();
-            if (dbWalFile.exists()) dbWalFile.delete();
-            if (dbShmFile.exists()) dbShmFile.delete();
-            
-            // 5. Copy dari Uri ke database location
             InputStream inputStream = context.getContentResolver().openInputStream(uri);
             if (inputStream == null) {
                 return false;
             }
-            
-            FileOutputStream fos = new FileOutputStream(dbFile);
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                fos.write(buffer, 0, length);
-            }
-            
-            inputStream.close();
-            fos.close();
-            
-            // 6. Reopen database
-            AppDatabase.getDatabase(context);
-            
+            restore(context, inputStream);
             return true;
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.e(TAG, "Restore gagal", e);
             return false;
         }
     }
     
+    /**
+     * Restore lengkap: validasi (dan migrasi) backup dulu, baru backup otomatis data sekarang, baru
+     * ganti isi database dalam satu transaksi. File yang rusak ditolak sebelum data sekarang disentuh.
+     * @throws IOException dengan pesan yang bisa ditampilkan ke pengguna
+     */
+    public static DatabaseRestorer.Staged restore(Context context, InputStream inputStream) throws IOException {
+        // 1. Stream ke file staging + validasi
+        DatabaseRestorer.Staged staged = DatabaseRestorer.prepare(context, inputStream);
+        
+        // 2. Buat backup otomatis sebelum restore (safety)
+        File autoBackup = DatabaseBackupUtils.backupDatabase(context);
+        if (autoBackup == null) {
+            // Jika gagal backup, tetap lanjutkan restore (user sudah konfirmasi)
+            Log.w(TAG, "Gagal membuat backup otomatis sebelum restore");
+        }
+        
+        // 3. Ganti isi database; observer LiveData ikut diperbarui setelah commit
+        DatabaseRestorer.apply(context, staged);
+        return staged;
+    }
+    
+    /**
+     * Tahap pertama gabung backup dari HP lain: validasi (dan migrasi) backup seperti restore, lalu
+     * dry run. Belum ada data yang ditulis; panggil merge() setelah pengguna menyetujui laporannya,
+     * atau DatabaseRestorer.discard() jika batal.
+     * @throws IOException dengan pesan yang bisa ditampilkan ke pengguna
+     */
+    public static MergeRestorer.Plan prepareMerge(Context context, InputStream inputStream) throws IOException {
+        DatabaseRestorer.Staged staged = DatabaseRestorer.prepare(context, inputStream);
+        try {
+            return MergeRestorer.analyze(context, staged);
+        } catch (RuntimeException e) {
+            DatabaseRestorer.discard(context);
+            throw new IOException("Backup tidak bisa dibaca: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Tulis hasil dry run ke database, dengan backup otomatis data sekarang lebih dulu
+     * @throws IOException dengan pesan yang bisa ditampilkan ke pengguna
+     */
+    public static MergeRestorer.Report merge(Context context, MergeRestorer.Plan plan) throws IOException {
+        File autoBackup = DatabaseBackupUtils.backupDatabase(context);
+        if (autoBackup == null) {
+            Log.w(TAG, "Gagal membuat backup otomatis sebelum gabung backup");
+        }
+        return MergeRestorer.apply(context, plan);
+    }
+    
     /**
      * Validate backup file (check if it's a valid SQLite database)
      * @param file Backup file
      * @return true jika valid, false jika tidak
      */
     public static boolean isValidBackupFile(File file) {
-        if (file == null || !file.exists() || !file.getName().endsWith(".db")) {
+        if (file == null || !file.exists()) {
+            return false;
+        }
+        if (file.getName().endsWith(DatabaseSnapshot.EXTENSION)) {
+            return DatabaseSnapshot.isSnapshot(file);
+        }
+        if (file.getName().endsWith(IncrementalBackup.EXTENSION)) {
+            return IncrementalBackup.isManifest(file);
+        }
+        if (!file.getName().endsWith(".db")) {
             return false;
         }
         
@@ -1,26 +1,46 @@
 package com.alkahfprogrammer.warungku.utils;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.util.Log;
-import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.entity.DailySummary;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.util.DefaultTempFileCreationStrategy;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
 public class ExcelExporter {
     private static final String TAG = "ExcelExporter";
+    private static final int ROW_WINDOW = 200; // Baris per sheet yang ditahan di memori, sisanya sudah di-flush ke file sementara
+    private static final int CHUNK_SIZE = 1000; // Baris per query ke Room
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    static final String[] PRODUCT_HEADERS = {"Nama Produk", "Harga Beli", "Harga Jual", "Stok", "Stok Minimum", "Barcode"};
+    static final String[] CASH_FLOW_HEADERS = {"Waktu", "Jenis", "Jumlah", "Keuntungan", "Keterangan", "ID Produk"};
+    private static final String[] DAILY_HEADERS = {"Tanggal", "Pemasukan", "Pengeluaran", "Keuntungan", "Belanja Stok", "Jumlah Transaksi"};
     
     public static class ExportResult {
         public boolean success;
         public String filePath;
         public String errorMessage;
+        public boolean cancelled;
         
         public ExportResult(boolean success, String filePath, String errorMessage) {
             this.success = success;
@@ -28,116 +48,309 @@ public class ExcelExporter {
             this.errorMessage = errorMessage;
         }
     }
-    
+
     /**
-     * Export products to Excel file
-     * @param context Android context
-     * @param products List of products to export
-     * @return ExportResult with success status and file path
+     * Isi file export: sheet produk selalu ada; riwayat cash_flow dan rekap harian untuk rentang waktu opsional
      */
-    public static ExportResult exportProducts(Context context, List<Product> products) {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Produk");
-        
+    public static class ExportOptions {
+        public final boolean includeTransactions;
+        public final long startTime; // Inklusif (ms)
+        public final long endTime;   // Eksklusif (ms)
+
+        private ExportOptions(boolean includeTransactions, long startTime, long endTime) {
+            this.includeTransactions = includeTransactions;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        public static ExportOptions productsOnly() {
+            return new ExportOptions(false, 0, 0);
+        }
+
+        public static ExportOptions withTransactions(long startTime, long endTime) {
+            return new ExportOptions(true, startTime, endTime);
+        }
+    }
+
+    /**
+     * Progress export, dipanggil dari thread export setiap chunk
+     */
+    public interface ProgressListener {
+        void onProgress(int exportedRows, int totalRows);
+    }
+
+    /**
+     * Export streaming ke file .xlsx di folder Downloads aplikasi.
+     *
+     * Data dibaca dari Room per chunk (keyset, lewat Cursor) dan ditulis ke SXSSFWorkbook yang hanya
+     * menahan ROW_WINDOW baris per sheet di memori; baris lama di-flush ke file sementara terkompresi.
+     * Memori tetap konstan berapa pun jumlah transaksinya. Jalankan di background thread.
+     * @param cancel boleh null; jika dibatalkan, file setengah jadi dihapus dan result.cancelled = true
+     */
+    public static ExportResult exportWorkbook(Context context, ExportOptions options, ProgressListener listener,
+                                              CancellationSignal cancel) {
+        AppDatabase db = AppDatabase.getDatabase(context);
+        // File sementara SXSSF di cache aplikasi
+        TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy(new File(context.getCacheDir(), "poi")));
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+        String fileName = (options.includeTransactions ? "WarungKu_Export_" : "WarungKu_Products_")
+                + sdf.format(new Date()) + ".xlsx";
+        File downloadsDir = new File(context.getExternalFilesDir(null), "Downloads");
+        if (!downloadsDir.exists()) {
+            downloadsDir.mkdirs();
+        }
+        File file = new File(downloadsDir, fileName);
+        File temp = new File(downloadsDir, fileName + ".tmp");
+
         try {
-            // Create header row
-            Row headerRow = sheet.createRow(0);
-            String[] headers = {"Nama Produk", "Harga Beli", "Harga Jual", "Stok", "Stok Minimum", "Barcode"};
-            
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerFont.setFontHeightInPoints((short) 12);
-            headerStyle.setFont(headerFont);
-            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            headerStyle.setAlignment(HorizontalAlignment.CENTER);
-            
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
+            List<DailySummary> days = null;
+            int total = db.productDao().getProductCount();
+            if (options.includeTransactions) {
+                // Paling banyak satu baris per hari, aman dibaca sekaligus
+                days = db.dailySummaryDao().getSummariesInRangeSync(DailySummary.toEpochDay(options.startTime),
+                        DailySummary.toEpochDay(options.endTime - 1));
+                total += db.cashFlowDao().countInRange(options.startTime, options.endTime) + days.size();
             }
-            
-            // Create data rows
-            CellStyle dataStyle = workbook.createCellStyle();
-            dataStyle.setAlignment(HorizontalAlignment.LEFT);
-            
-            for (int i = 0; i < products.size(); i++) {
-                Product product = products.get(i);
-                Row row = sheet.createRow(i + 1);
-                
-                // Nama Produk
-                Cell cell0 = row.createCell(0);
-                cell0.setCellValue(product.name != null ? product.name : "");
-                cell0.setCellStyle(dataStyle);
-                
-                // Harga Beli
-                Cell cell1 = row.createCell(1);
-                if (product.buyPrice != null) {
-                    cell1.setCellValue(product.buyPrice);
-                } else {
-                    cell1.setCellValue("");
-                }
-                cell1.setCellStyle(dataStyle);
-                
-                // Harga Jual
-                Cell cell2 = row.createCell(2);
-                cell2.setCellValue(product.sellPrice);
-                cell2.setCellStyle(dataStyle);
-                
-                // Stok
-                Cell cell3 = row.createCell(3);
-                cell3.setCellValue(product.currentStock);
-                cell3.setCellStyle(dataStyle);
-                
-                // Stok Minimum
-                Cell cell4 = row.createCell(4);
-                cell4.setCellValue(product.minStock);
-                cell4.setCellStyle(dataStyle);
-                
-                // Barcode
-                Cell cell5 = row.createCell(5);
-                cell5.setCellValue(product.barcode != null ? product.barcode : "");
-                cell5.setCellStyle(dataStyle);
+            Progress progress = new Progress(listener, total, cancel);
+            Styles styles = new Styles(workbook);
+
+            writeProducts(db, workbook, styles, progress);
+            if (options.includeTransactions) {
+                writeCashFlows(db, workbook, styles, options, progress);
+                writeDailySummaries(days, workbook, styles, progress);
             }
-            
-            // Set column widths (autoSizeColumn doesn't work on Android due to java.awt dependency)
-            // Using fixed widths instead
-            sheet.setColumnWidth(0, 15000); // Nama Produk
-            sheet.setColumnWidth(1, 8000);  // Harga Beli
-            sheet.setColumnWidth(2, 8000);  // Harga Jual
-            sheet.setColumnWidth(3, 5000);  // Stok
-            sheet.setColumnWidth(4, 8000);  // Stok Minimum
-            sheet.setColumnWidth(5, 12000); // Barcode
-            
-            // Create file
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
-            String timestamp = sdf.format(new Date());
-            String fileName = "WarungKu_Products_" + timestamp + ".xlsx";
-            
-            File downloadsDir = new File(context.getExternalFilesDir(null), "Downloads");
-            if (!downloadsDir.exists()) {
-                downloadsDir.mkdirs();
+
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp), WRITE_BUFFER_BYTES)) {
+                workbook.write(out);
             }
-            
-            File file = new File(downloadsDir, fileName);
-            FileOutputStream fileOut = new FileOutputStream(file);
-            workbook.write(fileOut);
-            fileOut.close();
-            workbook.close();
-            
-            Log.d(TAG, "Export successful: " + file.getAbsolutePath());
+            progress.checkCancelled();
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot write " + file);
+            }
+            progress.finish();
+            Log.d(TAG, "Export successful: " + file.getAbsolutePath() + " (" + total + " rows)");
             return new ExportResult(true, file.getAbsolutePath(), null);
-            
-        } catch (IOException e) {
+        } catch (OperationCanceledException e) {
+            temp.delete();
+            ExportResult result = new ExportResult(false, null, "Export dibatalkan");
+            result.cancelled = true;
+            return result;
+        } catch (IOException | RuntimeException e) {
             Log.e(TAG, "Export failed", e);
+            temp.delete();
+            return new ExportResult(false, null, e.getMessage());
+        } finally {
+            workbook.dispose(); // Hapus file sementara SXSSF
             try {
                 workbook.close();
             } catch (IOException ex) {
                 Log.e(TAG, "Error closing workbook", ex);
             }
-            return new ExportResult(false, null, e.getMessage());
+        }
+    }
+
+    private static void writeProducts(AppDatabase db, SXSSFWorkbook workbook, Styles styles, Progress progress) {
+        Sheet sheet = workbook.createSheet("Produk");
+        writeHeader(sheet, styles.header, PRODUCT_HEADERS);
+        // autoSizeColumn doesn't work on Android due to java.awt dependency, using fixed widths
+        setColumnWidths(sheet, 15000, 8000, 8000, 5000, 8000, 12000);
+
+        int rowIndex = 1;
+        int afterId = 0;
+        while (true) {
+            progress.checkCancelled();
+            int count = 0;
+            try (Cursor cursor = db.productDao().getExportChunk(afterId, CHUNK_SIZE)) {
+                int id = cursor.getColumnIndexOrThrow("id");
+                int name = cursor.getColumnIndexOrThrow("name");
+                int buyPrice = cursor.getColumnIndexOrThrow("buyPrice");
+                int sellPrice = cursor.getColumnIndexOrThrow("sellPrice");
+                int stock = cursor.getColumnIndexOrThrow("currentStock");
+                int minStock = cursor.getColumnIndexOrThrow("minStock");
+                int barcode = cursor.getColumnIndexOrThrow("barcode");
+                while (cursor.moveToNext()) {
+                    Row row = sheet.createRow(rowIndex++);
+                    setString(row, 0, cursor.getString(name));
+                    if (!cursor.isNull(buyPrice)) {
+                        row.createCell(1).setCellValue(cursor.getDouble(buyPrice));
+                    }
+                    row.createCell(2).setCellValue(cursor.getDouble(sellPrice));
+                    row.createCell(3).setCellValue(cursor.getInt(stock));
+                    row.createCell(4).setCellValue(cursor.getInt(minStock));
+                    setString(row, 5, cursor.getString(barcode));
+                    afterId = cursor.getInt(id);
+                    count++;
+                }
+            }
+            progress.add(count);
+            if (count < CHUNK_SIZE) {
+                return;
+            }
+        }
+    }
+
+    private static void writeCashFlows(AppDatabase db, SXSSFWorkbook workbook, Styles styles, ExportOptions options,
+                                       Progress progress) {
+        Sheet sheet = workbook.createSheet("Transaksi");
+        writeHeader(sheet, styles.header, CASH_FLOW_HEADERS);
+        setColumnWidths(sheet, 5500, 3500, 5000, 5000, 15000, 3500);
+        ZoneId zone = ZoneId.systemDefault();
+
+        int rowIndex = 1;
+        // Mulai tepat sebelum startTime; afterId maksimum supaya baris di (startTime - 1) tidak ikut
+        long afterTimestamp = options.startTime - 1;
+        int afterId = Integer.MAX_VALUE;
+        while (true) {
+            progress.checkCancelled();
+            int count = 0;
+            try (Cursor cursor = db.cashFlowDao().getExportChunk(afterTimestamp, afterId, options.endTime, CHUNK_SIZE)) {
+                int id = cursor.getColumnIndexOrThrow("id");
+                int timestamp = cursor.getColumnIndexOrThrow("timestamp");
+                int type = cursor.getColumnIndexOrThrow("type");
+                int amount = cursor.getColumnIndexOrThrow("amount");
+                int profit = cursor.getColumnIndexOrThrow("profit");
+                int description = cursor.getColumnIndexOrThrow("description");
+                int productId = cursor.getColumnIndexOrThrow("productId");
+                while (cursor.moveToNext()) {
+                    afterTimestamp = cursor.getLong(timestamp);
+                    afterId = cursor.getInt(id);
+                    Row row = sheet.createRow(rowIndex++);
+                    Cell time = row.createCell(0);
+                    time.setCellValue(LocalDateTime.ofInstant(Instant.ofEpochMilli(afterTimestamp), zone));
+                    time.setCellStyle(styles.dateTime);
+                    setString(row, 1, "IN".equals(cursor.getString(type)) ? "Masuk" : "Keluar");
+                    setMoney(row, 2, cursor.getDouble(amount), styles);
+                    if (!cursor.isNull(profit)) {
+                        setMoney(row, 3, cursor.getDouble(profit), styles);
+                    }
+                    setString(row, 4, cursor.getString(description));
+                    if (!cursor.isNull(productId)) {
+                        row.createCell(5).setCellValue(cursor.getInt(productId));
+                    }
+                    count++;
+                }
+            }
+            progress.add(count);
+            if (count < CHUNK_SIZE) {
+                return;
+            }
+        }
+    }
+
+    private static void writeDailySummaries(List<DailySummary> days, SXSSFWorkbook workbook, Styles styles,
+                                            Progress progress) {
+        Sheet sheet = workbook.createSheet("Rekap Harian");
+        writeHeader(sheet, styles.header, DAILY_HEADERS);
+        setColumnWidths(sheet, 4500, 5000, 5000, 5000, 5000, 5000);
+
+        int rowIndex = 1;
+        for (DailySummary day : days) {
+            Row row = sheet.createRow(rowIndex++);
+            Cell date = row.createCell(0);
+            date.setCellValue(LocalDate.ofEpochDay(day.epochDay));
+            date.setCellStyle(styles.date);
+            setMoney(row, 1, day.income, styles);
+            setMoney(row, 2, day.expense, styles);
+            setMoney(row, 3, day.profit, styles);
+            setMoney(row, 4, day.stockPurchase, styles);
+            row.createCell(5).setCellValue(day.transactionCount);
+        }
+        progress.add(days.size());
+    }
+
+    private static void writeHeader(Sheet sheet, CellStyle style, String[] headers) {
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(style);
+        }
+    }
+
+    private static void setColumnWidths(Sheet sheet, int... widths) {
+        for (int i = 0; i < widths.length; i++) {
+            sheet.setColumnWidth(i, widths[i]);
+        }
+    }
+
+    private static void setString(Row row, int column, String value) {
+        row.createCell(column).setCellValue(value != null ? value : "");
+    }
+
+    private static void setMoney(Row row, int column, double value, Styles styles) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(value);
+        cell.setCellStyle(styles.money);
+    }
+
+    /**
+     * Style dibuat sekali per workbook (jumlah style di file xlsx terbatas)
+     */
+    private static class Styles {
+        final CellStyle header;
+        final CellStyle money;
+        final CellStyle date;
+        final CellStyle dateTime;
+
+        Styles(Workbook workbook) {
+            header = createHeaderStyle(workbook);
+            DataFormat format = workbook.createDataFormat();
+            money = workbook.createCellStyle();
+            money.setDataFormat(format.getFormat("#,##0"));
+            date = workbook.createCellStyle();
+            date.setDataFormat(format.getFormat("dd/mm/yyyy"));
+            dateTime = workbook.createCellStyle();
+            dateTime.setDataFormat(format.getFormat("dd/mm/yyyy hh:mm"));
+        }
+    }
+
+    private static CellStyle createHeaderStyle(Workbook workbook) {
+        CellStyle headerStyle = workbook.createCellStyle();
+        Font headerFont = workbook.createFont();
+        headerFont.setBold(true);
+        headerFont.setFontHeightInPoints((short) 12);
+        headerStyle.setFont(headerFont);
+        headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        headerStyle.setAlignment(HorizontalAlignment.CENTER);
+        return headerStyle;
+    }
+
+    /**
+     * Hitung baris yang sudah ditulis dan periksa pembatalan di antara chunk
+     */
+    private static class Progress {
+        private final ProgressListener listener;
+        private final int total;
+        private final CancellationSignal cancel;
+        private int exported;
+
+        Progress(ProgressListener listener, int total, CancellationSignal cancel) {
+            this.listener = listener;
+            this.total = total;
+            this.cancel = cancel;
+        }
+
+        void add(int rows) {
+            exported += rows;
+            if (listener != null) {
+                listener.onProgress(exported, Math.max(exported, total));
+            }
+        }
+
+        void finish() {
+            if (listener != null) {
+                listener.onProgress(exported, exported);
+            }
+        }
+
+        void checkCancelled() {
+            if (cancel != null) {
+                cancel.throwIfCanceled();
+            }
         }
     }
     
@@ -153,16 +366,8 @@ public class ExcelExporter {
         try {
             // Create header row
             Row headerRow = sheet.createRow(0);
-            String[] headers = {"Nama Produk", "Harga Beli", "Harga Jual", "Stok", "Stok Minimum", "Barcode"};
-            
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerFont.setFontHeightInPoints((short) 12);
-            headerStyle.setFont(headerFont);
-            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            headerStyle.setAlignment(HorizontalAlignment.CENTER);
+            String[] headers = PRODUCT_HEADERS;
+            CellStyle headerStyle = createHeaderStyle(workbook);
             
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
@@ -207,7 +412,7 @@ public class ExcelExporter {
             Row noteRow3 = sheet.createRow(6);
             noteRow3.createCell(0).setCellValue("- Harga Beli, Stok, Stok Minimum, dan Barcode opsional");
             Row noteRow4 = sheet.createRow(7);
-            noteRow4.createCell(0).setCellValue("- Jika produk sudah ada (berdasarkan nama), akan diupdate");
+            noteRow4.createCell(0).setCellValue("- Jika produk sudah ada (berdasarkan barcode atau nama), akan diupdate");
             
             // Set column widths (autoSizeColumn doesn't work on Android due to java.awt dependency)
             // Using fixed widths instead
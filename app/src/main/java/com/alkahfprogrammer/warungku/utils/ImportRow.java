@@ -0,0 +1,102 @@
+package com.alkahfprogrammer.warungku.utils;
+
+import java.math.BigDecimal;
+
+/**
+ * Satu baris data impor, tidak bergantung format file (dibaca streaming, satu baris sekaligus).
+ * Kolom dimulai dari 0; kolom kosong / di luar baris mengembalikan null.
+ */
+public interface ImportRow {
+
+    /**
+     * Nomor baris di file (1 = baris header), untuk pesan error
+     */
+    int getRowNumber();
+
+    /**
+     * Nilai sebagai teks (sudah di-trim); angka bulat ditulis tanpa desimal
+     */
+    String getString(int column);
+
+    /**
+     * Nilai sebagai angka; teks seperti "Rp 3.500" atau "3,500" ikut diparse (lihat parseNumber)
+     */
+    Double getDouble(int column);
+
+    default Integer getInt(int column) {
+        Double value = getDouble(column);
+        return value != null ? value.intValue() : null;
+    }
+
+    default boolean isBlank(int column) {
+        String value = getString(column);
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * Parse angka dari teks: buang "Rp", pemisah ribuan titik/koma
+     * @return null jika kosong atau bukan angka
+     */
+    static Double parseNumber(String text) {
+        if (text == null) {
+            return null;
+        }
+        return parseNumber(text, 0, text.length());
+    }
+
+    /**
+     * Parse angka format Indonesia/Inggris dalam satu lintasan tanpa alokasi string.
+     * "Rp 3.500", "3,500", "3.500,50", "-1500" dan "2.5" dikenali. Pemisah yang diikuti tepat
+     * tiga digit dianggap pemisah ribuan; pemisah terakhir yang diikuti jumlah digit lain
+     * dianggap koma desimal.
+     * @return null jika kosong atau bukan angka
+     */
+    static Double parseNumber(CharSequence text, int start, int end) {
+        long value = 0;
+        int digits = 0;
+        int digitsAfterSeparator = -1; // -1 = belum ada pemisah
+        boolean negative = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 18) {
+                    return null; // Di luar jangkauan long, bukan nominal yang masuk akal
+                }
+                value = value * 10 + (c - '0');
+                if (digitsAfterSeparator >= 0) {
+                    digitsAfterSeparator++;
+                }
+            } else if (c == '.' || c == ',') {
+                digitsAfterSeparator = 0;
+            } else if ((c == 'R' || c == 'r') && i + 1 < end && (text.charAt(i + 1) == 'p' || text.charAt(i + 1) == 'P')) {
+                i++;
+            } else if (c == '-' && digits == 0 && !negative) {
+                negative = true;
+            } else if (!Character.isWhitespace(c) && c != '+') {
+                return null;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        double result = value;
+        if (digitsAfterSeparator > 0 && digitsAfterSeparator != 3) {
+            result = value / Math.pow(10, digitsAfterSeparator);
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Angka bulat tanpa ".0", selain itu desimal biasa. Tidak pernah notasi ilmiah:
+     * String.valueOf menulis 12345678.5 sebagai "1.23456785E7", yang tidak bisa dibaca parseNumber.
+     */
+    static String formatNumber(double value) {
+        if (value == (long) value) {
+            return String.valueOf((long) value);
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return String.valueOf(value);
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
@@ -1,6 +1,5 @@
 package com.alkahfprogrammer.warungku.utils;
 
-import android.app.Application;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
@@ -18,32 +17,61 @@ import com.alkahfprogrammer.warungku.StockActivity;
 import com.alkahfprogrammer.warungku.data.AppDatabase;
 import com.alkahfprogrammer.warungku.data.dao.ProductDao;
 import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.model.StockEvent;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Helper class untuk handle stock notifications
+ *
+ * Satu instance per proses. Tidak lagi memindai seluruh katalog setiap penjualan:
+ * DataRepository mengirim StockEvent hanya untuk produk yang stoknya melewati batas,
+ * dan helper ini menyimpan status per produk supaya notifikasi yang sama tidak diulang.
  */
 public class StockNotificationHelper {
     private static final String TAG = "StockNotificationHelper";
     private static final String CHANNEL_ID = "stock_notifications";
     private static final String CHANNEL_NAME = "Notifikasi Stok";
     private static final String PREF_NAME = "StockNotifications";
-    private static final String KEY_LAST_NOTIFICATION_TIME = "last_notification_time";
-    private static final long NOTIFICATION_COOLDOWN = 3600000; // 1 jam dalam milliseconds
-    
+    private static final String KEY_LEVEL_PREFIX = "notified_level_"; // Level terakhir yang sudah dinotifikasi per produk
+    private static final int NOTIFICATION_ID_LOW = 1;
+    private static final int NOTIFICATION_ID_OUT = 2;
+
+    private static volatile StockNotificationHelper INSTANCE;
+
     private final Context context;
     private final ProductDao productDao;
     private final SharedPreferences prefs;
-    
-    public StockNotificationHelper(Context context) {
+
+    // Produk yang saat ini stoknya rendah / habis (id -> produk), untuk isi notifikasi ringkasan
+    private final Map<Integer, Product> lowStockProducts = new LinkedHashMap<>();
+    private final Map<Integer, Product> outOfStockProducts = new LinkedHashMap<>();
+    // Nomor urut event terakhir yang diterapkan per produk; event yang lebih tua (datang terlambat) dibuang
+    private final Map<Integer, Long> lastSequence = new HashMap<>();
+    private boolean seeded = false;
+
+    private StockNotificationHelper(Context context) {
         this.context = context.getApplicationContext();
         AppDatabase db = AppDatabase.getDatabase(this.context);
         this.productDao = db.productDao();
         this.prefs = this.context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
         createNotificationChannel();
     }
-    
+
+    public static StockNotificationHelper getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (StockNotificationHelper.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new StockNotificationHelper(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
     /**
      * Create notification channel untuk Android 8.0+
      */
@@ -57,125 +85,195 @@ public class StockNotificationHelper {
             channel.setDescription("Notifikasi untuk stok barang yang hampir habis atau habis");
             channel.enableVibration(true);
             channel.setShowBadge(true);
-            
+
             NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
             if (notificationManager != null) {
                 notificationManager.createNotificationChannel(channel);
             }
         }
     }
-    
+
     /**
-     * Check stok dan kirim notifikasi jika perlu
+     * Isi status awal dari database (sekali per proses), lalu notifikasi produk yang belum pernah dinotifikasi.
+     * Dipanggil dari MainActivity; penjualan berikutnya cukup lewat onStockEvents().
      */
     public void checkAndNotify() {
-        // Check permission untuk Android 13+
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-            NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
-            if (!notificationManager.areNotificationsEnabled()) {
-                Log.d(TAG, "Notifications not enabled by user");
+        synchronized (this) {
+            if (seeded) {
                 return;
             }
+            seeded = true;
         }
-        
-        // Check cooldown (jangan spam notification)
-        long lastNotificationTime = prefs.getLong(KEY_LAST_NOTIFICATION_TIME, 0);
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastNotificationTime < NOTIFICATION_COOLDOWN) {
-            Log.d(TAG, "Notification cooldown active, skipping");
-            return;
-        }
-        
-        // Check stok di background thread
+
         AppDatabase.databaseWriteExecutor.execute(() -> {
             try {
-                List<Product> allProducts = productDao.getAllProductsSync();
-                checkLowStock(allProducts);
-                checkOutOfStock(allProducts);
+                List<Product> products = productDao.getLowStockProductsSync();
+                synchronized (this) {
+                    boolean notifyLow = false;
+                    boolean notifyOut = false;
+                    for (Product product : products) {
+                        int level = StockEvent.levelOf(product.currentStock, product.minStock);
+                        track(product.id, product, level);
+                        if (level > getNotifiedLevel(product.id)) {
+                            setNotifiedLevel(product.id, level);
+                            if (level == StockEvent.LEVEL_OUT) {
+                                notifyOut = true;
+                            } else {
+                                notifyLow = true;
+                            }
+                        }
+                    }
+                    if (notifyLow) {
+                        postLowStockNotification();
+                    }
+                    if (notifyOut) {
+                        postOutOfStockNotification();
+                    }
+                }
             } catch (Exception e) {
                 Log.e(TAG, "Error checking stock", e);
             }
         });
     }
-    
+
     /**
-     * Check produk dengan stok rendah (currentStock <= minStock)
+     * Terima event dari transaksi yang sudah ter-commit. Biaya sebanding jumlah event, bukan ukuran katalog.
+     * Event bisa tiba tidak berurutan (dikirim dari thread berbeda); event yang lebih tua dari yang sudah
+     * diterapkan untuk produk yang sama diabaikan supaya status tidak mundur.
      */
-    private void checkLowStock(List<Product> products) {
-        int lowStockCount = 0;
-        StringBuilder productNames = new StringBuilder();
-        
-        for (Product product : products) {
-            if (product.currentStock > 0 && product.currentStock <= product.minStock) {
-                lowStockCount++;
-                if (productNames.length() > 0) {
-                    productNames.append(", ");
-                }
-                if (productNames.length() < 100) { // Limit panjang text
-                    productNames.append(product.name);
+    public synchronized void onStockEvents(List<StockEvent> events) {
+        boolean notifyLow = false;
+        boolean notifyOut = false;
+        for (StockEvent event : events) {
+            Long last = lastSequence.get(event.productId);
+            if (last != null && last > event.sequence) {
+                continue;
+            }
+            lastSequence.put(event.productId, event.sequence);
+            Product snapshot = new Product(event.productName, 0, null, event.currentStock, event.minStock);
+            snapshot.id = event.productId;
+            track(event.productId, snapshot, event.level);
+
+            if (event.level == StockEvent.LEVEL_OK) {
+                // Stok sudah normal lagi, boleh dinotifikasi ulang kalau nanti turun lagi
+                clearNotifiedLevel(event.productId);
+            } else if (event.level > getNotifiedLevel(event.productId)) {
+                setNotifiedLevel(event.productId, event.level);
+                if (event.level == StockEvent.LEVEL_OUT) {
+                    notifyOut = true;
                 } else {
-                    productNames.append("...");
-                    break;
+                    notifyLow = true;
                 }
             }
         }
-        
-        if (lowStockCount > 0) {
-            String title = lowStockCount == 1 ? "Stok Hampir Habis" : lowStockCount + " Produk Stok Hampir Habis";
-            String message = lowStockCount == 1 
-                ? productNames.toString() + " stok hampir habis (" + getLowStockInfo(products) + ")"
-                : lowStockCount + " produk perlu restock segera";
-            
-            sendNotification(1, title, message);
-            updateLastNotificationTime();
+
+        if (notifyLow) {
+            postLowStockNotification();
+        } else if (lowStockProducts.isEmpty()) {
+            NotificationManagerCompat.from(context).cancel(NOTIFICATION_ID_LOW);
+        }
+        if (notifyOut) {
+            postOutOfStockNotification();
+        } else if (outOfStockProducts.isEmpty()) {
+            NotificationManagerCompat.from(context).cancel(NOTIFICATION_ID_OUT);
         }
     }
-    
+
     /**
-     * Check produk yang stok habis (currentStock == 0)
+     * Lupakan status produk (misal setelah produk dihapus)
      */
-    private void checkOutOfStock(List<Product> products) {
-        int outOfStockCount = 0;
-        StringBuilder productNames = new StringBuilder();
-        
-        for (Product product : products) {
-            if (product.currentStock == 0) {
-                outOfStockCount++;
-                if (productNames.length() > 0) {
-                    productNames.append(", ");
-                }
-                if (productNames.length() < 100) { // Limit panjang text
-                    productNames.append(product.name);
-                } else {
-                    productNames.append("...");
-                    break;
-                }
-            }
+    public synchronized void forgetProduct(int productId) {
+        lowStockProducts.remove(productId);
+        outOfStockProducts.remove(productId);
+        clearNotifiedLevel(productId);
+    }
+
+    private void track(int productId, Product product, int level) {
+        lowStockProducts.remove(productId);
+        outOfStockProducts.remove(productId);
+        if (level == StockEvent.LEVEL_LOW) {
+            lowStockProducts.put(productId, product);
+        } else if (level == StockEvent.LEVEL_OUT) {
+            outOfStockProducts.put(productId, product);
+        }
+    }
+
+    private int getNotifiedLevel(int productId) {
+        return prefs.getInt(KEY_LEVEL_PREFIX + productId, StockEvent.LEVEL_OK);
+    }
+
+    private void setNotifiedLevel(int productId, int level) {
+        prefs.edit().putInt(KEY_LEVEL_PREFIX + productId, level).apply();
+    }
+
+    private void clearNotifiedLevel(int productId) {
+        prefs.edit().remove(KEY_LEVEL_PREFIX + productId).apply();
+    }
+
+    /**
+     * Notifikasi produk dengan stok rendah (0 < currentStock <= minStock)
+     */
+    private void postLowStockNotification() {
+        int lowStockCount = lowStockProducts.size();
+        if (lowStockCount == 0 || !notificationsEnabled()) {
+            return;
         }
-        
-        if (outOfStockCount > 0) {
-            String title = outOfStockCount == 1 ? "Stok Habis" : outOfStockCount + " Produk Stok Habis";
-            String message = outOfStockCount == 1 
-                ? productNames.toString() + " stok habis"
-                : outOfStockCount + " produk stok habis, perlu restock";
-            
-            sendNotification(2, title, message);
-            updateLastNotificationTime();
+
+        String title = lowStockCount == 1 ? "Stok Hampir Habis" : lowStockCount + " Produk Stok Hampir Habis";
+        String message;
+        if (lowStockCount == 1) {
+            Product product = lowStockProducts.values().iterator().next();
+            message = product.name + " stok hampir habis (" + product.currentStock + "/" + product.minStock + ")";
+        } else {
+            message = lowStockCount + " produk perlu restock segera: " + joinNames(lowStockProducts);
         }
+        sendNotification(NOTIFICATION_ID_LOW, title, message);
     }
-    
+
     /**
-     * Get info stok untuk produk dengan stok rendah
+     * Notifikasi produk yang stok habis (currentStock <= 0)
      */
-    private String getLowStockInfo(List<Product> products) {
-        for (Product product : products) {
-            if (product.currentStock > 0 && product.currentStock <= product.minStock) {
-                return product.currentStock + "/" + product.minStock;
+    private void postOutOfStockNotification() {
+        int outOfStockCount = outOfStockProducts.size();
+        if (outOfStockCount == 0 || !notificationsEnabled()) {
+            return;
+        }
+
+        String title = outOfStockCount == 1 ? "Stok Habis" : outOfStockCount + " Produk Stok Habis";
+        String message = outOfStockCount == 1
+            ? outOfStockProducts.values().iterator().next().name + " stok habis"
+            : outOfStockCount + " produk stok habis, perlu restock: " + joinNames(outOfStockProducts);
+        sendNotification(NOTIFICATION_ID_OUT, title, message);
+    }
+
+    private String joinNames(Map<Integer, Product> products) {
+        StringBuilder productNames = new StringBuilder();
+        for (Product product : products.values()) {
+            if (productNames.length() > 0) {
+                productNames.append(", ");
+            }
+            if (productNames.length() < 100) { // Limit panjang text
+                productNames.append(product.name);
+            } else {
+                productNames.append("...");
+                break;
+            }
+        }
+        return productNames.toString();
+    }
+
+    private boolean notificationsEnabled() {
+        // Check permission untuk Android 13+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
+            if (!notificationManager.areNotificationsEnabled()) {
+                Log.d(TAG, "Notifications not enabled by user");
+                return false;
             }
         }
-        return "";
+        return true;
     }
-    
+
     /**
      * Send notification
      */
@@ -188,7 +286,7 @@ public class StockNotificationHelper {
             intent,
             PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
-        
+
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
             .setSmallIcon(R.drawable.ic_stock)
             .setContentTitle(title)
@@ -198,7 +296,7 @@ public class StockNotificationHelper {
             .setContentIntent(pendingIntent)
             .setAutoCancel(true)
             .setCategory(NotificationCompat.CATEGORY_REMINDER);
-        
+
         NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
         try {
             notificationManager.notify(notificationId, builder.build());
@@ -207,21 +305,13 @@ public class StockNotificationHelper {
             Log.e(TAG, "Failed to send notification", e);
         }
     }
-    
-    /**
-     * Update last notification time untuk cooldown
-     */
-    private void updateLastNotificationTime() {
-        prefs.edit().putLong(KEY_LAST_NOTIFICATION_TIME, System.currentTimeMillis()).apply();
-    }
-    
+
     /**
      * Clear all stock notifications
      */
     public void clearNotifications() {
         NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
-        notificationManager.cancel(1); // Low stock notification
-        notificationManager.cancel(2); // Out of stock notification
+        notificationManager.cancel(NOTIFICATION_ID_LOW); // Low stock notification
+        notificationManager.cancel(NOTIFICATION_ID_OUT); // Out of stock notification
     }
 }
-
@@ -0,0 +1,477 @@
+package com.alkahfprogrammer.warungku.utils;
+
+import android.content.Context;
+import android.util.LruCache;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Pembaca .xlsx streaming (XSSF event model + SAX), pengganti XSSFWorkbook untuk impor.
+ *
+ * - File disalin ke cache lalu dibuka sebagai zip random-access, bukan dibaca utuh ke memori.
+ * - Sheet di-parse SAX dan diberikan ke handler satu baris sekaligus (objek baris dipakai ulang).
+ * - Shared strings ditulis ke file sementara dan dibaca per index saat dibutuhkan, dengan
+ *   cache LRU kecil; yang tinggal di heap hanya offset per string.
+ */
+public class XlsxStreamReader {
+    private static final int MAX_COLUMNS = 32; // Kolom setelah ini diabaikan (template hanya 6 kolom)
+    private static final int STRING_CACHE_SIZE = 512;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public interface RowHandler {
+        /**
+         * Nomor baris terakhir menurut elemen &lt;dimension&gt; sheet (untuk progress), jika ada
+         */
+        default void onDimension(int lastRowNumber) {
+        }
+
+        void onRow(ImportRow row) throws Exception;
+    }
+
+    /**
+     * Baca sheet pertama workbook. Jalankan di background thread.
+     */
+    public static void readFirstSheet(Context context, InputStream input, RowHandler handler) throws IOException {
+        File workbookFile = File.createTempFile("import", ".xlsx", context.getCacheDir());
+        File stringsFile = File.createTempFile("import_strings", ".bin", context.getCacheDir());
+        OPCPackage pkg = null;
+        try {
+            copy(input, workbookFile);
+            pkg = OPCPackage.open(workbookFile, PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(pkg);
+
+            try (SharedStringStore strings = SharedStringStore.build(pkg, reader, stringsFile)) {
+                StylesTable styles = reader.getStylesTable();
+                XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+                if (!sheets.hasNext()) {
+                    throw new IOException("Workbook has no sheets");
+                }
+                try (InputStream sheet = sheets.next()) {
+                    parse(sheet, new SheetHandler(strings, styles, handler));
+                }
+            }
+        } catch (OpenXML4JException e) {
+            throw new IOException("Invalid xlsx file", e);
+        } finally {
+            if (pkg != null) {
+                pkg.revert(); // Tutup tanpa menulis apa pun
+            }
+            workbookFile.delete();
+            stringsFile.delete();
+        }
+    }
+
+    private static void parse(InputStream xml, DefaultHandler contentHandler) throws IOException {
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            XMLReader xmlReader = factory.newSAXParser().getXMLReader();
+            xmlReader.setContentHandler(contentHandler);
+            xmlReader.parse(new InputSource(xml));
+        } catch (ParserConfigurationException e) {
+            throw new IOException(e);
+        } catch (SAXException e) {
+            Exception cause = e.getException();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause != null ? cause.getMessage() : e.getMessage(), cause != null ? cause : e);
+        }
+    }
+
+    private static void copy(InputStream input, File target) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (OutputStream out = new FileOutputStream(target)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Kolom dari referensi sel ("C12" -> 2)
+     */
+    static int columnIndex(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    // ---------- Baris ----------
+
+    private static final byte BLANK = 0;
+    private static final byte STRING = 1;
+    private static final byte NUMERIC = 2;
+    private static final byte DATE = 3;
+    private static final byte BOOLEAN = 4;
+
+    /**
+     * Satu baris sheet; satu instance dipakai ulang untuk semua baris
+     */
+    private static class XlsxRow implements ImportRow {
+        private final byte[] types = new byte[MAX_COLUMNS];
+        private final String[] strings = new String[MAX_COLUMNS];
+        private final double[] numbers = new double[MAX_COLUMNS];
+        private int rowNumber;
+
+        void reset(int rowNumber) {
+            this.rowNumber = rowNumber;
+            Arrays.fill(types, BLANK);
+            Arrays.fill(strings, null);
+        }
+
+        void set(int column, byte type, String text, double number) {
+            if (column < 0 || column >= MAX_COLUMNS) {
+                return;
+            }
+            types[column] = type;
+            strings[column] = text;
+            numbers[column] = number;
+        }
+
+        @Override
+        public int getRowNumber() {
+            return rowNumber;
+        }
+
+        @Override
+        public String getString(int column) {
+            if (column < 0 || column >= MAX_COLUMNS) {
+                return null;
+            }
+            switch (types[column]) {
+                case STRING:
+                    return strings[column].trim();
+                case NUMERIC:
+                    return ImportRow.formatNumber(numbers[column]);
+                case DATE:
+                    return DateUtil.getJavaDate(numbers[column]).toString();
+                case BOOLEAN:
+                    return strings[column];
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public Double getDouble(int column) {
+            if (column < 0 || column >= MAX_COLUMNS) {
+                return null;
+            }
+            switch (types[column]) {
+                case NUMERIC:
+                case DATE:
+                    return numbers[column];
+                case STRING:
+                    return ImportRow.parseNumber(strings[column]);
+                default:
+                    return null;
+            }
+        }
+    }
+
+    // ---------- SAX sheet ----------
+
+    private static class SheetHandler extends DefaultHandler {
+        private final SharedStringStore sharedStrings;
+        private final StylesTable styles;
+        private final RowHandler rowHandler;
+        private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+        private final XlsxRow row = new XlsxRow();
+        private final StringBuilder text = new StringBuilder();
+
+        private int rowNumber = 0;
+        private int column = -1;
+        private String cellType;
+        private String cellStyle;
+        private boolean capturing = false;
+
+        SheetHandler(SharedStringStore sharedStrings, StylesTable styles, RowHandler rowHandler) {
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "dimension":
+                    String ref = attributes.getValue("ref");
+                    if (ref != null && ref.indexOf(':') > 0) {
+                        String last = ref.substring(ref.indexOf(':') + 1);
+                        try {
+                            rowHandler.onDimension(Integer.parseInt(last.substring(letters(last)))); // "F20001" -> 20001
+                        } catch (NumberFormatException e) {
+                            // Dimensi tidak valid, progress tanpa total
+                        }
+                    }
+                    break;
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowNumber = r != null ? Integer.parseInt(r) : rowNumber + 1;
+                    row.reset(rowNumber);
+                    column = -1;
+                    break;
+                case "c":
+                    String reference = attributes.getValue("r");
+                    column = reference != null ? columnIndex(reference) : column + 1;
+                    cellType = attributes.getValue("t");
+                    cellStyle = attributes.getValue("s");
+                    text.setLength(0);
+                    break;
+                case "v":
+                    text.setLength(0);
+                    capturing = true;
+                    break;
+                case "t":
+                    capturing = "inlineStr".equals(cellType); // Teks inline (<is><t>), bisa beberapa run
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (capturing) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v":
+                case "t":
+                    capturing = false;
+                    break;
+                case "c":
+                    storeCell();
+                    break;
+                case "row":
+                    try {
+                        rowHandler.onRow(row);
+                    } catch (Exception e) {
+                        throw new SAXException(e);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void storeCell() throws SAXException {
+            String value = text.toString();
+            if ("s".equals(cellType)) {
+                try {
+                    row.set(column, STRING, sharedStrings.get(Integer.parseInt(value.trim())), 0);
+                } catch (IOException | NumberFormatException e) {
+                    throw new SAXException(e instanceof IOException ? (IOException) e : new IOException(e));
+                }
+            } else if ("inlineStr".equals(cellType) || "str".equals(cellType)) {
+                row.set(column, STRING, value, 0);
+            } else if ("b".equals(cellType)) {
+                row.set(column, BOOLEAN, "1".equals(value.trim()) ? "true" : "false", 0);
+            } else if ("e".equals(cellType) || value.trim().isEmpty()) {
+                row.set(column, BLANK, null, 0); // Error formula diperlakukan sebagai kosong
+            } else {
+                try {
+                    double number = Double.parseDouble(value.trim());
+                    row.set(column, isDate(number) ? DATE : NUMERIC, null, number);
+                } catch (NumberFormatException e) {
+                    row.set(column, STRING, value, 0);
+                }
+            }
+        }
+
+        private boolean isDate(double value) {
+            if (styles == null || cellStyle == null || !DateUtil.isValidExcelDate(value)) {
+                return false;
+            }
+            int styleIndex;
+            try {
+                styleIndex = Integer.parseInt(cellStyle);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            Boolean date = dateStyles.get(styleIndex);
+            if (date == null) {
+                XSSFCellStyle style = styles.getStyleAt(styleIndex);
+                date = style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+                dateStyles.put(styleIndex, date);
+            }
+            return date;
+        }
+
+        private static int letters(String reference) {
+            int i = 0;
+            while (i < reference.length() && reference.charAt(i) >= 'A' && reference.charAt(i) <= 'Z') {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    // ---------- Shared strings ----------
+
+    /**
+     * Shared strings di file sementara: [panjang int][UTF-8] per string, dibaca lewat offset
+     */
+    private static class SharedStringStore extends DefaultHandler implements Closeable {
+        private final File file;
+        private DataOutputStream out;
+        private RandomAccessFile in;
+        private long[] offsets = new long[1024];
+        private int count = 0;
+        private long position = 0;
+        private final LruCache<Integer, String> cache = new LruCache<>(STRING_CACHE_SIZE);
+
+        // State SAX
+        private final StringBuilder text = new StringBuilder();
+        private boolean inItem = false;
+        private boolean inText = false;
+        private boolean inPhonetic = false;
+
+        private SharedStringStore(File file) {
+            this.file = file;
+        }
+
+        static SharedStringStore build(OPCPackage pkg, XSSFReader reader, File file) throws IOException {
+            SharedStringStore store = new SharedStringStore(file);
+            store.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+            try {
+                // Workbook tanpa teks sama sekali tidak punya part sharedStrings
+                if (!pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType()).isEmpty()) {
+                    try (InputStream xml = reader.getSharedStringsData()) {
+                        parse(xml, store);
+                    }
+                }
+            } catch (OpenXML4JException e) {
+                throw new IOException(e);
+            } finally {
+                store.out.close();
+                store.out = null;
+            }
+            store.in = new RandomAccessFile(file, "r");
+            return store;
+        }
+
+        String get(int index) throws IOException {
+            if (index < 0 || index >= count) {
+                throw new IOException("Invalid shared string index " + index);
+            }
+            String cached = cache.get(index);
+            if (cached != null) {
+                return cached;
+            }
+            in.seek(offsets[index]);
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            cache.put(index, value);
+            return value;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "si":
+                    inItem = true;
+                    text.setLength(0);
+                    break;
+                case "rPh":
+                    inPhonetic = true; // Teks fonetik (furigana) bukan bagian nilai sel
+                    break;
+                case "t":
+                    inText = inItem && !inPhonetic;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "t":
+                    inText = false;
+                    break;
+                case "rPh":
+                    inPhonetic = false;
+                    break;
+                case "si":
+                    inItem = false;
+                    try {
+                        append(text.toString());
+                    } catch (IOException e) {
+                        throw new SAXException(e);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void append(String value) throws IOException {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            offsets[count++] = position;
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            position += 4 + bytes.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+            file.delete();
+        }
+    }
+}
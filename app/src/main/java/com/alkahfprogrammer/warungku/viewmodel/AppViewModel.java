@@ -6,26 +6,32 @@ import androidx.lifecycle.LiveData;
 import com.alkahfprogrammer.warungku.data.DataRepository;
 import com.alkahfprogrammer.warungku.data.entity.CashFlow;
 import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.importer.CashFlowImportEngine;
+import com.alkahfprogrammer.warungku.data.importer.ImportSummary;
+import com.alkahfprogrammer.warungku.data.importer.ProductUpsertEngine;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.PagingData;
 import com.alkahfprogrammer.warungku.data.model.CartItem;
+import com.alkahfprogrammer.warungku.data.model.HistoryItem;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class AppViewModel extends AndroidViewModel {
     private static AppViewModel instance;
     
     private final DataRepository repository;
     private final LiveData<List<Product>> allProducts;
-    private final LiveData<List<CashFlow>> allHistory;
+    private LiveData<PagingData<HistoryItem>> historyPaging;
 
     private final MutableLiveData<List<CartItem>> cartItems = new MutableLiveData<>(new ArrayList<>());
     private final MutableLiveData<Double> cartTotal = new MutableLiveData<>(0.0);
 
     public AppViewModel(Application application) {
         super(application);
-        repository = new DataRepository(application);
+        repository = DataRepository.getInstance(application);
         allProducts = repository.getAllProducts();
-        allHistory = repository.getAllHistory();
         instance = this; // Set singleton instance
     }
     
@@ -119,8 +125,11 @@ public class AppViewModel extends AndroidViewModel {
         return allProducts;
     }
 
-    public LiveData<List<CashFlow>> getAllHistory() {
-        return allHistory;
+    public LiveData<PagingData<HistoryItem>> getHistoryPaging() {
+        if (historyPaging == null) {
+            historyPaging = repository.getHistoryPaging(ViewModelKt.getViewModelScope(this));
+        }
+        return historyPaging;
     }
 
     public LiveData<Double> getBalance() {
@@ -143,14 +152,22 @@ public class AppViewModel extends AndroidViewModel {
         repository.insertProduct(product);
     }
     
-    public void addProduct(Product product) {
-        repository.insertProduct(product);
+    public CompletableFuture<Void> addProduct(Product product) {
+        return repository.insertProduct(product);
     }
 
-    public void updateProduct(Product product) {
-        repository.updateProduct(product);
+    public CompletableFuture<Void> updateProduct(Product product) {
+        return repository.updateProduct(product);
     }
     
+    public CompletableFuture<ImportSummary> importProducts(ProductUpsertEngine upsert) {
+        return repository.importProducts(upsert);
+    }
+
+    public CompletableFuture<ImportSummary> importCashFlows(CashFlowImportEngine engine) {
+        return repository.importCashFlows(engine);
+    }
+
     public void refreshProducts() {
         // Force refresh by re-observing (LiveData will automatically update)
         // This is a no-op but can be used to trigger refresh if needed
@@ -160,12 +177,16 @@ public class AppViewModel extends AndroidViewModel {
         repository.insertCashFlow(cashFlow);
     }
 
-    public void sellProduct(Product product, int quantity) {
-        repository.sellProduct(product, quantity);
+    public CompletableFuture<Integer> sellProduct(Product product, int quantity) {
+        return repository.sellProduct(product, quantity);
+    }
+
+    public CompletableFuture<Integer> addProductStock(Product product, int quantity, double buyPrice) {
+        return repository.addProductStock(product, quantity, buyPrice);
     }
 
-    public void addProductStock(Product product, int quantity, double buyPrice) {
-        repository.addProductStock(product, quantity, buyPrice);
+    public void setFavorite(Product product, boolean isFavorite) {
+        repository.setFavorite(product, isFavorite);
     }
 
     public void deleteProduct(Product product) {
@@ -176,13 +197,21 @@ public class AppViewModel extends AndroidViewModel {
         repository.getProductByBarcode(barcode, callback);
     }
 
+    public Product findProductByBarcode(String barcode) {
+        return repository.findProductByBarcode(barcode);
+    }
+
     // Methods untuk laporan
     public LiveData<List<Product>> getTopSellingProducts(int limit) {
         return repository.getTopSellingProducts(limit);
     }
 
-    public LiveData<List<Product>> getUnsoldProducts() {
-        return repository.getUnsoldProducts();
+    public LiveData<List<Product>> getTopSellingProductsInRange(long start, long end, int limit) {
+        return repository.getTopSellingProductsInRange(start, end, limit);
+    }
+
+    public LiveData<List<Product>> getUnsoldProducts(long start, long end) {
+        return repository.getUnsoldProducts(start, end);
     }
 
     public LiveData<List<CashFlow>> getCashFlowInRange(long start, long end) {
@@ -197,6 +226,10 @@ public class AppViewModel extends AndroidViewModel {
         return repository.getExpenseInRange(start, end);
     }
 
+    public LiveData<Double> getTotalStockPurchaseInRange(long start, long end) {
+        return repository.getTotalStockPurchaseInRange(start, end);
+    }
+
     public LiveData<Double> getProfitInRange(long start, long end) {
         return repository.getProfitInRange(start, end);
     }
@@ -0,0 +1,159 @@
+package com.alkahfprogrammer.warungku.worker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.alkahfprogrammer.warungku.data.backup.BackupRotation;
+import com.alkahfprogrammer.warungku.data.backup.DatabaseSnapshot;
+import com.alkahfprogrammer.warungku.data.backup.IncrementalBackup;
+import com.alkahfprogrammer.warungku.utils.DatabaseBackupUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Backup otomatis tiap malam, hanya saat HP dicas dan tidak dipakai.
+ *
+ * Backup terjadwal memakai format inkremental (.wkm), jadi setiap malam hanya chunk yang berubah yang
+ * ditulis. Jika file database (dan -wal) tidak berubah sejak backup terakhir dibuat, tidak ada backup
+ * baru. Jika berubah tapi isinya ternyata identik (SHA-256 sama, misal hanya checkpoint WAL), manifest
+ * baru dibuang. Rotasi (BackupRotation.prune) baru dijalankan setelah keputusan itu, supaya manifest
+ * duplikat tidak ikut dihitung sebagai backup terbaru.
+ */
+public class BackupWorker extends Worker {
+    private static final String TAG = "BackupWorker";
+    private static final String WORK_NAME = "nightly_backup";
+    private static final String PREF_NAME = "BackupSchedule";
+    private static final String KEY_LAST_RUN = "last_run";
+    private static final String KEY_LAST_STATUS = "last_status";
+    private static final int PREFERRED_HOUR = 2; // Jam 02:00, toko sudah tutup
+    private static final String DB_NAME = "warungku_db";
+
+    public BackupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Jadwalkan backup harian. KEEP: jadwal yang sudah ada tidak digeser setiap aplikasi dibuka.
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .setRequiresStorageNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(BackupWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .setInitialDelay(delayUntilPreferredHour(), TimeUnit.MILLISECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Waktu (millis) backup otomatis terakhir dijalankan, 0 jika belum pernah
+     */
+    public static long getLastRun(Context context) {
+        return prefs(context).getLong(KEY_LAST_RUN, 0);
+    }
+
+    /**
+     * Hasil backup otomatis terakhir untuk ditampilkan, null jika belum pernah
+     */
+    public static String getLastStatus(Context context) {
+        return prefs(context).getString(KEY_LAST_STATUS, null);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        File folder = DatabaseBackupUtils.getBackupFolder(context);
+        List<BackupRotation.Entry> existing = BackupRotation.list(folder, false);
+        DatabaseSnapshot.Header latest = latestManifestHeader(existing);
+
+        if (latest != null && !changedSince(context, latest.createdAt)) {
+            record(context, "Dilewati, tidak ada perubahan sejak backup terakhir");
+            BackupRotation.prune(folder);
+            return Result.success();
+        }
+
+        IncrementalBackup.Result backup = DatabaseBackupUtils.createIncrementalBackup(context);
+        if (backup == null) {
+            record(context, "Gagal, dicoba lagi nanti");
+            return Result.retry();
+        }
+        // Bandingkan sebelum rotasi: prune akan menganggap duplikat ini backup terbaru dan bisa menghapus
+        // backup lama yang justru seharusnya disimpan
+        if (latest != null && MessageDigest.isEqual(latest.sha256, backup.header.sha256)) {
+            backup.file.delete();
+            BackupRotation.prune(folder);
+            record(context, "Dilewati, isi data sama dengan backup terakhir");
+            return Result.success();
+        }
+        BackupRotation.prune(folder);
+        record(context, "Berhasil: " + backup.newChunks + " chunk baru (" + backup.newBytes / 1024 + " KB)");
+        return Result.success();
+    }
+
+    private static DatabaseSnapshot.Header latestManifestHeader(List<BackupRotation.Entry> entries) {
+        for (BackupRotation.Entry entry : entries) {
+            if (!entry.isManifest()) {
+                continue;
+            }
+            try {
+                return IncrementalBackup.readHeader(entry.file);
+            } catch (IOException e) {
+                Log.w(TAG, "Header " + entry.file.getName() + " tidak terbaca", e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Setiap commit menulis ke -wal (atau langsung ke file utama tanpa WAL), jadi waktu modifikasi
+     * kedua file cukup untuk tahu apakah ada perubahan
+     */
+    private static boolean changedSince(Context context, long timestamp) {
+        File dbFile = context.getDatabasePath(DB_NAME);
+        File walFile = new File(dbFile.getPath() + "-wal");
+        return dbFile.lastModified() > timestamp || walFile.lastModified() > timestamp;
+    }
+
+    private static long delayUntilPreferredHour() {
+        Calendar next = Calendar.getInstance();
+        long now = next.getTimeInMillis();
+        next.set(Calendar.HOUR_OF_DAY, PREFERRED_HOUR);
+        next.set(Calendar.MINUTE, 0);
+        next.set(Calendar.SECOND, 0);
+        next.set(Calendar.MILLISECOND, 0);
+        if (next.getTimeInMillis() <= now) {
+            next.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        return next.getTimeInMillis() - now;
+    }
+
+    private static void record(Context context, String status) {
+        Log.i(TAG, status);
+        prefs(context).edit()
+                .putLong(KEY_LAST_RUN, System.currentTimeMillis())
+                .putString(KEY_LAST_STATUS, status)
+                .apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+}
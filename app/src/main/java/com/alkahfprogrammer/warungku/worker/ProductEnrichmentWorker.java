@@ -0,0 +1,196 @@
+package com.alkahfprogrammer.warungku.worker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.alkahfprogrammer.warungku.api.CircuitOpenException;
+import com.alkahfprogrammer.warungku.api.OfflineException;
+import com.alkahfprogrammer.warungku.api.ProductLookupService;
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.DatabaseWriter;
+import com.alkahfprogrammer.warungku.data.dao.ProductDao;
+import com.alkahfprogrammer.warungku.data.entity.BarcodeLookup;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.utils.NetworkUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lengkapi gambar (dan nama yang kosong) produk yang punya barcode, di latar belakang.
+ *
+ * Produk diproses per batch urut id. Lookup dalam satu batch berjalan bersamaan lewat
+ * ProductLookupService (cache, katalog offline, lalu API), dibatasi maksimal satu batch per
+ * MIN_BATCH_INTERVAL_MS. Hasil satu batch ditulis dalam satu transaksi, lalu id terakhir disimpan,
+ * jadi jika worker dihentikan (Wi-Fi putus, batas waktu eksekusi) proses lanjut dari situ.
+ */
+public class ProductEnrichmentWorker extends Worker {
+    private static final String TAG = "ProductEnrichmentWorker";
+    private static final String WORK_NAME = "product_enrichment";
+    private static final String PREF_NAME = "ProductEnrichment";
+    private static final String KEY_CURSOR = "last_product_id"; // Id produk terakhir yang sudah diproses
+    private static final int BATCH_SIZE = 10;
+    private static final long MIN_BATCH_INTERVAL_MS = 6000; // <= 100 request/menit (batas baca produk OFF)
+    private static final long LOOKUP_TIMEOUT_SECONDS = 30;
+
+    public static final String KEY_PROCESSED = "processed";
+    public static final String KEY_ENRICHED = "enriched";
+
+    public ProductEnrichmentWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Jadwalkan pelengkapan data (hanya di Wi-Fi). Jika sudah terjadwal/berjalan, tidak dobel;
+     * produk baru punya id lebih besar dari cursor sehingga tetap ikut diproses.
+     */
+    public static void enqueue(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ProductEnrichmentWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 1, TimeUnit.MINUTES)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        AppDatabase db = AppDatabase.getDatabase(context);
+        ProductDao productDao = db.productDao();
+        DatabaseWriter writer = DatabaseWriter.getInstance(db);
+        ProductLookupService lookupService = ProductLookupService.getInstance(context);
+        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+
+        int cursor = prefs.getInt(KEY_CURSOR, 0);
+        int processed = 0;
+        int enriched = 0;
+
+        while (!isStopped()) {
+            // Constraint UNMETERED juga menerima ethernet/VPN; data seluler tetap tidak dipakai
+            if (!NetworkUtils.isWifiConnected(context)) {
+                Log.d(TAG, "Wi-Fi not connected, will resume from product " + cursor);
+                return Result.retry();
+            }
+
+            List<Product> batch = productDao.getProductsToEnrich(cursor, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                prefs.edit().remove(KEY_CURSOR).apply();
+                Log.d(TAG, "Enrichment finished: " + enriched + " of " + processed + " products updated");
+                return Result.success(progress(processed, enriched));
+            }
+
+            long started = SystemClock.elapsedRealtime();
+            List<CompletableFuture<BarcodeLookup>> lookups = new ArrayList<>(batch.size());
+            for (Product product : batch) {
+                lookups.add(lookupService.lookup(product.barcode));
+            }
+
+            // Kumpulkan hasil sampai lookup pertama yang gagal; sisanya dicoba lagi di run berikutnya
+            List<Product> targets = new ArrayList<>();
+            List<BarcodeLookup> results = new ArrayList<>();
+            int completed = 0;
+            boolean failed = false;
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    BarcodeLookup result = lookups.get(i).get(LOOKUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    Product product = batch.get(i);
+                    boolean nameMissing = product.name == null || product.name.trim().isEmpty();
+                    if (result.isSuccess() && (result.getImageUrl() != null || nameMissing)) {
+                        targets.add(product);
+                        results.add(result);
+                    }
+                    completed++;
+                } catch (ExecutionException | TimeoutException e) {
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    Log.w(TAG, "Lookup failed for " + batch.get(i).barcode, cause);
+                    if (isConnectivityError(cause)) {
+                        failed = true;
+                        break;
+                    }
+                    completed++; // Error permanen (misal HTTP 400): lewati supaya antrian tidak macet
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Result.retry();
+                }
+            }
+
+            if (!targets.isEmpty()) {
+                try {
+                    // Satu transaksi per batch; tunggu commit sebelum cursor dimajukan
+                    writer.submit(() -> {
+                        for (int i = 0; i < targets.size(); i++) {
+                            BarcodeLookup result = results.get(i);
+                            productDao.fillMissingDetails(targets.get(i).id, result.getName(), result.getImageUrl());
+                        }
+                    }).get();
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Error saving enrichment batch", e.getCause());
+                    return Result.retry();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Result.retry();
+                }
+                enriched += targets.size();
+            }
+
+            processed += completed;
+            if (completed > 0) {
+                cursor = batch.get(completed - 1).id;
+                prefs.edit().putInt(KEY_CURSOR, cursor).apply();
+            }
+            setProgressAsync(progress(processed, enriched));
+            if (failed) {
+                return Result.retry(); // Backoff; circuit breaker di ProductApiClient menahan request saat API bermasalah
+            }
+
+            long remaining = MIN_BATCH_INTERVAL_MS - (SystemClock.elapsedRealtime() - started);
+            if (remaining > 0) {
+                try {
+                    Thread.sleep(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Result.retry();
+                }
+            }
+        }
+        return Result.retry(); // Dihentikan sistem; lanjut dari cursor saat dijadwalkan ulang
+    }
+
+    private static boolean isConnectivityError(Throwable error) {
+        return error instanceof OfflineException
+                || error instanceof CircuitOpenException
+                || error instanceof TimeoutException
+                || error instanceof java.io.InterruptedIOException // Termasuk SocketTimeoutException
+                || error instanceof java.net.UnknownHostException
+                || error instanceof java.net.ConnectException;
+    }
+
+    private static Data progress(int processed, int enriched) {
+        return new Data.Builder()
+                .putInt(KEY_PROCESSED, processed)
+                .putInt(KEY_ENRICHED, enriched)
+                .build();
+    }
+}
@@ -0,0 +1,14 @@
+package com.alkahfprogrammer.warungku.data;
+
+/**
+ * DatabaseWriter tersendiri untuk test di package lain: getInstance() terikat ke database pertama
+ * yang memanggilnya, sedangkan setiap test memakai database baru
+ */
+public final class DatabaseWriters {
+    private DatabaseWriters() {
+    }
+
+    public static DatabaseWriter newWriter(AppDatabase db) {
+        return new DatabaseWriter(db);
+    }
+}
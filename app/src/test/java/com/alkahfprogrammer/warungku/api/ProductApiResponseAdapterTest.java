@@ -0,0 +1,130 @@
+package com.alkahfprogrammer.warungku.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decoder streaming OFF: kebenaran parsing dan benchmark dokumen lengkap vs response yang sudah dipangkas.
+ *
+ * Fixture mengikuti susunan dokumen produk Open Food Facts (nutriments, images, ingredients,
+ * selected_images, ...); product_trimmed.json adalah bentuk yang dikirim server untuk ?fields=LOOKUP_FIELDS.
+ */
+public class ProductApiResponseAdapterTest {
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 2000;
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void decodesUsedFieldsFromFullDocument() throws IOException {
+        ProductApiResponse response = gson.fromJson(fixture("product_full.json"), ProductApiResponse.class);
+
+        assertEquals(Integer.valueOf(1), response.status);
+        assertEquals("product found", response.statusVerbose);
+        assertEquals("8998866200301", response.product.code);
+        assertEquals("Mi Goreng Rasa Ayam Panggang", response.product.productName);
+        assertEquals("Indomie", response.product.brands);
+        assertEquals("85 g", response.product.quantity);
+        assertTrue(response.product.imageFrontUrl.endsWith("front_id.21.400.jpg"));
+        assertTrue(response.isSuccess());
+    }
+
+    @Test
+    public void malformedStatusIsSkippedWithoutBreakingTheRest() {
+        for (String status : new String[] { "1.5", "\"satu\"", "99999999999" }) {
+            ProductApiResponse response = gson.fromJson("{\"status\":" + status
+                    + ",\"status_verbose\":\"product found\",\"product\":{\"product_name\":\"Teh\"}}",
+                    ProductApiResponse.class);
+            assertNull(status, response.status);
+            assertEquals(status, "product found", response.statusVerbose);
+            assertEquals(status, "Teh", response.product.productName);
+        }
+    }
+
+    @Test
+    public void benchmarkFullVersusTrimmed() throws IOException {
+        String full = fixture("product_full.json");
+        String trimmed = fixture("product_trimmed.json");
+
+        Result tree = measure(() -> gson.fromJson(full, JsonElement.class)); // Seluruh dokumen jadi objek
+        Result streamingFull = measure(() -> gson.fromJson(full, ProductApiResponse.class));
+        Result streamingTrimmed = measure(() -> gson.fromJson(trimmed, ProductApiResponse.class));
+
+        System.out.println("OFF decode (" + full.length() / 1024 + " KB penuh, " + trimmed.length() + " B dipangkas):");
+        System.out.println("  tree, dokumen penuh     : " + tree);
+        System.out.println("  streaming, dokumen penuh: " + streamingFull);
+        System.out.println("  streaming, dipangkas    : " + streamingTrimmed);
+
+        // Alokasi deterministik (waktu tidak): streaming tidak membuat objek untuk subtree yang dilewati
+        if (tree.bytesPerDecode >= 0) {
+            assertTrue(streamingFull + " vs " + tree, streamingFull.bytesPerDecode < tree.bytesPerDecode);
+            assertTrue(streamingTrimmed + " vs " + streamingFull,
+                    streamingTrimmed.bytesPerDecode < streamingFull.bytesPerDecode);
+        }
+    }
+
+    private static Result measure(Runnable decode) {
+        for (int i = 0; i < WARMUP; i++) {
+            decode.run();
+        }
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            decode.run();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        return new Result(nanos / ITERATIONS, allocatedBefore < 0 ? -1 : allocated / ITERATIONS);
+    }
+
+    /**
+     * Byte yang dialokasikan thread ini (HotSpot); -1 jika JVM tidak mendukung
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static String fixture(String name) throws IOException {
+        try (InputStream in = ProductApiResponseAdapterTest.class.getClassLoader()
+                .getResourceAsStream("openfoodfacts/" + name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class Result {
+        final long nanosPerDecode;
+        final long bytesPerDecode;
+
+        Result(long nanosPerDecode, long bytesPerDecode) {
+            this.nanosPerDecode = nanosPerDecode;
+            this.bytesPerDecode = bytesPerDecode;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.ROOT, "%.1f us, %d B/decode", nanosPerDecode / 1000.0, bytesPerDecode);
+        }
+    }
+}
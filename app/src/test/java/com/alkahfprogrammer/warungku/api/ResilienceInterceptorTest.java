@@ -0,0 +1,175 @@
+package com.alkahfprogrammer.warungku.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+/**
+ * Jalur retry, offline, dan circuit breaker pada client standar (ProductApiClient.newClientBuilder)
+ * terhadap server lokal
+ */
+public class ResilienceInterceptorTest {
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer server;
+    private final AtomicBoolean online = new AtomicBoolean(true);
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void serverErrorsAreRetriedThenSucceed() throws IOException {
+        CircuitBreaker breaker = ProductApiClient.newCircuitBreaker();
+        OkHttpClient client = ProductApiClient.newClientBuilder(online::get, breaker).build();
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(502));
+        server.enqueue(new MockResponse().setBody("{\"status\":1}"));
+
+        try (Response response = execute(client, "/product/1.json")) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(3, server.getRequestCount());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void readTimeoutIsRetried() throws IOException {
+        OkHttpClient client = ProductApiClient.newClientBuilder(online::get, ProductApiClient.newCircuitBreaker())
+                .readTimeout(300, TimeUnit.MILLISECONDS)
+                .build();
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"status\":1}"));
+
+        try (Response response = execute(client, "/product/1.json")) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void timeoutIsNotRetriedPastCallTimeout() throws IOException {
+        // Timeout 300 ms + backoff minimal 250 ms sudah melewati callTimeout 500 ms
+        OkHttpClient client = ProductApiClient.newClientBuilder(online::get, ProductApiClient.newCircuitBreaker())
+                .readTimeout(300, TimeUnit.MILLISECONDS)
+                .callTimeout(500, TimeUnit.MILLISECONDS)
+                .build();
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        }
+
+        try {
+            execute(client, "/product/1.json").close();
+            fail("Timeout tanpa sisa waktu harus diteruskan");
+        } catch (SocketTimeoutException expected) {
+            // Lanjut
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void offlineServesCacheOrFailsFastWithoutNetwork() throws IOException {
+        OkHttpClient client = ProductApiClient.newClientBuilder(online::get, ProductApiClient.newCircuitBreaker())
+                .cache(new Cache(cacheDir.getRoot(), 1024 * 1024))
+                .build();
+        server.enqueue(new MockResponse().setBody("{\"status\":1}")); // Tanpa Cache-Control, diberi max-age oleh client
+
+        try (Response response = execute(client, "/product/1.json")) {
+            response.body().string();
+        }
+        online.set(false);
+
+        try (Response cached = execute(client, "/product/1.json")) {
+            assertEquals("{\"status\":1}", cached.body().string());
+            assertNull(cached.networkResponse());
+        }
+        try {
+            execute(client, "/product/2.json").close();
+            fail("Tanpa koneksi dan tanpa cache harus gagal cepat");
+        } catch (OfflineException expected) {
+            // Lanjut
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void openCircuitRejectsWithoutTouchingServer() throws IOException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 60_000, 60_000);
+        OkHttpClient client = ProductApiClient.newClientBuilder(online::get, breaker).build();
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500)); // Percobaan awal + 2 retry
+        }
+
+        try (Response response = execute(client, "/product/1.json")) {
+            assertEquals(500, response.code());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        try {
+            execute(client, "/product/2.json").close();
+            fail("Circuit terbuka harus menolak request");
+        } catch (CircuitOpenException expected) {
+            // Lanjut
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void probeFailingWithRuntimeExceptionReleasesTheSlot() throws IOException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0, 0); // Langsung half-open setelah terbuka
+        breaker.onFailure();
+        AtomicBoolean explode = new AtomicBoolean(true);
+        OkHttpClient client = ProductApiClient.newClientBuilder(online::get, breaker)
+                .addInterceptor(chain -> {
+                    if (explode.getAndSet(false)) {
+                        throw new IllegalStateException("bug di interceptor lain");
+                    }
+                    return chain.proceed(chain.request());
+                })
+                .build();
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        try {
+            execute(client, "/product/1.json").close();
+            fail("RuntimeException harus diteruskan");
+        } catch (IllegalStateException expected) {
+            // Lanjut
+        }
+        // Tanpa pelepasan slot, breaker menolak request ini selamanya
+        try (Response response = execute(client, "/product/1.json")) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private Response execute(OkHttpClient client, String path) throws IOException {
+        return client.newCall(new Request.Builder().url(server.url(path)).build()).execute();
+    }
+}
@@ -0,0 +1,94 @@
+package com.alkahfprogrammer.warungku.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.alkahfprogrammer.warungku.data.entity.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kegagalan satu perintah (termasuk Error) tidak boleh menggagalkan perintah lain atau mematikan thread penulis
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseWriterTest {
+    private AppDatabase database;
+    private DatabaseWriter writer;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        writer = new DatabaseWriter(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void failingCommandOnlyFailsItsOwnFuture() throws Exception {
+        Error error = new OutOfMemoryError("test");
+        List<CompletableFuture<Void>> saved = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            saved.add(writer.submit(insert("Produk " + i)));
+        }
+        CompletableFuture<Void> failing = writer.submit(() -> {
+            database.productDao().insert(new Product("Batal", 1000, null, 1, 1));
+            throw error;
+        });
+        for (int i = 10; i < 20; i++) {
+            saved.add(writer.submit(insert("Produk " + i)));
+        }
+
+        for (CompletableFuture<Void> future : saved) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        try {
+            failing.get(5, TimeUnit.SECONDS);
+            fail("Perintah yang melempar Error harus gagal");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+        // Batch yang gagal di-rollback, perintah lain diulang sendiri-sendiri dan tetap tersimpan
+        assertEquals(20, database.productDao().getProductCount());
+    }
+
+    @Test
+    public void writerKeepsRunningAfterError() throws Exception {
+        CompletableFuture<Void> failing = writer.submit(() -> {
+            throw new StackOverflowError("test");
+        });
+        try {
+            failing.get(5, TimeUnit.SECONDS);
+            fail("Perintah yang melempar Error harus gagal");
+        } catch (ExecutionException expected) {
+            // Lanjut
+        }
+
+        writer.submit(insert("Sesudah error")).get(5, TimeUnit.SECONDS);
+        assertEquals(1, database.productDao().getProductCount());
+    }
+
+    private Runnable insert(String name) {
+        return () -> database.productDao().insert(new Product(name, 1000, null, 1, 1));
+    }
+}
@@ -0,0 +1,158 @@
+package com.alkahfprogrammer.warungku.data;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * EXPLAIN QUERY PLAN untuk setiap @Query di DAO: tidak boleh ada SCAN (tabel maupun seluruh index) kecuali yang memang
+ * sengaja (daftar di bawah beserta alasannya). Anotasi Room tidak tersedia saat runtime, jadi query
+ * dibaca langsung dari source DAO.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE) // Planner SQLite modern, sama seperti di perangkat
+public class QueryPlanTest {
+    private static final String DAO_DIR = "src/main/java/com/alkahfprogrammer/warungku/data/dao";
+
+    private static final Pattern QUERY = Pattern.compile(
+            "@Query\\(((?:\\s*\"(?:[^\"\\\\]|\\\\.)*\"\\s*\\+?)+)\\)"
+                    + "\\s*(?:@\\w+(?:\\([^)]*\\))?\\s*)*[\\w<>,.?\\[\\]\\s]*?\\s(\\w+)\\s*\\(");
+    private static final Pattern LITERAL = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern PARAM = Pattern.compile(":[A-Za-z_]\\w*");
+
+    // Scan yang disengaja (termasuk menelusuri seluruh index): tabelnya kecil, atau memang butuh seluruh tabel
+    private static final Map<String, String> ALLOWED_SCANS = new HashMap<>();
+    static {
+        ALLOWED_SCANS.put("BarcodeLookupDao.deleteExpired", "pembersihan cache berkala, tabel dibatasi TTL");
+        ALLOWED_SCANS.put("CashFlowDao.getCurrentBalance", "tidak dipakai UI, saldo dibaca dari daily_summary");
+        ALLOWED_SCANS.put("CashFlowDao.getHistoryFirstPage", "index timestamp dibaca dari ujung, berhenti setelah LIMIT satu halaman");
+        ALLOWED_SCANS.put("DailySummaryDao.getTotalIncome", "satu baris per hari");
+        ALLOWED_SCANS.put("DailySummaryDao.getTotalExpense", "satu baris per hari");
+        ALLOWED_SCANS.put("DailySummaryDao.getTotalStockPurchase", "satu baris per hari");
+        ALLOWED_SCANS.put("DailySummaryDao.getCurrentBalance", "satu baris per hari");
+        ALLOWED_SCANS.put("ProductDao.getAllProducts", "seluruh katalog memang ditampilkan");
+        ALLOWED_SCANS.put("ProductDao.getAllProductsSync", "seluruh katalog memang dibaca");
+        ALLOWED_SCANS.put("ProductDao.getAllIds", "seluruh id memang dibutuhkan, lewat covering index");
+        ALLOWED_SCANS.put("ProductDao.getProductCount", "COUNT(*) seluruh katalog, lewat covering index");
+        // Partial index (ON products(salesCount) WHERE currentStock <= minStock) tidak bisa dideklarasikan di
+        // @Entity Room, dan index di luar deklarasi entity membuat validasi skema Room gagal
+        ALLOWED_SCANS.put("ProductDao.getShoppingList", "Room tidak bisa mendeklarasikan partial index; urut lewat index salesCount");
+        ALLOWED_SCANS.put("ProductDao.getLowStockProductsSync", "Room tidak bisa mendeklarasikan partial index; sekali per pengecekan stok");
+        ALLOWED_SCANS.put("ProductDao.getUnsoldProducts", "katalog dikurangi produk terjual di periode (lewat index sale_item)");
+        ALLOWED_SCANS.put("SaleDao.getTopSellingProductsInRange", "scan hasil agregasi periode (subquery), bukan tabel");
+    }
+
+    private AppDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        db = database.getOpenHelper().getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void daoQueriesDoNotScanTables() throws IOException {
+        List<String> violations = new ArrayList<>();
+        int checked = 0;
+        for (Map.Entry<String, String> query : readDaoQueries().entrySet()) {
+            checked++;
+            for (String detail : explain(query.getValue())) {
+                if (isFullScan(detail) && !ALLOWED_SCANS.containsKey(query.getKey())) {
+                    violations.add(query.getKey() + ": " + detail);
+                }
+            }
+        }
+        assertTrue("Tidak ada @Query yang terbaca dari " + DAO_DIR, checked > 0);
+        if (!violations.isEmpty()) {
+            fail("SCAN tanpa alasan di ALLOWED_SCANS:\n" + String.join("\n", violations));
+        }
+    }
+
+    @Test
+    public void shoppingListWalksSalesCountIndex() throws IOException {
+        List<String> plan = explain(readDaoQueries().get("ProductDao.getShoppingList"));
+        assertTrue(plan.toString(), plan.stream().anyMatch(d -> d.contains("index_products_salesCount")));
+        assertFalse(plan.toString(), plan.stream().anyMatch(d -> d.contains("TEMP B-TREE FOR ORDER BY")));
+    }
+
+    private List<String> explain(String sql) {
+        String bound = PARAM.matcher(sql).replaceAll("?");
+        int params = bound.length() - bound.replace("?", "").length();
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + bound, new Object[params])) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detail));
+            }
+        }
+        return details;
+    }
+
+    /**
+     * Setiap SCAN dihitung, termasuk "SCAN products USING INDEX ..." / "USING COVERING INDEX": menelusuri
+     * seluruh index tetap membaca setiap baris. Hanya SEARCH (lookup lewat index) yang lolos.
+     */
+    private static boolean isFullScan(String detail) {
+        return detail.startsWith("SCAN ");
+    }
+
+    /**
+     * Nama "Dao.method" -> SQL, dibaca dari source setiap DAO
+     */
+    private static Map<String, String> readDaoQueries() throws IOException {
+        File dir = new File(DAO_DIR);
+        if (!dir.isDirectory()) {
+            dir = new File("app", DAO_DIR); // Dijalankan dari root project
+        }
+        File[] sources = dir.listFiles((d, name) -> name.endsWith("Dao.java"));
+        assertTrue("Folder DAO tidak ditemukan: " + dir.getAbsolutePath(), sources != null && sources.length > 0);
+
+        Map<String, String> queries = new HashMap<>();
+        for (File source : sources) {
+            String dao = source.getName().replace(".java", "");
+            String text = new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8);
+            Matcher query = QUERY.matcher(text);
+            while (query.find()) {
+                StringBuilder sql = new StringBuilder();
+                Matcher literal = LITERAL.matcher(query.group(1));
+                while (literal.find()) {
+                    sql.append(literal.group(1).replace("\\\"", "\""));
+                }
+                queries.put(dao + "." + query.group(2), sql.toString());
+            }
+        }
+        return queries;
+    }
+}
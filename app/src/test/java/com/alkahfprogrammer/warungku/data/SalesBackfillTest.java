@@ -0,0 +1,90 @@
+package com.alkahfprogrammer.warungku.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+/**
+ * Backfill sale/sale_item dari cash_flow lama (MIGRATION_9_10)
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class SalesBackfillTest {
+    private AppDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        db = database.getOpenHelper().getWritableDatabase();
+        db.execSQL("INSERT INTO products (id, name, sellPrice, buyPrice, currentStock, minStock, salesCount, isFavorite, " +
+                "lastSoldTimestamp) VALUES (1, 'Kopi (Sachet)', 2000, 1500, 10, 2, 5, 0, 0), " +
+                "(2, 'Teh', 3000, NULL, 10, 2, 1, 0, 0)");
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void singleProductSalesAreBackfilled() {
+        insertFlow(1, "IN", 6000, 1500.0, "Jual Kopi (Sachet) (3)", 1);   // productId ada
+        insertFlow(2, "IN", 3000, null, "Jual Teh (1)", null);            // baris lama tanpa productId & profit
+        insertFlow(3, "IN", 5000, 1000.0, "Jual: Kopi (Sachet) (1), Teh (1)", null); // checkout, tidak di-backfill
+        insertFlow(4, "OUT", 15000, 0.0, "Tambah Stok: Kopi (Sachet) (10)", 1);
+        insertFlow(5, "IN", 1000, null, "Jual Produk Terhapus (1)", null); // tidak bisa dicocokkan
+
+        AppDatabase.backfillSales(db);
+
+        assertEquals(2, count("SELECT COUNT(*) FROM sale"));
+        try (Cursor item = db.query("SELECT productId, productName, quantity, unitSellPrice, unitBuyPrice, lineProfit, " +
+                "timestamp FROM sale_item ORDER BY timestamp")) {
+            item.moveToNext();
+            assertEquals(1, item.getInt(0));
+            assertEquals("Kopi (Sachet)", item.getString(1));
+            assertEquals(3, item.getInt(2));
+            assertEquals(2000, item.getDouble(3), 0.001);
+            assertEquals(1500, item.getDouble(4), 0.001);
+            assertEquals(1500, item.getDouble(5), 0.001);
+            assertEquals(1000L, item.getLong(6));
+
+            item.moveToNext();
+            assertEquals(2, item.getInt(0));
+            assertEquals(1, item.getInt(2));
+            assertEquals(3000, item.getDouble(3), 0.001);
+            assertTrue(item.isNull(4));
+            assertEquals(0, item.getDouble(5), 0.001);
+        }
+
+        // Dijalankan ulang tidak menggandakan
+        AppDatabase.backfillSales(db);
+        assertEquals(2, count("SELECT COUNT(*) FROM sale_item"));
+    }
+
+    private void insertFlow(long id, String type, double amount, Double profit, String description, Integer productId) {
+        db.execSQL("INSERT INTO cash_flow (id, type, amount, description, timestamp, productId, profit) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", new Object[] { id, type, amount, description, id * 1000, productId, profit });
+    }
+
+    private long count(String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
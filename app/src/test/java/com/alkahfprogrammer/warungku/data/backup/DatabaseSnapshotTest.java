@@ -0,0 +1,141 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buat snapshot dari database yang sedang dibuka Room, lalu ekstrak dan cocokkan checksum serta isinya
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseSnapshotTest {
+    private static final String DB_NAME = "snapshot-test.db";
+    private static final int PRODUCTS = 300;
+    private static final int CASH_FLOWS = 2000;
+    private static final int SHA256_OFFSET = 32;
+
+    private Context context;
+    private AppDatabase database;
+    private File snapshot;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        database = Room.databaseBuilder(context, AppDatabase.class, DB_NAME)
+                .allowMainThreadQueries()
+                .build();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product("Produk " + i, 1000 + i, 800.0, 50, 5));
+        }
+        database.productDao().insertAll(products);
+        List<CashFlow> flows = new ArrayList<>();
+        for (int i = 0; i < CASH_FLOWS; i++) {
+            flows.add(new CashFlow("IN", 2500, "Jual Produk " + (i % PRODUCTS) + " (1)", 1_700_000_000_000L + i,
+                    1 + i % PRODUCTS, 500.0));
+        }
+        database.cashFlowDao().insertAll(flows);
+        snapshot = new File(context.getFilesDir(), "test" + DatabaseSnapshot.EXTENSION);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DB_NAME);
+        snapshot.delete();
+    }
+
+    @Test
+    public void snapshotOfOpenDatabaseExtractsWithMatchingChecksum() throws IOException {
+        // Room tetap terbuka: commit terakhir masih di file -wal dan harus ikut
+        DatabaseSnapshot.Result result = DatabaseSnapshot.create(
+                context.getDatabasePath(DB_NAME), context.getCacheDir(), snapshot);
+
+        assertTrue(DatabaseSnapshot.isSnapshot(snapshot));
+        assertEquals(AppDatabase.VERSION, result.header.schemaVersion);
+        assertEquals(Long.valueOf(PRODUCTS), result.header.rowCounts.get("products"));
+        assertEquals(Long.valueOf(CASH_FLOWS), result.header.rowCounts.get("cash_flow"));
+        assertTrue(result.compressedLength < result.header.rawLength);
+
+        DatabaseSnapshot.Header onDisk = DatabaseSnapshot.readHeader(snapshot);
+        assertEquals(result.header.rawLength, onDisk.rawLength);
+        assertEquals(result.header.rowCounts, onDisk.rowCounts);
+
+        File extracted = new File(context.getCacheDir(), "extracted.db");
+        try (InputStream in = new FileInputStream(snapshot)) {
+            DatabaseSnapshot.extract(in, extracted);
+        }
+        assertEquals(onDisk.rawLength, extracted.length());
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(extracted.getPath(), null, SQLiteDatabase.OPEN_READONLY)) {
+            assertEquals("ok", DatabaseUtils.stringForQuery(db, "PRAGMA integrity_check", null));
+            assertEquals(AppDatabase.VERSION, DatabaseUtils.longForQuery(db, "PRAGMA user_version", null));
+            assertEquals(CASH_FLOWS, DatabaseUtils.queryNumEntries(db, "cash_flow"));
+            assertEquals(CASH_FLOWS * 2500L,
+                    DatabaseUtils.longForQuery(db, "SELECT SUM(amount) FROM cash_flow", null));
+        }
+        extracted.delete();
+    }
+
+    @Test
+    public void corruptedChecksumIsRejected() throws IOException {
+        DatabaseSnapshot.create(context.getDatabasePath(DB_NAME), context.getCacheDir(), snapshot);
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.seek(SHA256_OFFSET);
+            int first = file.read();
+            file.seek(SHA256_OFFSET);
+            file.write(first ^ 0xFF);
+        }
+
+        assertExtractFails();
+    }
+
+    @Test
+    public void truncatedSnapshotIsRejectedWithoutLeavingPartialFile() throws IOException {
+        DatabaseSnapshot.create(context.getDatabasePath(DB_NAME), context.getCacheDir(), snapshot);
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.setLength(file.length() / 2);
+        }
+
+        assertExtractFails();
+    }
+
+    private void assertExtractFails() throws IOException {
+        File extracted = new File(context.getCacheDir(), "extracted.db");
+        try (InputStream in = new FileInputStream(snapshot)) {
+            DatabaseSnapshot.extract(in, extracted);
+            fail("Snapshot rusak harus ditolak");
+        } catch (IOException expected) {
+            // Lanjut
+        }
+        assertFalse(extracted.exists());
+    }
+}
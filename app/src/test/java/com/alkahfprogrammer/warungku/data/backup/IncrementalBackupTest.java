@@ -0,0 +1,183 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.entity.Sale;
+import com.alkahfprogrammer.warungku.data.entity.SaleItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Backup inkremental warung dengan riwayat sebulan: backup kedua setelah sehari berjualan hanya boleh
+ * menambah chunk sebesar transaksi hari itu (bukan seluruh tabel products karena stoknya berubah),
+ * dan manifest-nya tetap bisa disusun ulang menjadi database yang sama.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class IncrementalBackupTest {
+    private static final String DB_NAME = "incremental-test.db";
+    private static final int PRODUCTS = 2000;
+    private static final int SALES_PER_DAY = 960; // Satu penjualan tiap 1,5 menit
+    private static final int DAYS = 30;
+    private static final long SALE_INTERVAL_MS = 90_000;
+    private static final long START = 1_672_506_000_000L; // 1 Jan 2023
+
+    private Context context;
+    private AppDatabase database;
+    private File folder;
+    private Random random;
+    private List<Product> products;
+    private long time;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        database = Room.databaseBuilder(context, AppDatabase.class, DB_NAME)
+                .allowMainThreadQueries()
+                .build();
+        folder = new File(context.getFilesDir(), "incremental-test");
+        folder.mkdirs();
+        random = new Random(21);
+        time = START;
+
+        products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product("Produk " + i, 1000 + random.nextInt(50) * 500,
+                    800.0 + random.nextInt(40) * 400, 1_000_000, 10);
+            product.barcode = "899" + String.format(Locale.ROOT, "%08d", i);
+            products.add(product);
+        }
+        long[] ids = database.productDao().insertAll(products);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.get(i).id = (int) ids[i];
+        }
+        for (int day = 0; day < DAYS; day++) {
+            addSales(SALES_PER_DAY);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DB_NAME);
+        deleteRecursively(folder);
+    }
+
+    @Test
+    public void secondBackupAfterOneDayAddsOnlyThatDaysChunks() throws IOException {
+        IncrementalBackup.Result first = backup("first");
+        addSales(SALES_PER_DAY);
+        IncrementalBackup.Result second = backup("second");
+
+        System.out.println(String.format(Locale.ROOT,
+                "Backup pertama: %d chunk, %d KB; setelah sehari (%d penjualan): %d chunk baru, %d KB",
+                first.chunkCount, first.newBytes / 1024, SALES_PER_DAY, second.newChunks, second.newBytes / 1024));
+
+        assertEquals(first.chunkCount, first.newChunks);
+        // Baris transaksi sehari sendiri sudah ~75 KB terkompresi; dump per baris (WKDUMP01) menambah ~160 KB
+        assertTrue(second.newBytes / 1024 + " KB baru", second.newBytes < 140 * 1024);
+        assertTrue(second.newBytes < first.newBytes / 10);
+    }
+
+    @Test
+    public void manifestRebuildsIdenticalDatabase() throws IOException {
+        IncrementalBackup.Result result = backup("restore");
+        File rebuilt = new File(context.getCacheDir(), "rebuilt.db");
+        rebuilt.delete();
+        try (FileInputStream in = new FileInputStream(result.file)) {
+            IncrementalBackup.rebuild(in, folder, rebuilt);
+        }
+
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(rebuilt.getPath(), null, SQLiteDatabase.OPEN_READONLY)) {
+            assertEquals("ok", DatabaseUtils.stringForQuery(db, "PRAGMA integrity_check", null));
+            assertEquals(AppDatabase.VERSION, DatabaseUtils.longForQuery(db, "PRAGMA user_version", null));
+            for (String table : result.header.rowCounts.keySet()) {
+                assertEquals(table, (long) result.header.rowCounts.get(table), DatabaseUtils.queryNumEntries(db, table));
+            }
+            String stock = "SELECT SUM(currentStock) || '/' || SUM(salesCount) || '/' || MAX(lastSoldTimestamp) FROM products";
+            assertEquals(DatabaseUtils.stringForQuery(database.getOpenHelper().getReadableDatabase(), stock, null),
+                    DatabaseUtils.stringForQuery(db, stock, null));
+        }
+        rebuilt.delete();
+    }
+
+    private IncrementalBackup.Result backup(String name) throws IOException {
+        return IncrementalBackup.create(context.getDatabasePath(DB_NAME), context.getCacheDir(), folder,
+                new File(folder, name + IncrementalBackup.EXTENSION));
+    }
+
+    /**
+     * Penjualan 1-3 produk acak, jalur tulis sama dengan DataRepository.checkout
+     */
+    private void addSales(int count) {
+        database.runInTransaction(() -> {
+            for (int i = 0; i < count; i++) {
+                time += SALE_INTERVAL_MS;
+                List<Product> picked = new ArrayList<>(3);
+                int lines = 1 + random.nextInt(3);
+                while (picked.size() < lines) {
+                    Product product = products.get(random.nextInt(products.size()));
+                    if (!picked.contains(product)) {
+                        picked.add(product);
+                    }
+                }
+                StringBuilder description = new StringBuilder("Jual: ");
+                List<SaleItem> items = new ArrayList<>(lines);
+                double total = 0;
+                double profit = 0;
+                int quantity = 0;
+                for (Product product : picked) {
+                    int qty = 1 + random.nextInt(3);
+                    database.productDao().applySale(product.id, qty, time);
+                    SaleItem item = new SaleItem(product.id, product.name, qty, product.sellPrice, product.buyPrice, time);
+                    items.add(item);
+                    total += item.getRevenue();
+                    profit += item.lineProfit;
+                    quantity += qty;
+                    if (description.length() > 6) {
+                        description.append(", ");
+                    }
+                    description.append(product.name).append(" (").append(qty).append(")");
+                }
+                CashFlow flow = new CashFlow("IN", total, description.toString(), time, null, profit);
+                database.saleDao().insertSaleWithItems(flow, new Sale(time, total, profit, quantity), items);
+                database.dailySummaryDao().record(flow);
+            }
+        });
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
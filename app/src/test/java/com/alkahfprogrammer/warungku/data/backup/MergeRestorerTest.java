@@ -0,0 +1,188 @@
+package com.alkahfprogrammer.warungku.data.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.DatabaseWriter;
+import com.alkahfprogrammer.warungku.data.DatabaseWriters;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.entity.Sale;
+import com.alkahfprogrammer.warungku.data.entity.SaleItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+/**
+ * Dua HP dengan riwayat bersama lalu berjualan sendiri-sendiri: dry run menghitung baris baru, produk
+ * baru, selisih stok, dan memperingatkan stok yang diedit tanpa transaksi; apply menulisnya, dan gabung
+ * ulang backup yang sama tidak menambah apa pun.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class MergeRestorerTest {
+    private static final String SOURCE_NAME = "merge-source.db";
+    private static final long START = 1_706_683_500_000L; // 31 Jan 2024
+    private static final long HOUR = 3_600_000L;
+    private static final int COMMON_SALES = 3;
+
+    private Context context;
+    private AppDatabase live;
+    private AppDatabase source;
+    private DatabaseWriter writer;
+    private File backup;
+
+    @Before
+    public void setUp() throws IOException {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(SOURCE_NAME);
+        live = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        source = Room.databaseBuilder(context, AppDatabase.class, SOURCE_NAME)
+                .allowMainThreadQueries()
+                .build();
+        writer = DatabaseWriters.newWriter(live);
+
+        // Produk tambahan di sini lebih dulu, jadi id produk kedua HP berbeda
+        live.productDao().insert(new Product("Rokok", 25_000, 22_000.0, 10, 2));
+        for (AppDatabase db : new AppDatabase[] { live, source }) {
+            db.productDao().insert(product("Teh Botol", "8991002101234", 50));
+            db.productDao().insert(product("Gula Pasir", null, 20));
+            db.productDao().insert(product("Kopi Kapal", "8992696401010", 30));
+            for (int i = 0; i < COMMON_SALES; i++) {
+                sell(db, "Teh Botol", 1, START + i * HOUR);
+            }
+        }
+
+        // Setelah berpisah, HP asal backup: jual, tambah stok, produk baru, dan stock opname tanpa transaksi
+        sell(source, "Teh Botol", 2, START + 10 * HOUR);
+        Product gula = find(source, "Gula Pasir");
+        source.productDao().applyRestock(gula.id, 10, 12_000);
+        source.saleDao().insertCashFlow(new CashFlow("OUT", 120_000, "Tambah Stok: Gula Pasir (10)",
+                START + 11 * HOUR, gula.id, null));
+        source.productDao().insert(product("Sabun Mandi", "8999999012345", 15));
+        sell(source, "Sabun Mandi", 3, START + 12 * HOUR);
+        Product kopi = find(source, "Kopi Kapal");
+        kopi.currentStock -= 4;
+        source.productDao().update(kopi);
+
+        // HP ini juga berjualan
+        sell(live, "Gula Pasir", 1, START + 13 * HOUR);
+
+        backup = new File(context.getCacheDir(), "merge" + DatabaseSnapshot.EXTENSION);
+        DatabaseSnapshot.create(context.getDatabasePath(SOURCE_NAME), context.getCacheDir(), backup);
+    }
+
+    @After
+    public void tearDown() {
+        live.close();
+        source.close();
+        context.deleteDatabase(SOURCE_NAME);
+        DatabaseRestorer.discard(context);
+        backup.delete();
+    }
+
+    @Test
+    public void dryRunReportsNewRowsProductsAndStockWithoutWriting() throws IOException {
+        MergeRestorer.Plan plan = analyze();
+        MergeRestorer.Report report = plan.report;
+
+        assertEquals(3, report.cashFlowsNew);
+        assertEquals(2, report.salesNew);
+        assertEquals(COMMON_SALES, report.cashFlowsDuplicate);
+        assertEquals(3, report.productsMatched);
+        assertEquals(1, report.productsNew);
+        assertEquals(120_000, report.expenseAdded, 0);
+        assertTrue(report.stockChanges.contains("Teh Botol: 47 -> 45"));
+        assertTrue(report.stockChanges.contains("Gula Pasir: 19 -> 29"));
+        // Penjualan Gula di sini dan tambah stok di backup tercatat, hanya opname Kopi yang tidak
+        assertEquals(Collections.singletonList("Kopi Kapal: selisih -4 tanpa transaksi"), report.stockWarnings);
+
+        assertEquals(COMMON_SALES + 1, live.cashFlowDao().countInRange(0, Long.MAX_VALUE));
+        assertEquals(4, live.productDao().getAllProductsSync().size());
+    }
+
+    @Test
+    public void applyWritesPlanAndMergingAgainAddsNothing() throws IOException {
+        MergeRestorer.Plan plan = analyze();
+        MergeRestorer.Report result = MergeRestorer.apply(context, live, writer, plan);
+
+        assertEquals(3, result.cashFlowsNew);
+        assertEquals(2, result.salesNew);
+        assertEquals(1, result.productsNew);
+        assertEquals(plan.report.stockWarnings, result.stockWarnings);
+        assertFalse(plan.staged.file.exists()); // Staging dihapus setelah apply
+
+        assertEquals(COMMON_SALES + 1 + 3, live.cashFlowDao().countInRange(0, Long.MAX_VALUE));
+        assertEquals(45, find(live, "Teh Botol").currentStock);
+        assertEquals(29, find(live, "Gula Pasir").currentStock);
+        assertEquals(30, find(live, "Kopi Kapal").currentStock); // Opname di HP lain tidak ikut
+        Product sabun = find(live, "Sabun Mandi");
+        assertEquals(12, sabun.currentStock); // Sama dengan di HP asal
+        assertEquals(3, sabun.salesCount);
+
+        MergeRestorer.Report again = analyze().report;
+        assertEquals(0, again.cashFlowsNew);
+        assertEquals(COMMON_SALES + 3, again.cashFlowsDuplicate);
+        assertEquals(0, again.productsNew);
+        assertTrue(again.stockChanges.isEmpty());
+        assertEquals(1, again.stockWarnings.size()); // Selisih opname tetap belum terselesaikan
+    }
+
+    private MergeRestorer.Plan analyze() throws IOException {
+        DatabaseRestorer.Staged staged;
+        try (InputStream in = new FileInputStream(backup)) {
+            staged = DatabaseRestorer.prepare(context, in);
+        }
+        return MergeRestorer.analyze(live, staged);
+    }
+
+    private static Product product(String name, String barcode, int stock) {
+        Product product = new Product(name, 5000, 4000.0, stock, 5);
+        product.barcode = barcode;
+        return product;
+    }
+
+    private static Product find(AppDatabase db, String name) {
+        for (Product product : db.productDao().getAllProductsSync()) {
+            if (name.equals(product.name)) {
+                return product;
+            }
+        }
+        throw new AssertionError(name + " tidak ada");
+    }
+
+    /**
+     * Jalur tulis sama dengan DataRepository.checkout untuk satu produk
+     */
+    private static void sell(AppDatabase db, String name, int quantity, long time) {
+        Product product = find(db, name);
+        db.runInTransaction(() -> {
+            db.productDao().applySale(product.id, quantity, time);
+            SaleItem item = new SaleItem(product.id, product.name, quantity, product.sellPrice, product.buyPrice, time);
+            CashFlow flow = new CashFlow("IN", item.getRevenue(), "Jual: " + name + " (" + quantity + ")", time,
+                    null, item.lineProfit);
+            db.saleDao().insertSaleWithItems(flow, new Sale(time, flow.amount, item.lineProfit, quantity),
+                    Collections.singletonList(item));
+            db.dailySummaryDao().record(flow);
+        });
+    }
+}
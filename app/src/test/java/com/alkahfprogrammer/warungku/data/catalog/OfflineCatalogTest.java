@@ -0,0 +1,216 @@
+package com.alkahfprogrammer.warungku.data.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.alkahfprogrammer.warungku.data.entity.BarcodeLookup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Katalog offline dari dump JSONL sintetis: kebenaran lookup, lalu benchmark latensi lookup
+ * dan memori (heap vs resident) untuk katalog seukuran dump satu negara.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class OfflineCatalogTest {
+    private static final int PRODUCTS = 200_000;
+    private static final int LOOKUPS = 200_000;
+    private static final long SEED = 42;
+
+    private Context context;
+    private long[] codes;
+
+    @Before
+    public void setUp() throws IOException {
+        context = ApplicationProvider.getApplicationContext();
+        File dump = new File(context.getCacheDir(), "off_dump.jsonl");
+        codes = writeDump(dump);
+        OfflineCatalogImporter.Result result =
+                OfflineCatalogImporter.importDump(context, Uri.fromFile(dump), "en:indonesia");
+        dump.delete();
+
+        assertEquals(PRODUCTS + 2, result.scanned);
+        assertEquals(PRODUCTS, result.imported); // Produk negara lain dan tanpa nama tidak masuk
+    }
+
+    @Test
+    public void findsImportedProductsOnly() {
+        OfflineCatalog catalog = new OfflineCatalog(OfflineCatalog.getFile(context));
+
+        BarcodeLookup lookup = catalog.find(ean13(codes[0]), 1000L);
+        assertNotNull(lookup);
+        assertTrue(lookup.found);
+        assertEquals("Produk " + codes[0], lookup.name);
+        assertEquals("Merek A", lookup.brand); // Merek pertama saja
+        assertEquals(1000L, lookup.fetchedAt);
+
+        // EAN-8 dengan dan tanpa nol di depan adalah GTIN yang sama
+        assertEquals("Permen Mint", catalog.find("12345670", 0).name);
+        assertEquals("Permen Mint", catalog.find("0000012345670", 0).name);
+
+        assertNull(catalog.find("8990000000000", 0)); // Produk negara lain
+        assertNull(catalog.find("8990000000001", 0)); // Tanpa nama
+        assertNull(catalog.find("bukan-barcode", 0));
+    }
+
+    @Test
+    public void benchmarkLookupLatencyAndMemory() {
+        File file = OfflineCatalog.getFile(context);
+        new OfflineCatalog(file); // Kelas dan jalur map sudah dimuat sebelum diukur
+
+        usedHeap(); // Buang sisa sampah dari impor dulu
+        long heapBefore = usedHeap();
+        long rssBefore = residentFileKb();
+        OfflineCatalog catalog = new OfflineCatalog(file);
+        long heapRetained = usedHeap() - heapBefore;
+
+        Random random = new Random(SEED);
+        String[] hits = new String[1024];
+        String[] misses = new String[1024];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = ean13(codes[random.nextInt(codes.length)]);
+            misses[i] = ean13(7_770_000_000_000L + random.nextInt(1_000_000_000)); // Di luar rentang kode dump
+        }
+
+        // Miss dulu: hanya menyentuh long[] kode; hit juga membaca record di blok string
+        Result miss = measure(catalog, misses);
+        long rssAfterMiss = residentFileKb();
+        Result hit = measure(catalog, hits);
+        long rssAfterHit = residentFileKb();
+
+        System.out.println(String.format(Locale.ROOT,
+                "Katalog offline: %d produk, file %d KB", catalog.size(), file.length() / 1024));
+        System.out.println("  lookup tidak ada    : " + miss);
+        System.out.println("  lookup ditemukan    : " + hit);
+        System.out.println("  heap setelah map    : " + heapRetained / 1024 + " KB");
+        if (rssBefore >= 0) {
+            // Halaman mapping adalah page cache yang bisa dibuang kernel, bukan heap; kernel juga
+            // memetakan halaman tetangga saat page fault, jadi record acak cepat menyentuh seluruh file
+            System.out.println("  resident file-backed: +" + (rssAfterMiss - rssBefore) + " KB setelah miss, +"
+                    + (rssAfterHit - rssBefore) + " KB setelah hit " + hits.length + " record acak");
+        }
+
+        assertEquals(PRODUCTS, catalog.size());
+        // Isi katalog ada di mapping, bukan di heap: yang tertahan jauh lebih kecil dari file
+        assertTrue(heapRetained + " B heap untuk file " + file.length() + " B", heapRetained < file.length() / 10);
+    }
+
+    private static Result measure(OfflineCatalog catalog, String[] barcodes) {
+        for (int i = 0; i < LOOKUPS / 4; i++) {
+            catalog.find(barcodes[i & (barcodes.length - 1)], 0);
+        }
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            catalog.find(barcodes[i & (barcodes.length - 1)], 0);
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        return new Result(nanos / LOOKUPS, allocatedBefore < 0 ? -1 : allocated / LOOKUPS);
+    }
+
+    /**
+     * Dump JSONL ala Open Food Facts: PRODUCTS produk Indonesia dengan kode 899..., satu produk EAN-8,
+     * satu produk negara lain, dan satu produk tanpa nama
+     * @return kode EAN-13 produk Indonesia (tanpa digit cek, sebagai angka)
+     */
+    private static long[] writeDump(File dump) throws IOException {
+        Random random = new Random(SEED);
+        long[] codes = new long[PRODUCTS - 1];
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(dump), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = 8_991_000_000_000L + i * 1000L + random.nextInt(1000); // Unik, tidak terurut di dump
+                out.write("{\"code\":\"" + ean13(codes[i]) + "\",\"product_name\":\"Produk " + codes[i]
+                        + "\",\"brands\":\"Merek A,Merek B\",\"quantity\":\"" + (50 + random.nextInt(950))
+                        + " g\",\"categories\":\"Makanan ringan\",\"countries_tags\":[\"en:indonesia\"],"
+                        + "\"image_front_url\":\"https://images.openfoodfacts.org/images/products/"
+                        + codes[i] + "/front_id.3.400.jpg\",\"nutriments\":{\"energy\":" + random.nextInt(2000)
+                        + "},\"ingredients_text\":\"gula, tepung terigu, minyak nabati\"}\n");
+            }
+            out.write("{\"code\":\"12345670\",\"product_name\":\"Permen Mint\",\"countries\":\"Indonesia\"}\n");
+            out.write("{\"code\":\"8990000000000\",\"product_name\":\"Biskuit\",\"countries_tags\":[\"en:malaysia\"]}\n");
+            out.write("{\"code\":\"8990000000001\",\"countries_tags\":[\"en:indonesia\"]}\n");
+        }
+        return codes;
+    }
+
+    private static String ean13(long code) {
+        return String.format(Locale.ROOT, "%013d", code);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * RssFile proses JVM (Linux): halaman file-backed yang resident, termasuk mapping katalog
+     * (heap yang tumbuh masuk RssAnon, jadi tidak ikut terhitung); -1 jika tidak tersedia
+     */
+    private static long residentFileKb() {
+        try {
+            List<String> lines = Files.readAllLines(Paths.get("/proc/self/status"));
+            for (String line : lines) {
+                if (line.startsWith("RssFile:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Bukan Linux
+        }
+        return -1;
+    }
+
+    /**
+     * Byte yang dialokasikan thread ini (HotSpot); -1 jika JVM tidak mendukung
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static class Result {
+        final long nanosPerLookup;
+        final long bytesPerLookup;
+
+        Result(long nanosPerLookup, long bytesPerLookup) {
+            this.nanosPerLookup = nanosPerLookup;
+            this.bytesPerLookup = bytesPerLookup;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d ns, %d B/lookup", nanosPerLookup, bytesPerLookup);
+        }
+    }
+}
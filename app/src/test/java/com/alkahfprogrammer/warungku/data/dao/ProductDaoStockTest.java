@@ -0,0 +1,130 @@
+package com.alkahfprogrammer.warungku.data.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stress test update stok relatif: banyak thread menjual & menambah stok produk yang sama bersamaan,
+ * tidak boleh ada update yang hilang dan stok yang dikembalikan harus milik update itu sendiri.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class ProductDaoStockTest {
+    private static final String DB_NAME = "stock-stress.db";
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 250;
+    private static final int INITIAL_STOCK = 100_000;
+
+    private Context context;
+    private AppDatabase database;
+    private ProductDao productDao;
+    private int productId;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        // File database (WAL, beberapa koneksi) seperti di perangkat, bukan in-memory
+        database = Room.databaseBuilder(context, AppDatabase.class, DB_NAME)
+                .allowMainThreadQueries()
+                .build();
+        productDao = database.productDao();
+        productId = (int) productDao.insert(new Product("Kopi", 2000, 1500.0, INITIAL_STOCK, 5));
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void concurrentDecrementsReturnDistinctStock() throws Exception {
+        Set<Integer> returned = ConcurrentHashMap.newKeySet();
+        runConcurrently(thread -> {
+            for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                returned.add(productDao.decrementStock(productId, 1, System.currentTimeMillis()));
+            }
+        });
+
+        int sold = THREADS * CALLS_PER_THREAD;
+        Product product = productDao.getProductById(productId);
+        assertEquals(INITIAL_STOCK - sold, product.currentStock);
+        assertEquals(sold, product.salesCount);
+        // Setiap pemanggil melihat stok hasil update-nya sendiri: tidak ada dua yang sama
+        assertEquals(sold, returned.size());
+        for (int stock = INITIAL_STOCK - sold; stock < INITIAL_STOCK; stock++) {
+            assertTrue(returned.contains(stock));
+        }
+    }
+
+    @Test
+    public void concurrentSalesAndRestocksAddUp() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                if (thread % 2 == 0) {
+                    productDao.decrementStock(productId, 3, System.currentTimeMillis());
+                } else {
+                    productDao.incrementStock(productId, 2, 1500 + thread);
+                }
+            }
+        });
+
+        int sellers = THREADS / 2;
+        int restockers = THREADS - sellers;
+        Product product = productDao.getProductById(productId);
+        assertEquals(INITIAL_STOCK - sellers * CALLS_PER_THREAD * 3 + restockers * CALLS_PER_THREAD * 2,
+                product.currentStock);
+        assertEquals(sellers * CALLS_PER_THREAD * 3, product.salesCount);
+    }
+
+    private void runConcurrently(ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                body.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(); // Lempar ulang kegagalan di thread pekerja
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadBody {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,217 @@
+package com.alkahfprogrammer.warungku.data.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.entity.DailySummary;
+import com.alkahfprogrammer.warungku.data.entity.Product;
+import com.alkahfprogrammer.warungku.data.model.StockEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Impor produk lewat ProductUpsertEngine ke database sungguhan: duplikat di dalam file, barcode dan nama
+ * yang menunjuk dua produk berbeda, produk yang disentuh dua baris, cash flow "Tambah Stok" dan rekap
+ * harian hanya untuk stok yang bertambah, serta apply ulang setelah rollback.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class ProductUpsertEngineTest {
+    private AppDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        db.productDao().insert(product("Teh Botol", "8991002101234", 3000.0, 10));
+        db.productDao().insert(product("Gula Pasir", null, 12_000.0, 20));
+        db.productDao().insert(product("Kopi Kapal", "8992696401010", 1500.0, 8));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void duplicatesWithinFileAreSkippedByNameAndBarcode() {
+        ProductUpsertEngine engine = new ProductUpsertEngine();
+        assertTrue(engine.stage(2, product("Sabun Mandi", "8999999012345", 2500.0, 4)));
+        assertFalse(engine.stage(3, product("  sabun   MANDI ", null, 2500.0, 4)));
+        assertTrue(engine.stage(4, product("Sampo", "8999999054321", 1000.0, 6)));
+        assertFalse(engine.stage(5, product("Sampo Sachet", " 8999999054321 ", 1000.0, 6)));
+
+        ImportSummary summary = apply(engine, new ArrayList<>());
+
+        assertEquals(2, summary.inserted);
+        assertEquals(2, summary.skipped);
+        assertEquals(Arrays.asList(
+                "Baris 3: nama \"  sabun   MANDI \" sama dengan baris 2, dilewati",
+                "Baris 5: barcode 8999999054321 sama dengan baris 4, dilewati"), summary.errors);
+        assertEquals(5, db.productDao().getAllProductsSync().size());
+    }
+
+    @Test
+    public void barcodeAndNameOfDifferentProductsFailsInsteadOfHittingUniqueIndex() {
+        ProductUpsertEngine engine = new ProductUpsertEngine();
+        // Barcode milik Teh Botol, nama milik Gula Pasir: mengupdate Gula dengan barcode itu melanggar index unik barcode
+        engine.stage(2, product("Gula Pasir", "8991002101234", 12_000.0, 30));
+
+        ImportSummary summary = apply(engine, new ArrayList<>());
+
+        assertEquals(0, summary.getWrittenCount());
+        assertEquals(1, summary.failed);
+        assertEquals("Baris 2: barcode 8991002101234 milik \"Teh Botol\", tetapi nama milik produk lain",
+                summary.errors.get(0));
+        assertEquals(10, find("Teh Botol").currentStock);
+        Product gula = find("Gula Pasir");
+        assertEquals(20, gula.currentStock);
+        assertNull(gula.barcode);
+    }
+
+    @Test
+    public void productTouchedByTwoRowsKeepsFirstRow() {
+        ProductUpsertEngine engine = new ProductUpsertEngine();
+        engine.stage(2, product("Kopi Kapal Api", "8992696401010", 1500.0, 8)); // Cocok lewat barcode, nama baru
+        engine.stage(3, product("Kopi Kapal", null, 1500.0, 50)); // Cocok lewat nama lama ke produk yang sama
+
+        ImportSummary summary = apply(engine, new ArrayList<>());
+
+        assertEquals(1, summary.updated);
+        assertEquals(1, summary.failed);
+        assertEquals("Baris 3: produk \"Kopi Kapal\" sudah diubah oleh baris 2", summary.errors.get(0));
+        Product kopi = find("Kopi Kapal Api");
+        assertEquals(8, kopi.currentStock);
+        assertEquals("8992696401010", kopi.barcode);
+    }
+
+    @Test
+    public void onlyStockIncreasesWriteTambahStokAndDailySummary() {
+        ProductUpsertEngine engine = new ProductUpsertEngine();
+        engine.stage(2, product("Teh Botol", "8991002101234", 3000.0, 15)); // +5
+        engine.stage(3, product("Gula Pasir", null, 12_000.0, 18)); // -2, tanpa cash flow
+        engine.stage(4, product("Kopi Kapal", "8992696401010", 1500.0, 8)); // Sama persis
+        engine.stage(5, product("Sabun Mandi", "8999999012345", 2500.0, 4)); // Baru dengan stok
+        engine.stage(6, product("Garam", null, 1000.0, 0)); // Baru tanpa stok
+        List<StockEvent> events = new ArrayList<>();
+
+        ImportSummary summary = apply(engine, events);
+
+        assertEquals(2, summary.inserted);
+        assertEquals(2, summary.updated);
+        assertEquals(1, summary.skipped);
+        List<CashFlow> flows = db.cashFlowDao().getHistoryFirstPage(10);
+        assertEquals(2, flows.size());
+        double expected = 0;
+        for (CashFlow flow : flows) {
+            assertEquals("OUT", flow.type);
+            expected += flow.amount;
+        }
+        assertTrue(descriptions(flows).contains("Tambah Stok: Teh Botol (5)"));
+        assertTrue(descriptions(flows).contains("Tambah Stok: Sabun Mandi (4)"));
+        assertEquals(5 * 3000.0 + 4 * 2500.0, expected, 0);
+
+        List<DailySummary> days = db.dailySummaryDao().getSummariesInRangeSync(0, Long.MAX_VALUE);
+        assertEquals(1, days.size());
+        assertEquals(expected, days.get(0).expense, 0);
+        assertEquals(expected, days.get(0).stockPurchase, 0);
+        assertEquals(2, days.get(0).transactionCount);
+
+        // Sabun baru di bawah minStock, Garam habis; Teh dan Gula tetap di atas batas
+        assertEquals(2, events.size());
+        assertEquals(15, find("Teh Botol").currentStock);
+        assertEquals(18, find("Gula Pasir").currentStock);
+    }
+
+    @Test
+    public void rerunAfterRollbackGivesSameSummary() {
+        ProductUpsertEngine engine = new ProductUpsertEngine();
+        engine.stage(2, product("Teh Botol", "8991002101234", 3000.0, 15));
+        engine.stage(3, product("teh botol", null, 3000.0, 99)); // Duplikat nama di file
+        engine.stage(4, product("Gula Pasir", "8992696401010", 12_000.0, 30)); // Barcode Kopi, nama Gula
+        engine.stage(5, product("Sabun Mandi", "8999999012345", 2500.0, 4));
+        engine.skip(6, null); // Baris kosong
+        engine.fail(7, "harga jual tidak valid");
+
+        List<StockEvent> events = new ArrayList<>();
+        ImportSummary[] first = new ImportSummary[1];
+        try {
+            db.runInTransaction(() -> {
+                first[0] = engine.apply(db, events);
+                throw new IllegalStateException("rollback");
+            });
+            fail("Transaksi harus gagal");
+        } catch (IllegalStateException expected) {
+            // Lanjut
+        }
+        assertEquals(3, db.productDao().getAllProductsSync().size());
+        assertEquals(0, db.cashFlowDao().countInRange(0, Long.MAX_VALUE));
+        assertEquals(10, find("Teh Botol").currentStock);
+
+        // Seperti DatabaseWriter: perintah yang sama dijalankan ulang dengan daftar event yang dikosongkan
+        events.clear();
+        ImportSummary second = apply(engine, events);
+
+        assertEquals(first[0].inserted, second.inserted);
+        assertEquals(first[0].updated, second.updated);
+        assertEquals(first[0].skipped, second.skipped);
+        assertEquals(first[0].failed, second.failed);
+        assertEquals(first[0].errors, second.errors);
+        assertEquals(1, second.inserted);
+        assertEquals(1, second.updated);
+        assertEquals(2, second.skipped);
+        assertEquals(2, second.failed);
+        // Sekali tulis, bukan dua kali
+        assertEquals(4, db.productDao().getAllProductsSync().size());
+        assertEquals(2, db.cashFlowDao().countInRange(0, Long.MAX_VALUE));
+        assertEquals(15, find("Teh Botol").currentStock);
+    }
+
+    private ImportSummary apply(ProductUpsertEngine engine, List<StockEvent> events) {
+        return db.runInTransaction(() -> engine.apply(db, events));
+    }
+
+    private Product find(String name) {
+        for (Product product : db.productDao().getAllProductsSync()) {
+            if (name.equals(product.name)) {
+                return product;
+            }
+        }
+        throw new AssertionError(name + " tidak ada");
+    }
+
+    private static List<String> descriptions(List<CashFlow> flows) {
+        List<String> descriptions = new ArrayList<>();
+        for (CashFlow flow : flows) {
+            descriptions.add(flow.description);
+        }
+        return descriptions;
+    }
+
+    private static Product product(String name, String barcode, Double buyPrice, int stock) {
+        Product product = new Product(name, buyPrice + 1000, buyPrice, stock, 5);
+        product.barcode = barcode;
+        return product;
+    }
+}
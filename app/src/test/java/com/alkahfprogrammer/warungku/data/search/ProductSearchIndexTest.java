@@ -0,0 +1,85 @@
+package com.alkahfprogrammer.warungku.data.search;
+
+import static org.junit.Assert.assertEquals;
+
+import com.alkahfprogrammer.warungku.data.entity.Product;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ProductSearchIndexTest {
+
+    @Test
+    public void rankFollowsSalesInNewEmission() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.update(Arrays.asList(product(1, "Kopi Susu", 5), product(2, "Kopi Hitam", 3)));
+        assertEquals(Arrays.asList(1, 2), ids(index.search("kopi", () -> false)));
+
+        // Emisi Room berikutnya: objek baru dengan salesCount yang berubah
+        index.update(Arrays.asList(product(1, "Kopi Susu", 5), product(2, "Kopi Hitam", 9)));
+        assertEquals(Arrays.asList(2, 1), ids(index.search("kopi", () -> false)));
+    }
+
+    @Test
+    public void rankFollowsSalesWhenSameInstanceWasMutated() {
+        Product susu = product(1, "Kopi Susu", 5);
+        Product hitam = product(2, "Kopi Hitam", 3);
+        List<Product> products = Arrays.asList(susu, hitam);
+        ProductSearchIndex index = index(products);
+
+        // Instance yang sama diubah di luar index: kunci lama tersimpan di index, perubahan tetap terdeteksi
+        hitam.salesCount = 9;
+        index.update(products);
+        assertEquals(Arrays.asList(2, 1), ids(index.search("", () -> false)));
+    }
+
+    @Test
+    public void renameReindexesAndReorders() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.update(Arrays.asList(product(1, "Teh Botol", 0), product(2, "Teh Celup", 0)));
+        index.update(Arrays.asList(product(1, "Teh Botol", 0), product(2, "Teh Aroma", 0)));
+
+        assertEquals(Arrays.asList(2, 1), ids(index.search("teh", () -> false)));
+        assertEquals(0, index.search("celup", () -> false).size());
+        assertEquals(Arrays.asList(2), ids(index.search("aroma", () -> false)));
+    }
+
+    @Test
+    public void shortTokensMatchAnywhereInTheName() {
+        ProductSearchIndex index = index(Arrays.asList(product(1, "Kabel Roll", 2), product(2, "Abon Sapi", 1),
+                product(3, "Gula Pasir", 0)));
+
+        // Sama seperti contains() di layar jual lama: bukan hanya awalan kata
+        assertEquals(Arrays.asList(1, 2), ids(index.search("ab", () -> false)));
+        assertEquals(Arrays.asList(1, 3), ids(index.search("l", () -> false)));
+        assertEquals(Arrays.asList(3), ids(index.search("as gu", () -> false)));
+
+        // Setelah rename, bigram lama dilepas
+        index.update(Arrays.asList(product(1, "Lampu", 2), product(2, "Abon Sapi", 1), product(3, "Gula Pasir", 0)));
+        assertEquals(Arrays.asList(2), ids(index.search("ab", () -> false)));
+    }
+
+    private static ProductSearchIndex index(List<Product> products) {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.update(products);
+        return index;
+    }
+
+    private static Product product(int id, String name, int salesCount) {
+        Product product = new Product(name, 1000, null, 10, 1);
+        product.id = id;
+        product.salesCount = salesCount;
+        return product;
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        List<Integer> ids = new ArrayList<>();
+        for (Product product : products) {
+            ids.add(product.id);
+        }
+        return ids;
+    }
+}
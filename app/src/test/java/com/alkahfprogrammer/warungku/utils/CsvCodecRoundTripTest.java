@@ -0,0 +1,131 @@
+package com.alkahfprogrammer.warungku.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.alkahfprogrammer.warungku.data.AppDatabase;
+import com.alkahfprogrammer.warungku.data.entity.CashFlow;
+import com.alkahfprogrammer.warungku.data.importer.CashFlowImportEngine;
+import com.alkahfprogrammer.warungku.data.importer.ImportSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Export cash_flow ke CSV lalu impor ulang: file yang sama tidak boleh menggandakan baris,
+ * dan ke database kosong semua nilai kembali persis (milidetik, nominal besar, teks ber-kutip).
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class CsvCodecRoundTripTest {
+    private static final int ROWS = 2500; // Lebih dari satu chunk export
+    private static final long START = 1_706_683_500_000L; // 31 Jan 2024 (tanpa pergantian DST di zona umum)
+
+    private AppDatabase source;
+    private AppDatabase target;
+
+    @Before
+    public void setUp() {
+        source = newDatabase();
+        target = newDatabase();
+        List<CashFlow> flows = new ArrayList<>();
+        String[] descriptions = { "Jual Teh Botol (2)", "Beli \"Gula\", 5 kg", "Listrik\nJanuari", "Kopi Susu ☕", null };
+        double[] amounts = { 3500, 12_345_678.5, 25_000_000.75, 0.5, 1_500_000 };
+        for (int i = 0; i < ROWS; i++) {
+            // Beberapa baris per detik, beda milidetik saja
+            long timestamp = START + (i / 4) * 1000L + (i % 4) * 137L;
+            Double profit = i % 3 == 0 ? null : amounts[(i + 1) % amounts.length];
+            flows.add(new CashFlow(i % 2 == 0 ? "IN" : "OUT", amounts[i % amounts.length],
+                    descriptions[i % descriptions.length], timestamp, null, profit));
+        }
+        source.cashFlowDao().insertAll(flows);
+    }
+
+    @After
+    public void tearDown() {
+        source.close();
+        target.close();
+    }
+
+    @Test
+    public void reimportingOwnExportAddsNothing() throws IOException {
+        ImportSummary summary = importInto(source, export(source));
+
+        assertEquals(0, summary.inserted);
+        assertEquals(ROWS, summary.skipped);
+        assertEquals(ROWS, source.cashFlowDao().countInRange(0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void importIntoEmptyDatabaseRestoresEveryValue() throws IOException {
+        ImportSummary summary = importInto(target, export(source));
+        assertEquals(ROWS, summary.inserted);
+
+        List<CashFlow> expected = source.cashFlowDao().getHistoryFirstPage(ROWS);
+        List<CashFlow> actual = target.cashFlowDao().getHistoryFirstPage(ROWS);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            CashFlow want = expected.get(i);
+            CashFlow got = actual.get(i);
+            assertEquals(want.timestamp, got.timestamp);
+            assertEquals(want.type, got.type);
+            assertEquals(want.amount, got.amount, 0);
+            assertEquals(want.profit != null ? want.profit : 0.0, got.profit, 0); // Profit kosong diimpor sebagai 0
+            assertEquals(want.description, got.description);
+        }
+    }
+
+    @Test
+    public void exportWritesPlainDecimalsAndMilliseconds() throws IOException {
+        String csv = new String(export(source), StandardCharsets.UTF_8);
+
+        assertEquals(-1, csv.indexOf("E7"));
+        assertTrue(csv.contains(",12345678.5,"));
+        assertTrue(csv.contains(",25000000.75,"));
+        assertTrue(csv.contains(".137,"));
+    }
+
+    @Test
+    public void timestampsWithoutMillisecondsStillImport() throws IOException {
+        byte[] legacy = ("Waktu,Jenis,Jumlah,Keuntungan,Keterangan,ID Produk\r\n"
+                + "2024-01-31 13:45:00,Masuk,3500,,Teh,\r\n").getBytes(StandardCharsets.UTF_8);
+        CashFlowImportEngine engine = CsvCodec.importCashFlows(new ByteArrayInputStream(legacy), null);
+
+        assertEquals(1, engine.getStagedCount());
+        assertEquals(1, engine.apply(target).inserted);
+    }
+
+    private static byte[] export(AppDatabase db) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvWriter writer = new CsvWriter(out, ',')) {
+            CsvCodec.writeCashFlows(db, writer, 0, Long.MAX_VALUE, ZoneId.systemDefault(), null, null);
+        }
+        return out.toByteArray();
+    }
+
+    private static ImportSummary importInto(AppDatabase db, byte[] csv) throws IOException {
+        CashFlowImportEngine engine = CsvCodec.importCashFlows(new ByteArrayInputStream(csv), null);
+        return db.runInTransaction(() -> engine.apply(db));
+    }
+
+    private static AppDatabase newDatabase() {
+        return Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+    }
+}